@@ -5,35 +5,71 @@
 //        (4) items/item 경로가 없거나 비정상 타입일 때를 apiError로 잡지 않고 arrivalItemsEmpty로 분리(응답구조/빈 결과 케이스를 명확히 카운트)
 //        (5) 쿼터 소진 감지(HTTP 429 / resultMsg) 시 ApiQuotaManager를 즉시 소진 처리하고 collectorSwitch OFF로 내려 수집 루프를 종료
 //        (6) route-stops / route-noList 등 수집 루프에서 발생하는 외부 호출에도 전역 쿼터를 적용하고, 429/쿼터 초과 메시지면 즉시 중단
+//        (7) 이미 받아 오는 route-noList(routeno) / route-stops(nodenm) 응답으로 노선번호/정류장명 사전(bus_route_name, bus_stop_name)을 채운다
+//            (경로 응답 조립 시 TAGO를 다시 호출하지 않기 위함, 값이 바뀐 항목만 저장)
+//        (8) 도착정보 차이로 얻은 구간 소요시간 샘플을 경로 엔진 실시간 지연 오버레이(LiveDelayOverlay)에도 전달한다
+//            (segment_weight 평균과 별개로 최근 혼잡을 바로 반영, 스냅샷 재빌드 없음)
+//        (9) segment_weight upsert를 구간마다 직접 실행하지 않고 SegmentWeightWriter 큐에 넣는다
+//            (크기/시간 기준 묶음 flush, 한 트랜잭션 다중 행 upsert, writer의 DB 치명 오류는 DB_CLOSED_FATAL로 이어받음)
+//        (10) arrival API 응답을 정류장 단위로 한 번만 파싱해 StationArrivalCache에 두고 같은 주기의 모든 노선이 공유한다
+//             (collectOnce 시작 시 주기 초기화, TTL 초과 항목은 다시 호출, 캐시로 대신한 호출 수 = quotaSaved)
+//        (11) 호출 후 고정 sleep(API_SLEEP_MS)과 parallelStream을 없애고 TagoApiClient(토큰 버킷 + 전용 스레드 + 타임아웃)로 호출한다
+//        (12) 노선 정류장 목록 / 노선 목록 / 라운드로빈 위치·바퀴 수·방문 노선을 DB(collector_route_stops, collector_state)에 보관하고
+//             기동 시 복원한다(재기동 후 쿼터 거의 0, 멈춘 위치에서 이어서 수집). TTL이 지난 정류장 목록만 백그라운드에서 다시 받고,
+//             내용 해시가 같으면 받은 시각만 갱신한다. 노선 목록도 TTL 안에서는 매 collectOnce마다 다시 받지 않는다.
+//        (13) 차량 궤적 모드(collector.mode=trajectory): 노선별 버스 위치(getRouteAcctoBusLcList)를 주기적으로 받아
+//             VehicleTrajectoryBuffer로 차량별 정류장 순번 변화를 추적하고, 관측된 구간 통과 시간을 segment_weight/실시간 지연에 반영한다
+//             (위치 호출 1번 = 노선 위 모든 차량 관측, 이 모드에서 refineOnce의 도착정보 호출은 하지 않는다)
+//        (14) 정보가치 스케줄러(SamplingScheduler): collectOnce는 라운드로빈 대신 "구간 기대 오차 감소 합 / 정류장 수"가 큰 노선부터 고르고,
+//             collectOnce/refineOnce 모두 수렴한 구간은 확률적으로만 샘플한다. refineOnce 예산은 기대 감소가 큰 구간부터 쓴다.
+//             샘플/호출 수를 스케줄러에 넘겨 "오차 1초 감소당 쓴 호출 수"를 보고한다(collector.voi.enabled=false면 기존 방식).
+//        (15) 큐에 넣은 구간 샘플을 경로 엔진 구간 통계(SegmentStatsEngine: 분산/EWMA/시간대별 평균)에도 전달한다
+//             (거리 기반 추정값은 관측이 아니므로 넣지 않는다)
+//        (16) 구간 통계의 분위수 스케치로 이상값(GPS 튐/예측 초기화)을 먼저 판정하고, 이상값이면 segment_weight 큐와 스케줄러에 넣지 않는다
+//        (17) 도착정보 차이는 arrtime을 응답 받은 시각(fetchedAtMs) 기준 도착 예정 시각으로 바꿔 뺀다
+//             (캐시 항목은 최대 ttl-ms 지난 값이라, 남은 초끼리 빼면 오래된 값과 새 값이 섞여 그만큼 틀어진다)
+//        (18) 실시간 지연 오버레이(8)도 이상값 판정(16)을 통과한 샘플만 받는다(upsertSegmentWeightBus 안에서 전달)
 
 package com.example.demo.collector;
 
 import java.net.URI;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.sql.DataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.example.demo.dao.CollectorStateDAO;
+import com.example.demo.dao.TransitNameDAO;
+import com.example.demo.service.path.impl.LiveDelayOverlay;
+import com.example.demo.service.path.impl.SegmentStatsEngine;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -67,13 +103,12 @@ public class BusSegmentCollector {
 
     private static final String TAGO_ROUTE_BASE_URL   = "http://apis.data.go.kr/1613000/BusRouteInfoInqireService";
     private static final String TAGO_ARRIVAL_BASE_URL = "http://apis.data.go.kr/1613000/ArvlInfoInqireService";
+    private static final String TAGO_BUS_LOCATION_BASE_URL = "http://apis.data.go.kr/1613000/BusLcInfoInqireService";
 
     private static final String OP_GET_ROUTE_NO_LIST    = "/getRouteNoList";
     private static final String OP_GET_ROUTE_STOPS      = "/getRouteAcctoThrghSttnList";
     private static final String OP_GET_ARRIVAL_BY_STTN  = "/getSttnAcctoArvlPrearngeInfoList";
-
-    // ✅ API 호출 간 텀(과도한 호출 방지)
-    private static final int API_SLEEP_MS = 120;
+    private static final String OP_GET_BUS_LOCATIONS    = "/getRouteAcctoBusLcList";
 
     // =========================
     // fallback 시간 계산 파라미터
@@ -107,6 +142,38 @@ public class BusSegmentCollector {
     // - 빈/실패 결과도 캐시에 저장하여 같은 노선에 대한 재호출을 방지한다.
     private static final Map<String, List<StopOnRoute>> ROUTE_STOPS_CACHE = new ConcurrentHashMap<>();
 
+    // routeId -> 정류장 목록을 받은(마지막으로 확인한) 시각 / 내용 해시 (TTL·변경 판단용)
+    private static final Map<String, Long> ROUTE_STOPS_FETCHED_AT = new ConcurrentHashMap<>();
+    private static final Map<String, String> ROUTE_STOPS_HASH = new ConcurrentHashMap<>();
+
+    // 노선 목록 캐시(TTL 안이면 getRouteNoList를 다시 부르지 않는다)
+    private static volatile List<RouteInfo> ROUTE_LIST_CACHE = Collections.emptyList();
+    private static volatile long ROUTE_LIST_FETCHED_AT = 0L;
+
+    // collector_state 키 / 키별 마지막 저장 해시(같으면 다시 쓰지 않는다)
+    private static final String STATE_KEY_ROUTE_LIST = "route_list";
+    private static final String STATE_KEY_ROUND_ROBIN = "round_robin";
+    private static final String STATE_KEY_VISITED = "visited";
+    private static final Map<String, String> SAVED_STATE_HASH = new ConcurrentHashMap<>();
+
+    // 상태 보관 통계
+    private static final AtomicInteger STATE_RESTORED_ROUTE_STOPS = new AtomicInteger(0);
+    private static final AtomicInteger STATE_STALE_REFRESHED = new AtomicInteger(0);
+    private static final AtomicInteger STATE_STALE_UNCHANGED = new AtomicInteger(0);
+    private static final AtomicInteger STATE_STALE_FAILED = new AtomicInteger(0);
+    private static final AtomicInteger STATE_ROUTE_LIST_REUSED = new AtomicInteger(0);
+    private static final AtomicInteger STATE_WRITES = new AtomicInteger(0);
+    private static final AtomicInteger STATE_WRITES_SKIPPED = new AtomicInteger(0);
+
+    // 궤적 모드: routeId -> 마지막 위치 폴링 시각 / 누적 폴링·샘플 수
+    private static final Map<String, Long> TRAJECTORY_LAST_POLL = new ConcurrentHashMap<>();
+    private static final AtomicInteger TRAJECTORY_POLLS = new AtomicInteger(0);
+    private static final AtomicInteger TRAJECTORY_SAMPLES = new AtomicInteger(0);
+
+    // 이름 사전에 이미 저장한 값(같은 값이면 다시 쓰지 않는다)
+    private static final Map<String, String> SAVED_STOP_NAMES = new ConcurrentHashMap<>();
+    private static final Map<String, String> SAVED_ROUTE_NOS = new ConcurrentHashMap<>();
+
     // ✅ DB 풀 종료를 한 번이라도 감지하면, 이후 모든 작업을 즉시 멈추기 위한 치명 상태 플래그
     private static final AtomicBoolean DB_CLOSED_FATAL = new AtomicBoolean(false);
 
@@ -176,18 +243,566 @@ public class BusSegmentCollector {
         return false;
     }
 
-    @Autowired
-    private DataSource dataSource;
-
     // ✅ 전역 호출 예산(일일 10,000) 강제 적용
     //    - arrival API 호출은 반드시 tryConsume(1) 성공한 경우에만 수행한다.
     //    - 예산 소진 시: 즉시 null 반환 → fallback(거리 기반)으로 진행되며, 추가 호출은 발생하지 않는다.
     @Autowired
     private ApiQuotaManager apiQuotaManager;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private TransitNameDAO transitNameDAO;
+
+    @Autowired // 경로 엔진 실시간 지연 오버레이(최신 도착정보 차이 샘플 전달)
+    private LiveDelayOverlay liveDelayOverlay;
+
+    @Autowired // segment_weight 묶음 쓰기 파이프라인
+    private SegmentWeightWriter segmentWeightWriter;
+
+    @Autowired // 정류장 단위 도착정보 캐시(같은 주기의 노선들이 응답 공유)
+    private StationArrivalCache stationArrivalCache;
+
+    @Autowired // TAGO 호출(토큰 버킷 속도 제한 + 전용 작업 스레드 + 타임아웃)
+    private TagoApiClient tagoApiClient;
+
+    @Autowired // 정류장 목록/라운드로빈 상태 보관
+    private CollectorStateDAO collectorStateDAO;
+
+    // 상태 보관/복원 사용 여부
+    @Value("${collector.state.enabled:true}")
+    private boolean stateEnabled;
+
+    // 정류장 목록 TTL(시간). 지나면 백그라운드에서 다시 받는다
+    @Value("${collector.state.route-stops-ttl-hours:168}")
+    private long routeStopsTtlHours;
+
+    // 노선 목록 TTL(시간). 지나면 다음 collectOnce에서 다시 받는다
+    @Value("${collector.state.route-list-ttl-hours:24}")
+    private long routeListTtlHours;
+
+    // 오래된 정류장 목록 확인 주기(ms) / 1회 최대 재수신 노선 수
+    @Value("${collector.state.refresh-interval-ms:60000}")
+    private long staleRefreshIntervalMs;
+
+    @Value("${collector.state.refresh-batch:20}")
+    private int staleRefreshBatch;
+
+    @Autowired // 궤적 모드 차량별 순번 추적
+    private VehicleTrajectoryBuffer vehicleTrajectoryBuffer;
+
+    @Autowired // 정보가치 기반 노선/구간 선택
+    private SamplingScheduler samplingScheduler;
+
+    @Autowired // 경로 엔진 구간 통계(분산/EWMA/시간대별 평균)
+    private SegmentStatsEngine segmentStatsEngine;
+
+    // 수집 방식: arrival(정류장 도착예정 차이, 기존) / trajectory(버스 위치 궤적)
+    @Value("${collector.mode:arrival}")
+    private String collectorMode;
+
+    // 궤적 모드: 노선별 위치 폴링 최소 간격(ms) / collectOnce 1회 최대 폴링 노선 수
+    @Value("${collector.trajectory.poll-interval-ms:30000}")
+    private long trajectoryPollIntervalMs;
+
+    @Value("${collector.trajectory.routes-per-cycle:40}")
+    private int trajectoryRoutesPerCycle;
+
+    private final ScheduledExecutorService stateRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "collector-state-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    // =========================
+    // 수집기 상태 보관/복원 (collector_route_stops / collector_state)
+    // =========================
+
+    /**
+     * 기동 시 저장된 노선 정류장 목록 / 노선 목록 / 라운드로빈 진행 상태를 복원하고,
+     * TTL이 지난 정류장 목록만 백그라운드에서 다시 받는 작업을 등록한다.
+     */
+    @PostConstruct
+    public void restoreState() {
+        if (!stateEnabled) return;
+
+        try {
+            long t0 = System.currentTimeMillis();
+            int stopsRows = restoreRouteStops();
+            restoreProgress();
+
+            System.out.println("[COLLECTOR][STATE] restored routeStops=" + stopsRows
+                + " routeList=" + ROUTE_LIST_CACHE.size()
+                + " rrIndex=" + ROUND_ROBIN_INDEX.get()
+                + " cycleCount=" + CYCLE_COUNT.get()
+                + " visited=" + VISITED_ROUTES.size()
+                + " staleRouteStops=" + countStaleRouteStops()
+                + " elapsedMs=" + (System.currentTimeMillis() - t0));
+
+        } catch (Exception e) {
+            System.out.println("[COLLECTOR][STATE][ERROR] restore msg=" + e.getMessage());
+        }
+
+        long interval = Math.max(1000L, staleRefreshIntervalMs);
+        stateRefresher.scheduleWithFixedDelay(() -> {
+            try {
+                refreshStaleRouteStops();
+            } catch (Exception e) {
+                System.out.println("[COLLECTOR][STATE][ERROR] refresh msg=" + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopStateRefresher() {
+        stateRefresher.shutdownNow();
+    }
+
+    /**
+     * 상태 보관 통계
+     */
+    public Map<String, Object> getStateSummary() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", stateEnabled);
+        out.put("routeStopsCached", ROUTE_STOPS_CACHE.size());
+        out.put("routeStopsRestored", STATE_RESTORED_ROUTE_STOPS.get());
+        out.put("routeStopsStale", countStaleRouteStops());
+        out.put("staleRefreshed", STATE_STALE_REFRESHED.get());
+        out.put("staleUnchanged", STATE_STALE_UNCHANGED.get());
+        out.put("staleFailed", STATE_STALE_FAILED.get());
+        out.put("routeListSize", ROUTE_LIST_CACHE.size());
+        out.put("routeListAgeMs", (ROUTE_LIST_FETCHED_AT == 0L) ? null : System.currentTimeMillis() - ROUTE_LIST_FETCHED_AT);
+        out.put("routeListReused", STATE_ROUTE_LIST_REUSED.get());
+        out.put("stateWrites", STATE_WRITES.get());
+        out.put("stateWritesSkipped", STATE_WRITES_SKIPPED.get());
+        return out;
+    }
+
+    private int restoreRouteStops() {
+        int rows = collectorStateDAO.forEachRouteStops((routeId, text, hash, fetchedAtMs) -> {
+            if (isBlank(routeId)) return;
+
+            List<StopOnRoute> stops = decodeStops(text);
+            if (stops.size() < 2) return;
+
+            ROUTE_STOPS_CACHE.putIfAbsent(routeId, Collections.unmodifiableList(stops));
+            ROUTE_STOPS_FETCHED_AT.put(routeId, fetchedAtMs);
+            ROUTE_STOPS_HASH.put(routeId, hash);
+            STATE_RESTORED_ROUTE_STOPS.incrementAndGet();
+
+            // 이름 사전은 이미 저장된 값이므로 다시 쓰지 않도록 표시만 한다
+            for (StopOnRoute s : stops) {
+                if (!isBlank(s.nodeName)) SAVED_STOP_NAMES.putIfAbsent(s.nodeId, s.nodeName);
+            }
+        });
+        return Math.max(0, rows);
+    }
+
+    private void restoreProgress() {
+        Map<String, Object> routeList = collectorStateDAO.findState(STATE_KEY_ROUTE_LIST);
+        if (routeList != null) {
+            List<RouteInfo> routes = new ArrayList<>();
+            for (String rid : splitCsv((String) routeList.get("value"))) {
+                routes.add(new RouteInfo(rid));
+            }
+            if (!routes.isEmpty()) {
+                ROUTE_LIST_CACHE = Collections.unmodifiableList(routes);
+                ROUTE_LIST_FETCHED_AT = ((Number) routeList.get("updatedAtMs")).longValue();
+                SAVED_STATE_HASH.put(STATE_KEY_ROUTE_LIST, (String) routeList.get("contentHash"));
+            }
+        }
+
+        Map<String, Object> rr = collectorStateDAO.findState(STATE_KEY_ROUND_ROBIN);
+        if (rr != null) {
+            List<String> parts = splitCsv((String) rr.get("value"));
+            try {
+                if (parts.size() >= 2) {
+                    ROUND_ROBIN_INDEX.set(Integer.parseInt(parts.get(0)));
+                    CYCLE_COUNT.set(Integer.parseInt(parts.get(1)));
+                    SAVED_STATE_HASH.put(STATE_KEY_ROUND_ROBIN, (String) rr.get("contentHash"));
+                }
+            } catch (NumberFormatException ignore) {
+                // 형식이 깨졌으면 0부터 다시 시작
+            }
+        }
+
+        Map<String, Object> visited = collectorStateDAO.findState(STATE_KEY_VISITED);
+        if (visited != null) {
+            VISITED_ROUTES.addAll(splitCsv((String) visited.get("value")));
+            SAVED_STATE_HASH.put(STATE_KEY_VISITED, (String) visited.get("contentHash"));
+        }
+    }
+
+    /**
+     * 노선 목록 (TTL 안이면 메모리/복원 값을 그대로, 지났으면 다시 받아 저장)
+     * - 다시 받기에 실패하면 기존 목록으로 계속 수집한다.
+     */
+    private List<RouteInfo> routeList() {
+        List<RouteInfo> cached = ROUTE_LIST_CACHE;
+        long ttlMs = TimeUnit.HOURS.toMillis(Math.max(0L, routeListTtlHours));
+
+        if (!cached.isEmpty() && System.currentTimeMillis() - ROUTE_LIST_FETCHED_AT <= ttlMs) {
+            STATE_ROUTE_LIST_REUSED.incrementAndGet();
+            return cached;
+        }
+
+        List<RouteInfo> fresh = fetchAllRoutes();
+        if (fresh.isEmpty()) {
+            return cached;
+        }
+
+        ROUTE_LIST_CACHE = Collections.unmodifiableList(fresh);
+        ROUTE_LIST_FETCHED_AT = System.currentTimeMillis();
+
+        List<String> ids = new ArrayList<>(fresh.size());
+        for (RouteInfo r : fresh) ids.add(r.routeId);
+        saveState(STATE_KEY_ROUTE_LIST, String.join(",", ids));
+
+        return ROUTE_LIST_CACHE;
+    }
+
+    // 라운드로빈 위치/바퀴 수/방문 노선 저장 (collectOnce 1회 처리 후)
+    private void saveProgress() {
+        saveState(STATE_KEY_ROUND_ROBIN, ROUND_ROBIN_INDEX.get() + "," + CYCLE_COUNT.get());
+        saveState(STATE_KEY_VISITED, String.join(",", new TreeSet<>(VISITED_ROUTES)));
+    }
+
+    // 내용 해시가 마지막 저장과 같으면 쓰지 않는다
+    private void saveState(String key, String value) {
+        if (!stateEnabled || DB_CLOSED_FATAL.get()) return;
+
+        String hash = sha256Hex(value);
+        if (hash.equals(SAVED_STATE_HASH.get(key))) {
+            STATE_WRITES_SKIPPED.incrementAndGet();
+            return;
+        }
+
+        if (collectorStateDAO.upsertState(key, value, hash) >= 0) {
+            SAVED_STATE_HASH.put(key, hash);
+            STATE_WRITES.incrementAndGet();
+        }
+    }
+
+    // 정류장 목록 저장: 해시가 같으면 받은 시각만 갱신
+    private void persistRouteStops(String routeId, List<StopOnRoute> stops) {
+        if (!stateEnabled || DB_CLOSED_FATAL.get()) return;
+
+        String text = encodeStops(stops);
+        String hash = sha256Hex(text);
+
+        if (hash.equals(ROUTE_STOPS_HASH.get(routeId)) && collectorStateDAO.touchRouteStops(routeId, hash) > 0) {
+            return;
+        }
+        if (collectorStateDAO.upsertRouteStops(routeId, text, stops.size(), hash) >= 0) {
+            ROUTE_STOPS_HASH.put(routeId, hash);
+            STATE_WRITES.incrementAndGet();
+        }
+    }
+
+    /**
+     * TTL이 지난 정류장 목록만 오래된 순으로 staleRefreshBatch개씩 다시 받는다.
+     * - 수집기가 켜져 있을 때만(쿼터 사용) 동작한다.
+     * - 내용이 같으면 받은 시각만 갱신, 다르면 메모리 캐시/저장본/이름 사전을 바꾼다.
+     * - 다시 받기에 실패하면 기존 목록을 유지하고 다음 TTL까지 미룬다.
+     */
+    private void refreshStaleRouteStops() {
+        if (shouldStopNow()) return;
+
+        long now = System.currentTimeMillis();
+        long ttlMs = TimeUnit.HOURS.toMillis(Math.max(0L, routeStopsTtlHours));
+
+        List<Map.Entry<String, Long>> stale = new ArrayList<>();
+        for (Map.Entry<String, Long> e : ROUTE_STOPS_FETCHED_AT.entrySet()) {
+            if (now - e.getValue() > ttlMs) stale.add(e);
+        }
+        if (stale.isEmpty()) return;
+
+        stale.sort(Map.Entry.comparingByValue());
+
+        int done = 0;
+        for (Map.Entry<String, Long> e : stale) {
+            if (done >= Math.max(1, staleRefreshBatch) || shouldStopNow()) break;
+            done++;
+
+            String routeId = e.getKey();
+            List<StopOnRoute> fresh = fetchStopsFromApi(routeId);
+            ROUTE_STOPS_FETCHED_AT.put(routeId, System.currentTimeMillis());
+
+            if (fresh.size() < 2) {
+                STATE_STALE_FAILED.incrementAndGet();
+                continue;
+            }
+
+            String hash = sha256Hex(encodeStops(fresh));
+            if (hash.equals(ROUTE_STOPS_HASH.get(routeId))) {
+                STATE_STALE_UNCHANGED.incrementAndGet();
+                collectorStateDAO.touchRouteStops(routeId, hash);
+                continue;
+            }
+
+            List<StopOnRoute> toCache = Collections.unmodifiableList(fresh);
+            ROUTE_STOPS_CACHE.put(routeId, toCache);
+            persistRouteStops(routeId, toCache);
+            saveStopNames(toCache);
+            STATE_STALE_REFRESHED.incrementAndGet();
+        }
+
+        System.out.println("[COLLECTOR][STATE] staleRefresh processed=" + done + " staleTotal=" + stale.size());
+    }
+
+    private int countStaleRouteStops() {
+        long now = System.currentTimeMillis();
+        long ttlMs = TimeUnit.HOURS.toMillis(Math.max(0L, routeStopsTtlHours));
+        int n = 0;
+        for (Long at : ROUTE_STOPS_FETCHED_AT.values()) {
+            if (now - at > ttlMs) n++;
+        }
+        return n;
+    }
+
+    // 정류장 1개 = 1줄 "nodeId\t정류장명\tlat\tlng\trouteSeq\tupdowncd"
+    private static String encodeStops(List<StopOnRoute> stops) {
+        StringBuilder sb = new StringBuilder(stops.size() * 48);
+        for (StopOnRoute s : stops) {
+            if (sb.length() > 0) sb.append('\n');
+            String name = (s.nodeName == null) ? "" : s.nodeName.replaceAll("[\\t\\r\\n]", " ");
+            sb.append(s.nodeId).append('\t')
+              .append(name).append('\t')
+              .append(s.lat).append('\t')
+              .append(s.lng).append('\t')
+              .append(s.routeSeq).append('\t')
+              .append(s.updowncd);
+        }
+        return sb.toString();
+    }
+
+    private static List<StopOnRoute> decodeStops(String text) {
+        List<StopOnRoute> out = new ArrayList<>();
+        if (isBlank(text)) return out;
+
+        for (String line : text.split("\n")) {
+            String[] f = line.split("\t", -1);
+            if (f.length < 6 || isBlank(f[0])) continue;
+            try {
+                out.add(new StopOnRoute(
+                    f[0],
+                    f[1].isEmpty() ? null : f[1],
+                    Double.parseDouble(f[2]),
+                    Double.parseDouble(f[3]),
+                    Integer.parseInt(f[4]),
+                    Integer.parseInt(f[5])
+                ));
+            } catch (NumberFormatException ignore) {
+                // 깨진 줄은 건너뛴다
+            }
+        }
+        return out;
+    }
+
+    private static List<String> splitCsv(String value) {
+        List<String> out = new ArrayList<>();
+        if (isBlank(value)) return out;
+        for (String s : value.split(",")) {
+            if (!isBlank(s)) out.add(s.trim());
+        }
+        return out;
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // =========================
+    // 차량 궤적 모드 (collector.mode=trajectory)
+    // =========================
+
+    public boolean isTrajectoryMode() {
+        return "trajectory".equalsIgnoreCase(collectorMode);
+    }
+
+    /**
+     * 궤적 모드 1회: 폴링 주기가 된 노선의 버스 위치를 받아 차량별 순번 변화에서 구간 통과 시간을 얻는다.
+     * - 노선당 위치 호출 1번(쿼터 1)으로 노선 위 모든 차량을 관측한다.
+     * - 마지막 폴링이 오래된 노선부터 routes-per-cycle개까지, 노선마다 최소 poll-interval-ms 간격으로 호출한다.
+     */
+    private void collectTrajectoryOnce() {
+        List<RouteInfo> routes = routeList();
+        if (routes.isEmpty()) {
+            System.out.println("[COLLECTOR][TRAJ] route list is empty. stop.");
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        List<RouteInfo> due = new ArrayList<>();
+        for (RouteInfo r : routes) {
+            if (r == null || isBlank(r.routeId)) continue;
+            Long last = TRAJECTORY_LAST_POLL.get(r.routeId);
+            if (last == null || now - last >= trajectoryPollIntervalMs) due.add(r);
+        }
+        due.sort(Comparator.comparingLong(r -> TRAJECTORY_LAST_POLL.getOrDefault(r.routeId, 0L)));
+        if (due.size() > trajectoryRoutesPerCycle) {
+            due = new ArrayList<>(due.subList(0, Math.max(1, trajectoryRoutesPerCycle)));
+        }
+        if (due.isEmpty()) return;
+
+        AtomicInteger polls = new AtomicInteger(0);
+        AtomicInteger vehicles = new AtomicInteger(0);
+        AtomicInteger samples = new AtomicInteger(0);
+        AtomicInteger rejected = new AtomicInteger(0);
+
+        tagoApiClient.forEach(due, route -> {
+            if (shouldStopNow()) return;
+
+            List<StopOnRoute> stops = fetchStopsByRoute(route.routeId);
+            if (stops.size() < 2) return;
+
+            List<VehiclePosition> positions = fetchBusLocations(route.routeId);
+            long polledAt = System.currentTimeMillis();
+            TRAJECTORY_LAST_POLL.put(route.routeId, polledAt);
+            if (positions == null) return;
+
+            polls.incrementAndGet();
+            vehicles.addAndGet(positions.size());
+
+            Map<Integer, StopOnRoute> byOrd = new HashMap<>();
+            for (StopOnRoute s : stops) byOrd.putIfAbsent(s.routeSeq, s);
+
+            for (VehiclePosition p : positions) {
+                if (shouldStopNow()) return;
+
+                for (VehicleTrajectoryBuffer.Transition tr :
+                        vehicleTrajectoryBuffer.observe(route.routeId, p.vehicleNo, p.nodeOrd, polledAt)) {
+
+                    StopOnRoute from = byOrd.get(tr.fromOrd);
+                    StopOnRoute to = byOrd.get(tr.toOrd);
+
+                    // 방향이 바뀌는 지점(회차)이나 범위를 벗어난 값은 구간 샘플로 쓰지 않는다
+                    if (from == null || to == null || from.updowncd != to.updowncd
+                        || tr.travelSec < MIN_TRAVEL_SEC || tr.travelSec > MAX_TRAVEL_SEC) {
+                        rejected.incrementAndGet();
+                        continue;
+                    }
+
+                    double distanceM = haversineMeters(from.lat, from.lng, to.lat, to.lng);
+
+                    if (upsertSegmentWeightBus(route.routeId, from.updowncd, from, to, distanceM, tr.travelSec)) {
+                        samples.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        vehicleTrajectoryBuffer.evictIdle(System.currentTimeMillis());
+        TRAJECTORY_POLLS.addAndGet(polls.get());
+        TRAJECTORY_SAMPLES.addAndGet(samples.get());
+
+        System.out.println("[COLLECTOR][TRAJ] done. routes=" + due.size()
+            + " polls=" + polls.get()
+            + " vehicles=" + vehicles.get()
+            + " samples=" + samples.get()
+            + " rejected=" + rejected.get()
+            + " samplesPerCall(total)=" + String.format("%.2f",
+                TRAJECTORY_POLLS.get() == 0 ? 0.0 : (double) TRAJECTORY_SAMPLES.get() / TRAJECTORY_POLLS.get()));
+    }
+
+    /**
+     * 궤적 모드 통계
+     */
+    public Map<String, Object> getTrajectorySummary() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long p = TRAJECTORY_POLLS.get();
+        long n = TRAJECTORY_SAMPLES.get();
+        out.put("mode", collectorMode);
+        out.put("pollIntervalMs", trajectoryPollIntervalMs);
+        out.put("routesPerCycle", trajectoryRoutesPerCycle);
+        out.put("polls", p);
+        out.put("samples", n);
+        out.put("samplesPerCall", (p == 0) ? 0.0 : (double) n / p);
+        out.put("buffer", vehicleTrajectoryBuffer.stats());
+        return out;
+    }
+
+    /**
+     * 노선 위 버스 위치 목록 (getRouteAcctoBusLcList 1회)
+     *
+     * @return 쿼터/오류로 받지 못했으면 null
+     */
+    private List<VehiclePosition> fetchBusLocations(String routeId) {
+        try {
+            if (shouldStopNow()) return null;
+
+            // ✅ 전역 일일 쿼터 체크(호출 직전)
+            if (apiQuotaManager != null && !apiQuotaManager.tryConsume(1)) {
+                stopCollectorDueToQuota("quotaRemainingToday=0 before getRouteAcctoBusLcList", null);
+                return null;
+            }
+            samplingScheduler.onQuotaSpent(1);
+
+            URI uri = UriComponentsBuilder
+                .fromUriString(TAGO_BUS_LOCATION_BASE_URL + OP_GET_BUS_LOCATIONS)
+                .queryParam("serviceKey", SERVICE_KEY)
+                .queryParam("_type", "json")
+                .queryParam("cityCode", CITY_CODE_DAEJEON)
+                .queryParam("routeId", routeId)
+                .queryParam("pageNo", 1)
+                .queryParam("numOfRows", 300)
+                .build(true)
+                .toUri();
+
+            String json = tagoApiClient.get(uri);
+            if (isBlank(json) || shouldStopNow()) return null;
+
+            JsonNode root = objectMapper.readTree(json);
+            JsonNode header = root.path("response").path("header");
+            String code = header.path("resultCode").asText();
+            String msg  = header.path("resultMsg").asText();
+
+            if (!Objects.equals("00", code)) {
+                if (isQuotaExceededMessage(msg)) {
+                    stopCollectorDueToQuota("busLocationApi resultCode=" + code + " msg=" + msg, json);
+                }
+                return null;
+            }
+
+            List<VehiclePosition> out = new ArrayList<>();
+            JsonNode items = root.path("response").path("body").path("items").path("item");
+            if (items.isArray()) {
+                for (JsonNode it : items) {
+                    VehiclePosition p = parseVehiclePosition(it);
+                    if (p != null) out.add(p);
+                }
+            } else if (items.isObject()) {
+                VehiclePosition p = parseVehiclePosition(items);
+                if (p != null) out.add(p);
+            }
+            return out;
+
+        } catch (HttpStatusCodeException e) {
+            // ✅ 429는 "오늘 쿼터 소진" 확정 신호
+            if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                stopCollectorDueToQuota("busLocationApi HTTP_429", e.getResponseBodyAsString());
+            }
+            System.out.println("[COLLECTOR][TRAJ][ERROR] routeId=" + routeId + " httpStatus=" + e.getStatusCode());
+            return null;
+
+        } catch (Exception e) {
+            System.out.println("[COLLECTOR][TRAJ][ERROR] routeId=" + routeId + " msg=" + e.getMessage());
+            return null;
+        }
+    }
+
+    private static VehiclePosition parseVehiclePosition(JsonNode it) {
+        String vehicleNo = firstNonBlank(text(it, "vehicleno"), text(it, "vehicleNo"));
+        Integer ord = firstNonNullInt(integer(it, "nodeord"), integer(it, "nodeOrd"));
+        if (isBlank(vehicleNo) || ord == null) return null;
+        return new VehiclePosition(vehicleNo, ord);
+    }
+
     public void collectOnce() {
         collectOnce(5);
     }
@@ -252,6 +867,11 @@ public class BusSegmentCollector {
             return;
         }
 
+        // 궤적 모드에서는 도착정보 호출로 보정하지 않는다(위치 궤적이 이미 관측 샘플을 낸다)
+        if (isTrajectoryMode()) {
+            return;
+        }
+
         List<String> targetRouteIds = LAST_TARGET_ROUTE_IDS;
         if (targetRouteIds == null || targetRouteIds.isEmpty()) {
             System.out.println("[COLLECTOR] refineOnce: no last target routes. skip.");
@@ -263,104 +883,104 @@ public class BusSegmentCollector {
         int refined = 0;
         int skippedNoTime = 0;
 
+        // 1) 후보 구간 목록 (노선 → 방향 → 정류장 순서)
+        //    - 스케줄러 사용 시: 기대 오차 감소가 큰 구간부터 예산을 쓰고, 수렴한 구간은 확률적으로만 남긴다.
+        List<SegmentCandidate> candidates = new ArrayList<>();
+        boolean voi = samplingScheduler.isEnabled();
+        if (voi) samplingScheduler.reloadIfDue();
+
         for (String routeId : targetRouteIds) {
             if (shouldStopNow()) {
                 System.out.println("[COLLECTOR] refineOnce stop requested (mid-loop)");
                 break;
             }
-            if (diag.budgetExhausted()) {
-                break;
-            }
             if (isBlank(routeId)) continue;
 
-            Map<String, Integer> arrivalCache = new HashMap<>();
-            int[] arrivalApiCalls = new int[] { 0 };
-
             try {
-                if (shouldStopNow()) break;
-
                 List<StopOnRoute> stops = fetchStopsByRoute(routeId);
                 if (stops == null || stops.size() < 2) {
                     continue;
                 }
 
-                Map<Integer, List<StopOnRoute>> stopsByDir = new HashMap<>();
-                for (StopOnRoute s : stops) {
-                    if (s == null) continue;
-                    int dir = s.updowncd;
-                    stopsByDir.computeIfAbsent(Integer.valueOf(dir), k -> new ArrayList<>()).add(s);
-                }
+                for (StopOnRoute[] seg : segmentsOf(stops)) {
+                    StopOnRoute from = seg[0];
+                    StopOnRoute to = seg[1];
+                    int dir = from.updowncd;
 
-                for (Map.Entry<Integer, List<StopOnRoute>> e : stopsByDir.entrySet()) {
-                    if (diag.budgetExhausted()) break;
-                    if (shouldStopNow()) {
-                        System.out.println("[COLLECTOR] refineOnce stop requested (mid-loop/dir)");
-                        break;
+                    if (voi && !samplingScheduler.shouldSample(routeId, dir, from.nodeId, to.nodeId)) {
+                        continue;
                     }
+                    double gain = voi ? samplingScheduler.segmentGain(routeId, dir, from.nodeId, to.nodeId) : 0.0;
+                    candidates.add(new SegmentCandidate(routeId, dir, from, to, gain));
+                }
 
-                    Integer dirObj = e.getKey();
-                    int dir = (dirObj == null ? 0 : dirObj.intValue());
-                    List<StopOnRoute> dirStops = e.getValue();
-                    if (dirStops == null || dirStops.size() < 2) continue;
-
-                    dirStops.sort(Comparator.comparingInt(s -> s.routeSeq));
-
-                    for (int i = 0; i < dirStops.size() - 1; i++) {
-                        if (diag.budgetExhausted()) break;
-                        if (shouldStopNow()) {
-                            System.out.println("[COLLECTOR] refineOnce stop requested (mid-loop/segment)");
-                            break;
-                        }
+            } catch (Exception ex) {
+                // refineOnce 내부 로직에서 예외가 나면 apiError로 잡되, 원문 샘플이 없으면 메시지를 남긴다.
+                diag.apiError++;
+                diag.recordRawOnce(null, null, ex.getMessage());
+                System.out.println("[COLLECTOR][ERROR] refineOnce routeId=" + routeId + " msg=" + ex.getMessage());
+            }
+        }
 
-                        StopOnRoute from = dirStops.get(i);
-                        StopOnRoute to = dirStops.get(i + 1);
-                        if (from == null || to == null) continue;
+        if (voi) {
+            candidates.sort((a, b) -> Double.compare(b.gain, a.gain));
+        }
 
-                        double distanceM = haversineMeters(from.lat, from.lng, to.lat, to.lng);
+        // 2) 예산이 다할 때까지 후보 순서대로 샘플
+        Map<String, Map<String, Long>> arrivalCacheByRoute = new HashMap<>();
+        Map<String, int[]> arrivalApiCallsByRoute = new HashMap<>();
 
-                        Integer travelSecSample = estimateTravelSecondsByArrivalDiffCached(
-                            routeId,
-                            from.nodeId,
-                            to.nodeId,
-                            arrivalCache,
-                            arrivalApiCalls,
-                            diag
-                        );
+        for (SegmentCandidate c : candidates) {
+            if (diag.budgetExhausted()) break;
+            if (shouldStopNow()) {
+                System.out.println("[COLLECTOR] refineOnce stop requested (mid-loop/segment)");
+                break;
+            }
 
-                        if (travelSecSample == null || travelSecSample <= 0) {
-                            skippedNoTime++;
-                            continue;
-                        }
+            try {
+                double distanceM = haversineMeters(c.from.lat, c.from.lng, c.to.lat, c.to.lng);
+
+                Integer travelSecSample = estimateTravelSecondsByArrivalDiffCached(
+                    c.routeId,
+                    c.from.nodeId,
+                    c.to.nodeId,
+                    arrivalCacheByRoute.computeIfAbsent(c.routeId, k -> new HashMap<>()),
+                    arrivalApiCallsByRoute.computeIfAbsent(c.routeId, k -> new int[] { 0 }),
+                    diag
+                );
 
-                        boolean ok = upsertSegmentWeightBus(
-                            routeId,
-                            dir,
-                            from,
-                            to,
-                            distanceM,
-                            travelSecSample
-                        );
+                if (travelSecSample == null || travelSecSample <= 0) {
+                    skippedNoTime++;
+                    continue;
+                }
 
-                        if (ok) {
-                            refined++;
-                        }
+                boolean ok = upsertSegmentWeightBus(
+                    c.routeId,
+                    c.dir,
+                    c.from,
+                    c.to,
+                    distanceM,
+                    travelSecSample
+                );
 
-                        // refineOnce는 "DB upsert 횟수"가 아니라 "arrival API 호출 예산"이 핵심이므로
-                        // 여기서는 remaining 같은 세그먼트 기반 카운트를 사용하지 않는다.
-                    }
+                if (ok) {
+                    refined++;
                 }
 
+                // refineOnce는 "DB upsert 횟수"가 아니라 "arrival API 호출 예산"이 핵심이므로
+                // 여기서는 remaining 같은 세그먼트 기반 카운트를 사용하지 않는다.
+
             } catch (Exception ex) {
-                // refineOnce 내부 로직에서 예외가 나면 apiError로 잡되, 원문 샘플이 없으면 메시지를 남긴다.
                 diag.apiError++;
                 diag.recordRawOnce(null, null, ex.getMessage());
-                System.out.println("[COLLECTOR][ERROR] refineOnce routeId=" + routeId + " msg=" + ex.getMessage());
+                System.out.println("[COLLECTOR][ERROR] refineOnce routeId=" + c.routeId + " msg=" + ex.getMessage());
             }
         }
 
         // ✅ 진단 한 줄 출력(사용자 요구: 상태에서 원인 분리)
         System.out.println(
             "[COLLECTOR] refineOnce done. calls=" + calls +
+            " candidates=" + candidates.size() +
             " refined=" + refined +
             " skippedNoTime=" + skippedNoTime +
             " arrivalItemsEmpty=" + diag.arrivalItemsEmpty +
@@ -401,7 +1021,13 @@ public class BusSegmentCollector {
             return;
         }
 
-        List<RouteInfo> routes = fetchAllRoutes();
+        // 궤적 모드는 batchSize 대신 routes-per-cycle / poll-interval-ms로 폴링 노선을 고른다
+        if (isTrajectoryMode()) {
+            collectTrajectoryOnce();
+            return;
+        }
+
+        List<RouteInfo> routes = routeList();
         if (routes.isEmpty()) {
             System.out.println("[COLLECTOR] route list is empty. stop.");
             return;
@@ -413,7 +1039,12 @@ public class BusSegmentCollector {
             VISITED_ROUTES.clear();
         }
 
-        List<RouteInfo> targetRoutes = selectRoundRobinSlice(routes, batchSize);
+        List<RouteInfo> targetRoutes = samplingScheduler.isEnabled()
+            ? selectByValue(routes, batchSize)
+            : selectRoundRobinSlice(routes, batchSize);
+
+        // 정류장 도착정보 캐시는 수집 주기(collectOnce + 이어지는 refineOnce) 범위로만 쓴다
+        stationArrivalCache.beginCycle();
 
         List<String> lastIds = new ArrayList<>(targetRoutes.size());
         for (RouteInfo r : targetRoutes) {
@@ -442,17 +1073,17 @@ public class BusSegmentCollector {
         AtomicInteger totalSegmentsSkippedNoTime = new AtomicInteger(0);
         AtomicInteger totalSegmentsTried = new AtomicInteger(0);
 
-        // ✅ 순차 루프(for) -> 병렬 스트림(parallelStream)으로 변경하여 동시 실행
-        //    (Batch=2 이상일 때 진짜 병렬로 동시에 API를 호출함)
-        targetRoutes.parallelStream().forEach(route -> {
+        // ✅ 노선 병렬 처리는 TAGO 전용 작업 스레드에서 수행한다(공용 ForkJoinPool 점유 없음)
+        //    - 호출 속도는 TagoApiClient 토큰 버킷이 제한하므로 스레드 수와 무관하게 초당 한도를 넘지 않는다.
+        tagoApiClient.forEach(targetRoutes, route -> {
             if (shouldStopNow()) {
-                // 병렬 스트림에서는 break 대신 return으로 종료
+                // 람다 안에서는 break 대신 return으로 종료
                 return;
             }
             long routeStartMs = System.currentTimeMillis();
             System.out.println("[COLLECTOR] routeStart=" + route.routeId);
 
-            Map<String, Integer> arrivalCache = new HashMap<>();
+            Map<String, Long> arrivalCache = new HashMap<>();
             int[] arrivalApiCalls = new int[] { 0 };
 
             try {
@@ -502,6 +1133,12 @@ public class BusSegmentCollector {
                         StopOnRoute from = dirStops.get(i);
                         StopOnRoute to   = dirStops.get(i + 1);
 
+                        // 수렴한 구간은 확률적으로만 샘플(도착정보 호출 절약)
+                        if (!SEED_DISTANCE_ONLY
+                            && !samplingScheduler.shouldSample(route.routeId, dir != null ? dir.intValue() : 0, from.nodeId, to.nodeId)) {
+                            continue;
+                        }
+
                         double distanceM = haversineMeters(from.lat, from.lng, to.lat, to.lng);
 
                         Integer travelSecSample;
@@ -578,20 +1215,89 @@ public class BusSegmentCollector {
                 System.out.println("[COLLECTOR][ERROR] routeId=" + route.routeId + " msg=" + e.getMessage());
                 System.out.println("[COLLECTOR] routeEnd=" + route.routeId + " elapsedMs=" + elapsedMs + " (error)");
             }
-        }); // End of parallelStream
+        }); // End of tago workers
 
         if (VISITED_ROUTES.size() >= routes.size()) {
             System.out.println("[COLLECTOR] ALL ROUTES VISITED (visited=" + VISITED_ROUTES.size() + "/" + routes.size() + "). next call will start new cycle.");
         }
 
+        saveProgress();
+
         System.out.println("[COLLECTOR] done. routes=" + targetRoutes.size()
             + ", totalSegmentsUpserted=" + totalSegmentsUpserted
-            + ", totalSkippedNoTime=" + totalSegmentsSkippedNoTime);
+            + ", totalSkippedNoTime=" + totalSegmentsSkippedNoTime
+            + ", stationArrival=" + stationArrivalCache.stats());
+    }
+
+    /**
+     * 정보가치 순 노선 선택: (구간 기대 오차 감소 합 / 정류장 수)가 큰 노선부터 batchSize개
+     * - 정류장 목록을 아직 모르는 노선은 처음 보는 구간 1개의 가치로 본다(탐색).
+     * - 정류장 목록이 비어 있는 노선은 고르지 않는다.
+     */
+    private List<RouteInfo> selectByValue(List<RouteInfo> routes, int batchSize) {
+        samplingScheduler.reloadIfDue();
+        double unknownValue = samplingScheduler.unknownSegmentGain();
+
+        List<RouteInfo> ranked = new ArrayList<>();
+        Map<String, Double> value = new HashMap<>();
+
+        for (RouteInfo r : routes) {
+            if (r == null || isBlank(r.routeId)) continue;
+
+            List<StopOnRoute> stops = ROUTE_STOPS_CACHE.get(r.routeId);
+            double v;
+            if (stops == null) {
+                v = unknownValue;
+            } else if (stops.size() < 2) {
+                continue;
+            } else {
+                double sum = 0.0;
+                Set<String> distinctStops = new HashSet<>();
+                for (StopOnRoute[] seg : segmentsOf(stops)) {
+                    sum += samplingScheduler.segmentGain(r.routeId, seg[0].updowncd, seg[0].nodeId, seg[1].nodeId);
+                    distinctStops.add(seg[0].nodeId);
+                    distinctStops.add(seg[1].nodeId);
+                }
+                v = sum / Math.max(1, distinctStops.size());
+            }
+
+            value.put(r.routeId, v);
+            ranked.add(r);
+        }
+
+        ranked.sort((a, b) -> Double.compare(value.get(b.routeId), value.get(a.routeId)));
+
+        List<RouteInfo> slice = new ArrayList<>(Math.min(batchSize, ranked.size()));
+        for (RouteInfo r : ranked) {
+            if (slice.size() >= batchSize) break;
+            slice.add(r);
+            VISITED_ROUTES.add(r.routeId);
+        }
+        return slice;
+    }
+
+    // 방향별로 정류장 순서대로 이웃한 (출발, 도착) 구간 목록
+    private static List<StopOnRoute[]> segmentsOf(List<StopOnRoute> stops) {
+        Map<Integer, List<StopOnRoute>> byDir = new HashMap<>();
+        for (StopOnRoute s : stops) {
+            if (s == null) continue;
+            byDir.computeIfAbsent(s.updowncd, k -> new ArrayList<>()).add(s);
+        }
+
+        List<StopOnRoute[]> out = new ArrayList<>();
+        for (List<StopOnRoute> dirStops : byDir.values()) {
+            dirStops.sort(Comparator.comparingInt(s -> s.routeSeq));
+            for (int i = 0; i < dirStops.size() - 1; i++) {
+                out.add(new StopOnRoute[] { dirStops.get(i), dirStops.get(i + 1) });
+            }
+        }
+        return out;
     }
 
     private List<RouteInfo> selectRoundRobinSlice(List<RouteInfo> routes, int batchSize) {
         int n = routes.size();
         int start = ROUND_ROBIN_INDEX.get();
+        if (start < 0 || start >= n) start = 0; // 복원한 위치가 새 노선 목록 범위를 벗어나면 처음부터
 
         List<RouteInfo> slice = new ArrayList<>(Math.min(batchSize, n));
 
@@ -654,8 +1360,7 @@ public class BusSegmentCollector {
                 .build(true)
                 .toUri();
 
-            String json = restTemplate.getForObject(uri, String.class);
-            sleepApi();
+            String json = tagoApiClient.get(uri);
 
             if (shouldStopNow()) {
                 return Collections.emptyList();
@@ -685,6 +1390,7 @@ public class BusSegmentCollector {
             }
 
             Set<String> routeIdSet = new LinkedHashSet<>();
+            Map<String, String> routeNos = new HashMap<>();
 
             if (items.isArray()) {
                 for (JsonNode it : items) {
@@ -697,6 +1403,7 @@ public class BusSegmentCollector {
                     );
                     if (!isBlank(routeId)) {
                         routeIdSet.add(routeId);
+                        putIfNotBlank(routeNos, routeId, firstNonBlank(text(it, "routeno"), text(it, "routeNo")));
                     }
                 }
             } else if (items.isObject()) {
@@ -707,9 +1414,12 @@ public class BusSegmentCollector {
                 );
                 if (!isBlank(routeId)) {
                     routeIdSet.add(routeId);
+                    putIfNotBlank(routeNos, routeId, firstNonBlank(text(items, "routeno"), text(items, "routeNo")));
                 }
             }
 
+            saveNames(routeNos, SAVED_ROUTE_NOS, false);
+
             System.out.println("[COLLECTOR] routesApi parsedRouteIds(unique)=" + routeIdSet.size());
 
             StringBuilder sample = new StringBuilder();
@@ -756,22 +1466,40 @@ public class BusSegmentCollector {
             return cached;
         }
 
-        List<StopOnRoute> primary = fetchStopsByRouteInternal(routeId, "routeId");
-        List<StopOnRoute> result;
+        List<StopOnRoute> toCache = Collections.unmodifiableList(fetchStopsFromApi(routeId));
+        ROUTE_STOPS_CACHE.put(routeId, toCache);
+        ROUTE_STOPS_FETCHED_AT.put(routeId, System.currentTimeMillis());
 
-        if (primary.size() >= 2) {
-            result = primary;
-        } else {
-            List<StopOnRoute> fallback = fetchStopsByRouteInternal(routeId, "routeid");
-            result = fallback;
+        // 정상 목록만 보관(빈/실패 결과는 재기동 후 다시 받는다)
+        if (toCache.size() >= 2) {
+            persistRouteStops(routeId, toCache);
         }
 
-        List<StopOnRoute> toCache = (result == null) ? Collections.emptyList() : Collections.unmodifiableList(result);
-        ROUTE_STOPS_CACHE.put(routeId, toCache);
+        saveStopNames(toCache);
 
         return toCache;
     }
 
+    // route-stops 호출 (routeId 키로 2개 미만이면 routeid 키로 한 번 더)
+    private List<StopOnRoute> fetchStopsFromApi(String routeId) {
+        List<StopOnRoute> primary = fetchStopsByRouteInternal(routeId, "routeId");
+        if (primary.size() >= 2) {
+            return primary;
+        }
+
+        List<StopOnRoute> fallback = fetchStopsByRouteInternal(routeId, "routeid");
+        return (fallback == null) ? Collections.emptyList() : fallback;
+    }
+
+    // 정류장명 사전 저장 (응답에 이미 들어 있는 nodenm 재사용, 추가 호출 없음)
+    private void saveStopNames(List<StopOnRoute> stops) {
+        Map<String, String> stopNames = new HashMap<>();
+        for (StopOnRoute s : stops) {
+            putIfNotBlank(stopNames, s.nodeId, s.nodeName);
+        }
+        saveNames(stopNames, SAVED_STOP_NAMES, true);
+    }
+
     private List<StopOnRoute> fetchStopsByRouteInternal(String routeId, String routeIdParamKey) {
         try {
             if (shouldStopNow()) {
@@ -795,8 +1523,7 @@ public class BusSegmentCollector {
                 .build(true)
                 .toUri();
 
-            String json = restTemplate.getForObject(uri, String.class);
-            sleepApi();
+            String json = tagoApiClient.get(uri);
 
             if (shouldStopNow()) {
                 return Collections.emptyList();
@@ -896,18 +1623,23 @@ public class BusSegmentCollector {
             integer(it, "updownCd"), integer(it, "upDowncd")
         );
 
+        String nodeName = firstNonBlank(
+            text(it, "nodenm"), text(it, "nodeNm"),
+            text(it, "sttnnm"), text(it, "sttnNm")
+        );
+
         if (nodeId == null || lat == null || lng == null || seq == null) {
             return null;
         }
 
-        return new StopOnRoute(nodeId, lat, lng, seq, (updowncd == null ? 0 : updowncd.intValue()));
+        return new StopOnRoute(nodeId, nodeName, lat, lng, seq, (updowncd == null ? 0 : updowncd.intValue()));
     }
 
     private Integer estimateTravelSecondsByArrivalDiffCached(
         String routeId,
         String fromNodeId,
         String toNodeId,
-        Map<String, Integer> arrivalCache,
+        Map<String, Long> arrivalCache,
         int[] arrivalApiCalls,
         RefineDiag diag
     ) {
@@ -922,12 +1654,13 @@ public class BusSegmentCollector {
         if (isBlank(fromNodeId)) return null;
         if (isBlank(toNodeId)) return null;
 
-        Integer fromArr = fetchArrivalSecondsCached(routeId, fromNodeId, arrivalCache, arrivalApiCalls, diag);
-        Integer toArr   = fetchArrivalSecondsCached(routeId, toNodeId, arrivalCache, arrivalApiCalls, diag);
+        // 두 정류장 응답은 받은 시각이 다를 수 있으므로(캐시 TTL 안) 같은 기준(도착 예정 시각)으로 바꾼 뒤 뺀다
+        Long fromAtMs = fetchArrivalAtMsCached(routeId, fromNodeId, arrivalCache, arrivalApiCalls, diag);
+        Long toAtMs   = fetchArrivalAtMsCached(routeId, toNodeId, arrivalCache, arrivalApiCalls, diag);
 
-        if (fromArr == null || toArr == null) return null;
+        if (fromAtMs == null || toAtMs == null) return null;
 
-        int diff = toArr - fromArr;
+        int diff = (int) Math.round((toAtMs - fromAtMs) / 1000.0);
         if (diff <= 0) {
             if (diag != null) diag.diffNonPositive++;
             return null;
@@ -936,10 +1669,14 @@ public class BusSegmentCollector {
         return diff;
     }
 
-    private Integer fetchArrivalSecondsCached(
+    /**
+     * routeId 버스가 nodeId에 도착할 예정 시각(epoch ms) = 응답 받은 시각 + arrtime
+     * - 남은 초(arrtime)는 받은 뒤로 계속 줄어드는 값이라, 캐시된 응답끼리 비교하려면 받은 시각으로 보정해야 한다.
+     */
+    private Long fetchArrivalAtMsCached(
         String routeId,
         String nodeId,
-        Map<String, Integer> arrivalCache,
+        Map<String, Long> arrivalCache,
         int[] arrivalApiCalls,
         RefineDiag diag
     ) {
@@ -956,57 +1693,102 @@ public class BusSegmentCollector {
             return arrivalCache.get(nodeId);
         }
 
+        // ✅ 정류장 단위 캐시: 같은 주기에 다른 노선이 이미 받은 응답이면 호출 없이 재사용한다.
+        //    - 실제 호출(=쿼터/예산 차감)은 캐시에 없을 때 loader 안에서만 일어난다.
+        StationArrivalCache.StationArrivals st =
+            stationArrivalCache.get(nodeId, id -> loadStationArrivals(id, arrivalApiCalls, diag));
+
+        Integer arr = (st == null) ? null : arrivalForRoute(st, routeId, diag);
+        Long v = (arr == null) ? null : st.fetchedAtMs + arr * 1000L;
+        arrivalCache.put(nodeId, v);
+        return v;
+    }
+
+    /**
+     * 정류장 캐시 miss 시 실제 호출 (per-route 상한 / 전역 쿼터 / callsBudget 차감)
+     *
+     * @return 상한/예산으로 호출하지 않았으면 null (캐시에 넣지 않는다)
+     */
+    private StationArrivalCache.StationArrivals loadStationArrivals(String nodeId, int[] arrivalApiCalls, RefineDiag diag) {
+        if (shouldStopNow()) return null;
+
         // ✅ per-route 제한(트래픽 최소화)
         if (arrivalApiCalls != null && arrivalApiCalls.length > 0) {
             if (arrivalApiCalls[0] >= ARRIVAL_API_LIMIT_PER_ROUTE) {
                 if (diag != null) diag.limitHit++;
-                arrivalCache.put(nodeId, null);
                 return null;
             }
             // ✅ 전역 일일 쿼터 체크(호출 직전)
             //    - 호출을 "막는" 것이지 호출 수를 늘리지 않는다.
             if (apiQuotaManager != null && !apiQuotaManager.tryConsume(1)) {
                 if (diag != null) diag.limitHit++;
-                arrivalCache.put(nodeId, null);
                 return null;
             }
 
             arrivalApiCalls[0]++;
         }
 
+        // 샘플을 얻으려고 쓴 호출(정보가치 스케줄러 효율 보고용)
+        samplingScheduler.onQuotaSpent(1);
+
         // ✅ callsBudget 예산(Refine에서만 의미)
         if (diag != null) {
             if (diag.budgetExhausted()) {
                 diag.limitHit++;
-                arrivalCache.put(nodeId, null);
                 return null;
             }
             diag.callsUsed++;
         }
 
-        Integer v = fetchArrivalSeconds(routeId, nodeId, diag);
-        arrivalCache.put(nodeId, v);
-        return v;
+        return fetchStationArrivals(nodeId, diag);
     }
 
     /**
-     * ✅ arrival API 호출 1회
-     * - resultCode != "00" -> apiError
-     * - items/item 경로가 없거나 비정상 타입 -> arrivalItemsEmpty
+     * 정류장 응답에서 routeId의 arrtime을 꺼낸다.
      * - routeId 매칭 실패 -> routeIdMatchFail
      * - routeId 매칭 성공 but arrtime missing/0 -> arrtimeMissing
      * - arrtime > 0 -> arrivalOk
+     * (EMPTY/ERROR는 호출 시점에 arrivalItemsEmpty/apiError로 이미 집계)
+     */
+    private Integer arrivalForRoute(StationArrivalCache.StationArrivals st, String routeId, RefineDiag diag) {
+        if (st.status != StationArrivalCache.Status.OK) return null;
+
+        if (!st.arrtimeByRoute.containsKey(routeId)) {
+            if (diag != null) {
+                diag.routeIdMatchFail++;
+                diag.recordRawOnce(null, true, "no_route_match");
+            }
+            return null;
+        }
+
+        Integer arr = st.arrtimeByRoute.get(routeId);
+        if (arr == null) {
+            if (diag != null) {
+                diag.arrtimeMissing++;
+                diag.recordRawOnce(null, true, "matched_but_arrtime_missing");
+            }
+            return null;
+        }
+
+        if (diag != null) {
+            diag.arrivalOk++;
+            diag.recordRawOnce(null, true, "ok(arrtime>0)");
+        }
+        return arr;
+    }
+
+    /**
+     * ✅ arrival API 호출 1회 → 정류장의 모든 노선 arrtime을 한 번에 파싱
+     * - resultCode != "00" -> apiError (Status.ERROR)
+     * - items/item 경로가 없거나 비정상 타입 -> arrivalItemsEmpty (Status.EMPTY)
+     * - 그 외 -> routeId별 arrtime 맵 (Status.OK, 같은 노선이 여러 건이면 첫 항목)
      *
      * ※ 원문(JSON/텍스트) 1개만 있으면 원인 확정이 가능하므로,
      *   최초 1회 raw를 diag에 저장한다.
      */
-    private Integer fetchArrivalSeconds(String routeId, String nodeId, RefineDiag diag) {
+    private StationArrivalCache.StationArrivals fetchStationArrivals(String nodeId, RefineDiag diag) {
         try {
             if (shouldStopNow()) return null;
-            if (diag != null && diag.budgetExhausted()) {
-                diag.limitHit++;
-                return null;
-            }
 
             URI uri = UriComponentsBuilder
                 .fromHttpUrl(TAGO_ARRIVAL_BASE_URL + OP_GET_ARRIVAL_BY_STTN)
@@ -1019,8 +1801,7 @@ public class BusSegmentCollector {
                 .build(true)
                 .toUri();
 
-            String json = restTemplate.getForObject(uri, String.class);
-            sleepApi();
+            String json = tagoApiClient.get(uri);
 
             if (shouldStopNow()) return null;
 
@@ -1030,7 +1811,7 @@ public class BusSegmentCollector {
                     diag.arrivalItemsEmpty++;
                     diag.recordRawOnce("", null, "empty_response");
                 }
-                return null;
+                return new StationArrivalCache.StationArrivals(StationArrivalCache.Status.EMPTY, null, "empty_response");
             }
 
             JsonNode root = objectMapper.readTree(json);
@@ -1048,7 +1829,8 @@ public class BusSegmentCollector {
                 if (isQuotaExceededMessage(msg)) {
                     stopCollectorDueToQuota("arrivalApi resultCode=" + code + " msg=" + msg, json);
                 }
-                return null;
+                return new StationArrivalCache.StationArrivals(StationArrivalCache.Status.ERROR, null,
+                    "resultCode=" + code + " msg=" + msg);
             }
 
             JsonNode items = root.path("response").path("body").path("items").path("item");
@@ -1059,65 +1841,23 @@ public class BusSegmentCollector {
                     diag.arrivalItemsEmpty++;
                     diag.recordRawOnce(json, true, "itemsType=" + items.getNodeType());
                 }
-                return null;
+                return new StationArrivalCache.StationArrivals(StationArrivalCache.Status.EMPTY, null,
+                    "itemsType=" + items.getNodeType());
             }
 
-            boolean anyMatchedRoute = false;
-
+            Map<String, Integer> byRoute = new HashMap<>();
             if (items.isArray()) {
                 for (JsonNode it : items) {
-                    if (shouldStopNow()) return null;
-
-                    String rid = firstNonBlank(text(it, "routeid"), text(it, "routeId"));
-                    if (!Objects.equals(routeId, rid)) {
-                        continue;
-                    }
-
-                    anyMatchedRoute = true;
-
-                    Integer arr = firstNonNullInt(integer(it, "arrtime"), integer(it, "arrTime"));
-                    if (arr != null && arr > 0) {
-                        if (diag != null) {
-                            diag.arrivalOk++;
-                            diag.recordRawOnce(json, true, "ok(arrtime>0)");
-                        }
-                        return arr;
-                    } else {
-                        if (diag != null) {
-                            diag.arrtimeMissing++;
-                            diag.recordRawOnce(json, true, "matched_but_arrtime_missing");
-                        }
-                        return null;
-                    }
+                    putArrival(byRoute, it);
                 }
             } else {
-                String rid = firstNonBlank(text(items, "routeid"), text(items, "routeId"));
-                if (Objects.equals(routeId, rid)) {
-                    anyMatchedRoute = true;
-                    Integer arr = firstNonNullInt(integer(items, "arrtime"), integer(items, "arrTime"));
-                    if (arr != null && arr > 0) {
-                        if (diag != null) {
-                            diag.arrivalOk++;
-                            diag.recordRawOnce(json, true, "ok(arrtime>0)");
-                        }
-                        return arr;
-                    } else {
-                        if (diag != null) {
-                            diag.arrtimeMissing++;
-                            diag.recordRawOnce(json, true, "matched_but_arrtime_missing");
-                        }
-                        return null;
-                    }
-                }
+                putArrival(byRoute, items);
             }
 
-            // ✅ items는 있는데 routeId 매칭 항목이 없으면: routeIdMatchFail
-            if (!anyMatchedRoute && diag != null) {
-                diag.routeIdMatchFail++;
-                diag.recordRawOnce(json, true, "no_route_match");
+            if (diag != null) {
+                diag.recordRawOnce(json, true, "routes=" + byRoute.size());
             }
-
-            return null;
+            return new StationArrivalCache.StationArrivals(StationArrivalCache.Status.OK, byRoute, "routes=" + byRoute.size());
 
         } catch (HttpStatusCodeException e) {
             // ✅ 429는 "오늘 쿼터 소진" 확정 신호
@@ -1128,17 +1868,28 @@ public class BusSegmentCollector {
                 diag.apiError++;
                 diag.recordRawOnce(e.getResponseBodyAsString(), null, "httpStatus=" + e.getStatusCode());
             }
-            return null;
+            return new StationArrivalCache.StationArrivals(StationArrivalCache.Status.ERROR, null,
+                "httpStatus=" + e.getStatusCode());
 
         } catch (Exception e) {
             if (diag != null) {
                 diag.apiError++;
                 diag.recordRawOnce(null, null, "exception=" + e.getMessage());
             }
-            return null;
+            return new StationArrivalCache.StationArrivals(StationArrivalCache.Status.ERROR, null,
+                "exception=" + e.getMessage());
         }
     }
 
+    // 도착 항목 1건 → routeId별 arrtime (같은 노선의 첫 항목만, arrtime 없거나 0이면 null)
+    private static void putArrival(Map<String, Integer> byRoute, JsonNode it) {
+        String rid = firstNonBlank(text(it, "routeid"), text(it, "routeId"));
+        if (rid == null || byRoute.containsKey(rid)) return;
+
+        Integer arr = firstNonNullInt(integer(it, "arrtime"), integer(it, "arrTime"));
+        byRoute.put(rid, (arr != null && arr > 0) ? arr : null);
+    }
+
     private Integer estimateTravelSecondsByDistanceFallback(double distanceM) {
         if (distanceM <= 0) return null;
 
@@ -1166,82 +1917,61 @@ public class BusSegmentCollector {
             return false;
         }
 
-        String sql =
-            "INSERT INTO segment_weight (" +
-            "  mode, route_id, updowncd, from_id, to_id, " +
-            "  from_lat, from_lng, to_lat, to_lng, " +
-            "  distance_m, travel_sec_avg, sample_count, updated_at" +
-            ") VALUES (" +
-            "  'BUS', ?, ?, ?, ?, " +
-            "  ?, ?, ?, ?, " +
-            "  ?, ?, 1, NOW()" +
-            ") " +
-            "ON DUPLICATE KEY UPDATE " +
-            "  travel_sec_avg = (travel_sec_avg * sample_count + VALUES(travel_sec_avg)) / (sample_count + 1), " +
-            "  sample_count = sample_count + 1, " +
-            "  distance_m = VALUES(distance_m), " +
-            "  from_lat = VALUES(from_lat), " +
-            "  from_lng = VALUES(from_lng), " +
-            "  to_lat = VALUES(to_lat), " +
-            "  to_lng = VALUES(to_lng), " +
-            "  updated_at = NOW()";
-
-        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            conn.setAutoCommit(true);
-
-            ps.setString(1, routeId);
-            ps.setInt(2, updowncd);
-            ps.setString(3, from.nodeId);
-            ps.setString(4, to.nodeId);
-
-            ps.setDouble(5, from.lat);
-            ps.setDouble(6, from.lng);
-            ps.setDouble(7, to.lat);
-            ps.setDouble(8, to.lng);
-
-            ps.setDouble(9, distanceM);
-            ps.setDouble(10, travelSecSample);
-
-            int affected = ps.executeUpdate();
-            return affected > 0;
-
-        } catch (SQLException e) {
-            String msg = e.getMessage();
-            String sqlState = e.getSQLState();
+        // 구간 분위수 스케치 기준 이상값이면 평균/실시간 지연에 섞지 않는다(스케치에는 들어가 분포 변화는 따라간다)
+        // 거리 기반 추정값(SEED_DISTANCE_ONLY)은 관측이 아니므로 실시간 지연에도 넣지 않는다
+        if (!SEED_DISTANCE_ONLY) {
+            if (!segmentStatsEngine.onSample(routeId, updowncd, from.nodeId, to.nodeId, travelSecSample)) {
+                return false;
+            }
+            liveDelayOverlay.onSample(routeId, updowncd, from.nodeId, to.nodeId, travelSecSample);
+        }
 
-            System.out.println(
-                "[COLLECTOR][DB ERROR] routeId=" + routeId +
-                " updowncd=" + updowncd +
-                " from=" + safeNode(from) +
-                " to=" + safeNode(to) +
-                " sqlState=" + sqlState +
-                " vendorCode=" + e.getErrorCode() +
-                " msg=" + msg
-            );
+        // 구간마다 커넥션/autocommit으로 쓰지 않고 쓰기 파이프라인(SegmentWeightWriter)에 넘긴다.
+        // 실제 DB 반영은 writer 스레드가 묶어서 한 트랜잭션으로 수행한다.
+        boolean queued = segmentWeightWriter.offer(
+            routeId, updowncd, from.nodeId, to.nodeId,
+            from.lat, from.lng, to.lat, to.lng,
+            distanceM, travelSecSample
+        );
 
-            // ✅ 핵심: "has been closed" 단일 문자열에 의존하면 DB/드라이버/풀 구현체에 따라 놓친다.
-            // - SQLState 08xxx: Connection Exception 계열
-            // - msg 다중 패턴: 풀/커넥션 종료/통신 장애 케이스 포함
-            boolean connectionExceptionState = (sqlState != null && sqlState.startsWith("08"));
-
-            boolean poolClosedMsg =
-                msg != null && (
-                    msg.contains("has been closed") ||
-                    msg.contains("HikariDataSource") ||
-                    msg.contains("HikariPool") ||
-                    (msg.contains("Pool") && msg.contains("closed")) ||
-                    msg.contains("Connection is closed") ||
-                    msg.contains("connection is closed") ||
-                    msg.contains("Communications link failure")
-                );
+        if (segmentWeightWriter.isDbFatal()) {
+            // writer가 커넥션/풀 종료를 감지했으면 기존과 같이 수집을 멈춘다
+            DB_CLOSED_FATAL.set(true);
+            return false;
+        }
+
+        if (queued) {
+            samplingScheduler.onSample(routeId, updowncd, from.nodeId, to.nodeId, travelSecSample);
+        }
+
+        return queued;
+    }
 
-            if (connectionExceptionState || poolClosedMsg) {
-                DB_CLOSED_FATAL.set(true);
-                Thread.currentThread().interrupt();
+    // =========================
+    // 이름 사전 저장 (bus_stop_name / bus_route_name)
+    // =========================
+    private void saveNames(Map<String, String> names, Map<String, String> saved, boolean stops) {
+        if (transitNameDAO == null || names.isEmpty() || DB_CLOSED_FATAL.get()) return;
+
+        // 이미 같은 값으로 저장한 항목은 제외
+        Map<String, String> changed = new HashMap<>();
+        for (Map.Entry<String, String> en : names.entrySet()) {
+            if (!Objects.equals(saved.get(en.getKey()), en.getValue())) {
+                changed.put(en.getKey(), en.getValue());
             }
+        }
+        if (changed.isEmpty()) return;
 
-            return false;
+        int n = stops ? transitNameDAO.upsertStopNames(changed) : transitNameDAO.upsertRouteNames(changed);
+        if (n >= 0) {
+            saved.putAll(changed);
         }
+        System.out.println("[COLLECTOR] nameDictionary " + (stops ? "stops" : "routes") + " upserted=" + n);
+    }
+
+    private static void putIfNotBlank(Map<String, String> map, String key, String value) {
+        if (isBlank(key) || isBlank(value)) return;
+        map.put(key, value);
     }
 
     private static String safeNode(StopOnRoute s) {
@@ -1318,11 +2048,29 @@ public class BusSegmentCollector {
         return null;
     }
 
-    private static void sleepApi() {
-        try {
-            Thread.sleep(API_SLEEP_MS);
-        } catch (InterruptedException ignore) {
-            Thread.currentThread().interrupt();
+    private static class SegmentCandidate {
+        private final String routeId;
+        private final int dir;
+        private final StopOnRoute from;
+        private final StopOnRoute to;
+        private final double gain; // 기대 오차 감소(초), 스케줄러 미사용 시 0
+
+        private SegmentCandidate(String routeId, int dir, StopOnRoute from, StopOnRoute to, double gain) {
+            this.routeId = routeId;
+            this.dir = dir;
+            this.from = from;
+            this.to = to;
+            this.gain = gain;
+        }
+    }
+
+    private static class VehiclePosition {
+        private final String vehicleNo;
+        private final int nodeOrd; // 차량이 지난(현재) 정류장 순번 = route-stops의 routeSeq
+
+        private VehiclePosition(String vehicleNo, int nodeOrd) {
+            this.vehicleNo = vehicleNo;
+            this.nodeOrd = nodeOrd;
         }
     }
 
@@ -1333,13 +2081,15 @@ public class BusSegmentCollector {
 
     private static class StopOnRoute {
         private final String nodeId;
+        private final String nodeName; // 정류장명(응답에 없으면 null)
         private final double lat;
         private final double lng;
         private final int routeSeq;
         private final int updowncd;
 
-        private StopOnRoute(String nodeId, double lat, double lng, int routeSeq, int updowncd) {
+        private StopOnRoute(String nodeId, String nodeName, double lat, double lng, int routeSeq, int updowncd) {
             this.nodeId = nodeId;
+            this.nodeName = nodeName;
             this.lat = lat;
             this.lng = lng;
             this.routeSeq = routeSeq;
@@ -0,0 +1,256 @@
+// 추가됨: 정보가치(Value of Information) 기반 수집 스케줄러
+//        - 노선 고정 순서(라운드로빈)와 "구간마다 무조건 샘플" 대신, 샘플 1개가 구간 평균 오차를 얼마나 줄일지(기대 오차 감소)로 노선/구간을 고른다.
+//        - 표본 수가 적고, 분산이 크고, 오래 갱신되지 않았고, 최근 값이 크게 바뀐 구간일수록 먼저 뽑힌다.
+//        - 수렴한 구간은 기대 감소량에 비례한 확률로만 뽑아 점점 덜 샘플한다.
+
+package com.example.demo.collector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dao.SegmentWeightDAO;
+
+/**
+ * 수집 스케줄러
+ *
+ * 구간 평균의 불확실성(분산) P를 다음처럼 둔다.
+ *   P = σ² / n + (drift x 평균)² x 경과시간(h)
+ *   - σ²    : 관측 1개의 분산. 이 프로세스에서 3개 이상 본 구간은 실제 분산(Welford), 아니면 (prior-cv x 평균)²
+ *   - n     : segment_weight.sample_count (표본이 없으면 σ² x 4)
+ *   - drift : drift-cv-per-hour + 최근 상대 변화량(EWMA). updated_at 이후 시간이 지날수록 평균이 틀려졌을 가능성
+ * 샘플 1개를 더하면 P는 P·σ²/(P+σ²)로 줄어든다. 기대 오차 감소(초) = √P - √(P·σ²/(P+σ²)).
+ *
+ * - 노선 가치 = 구간 기대 감소 합 / 정류장 수(도착정보 호출 수에 비례)
+ * - onSample(): 실제 샘플로 상태를 갱신하고 실현된 오차 감소(√P 전후 차이)를 누적한다.
+ * - onQuotaSpent(): 샘플을 얻으려고 쓴 호출 수를 누적한다. quotaPerErrorSec = 쓴 호출 수 / 누적 오차 감소(초)
+ */
+@Component
+public class SamplingScheduler {
+
+    @Autowired
+    private SegmentWeightDAO segmentWeightDAO;
+
+    // 스케줄러 사용 여부(false면 기존 라운드로빈 + 전 구간 샘플)
+    @Value("${collector.voi.enabled:true}")
+    private boolean enabled;
+
+    // segment_weight 수렴 정보 다시 읽는 주기(ms)
+    @Value("${collector.voi.reload-interval-ms:600000}")
+    private long reloadIntervalMs;
+
+    // 관측 1개의 상대 표준편차(실제 분산을 모를 때)
+    @Value("${collector.voi.prior-cv:0.35}")
+    private double priorCv;
+
+    // 시간당 평균이 틀어질 수 있는 상대 크기
+    @Value("${collector.voi.drift-cv-per-hour:0.05}")
+    private double driftCvPerHour;
+
+    // 기대 오차 감소가 이 값(초) 이상이면 항상 샘플, 미만이면 (감소/이 값) 확률로만 샘플
+    @Value("${collector.voi.min-gain-sec:2.0}")
+    private double minGainSec;
+
+    // 처음 보는 구간의 평균 가정(초)
+    @Value("${collector.voi.default-sec:120}")
+    private double defaultSec;
+
+    // 구간 1개의 상태
+    private static final class SegStat {
+        double mean;
+        long n;
+        long updatedAtMs;
+        double changeEwma;  // 최근 샘플의 상대 변화량 |x - 평균| / 평균
+        // 이 프로세스에서 본 샘플의 분산(Welford)
+        long localN;
+        double localMean;
+        double localM2;
+    }
+
+    private final Map<String, SegStat> segments = new ConcurrentHashMap<>();
+    private volatile long lastReloadMs = 0L;
+    private volatile int lastReloadRows = 0;
+
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong quotaSpent = new AtomicLong();
+    private final AtomicLong sampledAboveThreshold = new AtomicLong();
+    private final AtomicLong sampledExploration = new AtomicLong();
+    private final AtomicLong skippedConverged = new AtomicLong();
+    private final DoubleAdder errorReductionSec = new DoubleAdder();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 수렴 정보가 오래되었으면 segment_weight에서 다시 읽는다(DB 값이 기준, 로컬 분산/변화량은 유지).
+     */
+    public void reloadIfDue() {
+        if (!enabled) return;
+
+        long now = System.currentTimeMillis();
+        if (now - lastReloadMs < reloadIntervalMs) return;
+
+        synchronized (this) {
+            if (now - lastReloadMs < reloadIntervalMs) return;
+            lastReloadMs = now;
+
+            int rows = segmentWeightDAO.forEachBusSegmentStat((routeId, dir, fromId, toId, avg, count, updatedAtMs) -> {
+                SegStat s = segments.computeIfAbsent(key(routeId, dir, fromId, toId), k -> new SegStat());
+                synchronized (s) {
+                    s.mean = avg;
+                    s.n = Math.max(0L, count);
+                    s.updatedAtMs = Math.max(s.updatedAtMs, updatedAtMs);
+                }
+            });
+            lastReloadRows = rows;
+            System.out.println("[COLLECTOR][VOI] reloaded segments=" + rows + " tracked=" + segments.size());
+        }
+    }
+
+    /**
+     * 샘플 1개의 기대 오차 감소(초)
+     */
+    public double segmentGain(String routeId, int dir, String fromId, String toId) {
+        SegStat s = segments.get(key(routeId, dir, fromId, toId));
+        long now = System.currentTimeMillis();
+        if (s == null) return unknownSegmentGain();
+
+        synchronized (s) {
+            return gain(uncertainty(s, now), sigma2(s));
+        }
+    }
+
+    /**
+     * 처음 보는 구간 샘플 1개의 기대 오차 감소(초) - 정류장 목록을 아직 모르는 노선의 가치 추정용
+     */
+    public double unknownSegmentGain() {
+        return gain(priorVariance(defaultSec) * 4.0, priorVariance(defaultSec));
+    }
+
+    /**
+     * 이 구간을 이번에 샘플할지 (수렴할수록 낮은 확률)
+     */
+    public boolean shouldSample(String routeId, int dir, String fromId, String toId) {
+        if (!enabled) return true;
+
+        double g = segmentGain(routeId, dir, fromId, toId);
+        if (g >= minGainSec) {
+            sampledAboveThreshold.incrementAndGet();
+            return true;
+        }
+        if (ThreadLocalRandom.current().nextDouble() * minGainSec < g) {
+            sampledExploration.incrementAndGet();
+            return true;
+        }
+        skippedConverged.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 실제 샘플 반영 (실현된 오차 감소 누적)
+     */
+    public void onSample(String routeId, int dir, String fromId, String toId, int travelSec) {
+        if (travelSec <= 0) return;
+
+        long now = System.currentTimeMillis();
+        SegStat s = segments.computeIfAbsent(key(routeId, dir, fromId, toId), k -> new SegStat());
+
+        synchronized (s) {
+            if (s.n == 0) {
+                s.mean = travelSec;
+            }
+
+            double p = (s.n == 0) ? priorVariance(s.mean) * 4.0 : uncertainty(s, now);
+            double sigma2 = sigma2(s);
+            double pAfter = p * sigma2 / (p + sigma2);
+            errorReductionSec.add(Math.sqrt(p) - Math.sqrt(pAfter));
+
+            double rel = (s.mean > 0) ? Math.abs(travelSec - s.mean) / s.mean : 0.0;
+            s.changeEwma = (s.n == 0) ? 0.0 : 0.8 * s.changeEwma + 0.2 * rel;
+
+            s.n++;
+            s.mean += (travelSec - s.mean) / s.n;
+            s.updatedAtMs = now;
+
+            s.localN++;
+            double d = travelSec - s.localMean;
+            s.localMean += d / s.localN;
+            s.localM2 += d * (travelSec - s.localMean);
+        }
+
+        samples.incrementAndGet();
+    }
+
+    /**
+     * 샘플을 얻으려고 쓴 외부 호출 수
+     */
+    public void onQuotaSpent(int calls) {
+        if (calls > 0) quotaSpent.addAndGet(calls);
+    }
+
+    /**
+     * 스케줄러 통계 (quotaPerErrorSec = 호출 1개가 아니라 오차 1초를 줄이는 데 쓴 호출 수)
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        double reduced = errorReductionSec.sum();
+        long q = quotaSpent.get();
+        out.put("enabled", enabled);
+        out.put("segmentsTracked", segments.size());
+        out.put("lastReloadRows", lastReloadRows);
+        out.put("lastReloadAt", lastReloadMs);
+        out.put("samples", samples.get());
+        out.put("quotaSpent", q);
+        out.put("errorReductionSec", reduced);
+        out.put("quotaPerErrorSec", (reduced <= 0) ? null : q / reduced);
+        out.put("sampledAboveThreshold", sampledAboveThreshold.get());
+        out.put("sampledExploration", sampledExploration.get());
+        out.put("skippedConverged", skippedConverged.get());
+        out.put("minGainSec", minGainSec);
+        return out;
+    }
+
+    // 평균의 불확실성 P (sec²)
+    private double uncertainty(SegStat s, long now) {
+        double sigma2 = sigma2(s);
+        double base = (s.n <= 0) ? sigma2 * 4.0 : sigma2 / s.n;
+
+        double ageHours = (s.updatedAtMs <= 0) ? 24.0 : Math.max(0L, now - s.updatedAtMs) / 3_600_000.0;
+        double drift = (driftCvPerHour + s.changeEwma) * Math.max(s.mean, 1.0);
+        return base + drift * drift * ageHours;
+    }
+
+    // 관측 1개의 분산 (sec²)
+    private double sigma2(SegStat s) {
+        double mean = (s.mean > 0) ? s.mean : defaultSec;
+        double floor = 0.05 * mean;
+        if (s.localN >= 3) {
+            double v = s.localM2 / (s.localN - 1);
+            return Math.max(v, floor * floor);
+        }
+        return priorVariance(mean);
+    }
+
+    private double priorVariance(double mean) {
+        double sd = priorCv * Math.max(mean, 1.0);
+        return sd * sd;
+    }
+
+    private static double gain(double p, double sigma2) {
+        return Math.sqrt(p) - Math.sqrt(p * sigma2 / (p + sigma2));
+    }
+
+    private static String key(String routeId, int dir, String fromId, String toId) {
+        return routeId + "|" + dir + "|" + fromId + "|" + toId;
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,372 @@
+// 추가됨: segment_weight(BUS) 쓰기 파이프라인 - 수집기 샘플을 큐에 모아 한 트랜잭션의 다중 행 upsert로 내보낸다.
+//        - 기존: 구간 1개마다 커넥션 대여 + PreparedStatement 준비 + autocommit 실행 (병렬 노선 수집 중 수천 번 왕복)
+//        - 변경: 크기(batch-size) 또는 시간(max-delay-ms) 중 먼저 닿는 쪽에서 flush, flush 1회 = 커넥션 1개 + 트랜잭션 1개
+//        - 같은 구간 샘플은 flush 안에서 합쳐(개수 + 평균) 한 행으로 보낸다. 누적 평균 결과는 한 건씩 쓸 때와 같다.
+
+package com.example.demo.collector;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dao.SqlLoader;
+
+/**
+ * segment_weight 쓰기 파이프라인
+ *
+ * - offer(): 수집 스레드(병렬 노선)에서 호출. 큐가 가득 차면 최대 offer-timeout-ms 동안 기다리고(역압), 그래도 차 있으면 버린다.
+ * - 전용 스레드 1개가 큐를 비우며 (노선, 방향, 출발, 도착) 키로 샘플을 합치고 조건이 되면 flush 한다.
+ * - flush: INSERT ... VALUES (..), (..), ... ON DUPLICATE KEY UPDATE 를 rows-per-statement 행씩 실행하고 한 번에 commit.
+ *   실패하면 rollback 하고 그 묶음은 버린다(다음 수집 주기에 다시 샘플이 들어온다).
+ * - 커넥션 계열 오류(SQLState 08xxx, 풀 종료)면 dbFatal을 세워 수집기가 멈추게 한다.
+ */
+@Component
+public class SegmentWeightWriter {
+
+    @Autowired
+    private DataSource dataSource;
+
+    // 합친 행 수가 이 값에 닿으면 바로 flush
+    @Value("${collector.segment-writer.batch-size:500}")
+    private int batchSize;
+
+    // 첫 샘플이 들어온 뒤 이 시간(ms)이 지나면 flush
+    @Value("${collector.segment-writer.max-delay-ms:2000}")
+    private long maxDelayMs;
+
+    // 대기 큐 크기(샘플 수)
+    @Value("${collector.segment-writer.queue-capacity:20000}")
+    private int queueCapacity;
+
+    // 큐가 가득 찼을 때 수집 스레드가 기다리는 최대 시간(ms)
+    @Value("${collector.segment-writer.offer-timeout-ms:1000}")
+    private long offerTimeoutMs;
+
+    // INSERT 1문장에 넣는 행 수
+    @Value("${collector.segment-writer.rows-per-statement:200}")
+    private int rowsPerStatement;
+
+    /**
+     * 수집 샘플 1건 (구간 좌표/거리 + 관측 소요시간)
+     */
+    private static final class Sample {
+        final String routeId;
+        final int updowncd;
+        final String fromId;
+        final String toId;
+        final double fromLat, fromLng, toLat, toLng;
+        final double distanceM;
+        final int travelSec;
+
+        Sample(String routeId, int updowncd, String fromId, String toId,
+               double fromLat, double fromLng, double toLat, double toLng, double distanceM, int travelSec) {
+            this.routeId = routeId;
+            this.updowncd = updowncd;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.fromLat = fromLat;
+            this.fromLng = fromLng;
+            this.toLat = toLat;
+            this.toLng = toLng;
+            this.distanceM = distanceM;
+            this.travelSec = travelSec;
+        }
+
+        String key() {
+            return routeId + "|" + updowncd + "|" + fromId + "|" + toId;
+        }
+    }
+
+    /**
+     * flush 단위로 합친 행 (마지막 좌표/거리 + 샘플 수/합계)
+     */
+    private static final class Row {
+        Sample last;
+        int count;
+        double sumSec;
+
+        void add(Sample s) {
+            last = s;
+            count++;
+            sumSec += s.travelSec;
+        }
+    }
+
+    private BlockingQueue<Sample> queue;
+    private Thread flusher;
+    private volatile boolean stopping = false;
+
+    private final AtomicBoolean dbFatal = new AtomicBoolean(false);
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong flushNanosTotal = new AtomicLong();
+    private volatile long lastFlushMs = 0;
+    private volatile long maxFlushMs = 0;
+    private volatile int lastFlushRows = 0;
+    private volatile long lastFlushAt = 0;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        flusher = new Thread(this::runLoop, "segment-weight-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 샘플 1건을 큐에 넣는다.
+     *
+     * @return 큐에 들어갔으면 true (DB 반영은 다음 flush)
+     */
+    public boolean offer(String routeId, int updowncd, String fromId, String toId,
+                         double fromLat, double fromLng, double toLat, double toLng,
+                         double distanceM, int travelSec) {
+        if (dbFatal.get() || stopping) return false;
+
+        Sample s = new Sample(routeId, updowncd, fromId, toId, fromLat, fromLng, toLat, toLng, distanceM, travelSec);
+        try {
+            if (queue.offer(s, Math.max(0L, offerTimeoutMs), TimeUnit.MILLISECONDS)) {
+                accepted.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * DB 커넥션/풀 종료가 감지되었는지 (수집기 중단 판단용)
+     */
+    public boolean isDbFatal() {
+        return dbFatal.get();
+    }
+
+    /**
+     * 쓰기 통계 (rows/sec, flush 지연시간 등)
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long f = flushes.get();
+        long rows = rowsWritten.get();
+        double flushSec = flushNanosTotal.get() / 1e9;
+
+        out.put("queued", queue.size());
+        out.put("accepted", accepted.get());
+        out.put("dropped", dropped.get());
+        out.put("coalesced", coalesced.get());
+        out.put("rowsWritten", rows);
+        out.put("rowsFailed", rowsFailed.get());
+        out.put("flushes", f);
+        out.put("failedFlushes", failedFlushes.get());
+        out.put("avgFlushMs", (f == 0) ? 0.0 : flushNanosTotal.get() / 1e6 / f);
+        out.put("lastFlushMs", lastFlushMs);
+        out.put("maxFlushMs", maxFlushMs);
+        out.put("lastFlushRows", lastFlushRows);
+        out.put("lastFlushAt", lastFlushAt);
+        out.put("rowsPerSec", (flushSec <= 0) ? 0.0 : rows / flushSec); // flush 시간 기준 처리량
+        out.put("dbFatal", dbFatal.get());
+        return out;
+    }
+
+    // 큐 → 합친 행 → 조건 충족 시 flush
+    private void runLoop() {
+        Map<String, Row> pending = new LinkedHashMap<>();
+        long firstAt = 0L;
+
+        while (true) {
+            try {
+                long waitMs = pending.isEmpty()
+                    ? Math.max(1L, maxDelayMs)
+                    : Math.max(1L, firstAt + maxDelayMs - System.currentTimeMillis());
+                Sample s = queue.poll(waitMs, TimeUnit.MILLISECONDS);
+
+                if (s != null) {
+                    if (pending.isEmpty()) firstAt = System.currentTimeMillis();
+                    addTo(pending, s);
+                    // 이미 쌓인 것은 한 번에 가져온다
+                    List<Sample> more = new ArrayList<>();
+                    queue.drainTo(more, Math.max(1, batchSize));
+                    for (Sample m : more) addTo(pending, m);
+                }
+
+                boolean full = pending.size() >= Math.max(1, batchSize);
+                boolean due = !pending.isEmpty() && System.currentTimeMillis() - firstAt >= maxDelayMs;
+                if (full || due) {
+                    flush(pending);
+                    pending = new LinkedHashMap<>();
+                }
+
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                System.out.println("[COLLECTOR][WRITER][ERROR] msg=" + e.getMessage());
+            }
+            if (stopping && queue.isEmpty() && pending.isEmpty()) break;
+        }
+
+        // 종료 시 남은 샘플 반영
+        List<Sample> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (Sample m : rest) addTo(pending, m);
+        if (!pending.isEmpty()) flush(pending);
+    }
+
+    private void addTo(Map<String, Row> pending, Sample s) {
+        Row row = pending.computeIfAbsent(s.key(), k -> new Row());
+        if (row.count > 0) coalesced.incrementAndGet();
+        row.add(s);
+    }
+
+    private void flush(Map<String, Row> pending) {
+        if (pending.isEmpty() || dbFatal.get()) {
+            rowsFailed.addAndGet(pending.size());
+            return;
+        }
+
+        long t0 = System.nanoTime();
+        List<Row> rows = new ArrayList<>(pending.values());
+        int per = Math.max(1, rowsPerStatement);
+
+        try (Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement full = null;
+                try {
+                    for (int from = 0; from < rows.size(); from += per) {
+                        int n = Math.min(per, rows.size() - from);
+                        if (n == per) {
+                            if (full == null) full = conn.prepareStatement(upsertSql(per)); // 꽉 찬 묶음은 문장 재사용
+                            bindAndExecute(full, rows, from, n);
+                        } else {
+                            try (PreparedStatement tail = conn.prepareStatement(upsertSql(n))) {
+                                bindAndExecute(tail, rows, from, n);
+                            }
+                        }
+                    }
+                } finally {
+                    if (full != null) full.close();
+                }
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+
+            rowsWritten.addAndGet(rows.size());
+
+        } catch (SQLException e) {
+            failedFlushes.incrementAndGet();
+            rowsFailed.addAndGet(rows.size());
+            String msg = e.getMessage();
+            String sqlState = e.getSQLState();
+            System.out.println("[COLLECTOR][WRITER][DB ERROR] rows=" + rows.size()
+                + " sqlState=" + sqlState + " vendorCode=" + e.getErrorCode() + " msg=" + msg);
+
+            if (isConnectionFatal(sqlState, msg)) {
+                dbFatal.set(true);
+            }
+        } finally {
+            long nanos = System.nanoTime() - t0;
+            long ms = nanos / 1_000_000L;
+            flushes.incrementAndGet();
+            flushNanosTotal.addAndGet(nanos);
+            lastFlushMs = ms;
+            lastFlushRows = rows.size();
+            lastFlushAt = System.currentTimeMillis();
+            if (ms > maxFlushMs) maxFlushMs = ms;
+        }
+    }
+
+    // 행마다 11개 파라미터 (sql.properties segment_weight.upsert.bus_multi.row 순서)
+    private static void bindAndExecute(PreparedStatement ps, List<Row> rows, int from, int n) throws SQLException {
+        int p = 1;
+        for (int i = from; i < from + n; i++) {
+            Row r = rows.get(i);
+            Sample s = r.last;
+            ps.setString(p++, s.routeId);
+            ps.setInt(p++, s.updowncd);
+            ps.setString(p++, s.fromId);
+            ps.setString(p++, s.toId);
+            ps.setDouble(p++, s.fromLat);
+            ps.setDouble(p++, s.fromLng);
+            ps.setDouble(p++, s.toLat);
+            ps.setDouble(p++, s.toLng);
+            ps.setDouble(p++, s.distanceM);
+            ps.setDouble(p++, r.sumSec / r.count); // 이번 묶음의 평균
+            ps.setInt(p++, r.count);               // 이번 묶음의 샘플 수
+        }
+        ps.executeUpdate();
+    }
+
+    // 행 수별 SQL 문자열 캐시
+    private final Map<Integer, String> sqlByRows = new HashMap<>();
+
+    private String upsertSql(int n) {
+        return sqlByRows.computeIfAbsent(n, k -> {
+            String row = SqlLoader.getSql("segment_weight.upsert.bus_multi.row");
+            StringBuilder sb = new StringBuilder(SqlLoader.getSql("segment_weight.upsert.bus_multi.head"));
+            for (int i = 0; i < k; i++) {
+                sb.append(i == 0 ? " " : ", ").append(row);
+            }
+            sb.append(' ').append(SqlLoader.getSql("segment_weight.upsert.bus_multi.tail"));
+            return sb.toString();
+        });
+    }
+
+    // SQLState 08xxx(Connection Exception) 또는 풀/커넥션 종료 메시지
+    private static boolean isConnectionFatal(String sqlState, String msg) {
+        if (sqlState != null && sqlState.startsWith("08")) return true;
+        return msg != null && (
+            msg.contains("has been closed") ||
+            msg.contains("HikariDataSource") ||
+            msg.contains("HikariPool") ||
+            (msg.contains("Pool") && msg.contains("closed")) ||
+            msg.contains("Connection is closed") ||
+            msg.contains("connection is closed") ||
+            msg.contains("Communications link failure")
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        try {
+            if (flusher != null) flusher.join(Math.max(1000L, maxDelayMs * 2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+// 추가됨 끝
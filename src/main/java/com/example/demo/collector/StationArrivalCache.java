@@ -0,0 +1,189 @@
+// 추가됨: 정류장 단위 도착정보 캐시 - getSttnAcctoArvlPrearngeInfoList 응답 1개를 노선별 arrtime 맵으로 한 번만 파싱해 같은 주기의 모든 노선이 함께 쓴다.
+//        - 기존: 노선마다 HashMap(arrivalCache)을 따로 두고 응답에서 자기 routeId 1건만 꺼냄 → 15개 노선이 지나는 정류장은 주기당 최대 15번 호출
+//        - 변경: 수집 주기(collectOnce/refineOnce 1회) 범위 + TTL 범위에서 정류장당 1번만 호출, 동시에 같은 정류장을 요청하면 1개 스레드만 호출
+// 수정됨: fetchedAtMs 설명 보강 - 캐시된 arrtime은 받은 시각 기준 값이므로 쓰는 쪽이 이 시각으로 보정한다.
+
+package com.example.demo.collector;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 정류장 도착정보 캐시
+ *
+ * - beginCycle(): 수집 주기 시작 시 호출. 이전 주기 항목을 모두 비운다(주기 범위).
+ * - get(nodeId, loader): 살아 있는(ttl-ms 이내) 항목이 있으면 그대로, 없으면 정류장별 잠금 안에서 loader로 1회만 가져온다.
+ *   loader가 null을 반환하면(쿼터/예산으로 호출하지 않음) 캐시에 넣지 않는다.
+ * - hits = 아낀 arrival API 호출 수(quotaSaved)
+ */
+@Component
+public class StationArrivalCache {
+
+    // 항목 유효 시간(ms). arrtime은 초 단위로 줄어드는 값이라 쓰는 쪽이 fetchedAtMs로 보정하고(BusSegmentCollector),
+    // 길게 두면 그사이 바뀐 예측(정차/신호)을 놓친다.
+    @Value("${collector.station-arrival.ttl-ms:30000}")
+    private long ttlMs;
+
+    // 최대 보관 정류장 수(넘으면 만료 항목 정리 후에도 넘칠 때 새 항목을 캐시하지 않는다)
+    @Value("${collector.station-arrival.max-entries:5000}")
+    private int maxEntries;
+
+    /**
+     * 응답 상태
+     */
+    public enum Status {
+        OK,     // resultCode=00 이고 items 있음
+        EMPTY,  // 빈 응답 / items 경로 없음
+        ERROR   // resultCode!=00, HTTP/파싱 예외
+    }
+
+    /**
+     * 정류장 1개의 도착정보 (노선별 arrtime)
+     */
+    public static final class StationArrivals {
+        public final Status status;
+        // routeId -> arrtime(초). 노선은 있는데 arrtime이 없거나 0이면 null
+        public final Map<String, Integer> arrtimeByRoute;
+        // 상태 설명(resultCode/msg, 예외 메시지 등)
+        public final String meta;
+        // 응답 받은 시각(epoch ms). arrtime은 이 시각 기준 남은 초
+        public final long fetchedAtMs;
+
+        public StationArrivals(Status status, Map<String, Integer> arrtimeByRoute, String meta) {
+            this.status = status;
+            this.arrtimeByRoute = (arrtimeByRoute == null) ? Collections.emptyMap() : arrtimeByRoute;
+            this.meta = meta;
+            this.fetchedAtMs = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 실제 API 호출 (쿼터/예산으로 호출하지 않았으면 null)
+     */
+    public interface Loader {
+        StationArrivals load(String nodeId);
+    }
+
+    private final Map<String, StationArrivals> entries = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    private final AtomicLong cycles = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong denied = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong cycleLookups = new AtomicLong();
+    private final AtomicLong cycleHits = new AtomicLong();
+    private final AtomicLong cycleFetches = new AtomicLong();
+    private volatile long lastCycleLookups = 0;
+    private volatile long lastCycleHits = 0;
+    private volatile long lastCycleFetches = 0;
+
+    /**
+     * 수집 주기 시작: 이전 주기 항목을 비우고 주기 카운터를 넘긴다.
+     */
+    public void beginCycle() {
+        if (cycles.getAndIncrement() > 0) {
+            lastCycleLookups = cycleLookups.getAndSet(0);
+            lastCycleHits = cycleHits.getAndSet(0);
+            lastCycleFetches = cycleFetches.getAndSet(0);
+        }
+        entries.clear();
+        locks.clear();
+    }
+
+    /**
+     * 정류장 도착정보 조회 (캐시 → 없으면 loader 1회)
+     *
+     * @return loader가 호출을 하지 않았으면 null
+     */
+    public StationArrivals get(String nodeId, Loader loader) {
+        lookups.incrementAndGet();
+        cycleLookups.incrementAndGet();
+
+        StationArrivals cur = fresh(nodeId);
+        if (cur != null) {
+            countHit();
+            return cur;
+        }
+
+        Object lock = locks.computeIfAbsent(nodeId, k -> new Object());
+        synchronized (lock) {
+            // 다른 노선 스레드가 방금 가져왔으면 그대로 쓴다
+            cur = fresh(nodeId);
+            if (cur != null) {
+                countHit();
+                return cur;
+            }
+
+            StationArrivals loaded = loader.load(nodeId);
+            if (loaded == null) {
+                denied.incrementAndGet();
+                return null;
+            }
+
+            fetches.incrementAndGet();
+            cycleFetches.incrementAndGet();
+            put(nodeId, loaded);
+            return loaded;
+        }
+    }
+
+    private StationArrivals fresh(String nodeId) {
+        StationArrivals e = entries.get(nodeId);
+        if (e == null) return null;
+        if (System.currentTimeMillis() - e.fetchedAtMs > ttlMs) {
+            if (entries.remove(nodeId, e)) expired.incrementAndGet();
+            return null;
+        }
+        return e;
+    }
+
+    private void put(String nodeId, StationArrivals e) {
+        if (entries.size() >= maxEntries) {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(x -> now - x.fetchedAtMs > ttlMs);
+            if (entries.size() >= maxEntries) return; // 넘치면 캐시하지 않고 이번 결과만 돌려준다
+        }
+        entries.put(nodeId, e);
+    }
+
+    private void countHit() {
+        hits.incrementAndGet();
+        cycleHits.incrementAndGet();
+    }
+
+    /**
+     * 캐시 통계 (quotaSaved = 캐시로 대신한 arrival API 호출 수)
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long l = lookups.get();
+        long h = hits.get();
+        out.put("ttlMs", ttlMs);
+        out.put("entries", entries.size());
+        out.put("cycles", cycles.get());
+        out.put("lookups", l);
+        out.put("fetches", fetches.get());
+        out.put("quotaSaved", h);
+        out.put("hitRate", (l == 0) ? 0.0 : (double) h / l);
+        out.put("denied", denied.get());
+        out.put("expired", expired.get());
+        out.put("cycleLookups", cycleLookups.get());
+        out.put("cycleFetches", cycleFetches.get());
+        out.put("cycleQuotaSaved", cycleHits.get());
+        out.put("lastCycleLookups", lastCycleLookups);
+        out.put("lastCycleFetches", lastCycleFetches);
+        out.put("lastCycleQuotaSaved", lastCycleHits);
+        return out;
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,220 @@
+// 추가됨: TAGO 호출 전용 클라이언트 - 토큰 버킷 속도 제한 + 전용 작업 스레드 + 호출별 타임아웃
+//        - 기존: 호출마다 Thread.sleep(120ms) 후 다음 호출, 노선 병렬 처리는 parallelStream(공용 ForkJoinPool)에서 블로킹 HTTP + sleep
+//        - 변경: 제공자 초당 한도(rate-per-sec)만큼 토큰을 나눠 주고 토큰이 있으면 바로 호출(쉬는 시간 없음),
+//                노선 작업은 전용 고정 스레드(workers)에서 돌려 공용 풀을 점유하지 않는다.
+
+package com.example.demo.collector;
+
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * TAGO API 호출 파이프라인
+ *
+ * - get(uri): 토큰 1개를 받은 뒤(없으면 다음 토큰 시각까지 대기) GET. 연결/읽기 타임아웃 적용.
+ *   HttpStatusCodeException 등 RestTemplate 예외는 그대로 던진다(호출부의 429/쿼터 처리 유지).
+ * - forEach(items, task): 전용 작업 스레드(workers개)에서 항목별 task를 실행하고 모두 끝날 때까지 기다린다.
+ * - 토큰 버킷: 초당 rate-per-sec개 보충, 최대 burst개 적립. 대기 순서는 예약 순서(먼저 온 호출이 먼저 나감).
+ */
+@Component
+public class TagoApiClient {
+
+    // 제공자 초당 호출 한도
+    @Value("${collector.tago.rate-per-sec:8}")
+    private double ratePerSec;
+
+    // 쉬었다가 한 번에 나갈 수 있는 최대 호출 수
+    @Value("${collector.tago.burst:8}")
+    private int burst;
+
+    // 노선 작업 전용 스레드 수
+    @Value("${collector.tago.workers:6}")
+    private int workers;
+
+    @Value("${collector.tago.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${collector.tago.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+
+    private RestTemplate restTemplate;
+    private ExecutorService pool;
+
+    // 토큰 버킷 상태 (reserve()에서만 변경)
+    private double tokens;
+    private long lastRefillNanos;
+    private long intervalNanos;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong throttleNanosTotal = new AtomicLong();
+    private final AtomicLong latencyNanosTotal = new AtomicLong();
+    private volatile long maxLatencyMs = 0;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final long startedAtMs = System.currentTimeMillis();
+
+    @PostConstruct
+    public void init() {
+        SimpleClientHttpRequestFactory rf = new SimpleClientHttpRequestFactory();
+        rf.setConnectTimeout(connectTimeoutMs);
+        rf.setReadTimeout(readTimeoutMs);
+        restTemplate = new RestTemplate(rf);
+
+        double rate = (ratePerSec > 0) ? ratePerSec : 1.0;
+        intervalNanos = (long) (1_000_000_000L / rate);
+        tokens = Math.max(1, burst);
+        lastRefillNanos = System.nanoTime();
+
+        AtomicInteger seq = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(Math.max(1, workers), r -> {
+            Thread t = new Thread(r, "tago-worker-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 속도 제한을 지켜 GET 1회
+     *
+     * @return 응답 본문. 토큰 대기 중 인터럽트되면 null
+     */
+    public String get(URI uri) {
+        if (!acquire()) return null;
+
+        long t0 = System.nanoTime();
+        inFlight.incrementAndGet();
+        try {
+            calls.incrementAndGet();
+            return restTemplate.getForObject(uri, String.class);
+
+        } catch (ResourceAccessException e) {
+            errors.incrementAndGet();
+            if (e.getCause() instanceof SocketTimeoutException) timeouts.incrementAndGet();
+            throw e;
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+            long nanos = System.nanoTime() - t0;
+            latencyNanosTotal.addAndGet(nanos);
+            long ms = nanos / 1_000_000L;
+            if (ms > maxLatencyMs) maxLatencyMs = ms;
+        }
+    }
+
+    /**
+     * 전용 작업 스레드에서 항목별 task 실행 (모두 끝날 때까지 대기)
+     * - task 예외는 항목 단위로 로그만 남긴다.
+     */
+    public <T> void forEach(List<T> items, Consumer<T> task) {
+        List<Future<?>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(pool.submit(() -> task.accept(item)));
+        }
+
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                // 호출 스레드가 중단되면 남은 작업도 중단 요청
+                for (Future<?> x : futures) x.cancel(true);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                Throwable c = (e.getCause() != null) ? e.getCause() : e;
+                System.out.println("[COLLECTOR][TAGO][ERROR] task msg=" + c.getMessage());
+            }
+        }
+    }
+
+    // 토큰 1개 받기 (예약한 시각까지 대기)
+    private boolean acquire() {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) return true;
+
+        throttled.incrementAndGet();
+        throttleNanosTotal.addAndGet(waitNanos);
+
+        long deadline = System.nanoTime() + waitNanos;
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(left);
+            if (Thread.currentThread().isInterrupted()) return false;
+        }
+        return true;
+    }
+
+    // 보충 후 토큰 1개 차감. 부족하면 음수로 빌려 가고(예약) 기다릴 시간을 돌려준다.
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        double refill = (double) (now - lastRefillNanos) / intervalNanos;
+        tokens = Math.min(Math.max(1, burst), tokens + refill);
+        lastRefillNanos = now;
+
+        tokens -= 1.0;
+        if (tokens >= 0) return 0L;
+        return (long) (-tokens * intervalNanos);
+    }
+
+    /**
+     * 호출 통계 (실제 초당 호출 수, 토큰 대기, 지연시간, 타임아웃)
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long c = calls.get();
+        double upSec = Math.max(1.0, (System.currentTimeMillis() - startedAtMs) / 1000.0);
+
+        out.put("ratePerSec", ratePerSec);
+        out.put("burst", burst);
+        out.put("workers", workers);
+        out.put("connectTimeoutMs", connectTimeoutMs);
+        out.put("readTimeoutMs", readTimeoutMs);
+        out.put("calls", c);
+        out.put("inFlight", inFlight.get());
+        out.put("errors", errors.get());
+        out.put("timeouts", timeouts.get());
+        out.put("throttled", throttled.get());
+        out.put("throttleWaitMsTotal", throttleNanosTotal.get() / 1_000_000L);
+        out.put("avgLatencyMs", (c == 0) ? 0.0 : latencyNanosTotal.get() / 1e6 / c);
+        out.put("maxLatencyMs", maxLatencyMs);
+        out.put("avgCallsPerSecSinceStart", c / upSec);
+        return out;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+// 추가됨 끝
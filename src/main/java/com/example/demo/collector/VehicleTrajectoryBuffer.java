@@ -0,0 +1,174 @@
+// 추가됨: 차량 궤적 버퍼 - 노선별 버스 위치 스냅샷(getRouteAcctoBusLcList)에서 차량마다 정류장 순번(nodeord) 변화를 추적해 구간 통과 시간을 뽑는다.
+//        - 위치 호출 1번으로 노선 위 모든 차량을 보므로, 정류장마다 도착예정 호출 2번으로 샘플 1개를 얻는 방식보다 호출당 샘플 수가 훨씬 많다.
+
+package com.example.demo.collector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 차량 궤적 버퍼
+ *
+ * - 차량(노선 + 차량번호)마다 마지막 순번, 그 순번에 들어온 추정 시각, 마지막으로 본 시각을 보관한다.
+ * - 순번이 k → k+1로 바뀌면 진입 시각을 "k에서 마지막으로 본 시각과 k+1에서 처음 본 시각의 중간"으로 추정한다.
+ *   구간 (k-1 → k)이 아니라 (k → k+1) 통과 시간 = (k+1 진입 시각) - (k 진입 시각) 이다(정차 시간 포함, 도착예정 차이 방식과 같은 의미).
+ * - 두 진입 시각의 폴링 간격이 max-gap-ms 이하일 때만 샘플을 낸다(추정 오차 = 간격/2 이내).
+ * - 순번이 2칸 이상 뛰면(폴링 사이 여러 정류장 통과) 샘플 없이 진입 시각만 갱신한다(관측값만 쓰고 보간하지 않는다).
+ * - 순번이 줄면(회차/다음 운행) 새 궤적으로 다시 시작한다.
+ */
+@Component
+public class VehicleTrajectoryBuffer {
+
+    // 진입 시각 추정에 쓰는 두 폴링 사이 최대 간격(ms)
+    @Value("${collector.trajectory.max-gap-ms:90000}")
+    private long maxGapMs;
+
+    // 이 시간 동안 보이지 않은 차량 궤적은 버린다(ms)
+    @Value("${collector.trajectory.track-ttl-ms:600000}")
+    private long trackTtlMs;
+
+    /**
+     * 구간 통과 1건 (순번 fromOrd → toOrd, 소요 초)
+     */
+    public static final class Transition {
+        public final String routeId;
+        public final String vehicleNo;
+        public final int fromOrd;
+        public final int toOrd;
+        public final int travelSec;
+
+        Transition(String routeId, String vehicleNo, int fromOrd, int toOrd, int travelSec) {
+            this.routeId = routeId;
+            this.vehicleNo = vehicleNo;
+            this.fromOrd = fromOrd;
+            this.toOrd = toOrd;
+            this.travelSec = travelSec;
+        }
+    }
+
+    // 차량 1대의 궤적 상태
+    private static final class Track {
+        int ord;
+        long enteredAtMs;   // 현재 순번 진입 추정 시각(-1 = 모름)
+        long lastSeenMs;
+
+        Track(int ord, long seenMs) {
+            this.ord = ord;
+            this.enteredAtMs = -1L;
+            this.lastSeenMs = seenMs;
+        }
+    }
+
+    private final Map<String, Track> tracks = new ConcurrentHashMap<>();
+
+    private final AtomicLong observations = new AtomicLong();
+    private final AtomicLong advances = new AtomicLong();
+    private final AtomicLong emitted = new AtomicLong();
+    private final AtomicLong skippedMultiHop = new AtomicLong();
+    private final AtomicLong skippedGap = new AtomicLong();
+    private final AtomicLong skippedUnknownEntry = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    /**
+     * 위치 관측 1건 반영
+     *
+     * @param polledAtMs 위치 응답을 받은 시각
+     * @return 이번 관측으로 확정된 구간 통과(없으면 빈 목록)
+     */
+    public List<Transition> observe(String routeId, String vehicleNo, int nodeOrd, long polledAtMs) {
+        observations.incrementAndGet();
+
+        String key = routeId + "|" + vehicleNo;
+        Track t = tracks.get(key);
+        if (t == null) {
+            t = tracks.putIfAbsent(key, new Track(nodeOrd, polledAtMs));
+            if (t == null) return Collections.emptyList(); // 처음 본 차량
+        }
+
+        // 같은 차량은 같은 노선 폴링 스레드에서만 갱신되지만, 궤적 정리와 겹칠 수 있어 잠근다
+        synchronized (t) {
+            if (polledAtMs <= t.lastSeenMs) {
+                return Collections.emptyList();
+            }
+
+            if (nodeOrd == t.ord) {
+                t.lastSeenMs = polledAtMs;
+                return Collections.emptyList();
+            }
+
+            if (nodeOrd < t.ord) {
+                // 회차/다음 운행: 이전 궤적과 이어지지 않는다
+                resets.incrementAndGet();
+                t.ord = nodeOrd;
+                t.enteredAtMs = -1L;
+                t.lastSeenMs = polledAtMs;
+                return Collections.emptyList();
+            }
+
+            advances.incrementAndGet();
+
+            long gap = polledAtMs - t.lastSeenMs;
+            long enteredNow = (gap <= maxGapMs) ? (t.lastSeenMs + polledAtMs) / 2 : -1L;
+
+            List<Transition> out = Collections.emptyList();
+            int hop = nodeOrd - t.ord;
+
+            if (hop > 1) {
+                skippedMultiHop.incrementAndGet();
+            } else if (enteredNow < 0) {
+                skippedGap.incrementAndGet();
+            } else if (t.enteredAtMs < 0) {
+                skippedUnknownEntry.incrementAndGet();
+            } else {
+                int sec = (int) Math.round((enteredNow - t.enteredAtMs) / 1000.0);
+                out = new ArrayList<>(1);
+                out.add(new Transition(routeId, vehicleNo, t.ord, nodeOrd, sec));
+                emitted.incrementAndGet();
+            }
+
+            t.ord = nodeOrd;
+            t.enteredAtMs = enteredNow;
+            t.lastSeenMs = polledAtMs;
+            return out;
+        }
+    }
+
+    /**
+     * 오래 보이지 않은 차량 궤적 정리
+     */
+    public void evictIdle(long nowMs) {
+        int before = tracks.size();
+        tracks.values().removeIf(t -> nowMs - t.lastSeenMs > trackTtlMs);
+        evicted.addAndGet(Math.max(0, before - tracks.size()));
+    }
+
+    /**
+     * 궤적 버퍼 통계
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("tracks", tracks.size());
+        out.put("observations", observations.get());
+        out.put("advances", advances.get());
+        out.put("emitted", emitted.get());
+        out.put("skippedMultiHop", skippedMultiHop.get());
+        out.put("skippedGap", skippedGap.get());
+        out.put("skippedUnknownEntry", skippedUnknownEntry.get());
+        out.put("resets", resets.get());
+        out.put("evicted", evicted.get());
+        out.put("maxGapMs", maxGapMs);
+        out.put("trackTtlMs", trackTtlMs);
+        return out;
+    }
+}
+
+// 추가됨 끝
@@ -58,7 +58,9 @@ public class SecurityConfig { // SecurityConfig: 웹 보안 설정을 위한 메
                     "/api/users/**",            // (PUT) /api/users/{id}/roles (역할 변경)
                     // 게시글 고정/해제 API도 관리자 전용
                     "/api/posts/{postId}/pin",  // (PUT) 게시글 고정
-                    "/api/posts/{postId}/unpin" // (PUT) 게시글 고정 해제
+                    "/api/posts/{postId}/unpin", // (PUT) 게시글 고정 해제
+                    // [수정됨] 접근성 히트맵 전체 재계산(전 코어를 수 분간 사용)은 관리자 전용
+                    "/api/path/heatmap/run"     // (POST) 히트맵 배치 실행
                 )
                 .hasRole("ADMIN") // .hasRole("ADMIN"): "ROLE_ADMIN" 권한이 있는 사용자만 접근 허용
 
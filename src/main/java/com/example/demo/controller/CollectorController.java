@@ -2,6 +2,12 @@
 //        (2) quotaRemainingToday=0이면 "스킵"이 아니라 collectorSwitch OFF로 내려 autoLoop 자체를 종료(수집 완전 중단)
 //        (3) refine 예산을 quotaRemainingToday로 상한 처리(min)하여 초과 호출 방지
 //        (4) BusSegmentCollector에 getLastRefineDiagSummary()가 없을 수 있으므로 리플렉션으로 안전 조회(String)
+//        (5) /collector/status에 segment_weight 쓰기 파이프라인 통계(segmentWriter: rows/sec, flush 지연, 버린 샘플 수 등) 추가
+//        (6) /collector/status에 정류장 도착정보 캐시 통계(stationArrivalCache: quotaSaved, hitRate, 주기별 호출/절감 수) 추가
+//        (7) /collector/status에 TAGO 호출 파이프라인 통계(tagoClient: 초당 한도, 토큰 대기, 지연시간, 타임아웃) 추가
+//        (8) /collector/status에 수집기 상태 보관 통계(collectorState: 복원/오래된 목록 재수신/노선 목록 재사용/저장 횟수) 추가
+//        (9) /collector/status에 차량 궤적 모드 통계(trajectory: 폴링 수, 샘플 수, 호출당 샘플 수, 궤적 버퍼 상태) 추가
+//        (10) /collector/status에 정보가치 스케줄러 통계(samplingScheduler: 쓴 호출 수, 누적 오차 감소, 오차 1초 감소당 호출 수, 수렴 구간 건너뜀) 추가
 
 package com.example.demo.controller;
 
@@ -30,6 +36,10 @@ import org.springframework.web.bind.annotation.RestController;
 import com.example.demo.collector.ApiQuotaManager;
 import com.example.demo.collector.BusSegmentCollector;
 import com.example.demo.collector.CollectorSwitch;
+import com.example.demo.collector.SamplingScheduler;
+import com.example.demo.collector.SegmentWeightWriter;
+import com.example.demo.collector.StationArrivalCache;
+import com.example.demo.collector.TagoApiClient;
 
 @RestController
 public class CollectorController {
@@ -43,6 +53,18 @@ public class CollectorController {
     @Autowired
     private CollectorSwitch collectorSwitch;
 
+    @Autowired
+    private SegmentWeightWriter segmentWeightWriter;
+
+    @Autowired
+    private StationArrivalCache stationArrivalCache;
+
+    @Autowired
+    private TagoApiClient tagoApiClient;
+
+    @Autowired
+    private SamplingScheduler samplingScheduler;
+
     private final AtomicInteger intervalMs = new AtomicInteger(5000); // 5초 (Real-time)
     private final AtomicInteger batchSize = new AtomicInteger(4); // 4개씩 병렬 처리 (속도 4배)
 
@@ -175,6 +197,24 @@ public class CollectorController {
         // ✅ B안 진단(있으면 표시, 없으면 null)
         res.put("lastRefineDiag", safeInvokeString(busSegmentCollector, "getLastRefineDiagSummary"));
 
+        // segment_weight 묶음 쓰기 통계
+        res.put("segmentWriter", segmentWeightWriter.stats());
+
+        // 정류장 도착정보 공유 캐시 통계(quotaSaved = 아낀 arrival API 호출 수)
+        res.put("stationArrivalCache", stationArrivalCache.stats());
+
+        // TAGO 호출 파이프라인(토큰 버킷) 통계
+        res.put("tagoClient", tagoApiClient.stats());
+
+        // 정류장 목록/라운드로빈 상태 보관 통계
+        res.put("collectorState", busSegmentCollector.getStateSummary());
+
+        // 차량 궤적 모드 통계(collector.mode=trajectory일 때 값이 쌓인다)
+        res.put("trajectory", busSegmentCollector.getTrajectorySummary());
+
+        // 정보가치 스케줄러 효율(quotaPerErrorSec = 오차 1초를 줄이는 데 쓴 호출 수)
+        res.put("samplingScheduler", samplingScheduler.stats());
+
         boolean withinWindow = isWithinOperatingWindow();
         res.put("withinWindow", withinWindow);
         res.put("windowStart", WINDOW_START.toString());
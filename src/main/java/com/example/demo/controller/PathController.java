@@ -1,16 +1,41 @@
-// 추가됨: 2번 문제(신성동→유성) 최단경로 계산 API 컨트롤러 (DTO 없이 Map 반환)
+// 수정됨: 경로 엔진 선택 추가 (engine=dijkstra|raptor|ch 요청 파라미터, 기본값은 path.engine.default 설정)
+// 수정됨: 다대다 소요시간 행렬 API 추가 (POST /api/path/matrix)
+// 수정됨: 등시선 API 추가 (GET /api/path/isochrone)
+// 수정됨: solve 결과 캐시(PathResultCache) 경유 + 캐시 통계 API 추가 (GET /api/path/cache/stats)
+// 수정됨: 실시간 지연 오버레이 상태 API 추가 (GET /api/path/live-delay/stats)
+// 수정됨: 접근성 히트맵 API 추가 (GET /api/path/heatmap, GET /api/path/heatmap/status, POST /api/path/heatmap/run)
+// 수정됨: 엔진 선택을 PathEngineRegistry로 이동 + 엔진 지연시간/섀도 비교 통계 API 추가 (GET /api/path/engines/stats)
+// 수정됨: solve 압축 응답 형식 추가 (format=polyline|delta 또는 Accept: application/vnd.path.polyline+json / application/vnd.path.delta+json)
+// 수정됨: solve 출발 시간대(departHour=0~23) 파라미터 + 구간 통계 API 추가 (GET /api/path/segment-stats/stats, GET /api/path/segment-stats/segment)
+// 수정됨: 구간 통계 조회에 분위수 스케치 값(p10 / p50 / p90, sketchCount) 추가
+// 수정됨: snapRadiusM을 0 ~ path.snap.max-radius-m 범위로 자른다(solve / matrix / isochrone). 큰 반경은 정류장 격자 전체를 훑게 만든다.
+// 수정됨: CH 엔진 상태 API 추가 (GET /api/path/ch/stats - 빌드 시간/목표 초과/NOT_READY 비율)
 
 package com.example.demo.controller;
 
+import java.util.ArrayList; // 좌표 목록 변환
+import java.util.HashMap; // 빈 응답
+import java.util.List; // 좌표 목록
 import java.util.Map; // DTO 없이 JSON 응답을 Map으로 반환하기 위한 타입
 
 import org.springframework.beans.factory.annotation.Autowired; // DI
+import org.springframework.beans.factory.annotation.Value; // 설정값 주입
 import org.springframework.web.bind.annotation.CrossOrigin; // CORS 허용
 import org.springframework.web.bind.annotation.GetMapping; // GET 매핑
+import org.springframework.web.bind.annotation.PostMapping; // POST 매핑
+import org.springframework.web.bind.annotation.RequestBody; // JSON 본문
+import org.springframework.web.bind.annotation.RequestHeader; // Accept 헤더
 import org.springframework.web.bind.annotation.RequestParam; // 쿼리 파라미터
 import org.springframework.web.bind.annotation.RestController; // REST 컨트롤러
 
+import com.example.demo.service.path.IPathAnalysisService; // 경로 분석(행렬) 서비스
 import com.example.demo.service.path.IPathService; // 경로 계산 서비스
+import com.example.demo.service.path.impl.AccessibilityHeatmapJob; // 접근성 히트맵 배치 작업
+import com.example.demo.service.path.impl.ChPathServiceImpl; // CH 경로 엔진(빌드/NOT_READY 통계)
+import com.example.demo.service.path.impl.LiveDelayOverlay; // 실시간 지연 오버레이
+import com.example.demo.service.path.impl.PathEngineRegistry; // 경로 엔진 레지스트리(섀도 실행)
+import com.example.demo.service.path.impl.PathResultCache; // 경로 결과 캐시
+import com.example.demo.service.path.impl.SegmentStatsEngine; // 구간 통계(Welford/EWMA/시간대별 평균)
 
 /**
  * 최단경로(최단시간) 계산 API
@@ -22,8 +47,29 @@ import com.example.demo.service.path.IPathService; // 경로 계산 서비스
 @RestController // REST API 컨트롤러 등록
 public class PathController {
 
-    @Autowired // Service 주입
-    private IPathService pathService;
+    @Autowired // 등록된 경로 엔진(dijkstra, raptor, ch) 선택 + 섀도 비교
+    private PathEngineRegistry pathEngineRegistry;
+
+    @Autowired // solve 결과 캐시(좌표 양자화 + 그래프 버전 키)
+    private PathResultCache pathResultCache;
+
+    @Autowired // 간선별 실시간 지연(상태 조회용)
+    private LiveDelayOverlay liveDelayOverlay;
+
+    @Autowired // CH 엔진(빌드 상태 조회용)
+    private ChPathServiceImpl chPathService;
+
+    @Autowired // 구간별 통계(상태/구간 조회용)
+    private SegmentStatsEngine segmentStatsEngine;
+
+    @Autowired // 다대다 소요시간 행렬 / 등시선
+    private IPathAnalysisService pathAnalysisService;
+
+    @Autowired // 접근성 히트맵(격자 칸별 도착지 그룹까지 시간)
+    private AccessibilityHeatmapJob accessibilityHeatmapJob;
+
+    @Value("${path.snap.max-radius-m:2000}") // 요청 스냅 반경 상한(m)
+    private double maxSnapRadiusM;
 
     /**
      * 최단경로 계산
@@ -39,8 +85,12 @@ public class PathController {
      * @param fromLng 출발 경도(WGS84)
      * @param toLat 도착 위도(WGS84)
      * @param toLng 도착 경도(WGS84)
-     * @param snapRadiusM 스냅 반경(m), 기본 500m
-     * @param maxTransfers 허용 환승 횟수(0=직행만, 1=1회 환승까지, ...), 기본 2
+     * @param snapRadiusM 스냅 반경(m), 기본 500m, path.snap.max-radius-m 초과는 상한으로 자른다
+     * @param maxTransfers 허용 환승 횟수(0=직행만, 1=1회 환승까지, ...), 기본 2. path.search.max-rides-cap - 1 을 넘으면 잘리고 응답 effectiveTransfers로 알린다
+     * @param engine 경로 엔진(dijkstra | raptor | ch), 없으면 path.engine.default
+     * @param format 응답 형식. json(기본) / polyline(구간 좌표 = encoded polyline) / delta(구간 좌표 = 마이크로도 델타 정수 배열)
+     *               없으면 Accept 헤더의 application/vnd.path.polyline+json / application/vnd.path.delta+json 으로 판단
+     * @param departHour 출발 시각의 시(0~23). 주면 그 시간대 구간 평균으로 탐색(dijkstra 엔진), 범위 밖 값은 24로 나눈 나머지
      * @return 최단경로 결과(Map) - totalMinutes, segments 등 포함
      */
     @CrossOrigin // 프론트 호출 편의를 위해 CORS 허용(프로젝트 기존 방식과 동일하게 운용 가능)
@@ -51,12 +101,193 @@ public class PathController {
         @RequestParam("toLat") double toLat, // 도착 위도
         @RequestParam("toLng") double toLng, // 도착 경도
         @RequestParam(value = "snapRadiusM", defaultValue = "500") double snapRadiusM, // 스냅 반경(m)
-        @RequestParam(value = "maxTransfers", defaultValue = "2") int maxTransfers // 허용 환승 횟수
+        @RequestParam(value = "maxTransfers", defaultValue = "2") int maxTransfers, // 허용 환승 횟수
+        @RequestParam(value = "engine", required = false) String engine, // 경로 엔진
+        @RequestParam(value = "format", required = false) String format, // 응답 형식(json | polyline | delta)
+        @RequestParam(value = "departHour", required = false) Integer departHour, // 출발 시간대(0~23)
+        @RequestHeader(value = "Accept", required = false) String accept // format이 없을 때 형식 판단
     ) {
 
-        // Service에 계산 위임 후 결과(Map)를 그대로 반환(JSON 자동 변환)
-        return pathService.solve(fromLat, fromLng, toLat, toLng, snapRadiusM, maxTransfers);
+        // 캐시를 거쳐 Service에 계산 위임 후 결과(Map)를 그대로 반환(JSON 자동 변환)
+        return pathResultCache.solve(selectEngine(engine), fromLat, fromLng, toLat, toLng, clampSnapRadius(snapRadiusM),
+            maxTransfers, selectFormat(format, accept), (departHour == null) ? null : Math.floorMod(departHour, 24));
+    }
+
+    /**
+     * solve 결과 캐시 통계 (hits / misses / joins / evictions / size 등)
+     */
+    @CrossOrigin
+    @GetMapping("/api/path/cache/stats")
+    public Map<String, Object> cacheStats() {
+        return pathResultCache.stats();
+    }
+
+    /**
+     * 경로 엔진 통계 (등록 엔진, 엔진별 계산 지연시간, 섀도 엔진 비교 결과/최근 불일치 사례)
+     */
+    @CrossOrigin
+    @GetMapping("/api/path/engines/stats")
+    public Map<String, Object> engineStats() {
+        return pathEngineRegistry.stats();
+    }
+
+    /**
+     * 실시간 지연 오버레이 상태 (activeEdges / samples / unmatched / generation)
+     */
+    @CrossOrigin
+    @GetMapping("/api/path/live-delay/stats")
+    public Map<String, Object> liveDelayStats() {
+        return liveDelayOverlay.stats();
+    }
+
+    /**
+     * CH 엔진 상태 (builds / reusedOrderBuilds / buildsOverTarget / lastBuildMs / queries / notReadyRate)
+     */
+    @CrossOrigin
+    @GetMapping("/api/path/ch/stats")
+    public Map<String, Object> chStats() {
+        return chPathService.stats();
+    }
+
+    /**
+     * 구간 통계 엔진 상태 (segments / samples / 체크포인트 / 시간대별 샘플 합계)
+     */
+    @CrossOrigin
+    @GetMapping("/api/path/segment-stats/stats")
+    public Map<String, Object> segmentStatsStats() {
+        return segmentStatsEngine.stats();
+    }
+
+    /**
+     * 구간 1개의 통계 (count / mean / stdDev / ewma / hourCounts / hourMeans / p10 / p50 / p90). 없으면 빈 Map
+     */
+    @CrossOrigin
+    @GetMapping("/api/path/segment-stats/segment")
+    public Map<String, Object> segmentStats(
+        @RequestParam("routeId") String routeId, // 노선 ID
+        @RequestParam(value = "updowncd", defaultValue = "0") int updowncd, // 방향
+        @RequestParam("fromId") String fromId, // 출발 정류장 ID
+        @RequestParam("toId") String toId // 도착 정류장 ID
+    ) {
+        Map<String, Object> out = segmentStatsEngine.segment(routeId, updowncd, fromId, toId);
+        return (out == null) ? new HashMap<>() : out;
+    }
+
+    /**
+     * 다대다 소요시간 행렬
+     *
+     * 요청 본문 예시:
+     * {"origins":[{"lat":36.35,"lng":127.38}], "destinations":[{"lat":36.36,"lng":127.34},{"lat":36.32,"lng":127.42}],
+     *  "snapRadiusM":500, "maxTransfers":2}
+     *
+     * @return minutes(행=출발지, 열=도착지, 도달 불가 null) / rides(승차 횟수) 등
+     */
+    @CrossOrigin
+    @PostMapping("/api/path/matrix")
+    public Map<String, Object> matrix(@RequestBody Map<String, Object> body) {
+        List<double[]> origins = toPoints(body.get("origins"));
+        List<double[]> destinations = toPoints(body.get("destinations"));
+        double snapRadiusM = clampSnapRadius(toDouble(body.get("snapRadiusM"), 500.0));
+        int maxTransfers = (int) toDouble(body.get("maxTransfers"), 2.0);
+
+        return pathAnalysisService.matrix(origins, destinations, snapRadiusM, maxTransfers);
+    }
+
+    /**
+     * 등시선(시간 예산 안에 도달 가능한 정류장)
+     *
+     * 호출 예시:
+     * /api/path/isochrone?lat=36.35&lng=127.38&minutes=30&maxTransfers=1&cellM=250
+     *
+     * @param minutes 시간 예산(분)
+     * @param cellM 격자 한 변(m), 0이면 격자 없이 정류장만
+     * @return stops(정류장별 최단 시간/승차 횟수), grid(선택) 등
+     */
+    @CrossOrigin
+    @GetMapping("/api/path/isochrone")
+    public Map<String, Object> isochrone(
+        @RequestParam("lat") double lat, // 출발 위도
+        @RequestParam("lng") double lng, // 출발 경도
+        @RequestParam("minutes") double minutes, // 시간 예산(분)
+        @RequestParam(value = "snapRadiusM", defaultValue = "500") double snapRadiusM, // 스냅/도보 반경(m)
+        @RequestParam(value = "maxTransfers", defaultValue = "2") int maxTransfers, // 허용 환승 횟수
+        @RequestParam(value = "cellM", defaultValue = "0") double cellM // 격자 한 변(m)
+    ) {
+        return pathAnalysisService.isochrone(lat, lng, minutes, clampSnapRadius(snapRadiusM), maxTransfers, cellM);
+    }
+
+    /**
+     * 접근성 히트 레이어 (배치 작업이 미리 계산해 저장한 결과)
+     *
+     * 호출 예시:
+     * /api/path/heatmap?group=tram
+     *
+     * @param group 도착지 그룹명(path.heatmap.destinations)
+     * @return 격자 정보(south, west, dLat, dLng, rows, cols) + cells([row, col, minutes, rides]), 결과가 없으면 reason=NOT_READY
+     */
+    @CrossOrigin
+    @GetMapping("/api/path/heatmap")
+    public Map<String, Object> heatmap(@RequestParam("group") String group) {
+        return accessibilityHeatmapJob.layer(group);
+    }
+
+    /**
+     * 접근성 히트맵 작업 상태 (running / doneRows / totalRows / lastRun / 저장된 그룹 목록)
+     */
+    @CrossOrigin
+    @GetMapping("/api/path/heatmap/status")
+    public Map<String, Object> heatmapStatus() {
+        return accessibilityHeatmapJob.status();
+    }
+
+    /**
+     * 접근성 히트맵 전체 재계산 시작 (관리자 전용, 백그라운드 실행)
+     *
+     * @return started=false 이면 이미 실행 중
+     */
+    @PostMapping("/api/path/heatmap/run")
+    public Map<String, Object> heatmapRun() {
+        Map<String, Object> out = accessibilityHeatmapJob.status();
+        out.put("started", accessibilityHeatmapJob.start());
+        return out;
+    }
+
+    // [{lat, lng}, ...] → double[]{lat, lng} 목록 (형식이 틀린 항목이 있으면 null)
+    private List<double[]> toPoints(Object value) {
+        if (!(value instanceof List<?> list)) return null;
+        List<double[]> points = new ArrayList<>(list.size());
+        for (Object item : list) {
+            if (!(item instanceof Map<?, ?> m)) return null;
+            if (!(m.get("lat") instanceof Number lat) || !(m.get("lng") instanceof Number lng)) return null;
+            points.add(new double[] { lat.doubleValue(), lng.doubleValue() });
+        }
+        return points;
+    }
+
+    private double toDouble(Object value, double defaultValue) {
+        return (value instanceof Number n) ? n.doubleValue() : defaultValue;
+    }
+
+    // 스냅 반경을 0 ~ maxSnapRadiusM 으로 자른다(NaN은 기본 500m)
+    private double clampSnapRadius(double snapRadiusM) {
+        if (Double.isNaN(snapRadiusM)) return Math.min(500.0, maxSnapRadiusM);
+        return Math.max(0.0, Math.min(snapRadiusM, maxSnapRadiusM));
+    }
+
+    // format 파라미터 우선, 없으면 Accept 헤더의 벤더 미디어 타입으로 응답 형식 선택
+    private String selectFormat(String format, String accept) {
+        if (format != null && !format.isBlank()) return format;
+        if (accept != null) {
+            if (accept.contains("vnd.path.polyline")) return IPathService.FORMAT_POLYLINE;
+            if (accept.contains("vnd.path.delta")) return IPathService.FORMAT_DELTA;
+        }
+        return IPathService.FORMAT_JSON;
+    }
+
+    // 엔진 이름으로 구현 선택 (모르는 이름이면 기본 엔진)
+    private IPathService selectEngine(String engine) {
+        return pathEngineRegistry.select(engine);
     }
 }
 
-// 추가됨 끝
+// 수정됨 끝
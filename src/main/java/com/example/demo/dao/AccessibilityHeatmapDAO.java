@@ -0,0 +1,209 @@
+// 추가됨: 접근성 히트맵(accessibility_heatmap / accessibility_heatmap_run) DAO
+//        - 배치 작업이 도착지 그룹 단위로 칸 전체를 한 트랜잭션에서 교체하고, 히트 레이어 API가 그룹 단위로 읽는다.
+
+package com.example.demo.dao;
+
+import java.sql.Connection; // DB 커넥션 객체
+import java.sql.PreparedStatement; // SQL 실행 준비 객체
+import java.sql.ResultSet; // SELECT 결과를 담는 객체
+import java.sql.SQLException; // SQL 예외
+import java.util.ArrayList; // List 구현체
+import java.util.HashMap; // Map 구현체
+import java.util.List; // 결과 목록 타입
+import java.util.Map; // row 1개를 담는 타입
+
+import javax.sql.DataSource; // 커넥션 풀(DataSource)
+
+import org.springframework.beans.factory.annotation.Autowired; // 스프링 DI
+import org.springframework.stereotype.Repository; // DAO 컴포넌트 등록
+
+@Repository // DAO(Repository)로 스프링 빈 등록
+public class AccessibilityHeatmapDAO {
+
+    // INSERT 배치 1회 전송 행 수
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired // DataSource 자동 주입
+    private DataSource dataSource; // DB 커넥션 풀
+
+    // DB 커넥션 획득
+    private Connection getConnection() throws SQLException {
+        return dataSource.getConnection(); // 커넥션 반환
+    }
+
+    // sql.properties에서 SQL을 가져오는 공통 메서드(다른 DAO와 동일 패턴)
+    private String sql(String key) {
+        return SqlLoader.getSql(key); // key로 SQL 문자열 조회
+    }
+
+    /**
+     * 칸 1개를 전달받는 콜백
+     */
+    public interface CellRowHandler {
+        void onRow(int row, int col, int minutesX10, int rides);
+    }
+
+    /**
+     * 그룹 하나의 칸 전체와 격자 정보를 한 트랜잭션으로 교체한다.
+     *
+     * @param grid graphVersion / south / west / dLat / dLng / cellM / rows / cols / elapsedMs
+     * @param count 칸 수 (cellRow/cellCol/minutesX10/rides 배열의 앞 count개)
+     * @return 저장한 칸 수. SQL 예외 시 -1 (롤백)
+     */
+    public int replaceGroup(String grp, Map<String, Object> grid, int count,
+                            int[] cellRow, int[] cellCol, int[] minutesX10, int[] rides) {
+
+        try (Connection conn = getConnection()) { // 커넥션 획득
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false); // 삭제 ~ 저장을 한 번에 반영
+
+            try (
+                PreparedStatement del = conn.prepareStatement(sql("accessibility_heatmap.delete.group"));
+                PreparedStatement ins = conn.prepareStatement(sql("accessibility_heatmap.insert"));
+                PreparedStatement run = conn.prepareStatement(sql("accessibility_heatmap_run.upsert"))
+            ) {
+                del.setString(1, grp);
+                del.executeUpdate();
+
+                for (int i = 0; i < count; i++) {
+                    ins.setString(1, grp);
+                    ins.setInt(2, cellRow[i]);
+                    ins.setInt(3, cellCol[i]);
+                    ins.setInt(4, minutesX10[i]);
+                    ins.setInt(5, rides[i]);
+                    ins.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0) ins.executeBatch(); // 나눠서 전송
+                }
+                ins.executeBatch();
+
+                run.setString(1, grp);
+                run.setLong(2, ((Number) grid.get("graphVersion")).longValue());
+                run.setDouble(3, ((Number) grid.get("south")).doubleValue());
+                run.setDouble(4, ((Number) grid.get("west")).doubleValue());
+                run.setDouble(5, ((Number) grid.get("dLat")).doubleValue());
+                run.setDouble(6, ((Number) grid.get("dLng")).doubleValue());
+                run.setDouble(7, ((Number) grid.get("cellM")).doubleValue());
+                run.setInt(8, ((Number) grid.get("rows")).intValue());
+                run.setInt(9, ((Number) grid.get("cols")).intValue());
+                run.setInt(10, count);
+                run.setLong(11, ((Number) grid.get("elapsedMs")).longValue());
+                run.executeUpdate();
+
+                conn.commit();
+                return count;
+
+            } catch (SQLException e) {
+                conn.rollback(); // 일부만 바뀐 그룹을 남기지 않는다
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit); // 풀에 돌려주기 전 원래대로
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * 그룹 격자 정보 (grp, graphVersion, south, west, dLat, dLng, cellM, rows, cols, cellCount, elapsedMs, updatedAt)
+     *
+     * @return 저장된 적 없으면 null
+     */
+    public Map<String, Object> findGroupGrid(String grp) {
+
+        String query = sql("accessibility_heatmap_run.select.group");
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
+        ) {
+            ps.setString(1, grp);
+
+            try (ResultSet rs = ps.executeQuery()) { // SQL 실행
+                if (!rs.next()) return null;
+
+                Map<String, Object> row = new HashMap<>();
+                row.put("group", rs.getString("grp"));
+                row.put("graphVersion", rs.getLong("graph_version"));
+                row.put("south", rs.getDouble("south"));
+                row.put("west", rs.getDouble("west"));
+                row.put("dLat", rs.getDouble("d_lat"));
+                row.put("dLng", rs.getDouble("d_lng"));
+                row.put("cellM", rs.getDouble("cell_m"));
+                row.put("rows", rs.getInt("row_count"));
+                row.put("cols", rs.getInt("col_count"));
+                row.put("cellCount", rs.getInt("cell_count"));
+                row.put("elapsedMs", rs.getLong("elapsed_ms"));
+                row.put("updatedAt", rs.getTimestamp("updated_at"));
+                return row;
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 저장된 그룹 목록 (group, graphVersion, cellCount, updatedAt)
+     */
+    public List<Map<String, Object>> findAllGroups() {
+
+        List<Map<String, Object>> list = new ArrayList<>();
+        String query = sql("accessibility_heatmap_run.select.all");
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query); // SQL 준비
+            ResultSet rs = ps.executeQuery() // SQL 실행
+        ) {
+            while (rs.next()) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("group", rs.getString("grp"));
+                row.put("graphVersion", rs.getLong("graph_version"));
+                row.put("cellCount", rs.getInt("cell_count"));
+                row.put("updatedAt", rs.getTimestamp("updated_at"));
+                list.add(row);
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return list;
+    }
+
+    /**
+     * 그룹 칸 전체를 한 행씩 handler로 전달한다.
+     *
+     * @return 전달한 행 수. SQL 예외 시 -1
+     */
+    public int forEachCell(String grp, CellRowHandler handler) {
+
+        String query = sql("accessibility_heatmap.select.group");
+        int count = 0;
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
+        ) {
+            ps.setString(1, grp);
+
+            try (ResultSet rs = ps.executeQuery()) { // SQL 실행
+                while (rs.next()) {
+                    handler.onRow(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4));
+                    count++;
+                }
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+
+        return count;
+    }
+}
+
+// 추가됨 끝
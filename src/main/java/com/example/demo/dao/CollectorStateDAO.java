@@ -0,0 +1,181 @@
+// 추가됨: 수집기 상태 보관 DAO (collector_route_stops / collector_state)
+//        - 노선별 정류장 목록과 노선 목록/라운드로빈 진행 상태를 저장해 재기동 후에도 다시 받지 않고 이어서 수집한다.
+
+package com.example.demo.dao;
+
+import java.sql.Connection; // DB 커넥션 객체
+import java.sql.PreparedStatement; // SQL 실행 준비 객체
+import java.sql.ResultSet; // SELECT 결과를 담는 객체
+import java.sql.SQLException; // SQL 예외
+import java.sql.Timestamp; // DATETIME 컬럼
+import java.util.HashMap; // Map 구현체
+import java.util.Map; // row 1개를 담는 타입
+
+import javax.sql.DataSource; // 커넥션 풀(DataSource)
+
+import org.springframework.beans.factory.annotation.Autowired; // 스프링 DI
+import org.springframework.stereotype.Repository; // DAO 컴포넌트 등록
+
+@Repository // DAO(Repository)로 스프링 빈 등록
+public class CollectorStateDAO {
+
+    @Autowired // DataSource 자동 주입
+    private DataSource dataSource; // DB 커넥션 풀
+
+    // DB 커넥션 획득
+    private Connection getConnection() throws SQLException {
+        return dataSource.getConnection(); // 커넥션 반환
+    }
+
+    // sql.properties에서 SQL을 가져오는 공통 메서드(다른 DAO와 동일 패턴)
+    private String sql(String key) {
+        return SqlLoader.getSql(key); // key로 SQL 문자열 조회
+    }
+
+    /**
+     * 노선 정류장 목록 1행을 전달받는 콜백
+     */
+    public interface RouteStopsRowHandler {
+        void onRow(String routeId, String stopsText, String contentHash, long fetchedAtMs);
+    }
+
+    /**
+     * 저장된 노선 정류장 목록 전체를 한 행씩 handler로 전달한다.
+     *
+     * @return 전달한 행 수. SQL 예외 시 -1
+     */
+    public int forEachRouteStops(RouteStopsRowHandler handler) {
+
+        String query = sql("collector_route_stops.select.all");
+        int count = 0;
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query); // SQL 준비
+            ResultSet rs = ps.executeQuery() // SQL 실행
+        ) {
+            while (rs.next()) {
+                Timestamp ts = rs.getTimestamp("fetched_at");
+                handler.onRow(
+                    rs.getString("route_id"),
+                    rs.getString("stops_text"),
+                    rs.getString("content_hash"),
+                    (ts == null) ? 0L : ts.getTime()
+                );
+                count++;
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+
+        return count;
+    }
+
+    /**
+     * 노선 정류장 목록 저장 (있으면 내용/해시/받은 시각 갱신)
+     *
+     * @return 영향 행 수. SQL 예외 시 -1
+     */
+    public int upsertRouteStops(String routeId, String stopsText, int stopCount, String contentHash) {
+
+        String query = sql("collector_route_stops.upsert");
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
+        ) {
+            ps.setString(1, routeId);
+            ps.setString(2, stopsText);
+            ps.setInt(3, stopCount);
+            ps.setString(4, contentHash);
+            return ps.executeUpdate();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * 다시 받았는데 내용(해시)이 같으면 받은 시각만 갱신
+     *
+     * @return 영향 행 수(해시가 다르면 0). SQL 예외 시 -1
+     */
+    public int touchRouteStops(String routeId, String contentHash) {
+
+        String query = sql("collector_route_stops.touch");
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
+        ) {
+            ps.setString(1, routeId);
+            ps.setString(2, contentHash);
+            return ps.executeUpdate();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * 상태 값 1개 조회 (value, contentHash, updatedAtMs)
+     *
+     * @return 없거나 SQL 예외 시 null
+     */
+    public Map<String, Object> findState(String stateKey) {
+
+        String query = sql("collector_state.select.key");
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
+        ) {
+            ps.setString(1, stateKey);
+
+            try (ResultSet rs = ps.executeQuery()) { // SQL 실행
+                if (!rs.next()) return null;
+
+                Timestamp ts = rs.getTimestamp("updated_at");
+                Map<String, Object> row = new HashMap<>();
+                row.put("value", rs.getString("state_value"));
+                row.put("contentHash", rs.getString("content_hash"));
+                row.put("updatedAtMs", (ts == null) ? 0L : ts.getTime());
+                return row;
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 상태 값 저장
+     *
+     * @return 영향 행 수. SQL 예외 시 -1
+     */
+    public int upsertState(String stateKey, String value, String contentHash) {
+
+        String query = sql("collector_state.upsert");
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
+        ) {
+            ps.setString(1, stateKey);
+            ps.setString(2, value);
+            ps.setString(3, contentHash);
+            return ps.executeUpdate();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,302 @@
+// 추가됨: 구간 통계 체크포인트 DAO (segment_stats)
+//        - 경로 엔진의 구간 통계(SegmentStatsEngine: Welford 평균/분산, EWMA, 시간대별 평균)를 주기적으로 저장하고 기동 시 복원한다.
+// 수정됨: 구간 분위수 스케치(segment_sketch) 저장/조회/보관 기간 정리 추가 - 수집기 인스턴스 x 날짜별 1행, 읽을 때 합친다.
+
+package com.example.demo.dao;
+
+import java.sql.Connection; // DB 커넥션 객체
+import java.sql.Date; // DATE 컬럼
+import java.sql.PreparedStatement; // SQL 실행 준비 객체
+import java.sql.ResultSet; // SELECT 결과를 담는 객체
+import java.sql.SQLException; // SQL 예외
+import java.sql.Timestamp; // DATETIME 컬럼
+import java.time.LocalDate; // 스케치 날짜
+import java.util.List; // 저장할 행 목록
+
+import javax.sql.DataSource; // 커넥션 풀(DataSource)
+
+import org.springframework.beans.factory.annotation.Autowired; // 스프링 DI
+import org.springframework.stereotype.Repository; // DAO 컴포넌트 등록
+
+@Repository // DAO(Repository)로 스프링 빈 등록
+public class SegmentStatsDAO {
+
+    @Autowired // DataSource 자동 주입
+    private DataSource dataSource; // DB 커넥션 풀
+
+    // DB 커넥션 획득
+    private Connection getConnection() throws SQLException {
+        return dataSource.getConnection(); // 커넥션 반환
+    }
+
+    // sql.properties에서 SQL을 가져오는 공통 메서드(다른 DAO와 동일 패턴)
+    private String sql(String key) {
+        return SqlLoader.getSql(key); // key로 SQL 문자열 조회
+    }
+
+    /**
+     * 구간 통계 1행 (hourCounts / hourMeans 는 0~23시 24개 값을 쉼표로 이은 문자열)
+     */
+    public static final class StatRow {
+        public final String routeId;
+        public final int updowncd;
+        public final String fromId;
+        public final String toId;
+        public final long sampleCount;
+        public final double mean;
+        public final double m2;
+        public final double ewma;
+        public final long lastSampleAtMs;
+        public final String hourCounts;
+        public final String hourMeans;
+
+        public StatRow(String routeId, int updowncd, String fromId, String toId, long sampleCount, double mean, double m2,
+                       double ewma, long lastSampleAtMs, String hourCounts, String hourMeans) {
+            this.routeId = routeId;
+            this.updowncd = updowncd;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.sampleCount = sampleCount;
+            this.mean = mean;
+            this.m2 = m2;
+            this.ewma = ewma;
+            this.lastSampleAtMs = lastSampleAtMs;
+            this.hourCounts = hourCounts;
+            this.hourMeans = hourMeans;
+        }
+    }
+
+    /**
+     * 구간 통계 1행을 전달받는 콜백
+     */
+    public interface StatRowHandler {
+        void onRow(StatRow row);
+    }
+
+    /**
+     * 저장된 구간 통계 전체를 한 행씩 handler로 전달한다.
+     *
+     * @return 전달한 행 수. SQL 예외 시 -1
+     */
+    public int forEachStat(StatRowHandler handler) {
+
+        String query = sql("segment_stats.select.all");
+        int count = 0;
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query); // SQL 준비
+            ResultSet rs = ps.executeQuery() // SQL 실행
+        ) {
+            while (rs.next()) {
+                Timestamp ts = rs.getTimestamp("last_sample_at");
+                handler.onRow(new StatRow(
+                    rs.getString("route_id"),
+                    rs.getInt("updowncd"),
+                    rs.getString("from_id"),
+                    rs.getString("to_id"),
+                    rs.getLong("sample_count"),
+                    rs.getDouble("travel_sec_mean"),
+                    rs.getDouble("travel_sec_m2"),
+                    rs.getDouble("travel_sec_ewma"),
+                    (ts == null) ? 0L : ts.getTime(),
+                    rs.getString("hour_counts"),
+                    rs.getString("hour_means")
+                ));
+                count++;
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+
+        return count;
+    }
+
+    /**
+     * 구간 통계 묶음 저장 (한 트랜잭션, 행마다 덮어쓰기)
+     *
+     * @return 저장한 행 수. SQL 예외 시 -1 (전체 롤백)
+     */
+    public int upsertStats(List<StatRow> rows) {
+        if (rows.isEmpty()) return 0;
+
+        String query = sql("segment_stats.upsert");
+
+        try (Connection conn = getConnection()) { // 커넥션 획득
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(query)) { // SQL 준비
+                for (StatRow r : rows) {
+                    ps.setString(1, r.routeId);
+                    ps.setInt(2, r.updowncd);
+                    ps.setString(3, r.fromId);
+                    ps.setString(4, r.toId);
+                    ps.setLong(5, r.sampleCount);
+                    ps.setDouble(6, r.mean);
+                    ps.setDouble(7, r.m2);
+                    ps.setDouble(8, r.ewma);
+                    ps.setTimestamp(9, new Timestamp(r.lastSampleAtMs));
+                    ps.setString(10, r.hourCounts);
+                    ps.setString(11, r.hourMeans);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+                return rows.size();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * 구간 분위수 스케치 1행 (수집기 인스턴스 1개의 하루치)
+     */
+    public static final class SketchRow {
+        public final String routeId;
+        public final int updowncd;
+        public final String fromId;
+        public final String toId;
+        public final String instanceId;
+        public final LocalDate day;
+        public final long sampleCount;
+        public final byte[] sketch;
+
+        public SketchRow(String routeId, int updowncd, String fromId, String toId, String instanceId, LocalDate day,
+                         long sampleCount, byte[] sketch) {
+            this.routeId = routeId;
+            this.updowncd = updowncd;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.instanceId = instanceId;
+            this.day = day;
+            this.sampleCount = sampleCount;
+            this.sketch = sketch;
+        }
+    }
+
+    /**
+     * 구간 분위수 스케치 1행을 전달받는 콜백
+     */
+    public interface SketchRowHandler {
+        void onRow(SketchRow row);
+    }
+
+    /**
+     * sinceDay 이후(포함) 스케치를 한 행씩 handler로 전달한다(모든 인스턴스).
+     *
+     * @return 전달한 행 수. SQL 예외 시 -1
+     */
+    public int forEachSketch(LocalDate sinceDay, SketchRowHandler handler) {
+
+        String query = sql("segment_sketch.select.since");
+        int count = 0;
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
+        ) {
+            ps.setDate(1, Date.valueOf(sinceDay));
+
+            try (ResultSet rs = ps.executeQuery()) { // SQL 실행
+                while (rs.next()) {
+                    handler.onRow(new SketchRow(
+                        rs.getString("route_id"),
+                        rs.getInt("updowncd"),
+                        rs.getString("from_id"),
+                        rs.getString("to_id"),
+                        rs.getString("instance_id"),
+                        rs.getDate("day").toLocalDate(),
+                        rs.getLong("sample_count"),
+                        rs.getBytes("sketch")
+                    ));
+                    count++;
+                }
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+
+        return count;
+    }
+
+    /**
+     * 스케치 묶음 저장 (한 트랜잭션, 같은 인스턴스/날짜 행은 덮어쓰기)
+     *
+     * @return 저장한 행 수. SQL 예외 시 -1 (전체 롤백)
+     */
+    public int upsertSketches(List<SketchRow> rows) {
+        if (rows.isEmpty()) return 0;
+
+        String query = sql("segment_sketch.upsert");
+
+        try (Connection conn = getConnection()) { // 커넥션 획득
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(query)) { // SQL 준비
+                for (SketchRow r : rows) {
+                    ps.setString(1, r.routeId);
+                    ps.setInt(2, r.updowncd);
+                    ps.setString(3, r.fromId);
+                    ps.setString(4, r.toId);
+                    ps.setString(5, r.instanceId);
+                    ps.setDate(6, Date.valueOf(r.day));
+                    ps.setLong(7, r.sampleCount);
+                    ps.setBytes(8, r.sketch);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+                return rows.size();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * 보관 기간이 지난 스케치 삭제 (day < beforeDay)
+     *
+     * @return 삭제 행 수. SQL 예외 시 -1
+     */
+    public int deleteSketchesBefore(LocalDate beforeDay) {
+
+        String query = sql("segment_sketch.delete.before");
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
+        ) {
+            ps.setDate(1, Date.valueOf(beforeDay));
+            return ps.executeUpdate();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+}
+
+// 추가됨 끝
@@ -1,4 +1,7 @@
-// 수정됨: segment_weight(BUS) 조회 시 updowncd 컬럼을 함께 가져오도록 반영
+// 수정됨: segment_weight(BUS) 행을 Map으로 감싸지 않고 ResultSet에서 바로 콜백으로 넘기는 스트리밍 조회 추가
+//        - 경로 그래프(CSR 배열) 빌더가 행마다 HashMap을 만들지 않도록 하기 위함
+// 수정됨: Map 목록으로 반환하던 findAllBusSegments() 제거(그래프 빌더는 forEachBusSegment 한 경로로만 적재)
+// 수정됨: 수집 스케줄러(SamplingScheduler)용 구간 수렴 정보(평균/샘플 수/갱신 시각) 스트리밍 조회 추가
 
 package com.example.demo.dao;
 
@@ -6,10 +9,7 @@ import java.sql.Connection; // DB 커넥션 객체
 import java.sql.PreparedStatement; // SQL 실행 준비 객체
 import java.sql.ResultSet; // SELECT 결과를 담는 객체
 import java.sql.SQLException; // SQL 예외
-import java.util.ArrayList; // List 구현체
-import java.util.HashMap; // Map 구현체
-import java.util.List; // 결과 목록 타입
-import java.util.Map; // row 1개를 담는 타입
+import java.sql.Timestamp; // DATETIME 컬럼 값
 
 import javax.sql.DataSource; // 커넥션 풀(DataSource)
 
@@ -33,60 +33,143 @@ public class SegmentWeightDAO {
     }
 
     /**
-     * segment_weight 테이블에서 BUS 모드 구간(정류장↔정류장)을 전부 조회한다.
+     * BUS 구간 1행을 기본형 값으로 전달받는 콜백
      *
-     * - DTO를 쓰지 않으므로, row는 Map<String, Object>로 반환한다.
-     * - 최단경로 계산 시:
-     *   from_id -> to_id 를 간선으로 보고 travel_sec_avg를 가중치(시간)로 사용한다.
-     *
-     * @return BUS 구간 전체 목록(각 행은 Map 형태)
+     * - row마다 Map을 만들지 않는다.
+     * - 경로 그래프 빌더가 ResultSet 값을 곧바로 기본형 배열에 적재하는 용도이다.
      */
-    public List<Map<String, Object>> findAllBusSegments() {
+    public interface BusSegmentRowHandler {
+        void onRow(
+            String routeId, int updowncd, String fromId, String toId,
+            double fromLat, double fromLng, double toLat, double toLng,
+            double travelSecAvg
+        );
+    }
 
-        List<Map<String, Object>> list = new ArrayList<>(); // 반환할 결과 목록
+    /**
+     * segment_weight 테이블의 BUS 구간을 한 행씩 handler로 전달한다(스트리밍 조회).
+     *
+     * @param handler 행 콜백
+     * @return 전달한 행 수. SQL 예외 시 -1 (호출 측에서 "빈 결과"와 "실패"를 구분하기 위함)
+     */
+    public int forEachBusSegment(BusSegmentRowHandler handler) {
 
-        // sql.properties에 추가할 키(아래에 내가 같이 줄 것)
         String query = sql("segment_weight.select.all_bus"); // BUS 구간 전체 조회 SQL
+        int count = 0;
 
         try (
             Connection conn = getConnection(); // 커넥션 획득
             PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
         ) {
+            ps.setFetchSize(1000); // 드라이버가 지원하면 나눠서 가져온다
+
+            try (ResultSet rs = ps.executeQuery()) {
+
+                // 컬럼 인덱스를 한 번만 찾아 두고 행마다 재사용
+                int cRoute = rs.findColumn("route_id");
+                int cDir = rs.findColumn("updowncd");
+                int cFrom = rs.findColumn("from_id");
+                int cTo = rs.findColumn("to_id");
+                int cFromLat = rs.findColumn("from_lat");
+                int cFromLng = rs.findColumn("from_lng");
+                int cToLat = rs.findColumn("to_lat");
+                int cToLng = rs.findColumn("to_lng");
+                int cSec = rs.findColumn("travel_sec_avg");
+
+                while (rs.next()) {
+                    int dir = rs.getInt(cDir);
+                    if (rs.wasNull()) dir = -1;
+
+                    handler.onRow(
+                        rs.getString(cRoute), dir, rs.getString(cFrom), rs.getString(cTo),
+                        rs.getDouble(cFromLat), rs.getDouble(cFromLng), rs.getDouble(cToLat), rs.getDouble(cToLng),
+                        rs.getDouble(cSec)
+                    );
+                    count++;
+                }
+            }
 
-            try (ResultSet rs = ps.executeQuery()) { // SQL 실행 후 결과셋 획득
-
-                while (rs.next()) { // 한 행(row)씩 순회
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
 
-                    Map<String, Object> row = new HashMap<>(); // row 1개를 Map에 담는다
+        return count;
+    }
 
-                    // ---- 기본 식별 컬럼 ----
-                    row.put("mode", rs.getString("mode")); // 'BUS'
-                    row.put("route_id", rs.getString("route_id")); // 버스 노선 ID
-                    row.put("updowncd", rs.getInt("updowncd")); // 0:상행, 1:하행
-                    row.put("from_id", rs.getString("from_id")); // 출발 정류장 ID
-                    row.put("to_id", rs.getString("to_id")); // 도착 정류장 ID
+    /**
+     * BUS 구간 수렴 정보 1행을 전달받는 콜백 (평균 소요시간, 샘플 수, 마지막 갱신 시각)
+     */
+    public interface BusSegmentStatRowHandler {
+        void onRow(String routeId, int updowncd, String fromId, String toId,
+                   double travelSecAvg, long sampleCount, long updatedAtMs);
+    }
 
-                    // ---- 좌표(정류장) ----
-                    row.put("from_lat", rs.getDouble("from_lat")); // 출발 위도
-                    row.put("from_lng", rs.getDouble("from_lng")); // 출발 경도
-                    row.put("to_lat", rs.getDouble("to_lat")); // 도착 위도
-                    row.put("to_lng", rs.getDouble("to_lng")); // 도착 경도
+    /**
+     * segment_weight 테이블 BUS 구간의 평균/샘플 수/갱신 시각을 한 행씩 handler로 전달한다(스트리밍 조회).
+     *
+     * @return 전달한 행 수. SQL 예외 시 -1
+     */
+    public int forEachBusSegmentStat(BusSegmentStatRowHandler handler) {
 
-                    // ---- 구간 정보 ----
-                    row.put("distance_m", rs.getDouble("distance_m")); // 구간 거리(m)
-                    row.put("travel_sec_avg", rs.getDouble("travel_sec_avg")); // 평균 소요시간(초)
-                    row.put("sample_count", rs.getInt("sample_count")); // 샘플 수(누적)
+        String query = sql("segment_weight.select.bus_stats"); // 구간 수렴 정보 조회 SQL
+        int count = 0;
 
-                    list.add(row); // 결과 목록에 추가
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
+        ) {
+            ps.setFetchSize(1000); // 드라이버가 지원하면 나눠서 가져온다
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int dir = rs.getInt("updowncd");
+                    if (rs.wasNull()) dir = -1;
+                    Timestamp ts = rs.getTimestamp("updated_at");
+
+                    handler.onRow(
+                        rs.getString("route_id"), dir, rs.getString("from_id"), rs.getString("to_id"),
+                        rs.getDouble("travel_sec_avg"), rs.getLong("sample_count"),
+                        (ts == null) ? 0L : ts.getTime()
+                    );
+                    count++;
                 }
             }
 
         } catch (SQLException e) {
-            // 기존 DAO들과 동일하게 우선은 스택트레이스 출력(디버깅용)
             e.printStackTrace();
+            return -1;
         }
 
-        return list; // 조회 결과 반환
+        return count;
+    }
+
+    /**
+     * segment_weight 테이블 BUS 구간의 마지막 갱신 시각(MAX(updated_at))을 조회한다.
+     *
+     * - 경로 그래프 스냅샷이 최신인지 판단하는 용도이므로 전체 행을 읽지 않는다.
+     *
+     * @return 마지막 갱신 시각(epoch ms). 행이 없으면 0, 조회 실패 시 -1
+     */
+    public long findMaxUpdatedAtMillis() {
+
+        String query = sql("segment_weight.select.max_updated_at"); // 마지막 갱신 시각 조회 SQL
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query); // SQL 준비
+            ResultSet rs = ps.executeQuery() // SQL 실행
+        ) {
+            if (rs.next()) {
+                Timestamp ts = rs.getTimestamp("max_updated_at"); // 행이 없으면 NULL
+                return (ts == null) ? 0L : ts.getTime();
+            }
+            return 0L;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1L; // 조회 실패(호출 측에서 갱신을 건너뛰도록)
+        }
     }
 }
 
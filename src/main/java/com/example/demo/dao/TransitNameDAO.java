@@ -0,0 +1,126 @@
+// 추가됨: 정류장명(bus_stop_name) / 노선번호(bus_route_name) 사전 DAO
+//        - 수집기가 TAGO 응답에서 얻은 이름을 일괄 저장하고, 경로 그래프 스냅샷 빌드 시 한 번에 읽는다.
+
+package com.example.demo.dao;
+
+import java.sql.Connection; // DB 커넥션 객체
+import java.sql.PreparedStatement; // SQL 실행 준비 객체
+import java.sql.ResultSet; // SELECT 결과를 담는 객체
+import java.sql.SQLException; // SQL 예외
+import java.util.Map; // ID -> 이름
+
+import javax.sql.DataSource; // 커넥션 풀(DataSource)
+
+import org.springframework.beans.factory.annotation.Autowired; // 스프링 DI
+import org.springframework.stereotype.Repository; // DAO 컴포넌트 등록
+
+@Repository // DAO(Repository)로 스프링 빈 등록
+public class TransitNameDAO {
+
+    @Autowired // DataSource 자동 주입
+    private DataSource dataSource; // DB 커넥션 풀
+
+    // DB 커넥션 획득
+    private Connection getConnection() throws SQLException {
+        return dataSource.getConnection(); // 커넥션 반환
+    }
+
+    // sql.properties에서 SQL을 가져오는 공통 메서드(다른 DAO와 동일 패턴)
+    private String sql(String key) {
+        return SqlLoader.getSql(key); // key로 SQL 문자열 조회
+    }
+
+    /**
+     * (ID, 이름) 1행을 전달받는 콜백
+     */
+    public interface NameRowHandler {
+        void onRow(String id, String name);
+    }
+
+    /**
+     * 정류장명 사전 전체를 한 행씩 handler로 전달한다.
+     *
+     * @return 전달한 행 수. SQL 예외 시 -1
+     */
+    public int forEachStopName(NameRowHandler handler) {
+        return forEach("bus_stop_name.select.all", "node_id", "node_name", handler);
+    }
+
+    /**
+     * 노선번호 사전 전체를 한 행씩 handler로 전달한다.
+     *
+     * @return 전달한 행 수. SQL 예외 시 -1
+     */
+    public int forEachRouteName(NameRowHandler handler) {
+        return forEach("bus_route_name.select.all", "route_id", "route_no", handler);
+    }
+
+    /**
+     * 정류장명 일괄 저장 (nodeId -> 정류장명)
+     *
+     * @return 저장 시도한 행 수. SQL 예외 시 -1
+     */
+    public int upsertStopNames(Map<String, String> names) {
+        return upsertAll("bus_stop_name.upsert", names);
+    }
+
+    /**
+     * 노선번호 일괄 저장 (routeId -> 노선번호)
+     *
+     * @return 저장 시도한 행 수. SQL 예외 시 -1
+     */
+    public int upsertRouteNames(Map<String, String> names) {
+        return upsertAll("bus_route_name.upsert", names);
+    }
+
+    private int forEach(String key, String idColumn, String nameColumn, NameRowHandler handler) {
+
+        String query = sql(key);
+        int count = 0;
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query); // SQL 준비
+            ResultSet rs = ps.executeQuery() // SQL 실행
+        ) {
+            int cId = rs.findColumn(idColumn);
+            int cName = rs.findColumn(nameColumn);
+
+            while (rs.next()) {
+                handler.onRow(rs.getString(cId), rs.getString(cName));
+                count++;
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+
+        return count;
+    }
+
+    private int upsertAll(String key, Map<String, String> names) {
+        if (names == null || names.isEmpty()) return 0;
+
+        String query = sql(key);
+
+        try (
+            Connection conn = getConnection(); // 커넥션 획득
+            PreparedStatement ps = conn.prepareStatement(query) // SQL 준비
+        ) {
+            for (Map.Entry<String, String> en : names.entrySet()) {
+                ps.setString(1, en.getKey());
+                ps.setString(2, en.getValue());
+                ps.addBatch(); // 한 번에 전송
+            }
+            ps.executeBatch();
+            return names.size();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+}
+
+// 추가됨 끝
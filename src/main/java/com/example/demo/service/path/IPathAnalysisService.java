@@ -0,0 +1,50 @@
+// 추가됨: 경로 그래프 기반 분석 서비스 (여러 지점 간 소요시간 행렬 등)
+// 수정됨: 등시선(isochrone) - 시간 예산 안에 도달 가능한 정류장/격자 추가
+
+package com.example.demo.service.path;
+
+import java.util.List; // 지점 목록
+import java.util.Map; // JSON 응답을 DTO 없이 Map으로 반환하기 위한 타입
+
+/**
+ * 경로 분석 서비스
+ *
+ * - /api/path/solve(지점 1쌍, 구간 상세)와 달리 여러 지점을 한 번에 계산하고 시간/승차 횟수만 돌려준다.
+ * - DTO를 사용하지 않으므로, 결과는 Map<String, Object> 형태로 반환한다.
+ */
+public interface IPathAnalysisService {
+
+    /**
+     * 출발지 x 도착지 소요시간 행렬
+     *
+     * 입력:
+     * - origins / destinations : 좌표 목록({lat, lng}, WGS84)
+     * - snapRadiusM / maxTransfers : /api/path/solve와 같은 의미
+     *
+     * 출력(Map):
+     * - minutes : List<List<Double>> (행 = 출발지, 열 = 도착지), 도달 불가면 null
+     * - rides   : List<List<Integer>> 승차 횟수, 도달 불가면 null
+     * - origins / destinations / graphVersion / elapsedMs
+     * - reason  : 입력 오류일 때만 (INVALID_POINTS / TOO_MANY_CELLS)
+     */
+    Map<String, Object> matrix(List<double[]> origins, List<double[]> destinations, double snapRadiusM, int maxTransfers);
+
+    /**
+     * 등시선: 출발지에서 minutes분 안에 도달 가능한 정류장(+ 선택 시 격자)
+     *
+     * 입력:
+     * - lat / lng : 출발지(WGS84)
+     * - minutes : 시간 예산(분)
+     * - snapRadiusM / maxTransfers : /api/path/solve와 같은 의미 (정류장 → 주변 도보 반경도 snapRadiusM까지)
+     * - cellM : 격자 한 변(m). 0 이하면 격자를 만들지 않는다.
+     *
+     * 출력(Map):
+     * - stops : List<Map> (nodeId, name, lat, lng, minutes, rides), 시간 오름차순
+     * - grid  : {cellM, cells: [[south, west, north, east], ...]} - 남은 시간 동안 걸어서 닿는 칸 (cellM > 0일 때만)
+     * - graphVersion / expandedStates / elapsedMs
+     * - reason : 입력 오류일 때만 (INVALID_BUDGET)
+     */
+    Map<String, Object> isochrone(double lat, double lng, double minutes, double snapRadiusM, int maxTransfers, double cellM);
+}
+
+// 추가됨 끝
@@ -1,4 +1,6 @@
-// 추가됨: 2번 문제(신성동→유성) 최단경로 계산 Service 인터페이스 (DTO 없이 Map 반환)
+// 수정됨: 경로 엔진이 여러 개(dijkstra / raptor) 등록될 수 있도록 엔진 이름(getEngineName) 추가
+// 수정됨: 응답 형식(format) 추가 - json(기존 구조) / polyline / delta(구간 좌표 압축 + 정류장 사전)
+// 수정됨: 출발 시간대(departHour) 지정 solve 추가 - 시간대별 구간 평균을 쓰는 엔진만 반영하고 나머지는 무시한다
 
 package com.example.demo.service.path;
 
@@ -12,6 +14,15 @@ import java.util.Map; // JSON 응답을 DTO 없이 Map으로 반환하기 위한
  */
 public interface IPathService {
 
+    // 응답 형식: 기존 구조(points = [lng, lat] 목록, nodeIds/nodeNames 병렬 목록)
+    String FORMAT_JSON = "json";
+
+    // 응답 형식: 구간 좌표 = Google encoded polyline 문자열, 정류장 = 응답 공통 사전의 번호
+    String FORMAT_POLYLINE = "polyline";
+
+    // 응답 형식: 구간 좌표 = 마이크로도 델타 정수 배열, 정류장 = 응답 공통 사전의 번호
+    String FORMAT_DELTA = "delta";
+
     /**
      * 최단경로(최단시간) 계산을 수행한다.
      *
@@ -30,7 +41,42 @@ public interface IPathService {
      * - BUS(segment_weight) + 출발/도착 도보 스냅 기반
      * - TRAM/arrtime/환승 정책은 이후 단계에서 확장
      */
-    Map<String, Object> solve(double fromLat, double fromLng, double toLat, double toLng, double snapRadiusM, int maxTransfers);
+    default Map<String, Object> solve(double fromLat, double fromLng, double toLat, double toLng, double snapRadiusM, int maxTransfers) {
+        return solve(fromLat, fromLng, toLat, toLng, snapRadiusM, maxTransfers, FORMAT_JSON);
+    }
+
+    /**
+     * 응답 형식을 지정해 최단경로를 계산한다. (탐색은 같고 segments 표현만 다르다)
+     *
+     * format = polyline | delta 일 때 출력(Map):
+     * - stops      : List<String[]> 응답 공통 정류장 사전 [nodeId, name] (출발/도착 지점은 __START__ / __END__)
+     * - candidates : 후보별 totalMinutes / usedTransfers / segments
+     *                segments 각 구간은 mode, routeId, updowncd, routeNo, minutes 와
+     *                stops(정류장 사전 번호 int[]) + polyline(문자열) 또는 path(int[] [lat0, lng0, dLat1, dLng1, ...], E6)
+     * - 최상위에는 가장 빠른 후보의 totalMinutes / usedTransfers만 두고 segments는 candidates[0]에만 둔다.
+     * - format : 실제 사용한 형식
+     *
+     * 모르는 format 값은 json으로 처리한다.
+     */
+    Map<String, Object> solve(double fromLat, double fromLng, double toLat, double toLng, double snapRadiusM, int maxTransfers,
+                              String format);
+
+    /**
+     * 출발 시간대를 지정해 최단경로를 계산한다.
+     *
+     * - departHour : 출발 시각의 시(0~23). null이면 solve(..., format)과 같다.
+     * - 시간대별 구간 통계를 쓰는 엔진은 그 시간대 평균 소요시간으로 탐색하고 응답에 departHour를 넣는다.
+     *   지원하지 않는 엔진은 departHour를 무시한다(기본 구현).
+     */
+    default Map<String, Object> solve(double fromLat, double fromLng, double toLat, double toLng, double snapRadiusM, int maxTransfers,
+                                      String format, Integer departHour) {
+        return solve(fromLat, fromLng, toLat, toLng, snapRadiusM, maxTransfers, format);
+    }
+
+    /**
+     * 엔진 이름 (요청 파라미터 engine / 설정 path.engine.default 에서 이 값으로 선택한다)
+     */
+    String getEngineName();
 }
 
-// 추가됨 끝
+// 수정됨 끝
@@ -0,0 +1,398 @@
+// 추가됨: 접근성 히트맵 배치 작업 - 대전 경계 사각형을 격자로 나눠 칸마다 도착지 그룹까지의 최단 시간을 미리 계산한다.
+//        - 도착지 그룹(트램역/병원/터미널 등)은 MatrixTargets 하나로 묶어 칸마다 일대다 탐색 1회로 모든 그룹을 채운다.
+//        - 행 단위로 ForkJoinPool(path.heatmap.parallelism)에 나눠 돌리며, 탐색 작업 배열은 워커 스레드마다 1개를 재사용한다.
+//        - 결과는 accessibility_heatmap 테이블에 그룹 단위로 교체 저장하고, /api/path/heatmap이 히트 레이어로 읽는다.
+// 수정됨: 실행 결과에 실제로 쓴 환승 횟수(effectiveTransfers, path.search.max-rides-cap - 1 이하)를 남긴다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dao.AccessibilityHeatmapDAO;
+
+/**
+ * 접근성 히트맵 배치 작업
+ *
+ * - 칸 중심에서 출발해 각 도착지 그룹 중 가장 빨리 닿는 곳까지의 시간(분)과 승차 횟수를 구한다.
+ *   교통수단/도보/환승 규칙은 /api/path/solve(PathServiceImpl)와 같다.
+ * - 도착지 지점까지 스냅 반경 안이면 걸어서 가는 시간도 후보로 본다(바로 옆 칸이 "도달 불가"로 나오지 않도록, rides=0).
+ * - 주변에 정류장도 도착지도 없는 칸(산/하천)은 저장하지 않는다.
+ * - 실행 중 요청은 무시한다(한 번에 하나).
+ */
+@Component
+public class AccessibilityHeatmapJob {
+
+    private static final double METERS_PER_DEG_LAT = 111320.0;
+
+    // 격자 한 변 최솟값(m)
+    private static final double MIN_CELL_M = 50.0;
+
+    // 그룹 좌표 대신 이 값을 쓰면 스냅샷의 트램 정류장 전체
+    private static final String TRAM_KEYWORD = "TRAM";
+
+    @Autowired
+    private TransitGraphHolder transitGraphHolder;
+
+    @Autowired
+    private AccessibilityHeatmapDAO accessibilityHeatmapDAO;
+
+    // 출발/도착 각각 스냅할 최대 정류장 수(경로 엔진과 같은 설정)
+    @Value("${path.snap.max-candidates:40}")
+    private int snapMaxCandidates;
+
+    // 승차 횟수 상한(경로 엔진과 같은 설정)
+    @Value("${path.search.max-rides-cap:8}")
+    private int maxRidesCap;
+
+    // 격자 범위 "남,서,북,동" (위도/경도)
+    @Value("${path.heatmap.bbox:36.18,127.25,36.50,127.56}")
+    private String bbox;
+
+    // 격자 한 변(m)
+    @Value("${path.heatmap.cell-m:250}")
+    private double cellM;
+
+    // 칸 중심/도착지 스냅 반경(m)
+    @Value("${path.heatmap.snap-radius-m:500}")
+    private double snapRadiusM;
+
+    // 허용 환승 횟수
+    @Value("${path.heatmap.max-transfers:2}")
+    private int maxTransfers;
+
+    // 도착지 그룹 "그룹=위도,경도|위도,경도; 그룹=TRAM"
+    @Value("${path.heatmap.destinations:tram=TRAM}")
+    private String destinations;
+
+    // 계산 병렬도(0 이하: CPU 코어 수)
+    @Value("${path.heatmap.parallelism:0}")
+    private int parallelism;
+
+    // 자동 실행 주기(시간). 0 이하면 /api/path/heatmap/run 으로만 실행
+    @Value("${path.heatmap.interval-hours:0}")
+    private long intervalHours;
+
+    private ForkJoinPool pool;
+
+    private final ScheduledExecutorService runner = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "path-heatmap-job");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicInteger doneRows = new AtomicInteger();
+    private volatile int totalRows = 0;
+    private volatile Map<String, Object> lastRun = null;
+
+    // 그룹별 히트 레이어 응답 (작업이 저장을 마치면 비운다)
+    private final ConcurrentHashMap<String, Map<String, Object>> layers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        int p = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(Math.max(1, p));
+
+        if (intervalHours > 0) {
+            runner.scheduleWithFixedDelay(this::runSafely, intervalHours, intervalHours, TimeUnit.HOURS);
+        }
+    }
+
+    /**
+     * 백그라운드 실행을 시작한다.
+     *
+     * @return 이미 실행 중이면 false
+     */
+    public boolean start() {
+        if (running.get()) return false;
+        runner.execute(this::runSafely);
+        return true;
+    }
+
+    /**
+     * 진행 상태 (running / doneRows / totalRows / lastRun)
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> out = new HashMap<>();
+        out.put("running", running.get());
+        out.put("doneRows", doneRows.get());
+        out.put("totalRows", totalRows);
+        out.put("lastRun", lastRun);
+        out.put("groups", accessibilityHeatmapDAO.findAllGroups());
+        return out;
+    }
+
+    /**
+     * 히트 레이어: 그룹의 격자 정보 + 칸 목록
+     *
+     * - cells : [[row, col, minutes, rides], ...]
+     *   칸 (row, col)의 남서 모서리 = (south + row x dLat, west + col x dLng)
+     * - reason : 저장된 결과가 없으면 NOT_READY
+     */
+    public Map<String, Object> layer(String group) {
+        String grp = normalizeGroup(group);
+        Map<String, Object> cached = layers.get(grp);
+        if (cached != null) return cached;
+
+        Map<String, Object> grid = accessibilityHeatmapDAO.findGroupGrid(grp);
+        if (grid == null) {
+            Map<String, Object> out = new HashMap<>();
+            out.put("group", grp);
+            out.put("reason", "NOT_READY");
+            return out;
+        }
+
+        List<double[]> cells = new ArrayList<>(((Number) grid.get("cellCount")).intValue());
+        int read = accessibilityHeatmapDAO.forEachCell(grp,
+            (row, col, minutesX10, rides) -> cells.add(new double[] { row, col, minutesX10 / 10.0, rides }));
+        if (read < 0) {
+            Map<String, Object> out = new HashMap<>();
+            out.put("group", grp);
+            out.put("reason", "ERROR");
+            return out;
+        }
+
+        Map<String, Object> out = new HashMap<>(grid);
+        out.put("cells", cells);
+        layers.put(grp, out);
+        return out;
+    }
+
+    private void runSafely() {
+        if (!running.compareAndSet(false, true)) return;
+        try {
+            lastRun = runOnce();
+        } catch (Exception e) {
+            System.out.println("[PATH][HEATMAP][ERROR] msg=" + e.getMessage());
+            Map<String, Object> failed = new HashMap<>();
+            failed.put("reason", "ERROR");
+            failed.put("message", e.getMessage());
+            lastRun = failed;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Map<String, Object> runOnce() throws Exception {
+        long t0 = System.currentTimeMillis();
+        TransitGraphSnapshot snapshot = transitGraphHolder.current();
+
+        // ---------------------------------------------------------
+        // (1) 격자 / 도착지 그룹
+        // ---------------------------------------------------------
+        double[] box = parseBox(bbox);
+        double south = box[0], west = box[1], north = box[2], east = box[3];
+        double side = Math.max(MIN_CELL_M, cellM);
+        double dLat = side / METERS_PER_DEG_LAT;
+        double dLng = side / (METERS_PER_DEG_LAT * Math.cos(Math.toRadians((south + north) / 2.0)));
+        int rows = Math.max(1, (int) Math.ceil((north - south) / dLat));
+        int cols = Math.max(1, (int) Math.ceil((east - west) / dLng));
+
+        Map<String, List<double[]>> groupPoints = parseGroups(destinations, snapshot);
+        List<String> names = new ArrayList<>(groupPoints.keySet());
+        List<List<double[]>> groups = new ArrayList<>(groupPoints.values());
+        int groupCount = names.size();
+        if (groupCount == 0) {
+            Map<String, Object> out = new HashMap<>();
+            out.put("reason", "NO_DESTINATIONS");
+            return out;
+        }
+
+        int maxRides = PathServiceImpl.clampMaxRides(maxTransfers, maxRidesCap);
+        MatrixTargets targets = MatrixTargets.buildGroups(snapshot, groups, snapRadiusM, snapMaxCandidates);
+
+        // ---------------------------------------------------------
+        // (2) 칸별 탐색 (행 단위 병렬, 결과는 [그룹][칸] 배열)
+        // ---------------------------------------------------------
+        int cellCount = rows * cols;
+        float[][] minutes = new float[groupCount][cellCount];
+        byte[][] rides = new byte[groupCount][cellCount];
+        long[] expandedByRow = new long[rows];
+        totalRows = rows;
+        doneRows.set(0);
+
+        pool.submit(() -> IntStream.range(0, rows).parallel().forEach(r -> {
+            double[] outMin = new double[groupCount];
+            int[] outRides = new int[groupCount];
+            double lat = south + (r + 0.5) * dLat;
+
+            for (int c = 0; c < cols; c++) {
+                double lng = west + (c + 0.5) * dLng;
+                int cell = r * cols + c;
+
+                StopGridIndex.Hits start = SnapEdges.collect(snapshot, lat, lng, snapRadiusM, snapMaxCandidates);
+                if (start.count > 0) {
+                    double[] startMin = new double[start.count];
+                    for (int k = 0; k < start.count; k++) {
+                        startMin[k] = PathGeo.metersToWalkMinutes(start.meters[k]);
+                    }
+                    expandedByRow[r] += TransitSearchEngine.searchOneToMany(snapshot,
+                        Arrays.copyOf(start.nodes, start.count), startMin, targets,
+                        maxRides, PathResultBuilder.TRANSFER_PENALTY_MIN, outMin, outRides);
+                } else {
+                    Arrays.fill(outMin, Double.POSITIVE_INFINITY);
+                }
+
+                for (int j = 0; j < groupCount; j++) {
+                    double best = outMin[j];
+                    int bestRides = outRides[j];
+                    double walk = directWalkMinutes(groups.get(j), lat, lng);
+                    if (walk < best) {
+                        best = walk;
+                        bestRides = 0;
+                    }
+                    minutes[j][cell] = (best == Double.POSITIVE_INFINITY) ? Float.NaN : (float) best;
+                    rides[j][cell] = (byte) bestRides;
+                }
+            }
+            doneRows.incrementAndGet();
+        })).get();
+
+        long searchMs = System.currentTimeMillis() - t0;
+        long expanded = 0;
+        for (long x : expandedByRow) expanded += x;
+
+        // ---------------------------------------------------------
+        // (3) 그룹별 저장 (도달 가능한 칸만)
+        // ---------------------------------------------------------
+        int[] cellRow = new int[cellCount];
+        int[] cellCol = new int[cellCount];
+        int[] minutesX10 = new int[cellCount];
+        int[] cellRides = new int[cellCount];
+        Map<String, Object> saved = new LinkedHashMap<>();
+
+        for (int j = 0; j < groupCount; j++) {
+            int n = 0;
+            for (int cell = 0; cell < cellCount; cell++) {
+                float t = minutes[j][cell];
+                if (Float.isNaN(t)) continue;
+                cellRow[n] = cell / cols;
+                cellCol[n] = cell % cols;
+                minutesX10[n] = (int) Math.min(65535L, Math.round(t * 10.0));
+                cellRides[n] = rides[j][cell];
+                n++;
+            }
+
+            Map<String, Object> grid = new HashMap<>();
+            grid.put("graphVersion", snapshot.getVersion());
+            grid.put("south", south);
+            grid.put("west", west);
+            grid.put("dLat", dLat);
+            grid.put("dLng", dLng);
+            grid.put("cellM", side);
+            grid.put("rows", rows);
+            grid.put("cols", cols);
+            grid.put("elapsedMs", searchMs);
+
+            int written = accessibilityHeatmapDAO.replaceGroup(names.get(j), grid, n, cellRow, cellCol, minutesX10, cellRides);
+            saved.put(names.get(j), written);
+            layers.remove(names.get(j));
+        }
+
+        long elapsed = System.currentTimeMillis() - t0;
+        System.out.println("[PATH][HEATMAP] cells=" + cellCount + " (" + rows + "x" + cols + ") groups=" + names
+            + " expanded=" + expanded + " searchMs=" + searchMs + " totalMs=" + elapsed + " saved=" + saved);
+
+        Map<String, Object> out = new HashMap<>();
+        out.put("graphVersion", snapshot.getVersion());
+        out.put("rows", rows);
+        out.put("cols", cols);
+        out.put("cellM", side);
+        out.put("effectiveTransfers", PathServiceImpl.effectiveTransfers(maxTransfers, maxRidesCap));
+        out.put("saved", saved);
+        out.put("expandedStates", expanded);
+        out.put("searchMs", searchMs);
+        out.put("elapsedMs", elapsed);
+        return out;
+    }
+
+    // 스냅 반경 안 도착지 지점까지 걸어가는 시간(분), 없으면 +INF
+    private double directWalkMinutes(List<double[]> points, double lat, double lng) {
+        double best = Double.POSITIVE_INFINITY;
+        for (double[] p : points) {
+            double m = PathGeo.haversineMeters(lat, lng, p[0], p[1]);
+            if (m <= snapRadiusM) best = Math.min(best, PathGeo.metersToWalkMinutes(m));
+        }
+        return best;
+    }
+
+    // "남,서,북,동"
+    private static double[] parseBox(String text) {
+        String[] parts = text.split(",");
+        if (parts.length != 4) throw new IllegalArgumentException("path.heatmap.bbox must be south,west,north,east");
+        double[] box = new double[4];
+        for (int i = 0; i < 4; i++) box[i] = Double.parseDouble(parts[i].trim());
+        if (!(box[2] > box[0]) || !(box[3] > box[1])) throw new IllegalArgumentException("path.heatmap.bbox is empty");
+        return box;
+    }
+
+    // "그룹=위도,경도|위도,경도; 그룹=TRAM" → 그룹명(소문자) -> 지점 목록 (지점이 없는 그룹은 뺀다)
+    private static Map<String, List<double[]>> parseGroups(String text, TransitGraphSnapshot g) {
+        Map<String, List<double[]>> out = new LinkedHashMap<>();
+        if (text == null) return out;
+
+        for (String entry : text.split(";")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) continue;
+            String name = normalizeGroup(entry.substring(0, eq));
+            List<double[]> points = new ArrayList<>();
+
+            for (String item : entry.substring(eq + 1).split("\\|")) {
+                String s = item.trim();
+                if (s.isEmpty()) continue;
+                if (TRAM_KEYWORD.equalsIgnoreCase(s)) {
+                    for (int v = 0; v < g.nodeCount; v++) {
+                        if (g.nodeIds[v].startsWith(TramNetwork.NODE_PREFIX)) {
+                            points.add(new double[] { g.nodeLat[v], g.nodeLng[v] });
+                        }
+                    }
+                    continue;
+                }
+                String[] ll = s.split(",");
+                if (ll.length != 2) continue;
+                try {
+                    points.add(new double[] { Double.parseDouble(ll[0].trim()), Double.parseDouble(ll[1].trim()) });
+                } catch (NumberFormatException e) {
+                    System.out.println("[PATH][HEATMAP][WARN] bad point group=" + name + " value=" + s);
+                }
+            }
+            if (!points.isEmpty()) out.put(name, points);
+        }
+        return out;
+    }
+
+    private static String normalizeGroup(String group) {
+        return (group == null) ? "" : group.trim().toLowerCase();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            runner.shutdownNow();
+            if (pool != null) pool.shutdownNow();
+        } catch (Exception ignore) {
+        }
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,212 @@
+// 추가됨: Contraction Hierarchy 경로 엔진 - 세 번째 IPathService 구현 (engine=ch)
+//        - 스냅샷이 교체될 때마다 백그라운드 스레드에서 CH를 새로 만들고, 완성되면 원자적으로 교체한다.
+//        - CH가 아직 준비되지 않았거나(기동 직후/재빌드 중) CH 결과가 환승 조건을 벗어나면 기본형 다익스트라로 대신 계산한다.
+// 수정됨: 응답 형식(format = json | polyline | delta)을 응답 조립기에 넘긴다.
+// 수정됨: 승차 횟수 상한은 PathServiceImpl.clampMaxRides(maxTransfers, maxRidesCap)으로 계산한다.
+// 수정됨: 가중치만 바뀐 스냅샷은 이전 CH의 축약 순서로 다시 만들고(ContractionHierarchy.build의 previous),
+//        빌드 시간을 목표(path.ch.target-build-ms)와 비교해 기록한다. 질의 중 NOT_READY(대체 계산) 비율을 stats()로 노출한다.
+// 수정됨: CH 질의 결과(후보 1개)에는 bestOnly=true를 붙여 섀도 비교가 승차 횟수별 후보 대신 최단 시간만 비교하게 한다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.service.path.IPathService;
+
+/**
+ * CH 경로 엔진
+ *
+ * - 질의 결과는 "가장 빠른 경로 1개"다. (다익스트라/RAPTOR처럼 승차 횟수별 후보를 모두 내지는 않는다)
+ *   이때 응답에 bestOnly=true를 넣는다. 섀도 비교(PathEngineRegistry)는 이 표시가 있으면 CANDIDATES를 비교하지 않는다.
+ * - 응답 candidates 구조는 다른 엔진과 같고, 대체 계산을 했으면 chFallback에 이유를 남긴다.
+ */
+@Service
+public class ChPathServiceImpl implements IPathService {
+
+    // 엔진 이름(요청 파라미터 engine / path.engine.default 값)
+    static final String ENGINE_NAME = "ch";
+
+    @Autowired
+    private TransitGraphHolder transitGraphHolder;
+
+    @Autowired
+    private PathResultBuilder pathResultBuilder;
+
+    // 출발/도착 각각 스냅할 최대 정류장 수(다른 엔진과 같은 설정)
+    @Value("${path.snap.max-candidates:40}")
+    private int snapMaxCandidates;
+
+    // 대체 계산(다익스트라) 시 승차 횟수 상한
+    @Value("${path.search.max-rides-cap:8}")
+    private int maxRidesCap;
+
+    // CH 전처리 초기 우선순위 계산 병렬도(0 이하: CPU 코어 수)
+    @Value("${path.ch.parallelism:0}")
+    private int parallelism;
+
+    // CH 빌드 목표 시간(ms). 넘은 빌드 수를 센다(그동안 질의는 NOT_READY로 다익스트라 대체 계산)
+    @Value("${path.ch.target-build-ms:5000}")
+    private long targetBuildMs;
+
+    // 현재 스냅샷용 CH (다른 스냅샷용이면 사용하지 않는다)
+    private volatile ContractionHierarchy hierarchy;
+
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "path-ch-builder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ForkJoinPool pool;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong notReady = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong reusedOrderBuilds = new AtomicLong();
+    private final AtomicLong buildsOverTarget = new AtomicLong();
+    private volatile long lastBuildMs = -1;
+
+    @PostConstruct
+    public void init() {
+        int p = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(Math.max(1, p));
+
+        transitGraphHolder.addSwapListener(this::scheduleBuild);
+        scheduleBuild(transitGraphHolder.current());
+    }
+
+    @Override
+    public String getEngineName() {
+        return ENGINE_NAME;
+    }
+
+    @Override
+    public Map<String, Object> solve(double fromLat, double fromLng, double toLat, double toLng, double snapRadiusM, int maxTransfers,
+                                     String format) {
+        TransitGraphSnapshot snapshot = transitGraphHolder.current();
+        SnapEdges snap = SnapEdges.build(snapshot, fromLat, fromLng, toLat, toLng, snapRadiusM, snapMaxCandidates);
+
+        int maxRides = PathServiceImpl.clampMaxRides(maxTransfers, maxRidesCap);
+
+        String fallback = null;
+        List<PathCandidate> results;
+        boolean bestOnly = false;
+        queries.incrementAndGet();
+
+        ContractionHierarchy ch = hierarchy;
+        if (ch == null || ch.snapshot != snapshot) {
+            fallback = "NOT_READY";
+            notReady.incrementAndGet();
+            results = TransitSearchEngine.searchAllRides(snapshot, snap, maxRides, PathResultBuilder.TRANSFER_PENALTY_MIN);
+        } else {
+            PathCandidate best = ch.query(snap);
+            if (best == null) {
+                results = Collections.emptyList(); // 도달 불가(CH는 전체 그래프 기준이라 다른 엔진도 못 찾는다)
+            } else if (best.rides == 0) {
+                // 도보만으로 가는 편이 빠른 경우: 응답은 "승차 1회 이상" 후보만 다루므로 다익스트라로 계산
+                fallback = "WALK_ONLY";
+                results = TransitSearchEngine.searchAllRides(snapshot, snap, maxRides, PathResultBuilder.TRANSFER_PENALTY_MIN);
+            } else if (best.rides > maxRides) {
+                // 최단 경로가 허용 환승 수를 넘음: 환승 제한 안에서 다시 계산
+                fallback = "TRANSFER_LIMIT";
+                results = TransitSearchEngine.searchAllRides(snapshot, snap, maxRides, PathResultBuilder.TRANSFER_PENALTY_MIN);
+            } else {
+                results = Collections.singletonList(best);
+                bestOnly = true;
+            }
+        }
+
+        Map<String, Object> out = pathResultBuilder.build(snapshot, snap, fromLat, fromLng, toLat, toLng, maxTransfers, results, ENGINE_NAME, format);
+        if (bestOnly) {
+            out.put("bestOnly", true);
+        }
+        if (fallback != null) {
+            out.put("chFallback", fallback);
+            fallbacks.incrementAndGet();
+        }
+        return out;
+    }
+
+    /**
+     * CH 상태: 빌드 수 / 순서 재사용 빌드 수 / 목표 초과 빌드 수 / 마지막 빌드 시간, 질의 수 / NOT_READY 비율
+     */
+    public Map<String, Object> stats() {
+        long q = queries.get();
+        long nr = notReady.get();
+        ContractionHierarchy ch = hierarchy;
+
+        Map<String, Object> out = new HashMap<>();
+        out.put("ready", ch != null && ch.snapshot == transitGraphHolder.current());
+        out.put("version", (ch == null) ? null : ch.snapshot.getVersion());
+        out.put("shortcuts", (ch == null) ? null : ch.shortcutCount);
+        out.put("builds", builds.get());
+        out.put("reusedOrderBuilds", reusedOrderBuilds.get());
+        out.put("buildsOverTarget", buildsOverTarget.get());
+        out.put("targetBuildMs", targetBuildMs);
+        out.put("lastBuildMs", lastBuildMs);
+        out.put("queries", q);
+        out.put("notReady", nr);
+        out.put("notReadyRate", (q == 0) ? 0.0 : nr / (double) q);
+        out.put("fallbacks", fallbacks.get());
+        return out;
+    }
+
+    // =========================
+    // 백그라운드 빌드
+    // =========================
+    private void scheduleBuild(TransitGraphSnapshot snapshot) {
+        if (snapshot == null || snapshot.getNodeCount() == 0) return;
+
+        builder.submit(() -> {
+            // 대기하는 동안 더 새 스냅샷으로 바뀌었으면 건너뛴다(그 스냅샷의 작업이 뒤에 있다)
+            if (transitGraphHolder.current() != snapshot) return;
+
+            try {
+                ContractionHierarchy ch = ContractionHierarchy.build(snapshot, PathResultBuilder.TRANSFER_PENALTY_MIN, pool, hierarchy);
+                hierarchy = ch;
+
+                builds.incrementAndGet();
+                if (ch.reusedOrder) reusedOrderBuilds.incrementAndGet();
+                if (ch.buildElapsedMs > targetBuildMs) buildsOverTarget.incrementAndGet();
+                lastBuildMs = ch.buildElapsedMs;
+
+                long q = queries.get();
+                System.out.println("[PATH][CH] built. version=" + snapshot.getVersion()
+                    + " nodes=" + ch.nodeCount
+                    + " edges=" + ch.originalEdgeCount
+                    + " shortcuts=" + ch.shortcutCount
+                    + " reusedOrder=" + ch.reusedOrder
+                    + " ms=" + ch.buildElapsedMs + (ch.buildElapsedMs > targetBuildMs ? " (over target " + targetBuildMs + ")" : "")
+                    + " notReadyRate=" + ((q == 0) ? 0.0 : notReady.get() / (double) q));
+            } catch (Exception e) {
+                System.out.println("[PATH][CH][ERROR] build version=" + snapshot.getVersion() + " msg=" + e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            builder.shutdownNow();
+            if (pool != null) pool.shutdownNow();
+        } catch (Exception ignore) {
+        }
+    }
+}
+
+// 추가됨 끝
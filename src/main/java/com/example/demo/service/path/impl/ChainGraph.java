@@ -0,0 +1,156 @@
+// 추가됨: 노선 체인 압축 그래프 - 환승/분기/트램 인접이 없는 중간 정류장을 건너뛰는 축약 간선(CSR)
+//        - 스냅샷에서 한 번 계산해 두고, 스냅샷이 교체되면 다시 만든다.
+//        - 축약 간선마다 원래 CSR 간선 순서를 보관해 결과(segments/points/정류장명)는 압축 전과 같게 복원한다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.Arrays;
+
+/**
+ * 체인 압축 그래프 (불변)
+ *
+ * 중간 정류장(interior) 조건
+ * - 들어오는 간선 1개, 나가는 간선 1개이고 둘 다 같은 탑승 패턴(노선+방향)
+ * - 즉 환승 도보/트램 연결/다른 노선/분기가 없어 "같은 차를 계속 타는 것" 외에 할 수 있는 일이 없다.
+ * - 중간 정류장으로만 이루어진 순환은 압축하지 않는다.
+ *
+ * 축약 간선 c (중간 정류장이 아닌 노드 u에서만 출발)
+ * - edgeStart[u] <= c < edgeStart[u+1], 도착 edgeTarget[c] / 패턴 edgePattern[c] / 도착 슬롯 edgeTargetSlot[c]
+ * - 원래 간선: expand[expandStart[c] .. expandStart[c+1]) (첫 간선부터 순서대로)
+ *
+ * 중간 정류장 w (출발/도착 스냅이 중간 정류장에 걸린 경우에만 쓴다)
+ * - chainEdge[w] : w를 지나는 축약 간선 (중간 정류장이 아니면 -1)
+ * - chainPos[w]  : expand[expandStart[c] + chainPos[w]] 가 w로 들어오는 간선
+ *
+ * 소요시간은 탐색 시 원래 간선 순서대로 더한다(압축 전과 부동소수 합이 같도록).
+ */
+final class ChainGraph {
+
+    final TransitGraphSnapshot snapshot;
+
+    final int edgeCount;
+    final int[] edgeStart;
+    final int[] edgeTarget;
+    final int[] edgePattern;
+    final int[] edgeTargetSlot;
+    final int[] expandStart;
+    final int[] expand;
+
+    final int interiorCount;
+    final int[] chainEdge;
+    final int[] chainPos;
+
+    private ChainGraph(TransitGraphSnapshot snapshot, int[] edgeStart, int[] edgeTarget, int[] edgePattern,
+                       int[] edgeTargetSlot, int[] expandStart, int[] expand, int interiorCount,
+                       int[] chainEdge, int[] chainPos) {
+        this.snapshot = snapshot;
+        this.edgeCount = edgeTarget.length;
+        this.edgeStart = edgeStart;
+        this.edgeTarget = edgeTarget;
+        this.edgePattern = edgePattern;
+        this.edgeTargetSlot = edgeTargetSlot;
+        this.expandStart = expandStart;
+        this.expand = expand;
+        this.interiorCount = interiorCount;
+        this.chainEdge = chainEdge;
+        this.chainPos = chainPos;
+    }
+
+    static ChainGraph build(TransitGraphSnapshot g) {
+        int n = g.nodeCount;
+        int m = g.edgeCount;
+
+        // ---------------------------------------------------------
+        // (1) 중간 정류장 판정: 진입/진출 간선 각 1개 + 같은 패턴
+        // ---------------------------------------------------------
+        int[] inDeg = new int[n];
+        int[] inEdge = new int[n];
+        for (int e = 0; e < m; e++) {
+            int v = g.edgeTarget[e];
+            inDeg[v]++;
+            inEdge[v] = e;
+        }
+
+        boolean[] interior = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            if (inDeg[v] != 1 || g.edgeStart[v + 1] - g.edgeStart[v] != 1) continue;
+            int in = inEdge[v];
+            int out = g.edgeStart[v];
+            if (g.edgeSource[in] == v) continue; // 자기 자신 순환
+            int p = g.edgePattern[out];
+            interior[v] = p >= 0 && g.edgePattern[in] == p;
+        }
+
+        // ---------------------------------------------------------
+        // (2) 중간 정류장이 아닌 노드에서 체인을 따라가며 방문 표시
+        //     한 번도 방문되지 않은 중간 정류장은 순환 위에 있으므로 압축하지 않는다.
+        // ---------------------------------------------------------
+        boolean[] reached = new boolean[n];
+        for (int u = 0; u < n; u++) {
+            if (interior[u]) continue;
+            for (int e = g.edgeStart[u]; e < g.edgeStart[u + 1]; e++) {
+                int v = g.edgeTarget[e];
+                while (interior[v] && !reached[v]) {
+                    reached[v] = true;
+                    v = g.edgeTarget[g.edgeStart[v]];
+                }
+            }
+        }
+        int interiorCount = 0;
+        for (int v = 0; v < n; v++) {
+            if (interior[v] && !reached[v]) interior[v] = false;
+            if (interior[v]) interiorCount++;
+        }
+
+        // ---------------------------------------------------------
+        // (3) 축약 간선 CSR (원래 간선 순서 유지)
+        // ---------------------------------------------------------
+        int[] edgeStart = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            edgeStart[u + 1] = edgeStart[u] + (interior[u] ? 0 : g.edgeStart[u + 1] - g.edgeStart[u]);
+        }
+        int cm = edgeStart[n];
+
+        int[] edgeTarget = new int[cm];
+        int[] edgePattern = new int[cm];
+        int[] edgeTargetSlot = new int[cm];
+        int[] expandStart = new int[cm + 1];
+        int[] expand = new int[m];
+        int[] chainEdge = new int[n];
+        int[] chainPos = new int[n];
+        Arrays.fill(chainEdge, -1);
+
+        int c = 0;
+        int x = 0;
+        for (int u = 0; u < n; u++) {
+            if (interior[u]) continue;
+            for (int e = g.edgeStart[u]; e < g.edgeStart[u + 1]; e++) {
+                expandStart[c] = x;
+                expand[x++] = e;
+                int last = e;
+                int v = g.edgeTarget[e];
+                while (interior[v]) {
+                    chainEdge[v] = c;
+                    chainPos[v] = x - 1 - expandStart[c];
+                    last = g.edgeStart[v];
+                    expand[x++] = last;
+                    v = g.edgeTarget[last];
+                }
+                edgeTarget[c] = v;
+                edgePattern[c] = g.edgePattern[e];
+                edgeTargetSlot[c] = g.edgeTargetSlot[last];
+                c++;
+            }
+        }
+        expandStart[cm] = x;
+
+        return new ChainGraph(g, edgeStart, edgeTarget, edgePattern, edgeTargetSlot, expandStart,
+            Arrays.copyOf(expand, x), interiorCount, chainEdge, chainPos);
+    }
+
+    boolean isInterior(int v) {
+        return chainEdge[v] >= 0;
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,638 @@
+// 추가됨: 버스+트램+도보 그래프의 Contraction Hierarchy(CH) 전처리 / 양방향 질의
+//        - 환승 페널티와 노선 구분을 지키기 위해 "정류장 노드 + (정류장, 탑승 패턴) 노드"로 펼친 그래프를 축약한다.
+//        - 초기 우선순위 계산(노드별 모의 축약)은 ForkJoinPool에서 병렬로 수행한다.
+// 수정됨: 간선 구성(출발/도착/패턴)이 이전 스냅샷과 같고 가중치만 바뀌었으면 이전 CH의 축약 순서를 그대로 써서 다시 만든다.
+//        - 우선순위 계산(초기 모의 축약 + 꺼낼 때마다 다시 하는 모의 축약)을 건너뛰고 순서대로 실제 축약만 한다.
+//        - CH는 축약 순서와 무관하게 정확하므로 결과는 같고, 순서의 질(shortcut 수)만 이전 가중치 기준이다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Contraction Hierarchy (불변, 스냅샷 1개당 1개)
+ *
+ * 펼친 그래프 (route-expanded graph)
+ * - 정류장 노드 v (0..n-1)          : 하차/도보 상태
+ * - 패턴 노드 (v, p) (n..)          : 패턴 p 차량에 탄 채로 v에 있는 상태
+ * - 승차 v -> (v,p)     : 환승 페널티(분)
+ * - 하차 (v,p) -> v     : 0분
+ * - 주행 (u,p) -> (w,p) : segment_weight / 트램 소요시간
+ * - 도보 u -> w         : 버스↔트램 환승 도보
+ *
+ * 모든 승차에 페널티가 붙으므로 "경로 비용 - 페널티 1회"가 기존 다익스트라의 목적 함수(첫 승차 무료)와 같다.
+ * 질의는 출발 스냅 정류장들(다중 시작)과 도착 스냅 정류장들(다중 목표)에서 위쪽(rank 증가) 간선만 따라가는
+ * 양방향 다익스트라이며, 찾은 경로의 shortcut을 원래 간선으로 풀어서 CSR 간선 코드로 돌려준다.
+ */
+final class ContractionHierarchy {
+
+    static final byte KIND_RIDE = 0;
+    static final byte KIND_WALK = 1;
+    static final byte KIND_BOARD = 2;
+    static final byte KIND_ALIGHT = 3;
+    static final byte KIND_SHORTCUT = 4;
+
+    // 위트니스 탐색에서 확정할 최대 노드 수(넘으면 shortcut을 그냥 추가한다 - 정확도는 유지, 간선만 늘어남)
+    private static final int WITNESS_SETTLE_LIMIT = 60;
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    final TransitGraphSnapshot snapshot;
+    final double boardPenalty;
+    final int nodeCount;
+    final int stopCount;
+    final int originalEdgeCount;
+    final int shortcutCount;
+    final long buildElapsedMs;
+    // 이전 CH의 축약 순서를 다시 썼는지(가중치만 바뀐 스냅샷)
+    final boolean reusedOrder;
+
+    // 노드별 축약 순서(다음 빌드에서 재사용)
+    private final int[] rank;
+
+    // ---- 간선(원래 간선 + shortcut) ----
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final double[] edgeWeight;
+    private final byte[] edgeKind;
+    private final int[] edgeCode;   // 주행/도보: 스냅샷 CSR 간선 번호, 그 외 -1
+    private final int[] childA;     // shortcut: 앞쪽 하위 간선
+    private final int[] childB;     // shortcut: 뒤쪽 하위 간선
+
+    // ---- 질의용 CSR ----
+    private final int[] upStart;    // 정방향: u에서 rank가 더 높은 노드로 가는 간선
+    private final int[] upEdge;
+    private final int[] downStart;  // 역방향: w로 들어오는 간선 중 출발 rank가 더 높은 것
+    private final int[] downEdge;
+
+    private final ThreadLocal<QueryWorkspace> queryWorkspace = ThreadLocal.withInitial(QueryWorkspace::new);
+
+    private ContractionHierarchy(Builder b, int[] rank, long elapsed, boolean reusedOrder) {
+        this.snapshot = b.g;
+        this.rank = rank;
+        this.reusedOrder = reusedOrder;
+        this.boardPenalty = b.penalty;
+        this.nodeCount = b.nodeCount;
+        this.stopCount = b.g.nodeCount;
+        this.originalEdgeCount = b.originalEdgeCount;
+        this.shortcutCount = b.edgeCount - b.originalEdgeCount;
+        this.buildElapsedMs = elapsed;
+
+        int m = b.edgeCount;
+        this.edgeFrom = Arrays.copyOf(b.from, m);
+        this.edgeTo = Arrays.copyOf(b.to, m);
+        this.edgeWeight = Arrays.copyOf(b.weight, m);
+        this.edgeKind = Arrays.copyOf(b.kind, m);
+        this.edgeCode = Arrays.copyOf(b.code, m);
+        this.childA = Arrays.copyOf(b.childA, m);
+        this.childB = Arrays.copyOf(b.childB, m);
+
+        int nn = nodeCount;
+        upStart = new int[nn + 1];
+        downStart = new int[nn + 1];
+        for (int e = 0; e < m; e++) {
+            if (rank[edgeFrom[e]] < rank[edgeTo[e]]) upStart[edgeFrom[e] + 1]++;
+            else downStart[edgeTo[e] + 1]++;
+        }
+        for (int v = 0; v < nn; v++) {
+            upStart[v + 1] += upStart[v];
+            downStart[v + 1] += downStart[v];
+        }
+        upEdge = new int[upStart[nn]];
+        downEdge = new int[downStart[nn]];
+        int[] upCur = Arrays.copyOf(upStart, nn);
+        int[] downCur = Arrays.copyOf(downStart, nn);
+        for (int e = 0; e < m; e++) {
+            if (rank[edgeFrom[e]] < rank[edgeTo[e]]) upEdge[upCur[edgeFrom[e]]++] = e;
+            else downEdge[downCur[edgeTo[e]]++] = e;
+        }
+    }
+
+    /**
+     * 스냅샷으로 CH를 만든다. (pool: 초기 우선순위 병렬 계산용)
+     *
+     * @param previous 직전 스냅샷의 CH(없으면 null). 간선 구성이 같으면 그 축약 순서를 재사용한다.
+     */
+    static ContractionHierarchy build(TransitGraphSnapshot g, double boardPenalty, ForkJoinPool pool,
+                                      ContractionHierarchy previous) throws Exception {
+        long t0 = System.currentTimeMillis();
+        Builder b = new Builder(g, boardPenalty);
+        boolean reuse = previous != null && previous.boardPenalty == boardPenalty && previous.nodeCount == b.nodeCount
+            && sameTopology(previous.snapshot, g);
+        int[] rank = reuse ? b.contractInOrder(previous.rank) : b.contract(pool);
+        return new ContractionHierarchy(b, rank, System.currentTimeMillis() - t0, reuse);
+    }
+
+    // 정류장 수와 간선(출발/도착/패턴)이 모두 같으면 펼친 그래프의 노드 번호도 같다(가중치만 다를 수 있음)
+    private static boolean sameTopology(TransitGraphSnapshot a, TransitGraphSnapshot b) {
+        if (a == b) return true;
+        return a.nodeCount == b.nodeCount && a.edgeCount == b.edgeCount
+            && Arrays.equals(a.edgeSource, 0, a.edgeCount, b.edgeSource, 0, b.edgeCount)
+            && Arrays.equals(a.edgeTarget, 0, a.edgeCount, b.edgeTarget, 0, b.edgeCount)
+            && Arrays.equals(a.edgePattern, 0, a.edgeCount, b.edgePattern, 0, b.edgeCount);
+    }
+
+    // =========================
+    // 질의
+    // =========================
+
+    /**
+     * 출발/도착 스냅 사이 최단 경로 1개 (경로가 없으면 null)
+     *
+     * - rides        : 경로의 승차 횟수(0이면 도보만 - 호출 측에서 다른 엔진으로 넘긴다)
+     * - totalMinutes : 페널티 1회를 뺀 값(첫 승차 무료)
+     */
+    PathCandidate query(SnapEdges snap) {
+        QueryWorkspace ws = queryWorkspace.get();
+        ws.prepare(nodeCount);
+
+        try {
+            for (int i = 0; i < snap.startNodes.length; i++) {
+                ws.relaxF(snap.startNodes[i], snap.startMinutes[i], SnapEdges.startEdgeCode(i));
+            }
+            for (int j = 0; j < snap.endNodes.length; j++) {
+                ws.relaxB(snap.endNodes[j], snap.endMinutes[j], SnapEdges.endEdgeCode(j));
+            }
+
+            double best = INF;
+            int meet = -1;
+
+            while (true) {
+                double fk = ws.fHeap.isEmpty() ? INF : ws.fHeap.peekKey();
+                double bk = ws.bHeap.isEmpty() ? INF : ws.bHeap.peekKey();
+                if (Math.min(fk, bk) >= best) break;
+
+                if (fk <= bk) {
+                    int u = ws.fHeap.poll();
+                    double du = ws.fDist[u];
+                    if (du + ws.bDist[u] < best) {
+                        best = du + ws.bDist[u];
+                        meet = u;
+                    }
+                    for (int i = upStart[u]; i < upStart[u + 1]; i++) {
+                        int e = upEdge[i];
+                        ws.relaxF(edgeTo[e], du + edgeWeight[e], e);
+                    }
+                } else {
+                    int w = ws.bHeap.poll();
+                    double dw = ws.bDist[w];
+                    if (dw + ws.fDist[w] < best) {
+                        best = dw + ws.fDist[w];
+                        meet = w;
+                    }
+                    for (int i = downStart[w]; i < downStart[w + 1]; i++) {
+                        int e = downEdge[i];
+                        ws.relaxB(edgeFrom[e], dw + edgeWeight[e], e);
+                    }
+                }
+            }
+
+            if (meet < 0) return null;
+            return unpack(ws, meet, best);
+        } finally {
+            ws.reset();
+        }
+    }
+
+    private PathCandidate unpack(QueryWorkspace ws, int meet, double best) {
+        // (1) CH 간선 열 (START 스냅 → meet → END 스냅)
+        IntList chain = new IntList();
+        int startCode = 0;
+        for (int x = meet; ; ) {
+            int pe = ws.fParent[x];
+            if (pe < 0) { startCode = pe; break; }
+            chain.add(pe);
+            x = edgeFrom[pe];
+        }
+        chain.reverse();
+        int endCode = 0;
+        for (int x = meet; ; ) {
+            int pe = ws.bParent[x];
+            if (pe < 0) { endCode = pe; break; }
+            chain.add(pe);
+            x = edgeTo[pe];
+        }
+
+        // (2) shortcut 풀기 → 스냅샷 간선 코드
+        IntList codes = new IntList();
+        codes.add(startCode);
+        int rides = 0;
+        IntList stack = new IntList();
+        for (int i = 0; i < chain.size; i++) {
+            stack.add(chain.data[i]);
+            while (stack.size > 0) {
+                int e = stack.pop();
+                if (edgeKind[e] == KIND_SHORTCUT) {
+                    stack.add(childB[e]);
+                    stack.add(childA[e]);
+                    continue;
+                }
+                if (edgeKind[e] == KIND_BOARD) rides++;
+                if (edgeCode[e] >= 0) codes.add(edgeCode[e]);
+            }
+        }
+        codes.add(endCode);
+
+        double total = (rides > 0) ? best - boardPenalty : best;
+        return new PathCandidate(rides, total, codes.toArray());
+    }
+
+    /**
+     * 질의 작업 배열 (스레드별). 부모 간선 -1 = 미방문, 스냅 코드(-2 이하 / MIN_VALUE+j) = 시작점
+     */
+    private static final class QueryWorkspace {
+        double[] fDist = new double[0];
+        double[] bDist = new double[0];
+        int[] fParent = new int[0];
+        int[] bParent = new int[0];
+        int[] touched = new int[0];
+        int touchedCount = 0;
+        boolean[] isTouched = new boolean[0];
+        IndexedMinHeap fHeap = new IndexedMinHeap(1);
+        IndexedMinHeap bHeap = new IndexedMinHeap(1);
+
+        void prepare(int n) {
+            if (fDist.length < n) {
+                fDist = new double[n];
+                bDist = new double[n];
+                Arrays.fill(fDist, INF);
+                Arrays.fill(bDist, INF);
+                fParent = new int[n];
+                bParent = new int[n];
+                touched = new int[n];
+                isTouched = new boolean[n];
+                fHeap = new IndexedMinHeap(n);
+                bHeap = new IndexedMinHeap(n);
+            }
+        }
+
+        void relaxF(int v, double d, int parent) {
+            if (d >= fDist[v]) return;
+            touch(v);
+            fDist[v] = d;
+            fParent[v] = parent;
+            fHeap.offer(v, d);
+        }
+
+        void relaxB(int v, double d, int parent) {
+            if (d >= bDist[v]) return;
+            touch(v);
+            bDist[v] = d;
+            bParent[v] = parent;
+            bHeap.offer(v, d);
+        }
+
+        private void touch(int v) {
+            if (!isTouched[v]) {
+                isTouched[v] = true;
+                touched[touchedCount++] = v;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                int v = touched[i];
+                fDist[v] = INF;
+                bDist[v] = INF;
+                isTouched[v] = false;
+            }
+            touchedCount = 0;
+            fHeap.clear();
+            bHeap.clear();
+        }
+    }
+
+    // =========================
+    // 전처리 (축약)
+    // =========================
+    private static final class Builder {
+        final TransitGraphSnapshot g;
+        final double penalty;
+        final int nodeCount;
+        int originalEdgeCount;
+
+        int edgeCount = 0;
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        double[] weight = new double[1024];
+        byte[] kind = new byte[1024];
+        int[] code = new int[1024];
+        int[] childA = new int[1024];
+        int[] childB = new int[1024];
+
+        final IntList[] out;
+        final IntList[] in;
+        final boolean[] contracted;
+        final int[] deletedNeighbors;
+
+        private final ThreadLocal<WitnessSearch> witness;
+
+        Builder(TransitGraphSnapshot g, double penalty) {
+            this.g = g;
+            this.penalty = penalty;
+
+            // (정류장, 패턴) 노드 번호 매기기
+            int n = g.nodeCount;
+            Map<Long, Integer> routeNode = new HashMap<>();
+            int next = n;
+            int[] srcNode = new int[g.edgeCount];
+            int[] dstNode = new int[g.edgeCount];
+            for (int e = 0; e < g.edgeCount; e++) {
+                int p = g.edgePattern[e];
+                if (p < 0) continue;
+                long ks = ((long) g.edgeSource[e] << 32) | p;
+                long kt = ((long) g.edgeTarget[e] << 32) | p;
+                Integer s = routeNode.get(ks);
+                if (s == null) { s = next++; routeNode.put(ks, s); }
+                Integer t = routeNode.get(kt);
+                if (t == null) { t = next++; routeNode.put(kt, t); }
+                srcNode[e] = s;
+                dstNode[e] = t;
+            }
+            this.nodeCount = next;
+
+            out = new IntList[nodeCount];
+            in = new IntList[nodeCount];
+            for (int v = 0; v < nodeCount; v++) {
+                out[v] = new IntList();
+                in[v] = new IntList();
+            }
+            contracted = new boolean[nodeCount];
+            deletedNeighbors = new int[nodeCount];
+
+            // 주행 / 도보 간선
+            for (int e = 0; e < g.edgeCount; e++) {
+                double w = Math.max(0.0, g.edgeMinutes[e]);
+                if (g.edgePattern[e] < 0) {
+                    addEdge(g.edgeSource[e], g.edgeTarget[e], w, KIND_WALK, e, -1, -1);
+                } else {
+                    addEdge(srcNode[e], dstNode[e], w, KIND_RIDE, e, -1, -1);
+                }
+            }
+            // 승차 / 하차 간선
+            for (Map.Entry<Long, Integer> en : routeNode.entrySet()) {
+                int stop = (int) (en.getKey() >>> 32);
+                int rn = en.getValue();
+                addEdge(stop, rn, penalty, KIND_BOARD, -1, -1, -1);
+                addEdge(rn, stop, 0.0, KIND_ALIGHT, -1, -1, -1);
+            }
+            originalEdgeCount = edgeCount;
+
+            witness = ThreadLocal.withInitial(() -> new WitnessSearch(nodeCount));
+        }
+
+        int addEdge(int u, int v, double w, byte k, int c, int a, int b) {
+            if (edgeCount == from.length) {
+                int cap = edgeCount * 2;
+                from = Arrays.copyOf(from, cap);
+                to = Arrays.copyOf(to, cap);
+                weight = Arrays.copyOf(weight, cap);
+                kind = Arrays.copyOf(kind, cap);
+                code = Arrays.copyOf(code, cap);
+                childA = Arrays.copyOf(childA, cap);
+                childB = Arrays.copyOf(childB, cap);
+            }
+            int id = edgeCount++;
+            from[id] = u;
+            to[id] = v;
+            weight[id] = w;
+            kind[id] = k;
+            code[id] = c;
+            childA[id] = a;
+            childB[id] = b;
+            out[u].add(id);
+            in[v].add(id);
+            return id;
+        }
+
+        /**
+         * 축약 순서를 정해 shortcut을 추가하고, 노드별 rank를 돌려준다.
+         */
+        int[] contract(ForkJoinPool pool) throws Exception {
+            // (1) 초기 우선순위: 노드별 모의 축약은 서로 독립이므로 병렬 계산
+            double[] prio = new double[nodeCount];
+            pool.submit(() -> IntStream.range(0, nodeCount).parallel().forEach(v -> prio[v] = priority(v))).get();
+
+            IndexedMinHeap queue = new IndexedMinHeap(nodeCount);
+            for (int v = 0; v < nodeCount; v++) queue.offer(v, prio[v]);
+
+            // (2) lazy update: 꺼낸 노드의 우선순위를 다시 계산해 여전히 최소일 때만 축약
+            int[] rank = new int[nodeCount];
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                double p = priority(v);
+                if (!queue.isEmpty() && p > queue.peekKey()) {
+                    queue.offer(v, p);
+                    continue;
+                }
+
+                contractNode(v, false);
+                contracted[v] = true;
+                rank[v] = order++;
+                detach(v, queue);
+            }
+            return rank;
+        }
+
+        /**
+         * 정해진 순서(노드별 rank)대로 축약한다. 우선순위 계산을 하지 않는다.
+         */
+        int[] contractInOrder(int[] rank) {
+            int[] byRank = new int[nodeCount];
+            for (int v = 0; v < nodeCount; v++) byRank[rank[v]] = v;
+
+            for (int r = 0; r < nodeCount; r++) {
+                int v = byRank[r];
+                contractNode(v, false);
+                contracted[v] = true;
+                detach(v, null);
+            }
+            return rank;
+        }
+
+        // 남은 이웃의 인접 목록에서 v 간선을 빼고(이후 탐색이 짧아진다) 축약된 이웃 수 항만 올린다.
+        // (shortcut 수 재계산은 꺼낼 때 lazy update로 처리 - 이웃마다 모의 축약을 돌리면 빌드가 10배 이상 느려진다)
+        private void detach(int v, IndexedMinHeap queue) {
+            IntList o = out[v];
+            for (int i = 0; i < o.size; i++) {
+                int w = to[o.data[i]];
+                if (!contracted[w] && in[w].removeIf(this, v, false)) {
+                    deletedNeighbors[w]++;
+                    if (queue != null) queue.update(w, queue.key(w) + 1);
+                }
+            }
+            IntList ii = in[v];
+            for (int i = 0; i < ii.size; i++) {
+                int u = from[ii.data[i]];
+                if (!contracted[u] && out[u].removeIf(this, v, true)) {
+                    deletedNeighbors[u]++;
+                    if (queue != null) queue.update(u, queue.key(u) + 1);
+                }
+            }
+        }
+
+        // 우선순위 = (추가될 shortcut 수 - 없어질 간선 수) + 이미 축약된 이웃 수
+        private double priority(int v) {
+            int removed = activeDegree(out[v], true) + activeDegree(in[v], false);
+            int added = contractNode(v, true);
+            return (added - removed) + deletedNeighbors[v];
+        }
+
+        private int activeDegree(IntList list, boolean outgoing) {
+            int c = 0;
+            for (int i = 0; i < list.size; i++) {
+                int e = list.data[i];
+                if (!contracted[outgoing ? to[e] : from[e]]) c++;
+            }
+            return c;
+        }
+
+        /**
+         * v를 축약한다. simulate면 필요한 shortcut 수만 센다.
+         */
+        private int contractNode(int v, boolean simulate) {
+            WitnessSearch ws = witness.get();
+            int count = 0;
+
+            IntList ins = in[v];
+            IntList outs = out[v];
+            for (int i = 0; i < ins.size; i++) {
+                int ea = ins.data[i];
+                int u = from[ea];
+                if (contracted[u] || u == v) continue;
+
+                double maxW = -1;
+                for (int j = 0; j < outs.size; j++) {
+                    int eb = outs.data[j];
+                    int w = to[eb];
+                    if (contracted[w] || w == u || w == v) continue;
+                    maxW = Math.max(maxW, weight[ea] + weight[eb]);
+                }
+                if (maxW < 0) continue;
+
+                ws.run(this, u, v, maxW);
+                for (int j = 0; j < outs.size; j++) {
+                    int eb = outs.data[j];
+                    int w = to[eb];
+                    if (contracted[w] || w == u || w == v) continue;
+                    double cand = weight[ea] + weight[eb];
+                    if (ws.dist(w) <= cand) continue; // 위트니스 경로 있음
+
+                    count++;
+                    if (!simulate) {
+                        addEdge(u, w, cand, KIND_SHORTCUT, -1, ea, eb);
+                        ws.lower(w, cand); // 같은 (u, w)에 대해 더 긴 shortcut이 중복되지 않도록
+                    }
+                }
+                ws.reset();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 위트니스 탐색: u에서 v를 거치지 않고 maxW 이내로 갈 수 있는 노드까지의 거리
+     */
+    private static final class WitnessSearch {
+        final double[] dist;
+        final int[] touched;
+        int touchedCount = 0;
+        final IndexedMinHeap heap;
+
+        WitnessSearch(int n) {
+            dist = new double[n];
+            Arrays.fill(dist, INF);
+            touched = new int[n];
+            heap = new IndexedMinHeap(n);
+        }
+
+        void run(Builder b, int source, int excluded, double maxW) {
+            set(source, 0.0);
+            heap.offer(source, 0.0);
+            int settled = 0;
+            while (!heap.isEmpty()) {
+                if (heap.peekKey() > maxW || settled++ >= WITNESS_SETTLE_LIMIT) break;
+                int x = heap.poll();
+                double dx = dist[x];
+                IntList o = b.out[x];
+                for (int i = 0; i < o.size; i++) {
+                    int e = o.data[i];
+                    int y = b.to[e];
+                    if (y == excluded || b.contracted[y]) continue;
+                    double nd = dx + b.weight[e];
+                    if (nd < dist[y]) {
+                        set(y, nd);
+                        heap.offer(y, nd);
+                    }
+                }
+            }
+            heap.clear();
+        }
+
+        double dist(int v) {
+            return dist[v];
+        }
+
+        void lower(int v, double d) {
+            if (d < dist[v]) set(v, d);
+        }
+
+        private void set(int v, double d) {
+            if (dist[v] == INF) touched[touchedCount++] = v;
+            dist[v] = d;
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) dist[touched[i]] = INF;
+            touchedCount = 0;
+        }
+    }
+
+    /**
+     * 가변 int 배열
+     */
+    static final class IntList {
+        int[] data = new int[4];
+        int size = 0;
+
+        void add(int x) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = x;
+        }
+
+        int pop() {
+            return data[--size];
+        }
+
+        // 상대 노드가 x인 간선을 모두 뺀다(outgoing이면 도착 노드, 아니면 출발 노드 기준). 뺐으면 true
+        boolean removeIf(Builder b, int x, boolean outgoing) {
+            int k = 0;
+            for (int i = 0; i < size; i++) {
+                int e = data[i];
+                if ((outgoing ? b.to[e] : b.from[e]) != x) data[k++] = e;
+            }
+            boolean removed = k < size;
+            size = k;
+            return removed;
+        }
+
+        void reverse() {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int t = data[i];
+                data[i] = data[j];
+                data[j] = t;
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,143 @@
+// 추가됨: 노드 번호 기반 인덱스 최소 힙(decrease-key 지원) - CH 전처리/질의에서 공용으로 사용
+
+package com.example.demo.service.path.impl;
+
+import java.util.Arrays;
+
+/**
+ * 인덱스 최소 힙
+ *
+ * - 원소는 0..capacity-1 정수(노드 번호), 키는 double
+ * - 같은 원소를 다시 넣으면 키가 더 작을 때만 위치를 올린다(decrease-key).
+ * - clear()는 힙에 남은 원소만 되돌리므로 재사용 비용이 작다.
+ */
+final class IndexedMinHeap {
+
+    private int[] heap;
+    private int[] pos;     // 원소 -> 힙 위치 (-1: 힙에 없음)
+    private double[] key;
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[Math.max(1, capacity)];
+        pos = new int[Math.max(1, capacity)];
+        key = new double[Math.max(1, capacity)];
+        Arrays.fill(pos, -1);
+    }
+
+    void ensureCapacity(int capacity) {
+        if (pos.length >= capacity) return;
+        int old = pos.length;
+        heap = Arrays.copyOf(heap, capacity);
+        pos = Arrays.copyOf(pos, capacity);
+        key = Arrays.copyOf(key, capacity);
+        Arrays.fill(pos, old, capacity, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double peekKey() {
+        return key[heap[0]];
+    }
+
+    int peek() {
+        return heap[0];
+    }
+
+    double key(int x) {
+        return key[x];
+    }
+
+    boolean contains(int x) {
+        return pos[x] >= 0;
+    }
+
+    /**
+     * 넣거나, 이미 있으면 키가 더 작을 때만 갱신한다.
+     */
+    void offer(int x, double k) {
+        int p = pos[x];
+        if (p >= 0) {
+            if (k >= key[x]) return;
+            key[x] = k;
+            siftUp(p);
+            return;
+        }
+        key[x] = k;
+        heap[size] = x;
+        pos[x] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * 키를 무조건 바꾼다(커질 수도 있음). CH 노드 우선순위 갱신용
+     */
+    void update(int x, double k) {
+        if (pos[x] < 0) {
+            offer(x, k);
+            return;
+        }
+        double old = key[x];
+        key[x] = k;
+        if (k < old) siftUp(pos[x]);
+        else siftDown(pos[x]);
+    }
+
+    int poll() {
+        int top = heap[0];
+        pos[top] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            pos[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int p) {
+        int x = heap[p];
+        double k = key[x];
+        while (p > 0) {
+            int parent = (p - 1) >>> 1;
+            int px = heap[parent];
+            if (key[px] <= k) break;
+            heap[p] = px;
+            pos[px] = p;
+            p = parent;
+        }
+        heap[p] = x;
+        pos[x] = p;
+    }
+
+    private void siftDown(int p) {
+        int x = heap[p];
+        double k = key[x];
+        int half = size >>> 1;
+        while (p < half) {
+            int c = 2 * p + 1;
+            int r = c + 1;
+            if (r < size && key[heap[r]] < key[heap[c]]) c = r;
+            int cx = heap[c];
+            if (k <= key[cx]) break;
+            heap[p] = cx;
+            pos[cx] = p;
+            p = c;
+        }
+        heap[p] = x;
+        pos[x] = p;
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,232 @@
+// 추가됨: 실시간 지연 오버레이 - segment_weight 평균 소요시간 위에 간선별 지연(분)을 얹는다.
+//        - 수집기가 도착정보 차이로 얻은 최신 구간 소요시간 샘플을 받아 간선별 지연을 갱신하고, 시간이 지나면 0(평균)으로 감쇠시킨다.
+//        - 지연은 스냅샷 간선 번호와 같은 위치의 float 배열에 두고, 탐색은 잠금 없이 그대로 읽는다(스냅샷 재빌드 없음).
+
+package com.example.demo.service.path.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 간선별 실시간 지연 오버레이
+ *
+ * - 읽기: delaysFor(snapshot) 가 돌려준 배열 delay[e] (분, 0 이상)를 탐색이 간선 소요시간에 더한다.
+ *   float 쓰기는 원자적이므로 잠금 없이 읽으며, 탐색 도중 값이 바뀌어도 그 간선 하나의 값만 달라진다.
+ * - 쓰기: 샘플 반영(onSample)과 감쇠(decay 주기)만 이 객체로 동기화한다(읽는 쪽은 막지 않는다).
+ * - 평균보다 빠른 샘플은 0으로 둔다. 간선 비용이 평균 이하로 내려가지 않으므로
+ *   목표 지향(A*) 하한(직선거리 / 최대 속도)이 그대로 유효하다.
+ * - 스냅샷이 교체되면 같은 (노선, 방향, 출발, 도착) 간선의 지연을 새 간선 번호로 옮긴다.
+ */
+@Component
+public class LiveDelayOverlay {
+
+    @Autowired
+    private TransitGraphHolder transitGraphHolder;
+
+    // false면 샘플을 받지 않고 탐색에도 지연을 더하지 않는다.
+    @Value("${path.live-delay.enabled:true}")
+    private boolean enabled;
+
+    // 새 샘플 반영 비율(EWMA): 지연 = alpha x 샘플 지연 + (1 - alpha) x 기존 지연
+    @Value("${path.live-delay.alpha:0.5}")
+    private double alpha;
+
+    // 지연 반감기(초): 샘플이 없으면 이 시간마다 절반으로 줄어든다.
+    @Value("${path.live-delay.half-life-sec:900}")
+    private double halfLifeSec;
+
+    // 감쇠 주기(ms)
+    @Value("${path.live-delay.decay-interval-ms:60000}")
+    private long decayIntervalMs;
+
+    // 간선 1개 지연 상한(분)
+    @Value("${path.live-delay.max-delay-min:30}")
+    private double maxDelayMin;
+
+    // 이 값(분)보다 작아지면 0으로 지운다.
+    private static final float MIN_DELAY_MIN = 0.05f;
+
+    /**
+     * 스냅샷 1개에 대한 지연 배열 + BUS 간선 조회표 + 지연이 있는 간선 목록
+     */
+    private static final class Layer {
+        final TransitGraphSnapshot snapshot;
+        final float[] delay;
+        final Map<String, Integer> busEdgeIndex;
+        int[] active = new int[16];
+        int activeCount = 0;
+        final boolean[] isActive;
+
+        Layer(TransitGraphSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.delay = new float[snapshot.edgeCount];
+            this.isActive = new boolean[snapshot.edgeCount];
+            this.busEdgeIndex = new HashMap<>();
+            for (int e = 0; e < snapshot.edgeCount; e++) {
+                if (snapshot.edgeMode[e] != TransitGraphSnapshot.MODE_BUS) continue;
+                busEdgeIndex.put(edgeKey(snapshot, e), e);
+            }
+        }
+
+        void activate(int e) {
+            if (isActive[e]) return;
+            if (activeCount == active.length) {
+                active = Arrays.copyOf(active, active.length * 2);
+            }
+            active[activeCount++] = e;
+            isActive[e] = true;
+        }
+    }
+
+    private volatile Layer layer;
+
+    // 감쇠 주기마다 1 증가 (결과 캐시 키용)
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong unmatched = new AtomicLong();
+
+    private final ScheduledExecutorService decayer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "path-live-delay-decay");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+
+        layer = new Layer(transitGraphHolder.current());
+        transitGraphHolder.addSwapListener(this::onSnapshotSwap);
+
+        long interval = Math.max(1000L, decayIntervalMs);
+        decayer.scheduleWithFixedDelay(() -> {
+            try {
+                decay(interval);
+            } catch (Exception e) {
+                System.out.println("[PATH][DELAY][ERROR] decay msg=" + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 탐색용 지연 배열 (분). 오버레이가 꺼져 있거나 다른 스냅샷이면 null
+     */
+    float[] delaysFor(TransitGraphSnapshot snapshot) {
+        Layer l = layer;
+        return (l != null && l.snapshot == snapshot && l.activeCount > 0) ? l.delay : null;
+    }
+
+    /**
+     * 감쇠 주기 번호 (지연 반영 결과를 캐시할 때 키에 넣는다)
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * 수집기의 최신 구간 소요시간 샘플(도착정보 차이)을 반영한다.
+     *
+     * @param travelSec 관측 소요시간(초)
+     */
+    public void onSample(String routeId, int updowncd, String fromId, String toId, int travelSec) {
+        if (!enabled || travelSec <= 0) return;
+        Layer l = layer;
+        if (l == null) return;
+
+        Integer e = l.busEdgeIndex.get(routeId + "|" + updowncd + "|" + fromId + "|" + toId);
+        if (e == null) {
+            unmatched.incrementAndGet();
+            return;
+        }
+        samples.incrementAndGet();
+
+        double observed = travelSec / 60.0 - Math.max(0.0, l.snapshot.edgeMinutes[e]);
+        synchronized (this) {
+            if (l != layer) return; // 그 사이 스냅샷 교체
+            double next = alpha * Math.max(0.0, observed) + (1.0 - alpha) * l.delay[e];
+            next = Math.min(maxDelayMin, next);
+            l.delay[e] = (next < MIN_DELAY_MIN) ? 0f : (float) next;
+            if (l.delay[e] > 0f) l.activate(e);
+        }
+    }
+
+    /**
+     * 오버레이 상태 (activeEdges / samples / unmatched / generation)
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new HashMap<>();
+        Layer l = layer;
+        out.put("enabled", enabled);
+        out.put("activeEdges", (l == null) ? 0 : l.activeCount);
+        out.put("samples", samples.get());
+        out.put("unmatched", unmatched.get());
+        out.put("generation", generation.get());
+        out.put("graphVersion", (l == null) ? null : l.snapshot.getVersion());
+        return out;
+    }
+
+    // 지연이 있는 간선만 반감기에 맞춰 줄이고, 충분히 작아지면 목록에서 뺀다.
+    private synchronized void decay(long elapsedMs) {
+        Layer l = layer;
+        if (l == null) return;
+
+        double factor = Math.pow(0.5, (elapsedMs / 1000.0) / Math.max(1.0, halfLifeSec));
+        int kept = 0;
+        for (int i = 0; i < l.activeCount; i++) {
+            int e = l.active[i];
+            float next = (float) (l.delay[e] * factor);
+            if (next < MIN_DELAY_MIN) {
+                l.delay[e] = 0f;
+                l.isActive[e] = false;
+            } else {
+                l.delay[e] = next;
+                l.active[kept++] = e;
+            }
+        }
+        l.activeCount = kept;
+        generation.incrementAndGet();
+    }
+
+    // 새 스냅샷용 배열을 만들고 같은 간선의 지연을 옮긴다.
+    private synchronized void onSnapshotSwap(TransitGraphSnapshot next) {
+        Layer old = layer;
+        Layer fresh = new Layer(next);
+        if (old != null) {
+            for (int i = 0; i < old.activeCount; i++) {
+                int e = old.active[i];
+                Integer ne = fresh.busEdgeIndex.get(edgeKey(old.snapshot, e));
+                if (ne == null) continue;
+                fresh.delay[ne] = old.delay[e];
+                fresh.activate(ne);
+            }
+        }
+        layer = fresh;
+        generation.incrementAndGet();
+    }
+
+    private static String edgeKey(TransitGraphSnapshot g, int e) {
+        return g.routeIds[g.edgeRoute[e]] + "|" + g.edgeDir[e] + "|" + g.nodeIds[g.edgeSource[e]] + "|" + g.nodeIds[g.edgeTarget[e]];
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            decayer.shutdownNow();
+        } catch (Exception ignore) {
+        }
+    }
+}
+
+// 추가됨 끝
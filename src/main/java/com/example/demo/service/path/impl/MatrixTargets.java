@@ -0,0 +1,93 @@
+// 추가됨: 다대다 소요시간 행렬용 도착지 집합 - 정류장 → (도착지 번호, 도보 분) 역인덱스
+//        - 도착지 스냅은 요청당 한 번만 만들고, 출발지별 탐색(스레드 여러 개)이 함께 읽는다(불변).
+// 수정됨: 도착지 그룹(buildGroups) - 여러 지점을 도착지 번호 하나로 묶어 "그룹 안 가장 가까운 곳"까지의 시간을 구한다(접근성 히트맵).
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 도착지 집합 (불변)
+ *
+ * - 노드 v에서 걸어갈 수 있는 도착지는 destOf[nodeStart[v] .. nodeStart[v+1]) 이고,
+ *   그 도보 시간(분)은 같은 위치의 walkMinutes 이다.
+ * - 각 도착지의 스냅 규칙(반경/최대 후보 수)은 /api/path/solve의 도착 스냅과 같다.
+ */
+final class MatrixTargets {
+
+    final int count;
+    final int[] nodeStart;
+    final int[] destOf;
+    final double[] walkMinutes;
+
+    private MatrixTargets(int count, int[] nodeStart, int[] destOf, double[] walkMinutes) {
+        this.count = count;
+        this.nodeStart = nodeStart;
+        this.destOf = destOf;
+        this.walkMinutes = walkMinutes;
+    }
+
+    /**
+     * @param points 도착지 좌표 목록({lat, lng})
+     */
+    static MatrixTargets build(TransitGraphSnapshot g, List<double[]> points, double snapRadiusM, int maxCandidates) {
+        int[] groupOf = new int[points.size()];
+        for (int j = 0; j < groupOf.length; j++) groupOf[j] = j;
+        return build(g, points, groupOf, points.size(), snapRadiusM, maxCandidates);
+    }
+
+    /**
+     * 그룹 하나 = 도착지 번호 하나. 그룹 안 어느 지점에 먼저 닿든 그 그룹에 도착한 것으로 본다.
+     *
+     * @param groups 그룹별 좌표 목록({lat, lng})
+     */
+    static MatrixTargets buildGroups(TransitGraphSnapshot g, List<List<double[]>> groups, double snapRadiusM, int maxCandidates) {
+        List<double[]> points = new ArrayList<>();
+        List<Integer> owner = new ArrayList<>();
+        for (int k = 0; k < groups.size(); k++) {
+            for (double[] p : groups.get(k)) {
+                points.add(p);
+                owner.add(k);
+            }
+        }
+        int[] groupOf = new int[points.size()];
+        for (int j = 0; j < groupOf.length; j++) groupOf[j] = owner.get(j);
+        return build(g, points, groupOf, groups.size(), snapRadiusM, maxCandidates);
+    }
+
+    private static MatrixTargets build(TransitGraphSnapshot g, List<double[]> points, int[] groupOf, int count,
+                                       double snapRadiusM, int maxCandidates) {
+        int n = g.nodeCount;
+        int m = points.size();
+
+        StopGridIndex.Hits[] hits = new StopGridIndex.Hits[m];
+        int[] nodeStart = new int[n + 1];
+        for (int j = 0; j < m; j++) {
+            double[] p = points.get(j);
+            hits[j] = SnapEdges.collect(g, p[0], p[1], snapRadiusM, maxCandidates);
+            for (int i = 0; i < hits[j].count; i++) {
+                nodeStart[hits[j].nodes[i] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            nodeStart[v + 1] += nodeStart[v];
+        }
+
+        int total = nodeStart[n];
+        int[] destOf = new int[total];
+        double[] walk = new double[total];
+        int[] cursor = new int[n];
+        System.arraycopy(nodeStart, 0, cursor, 0, n);
+        for (int j = 0; j < m; j++) {
+            for (int i = 0; i < hits[j].count; i++) {
+                int pos = cursor[hits[j].nodes[i]]++;
+                destOf[pos] = groupOf[j];
+                walk[pos] = PathGeo.metersToWalkMinutes(hits[j].meters[i]);
+            }
+        }
+        return new MatrixTargets(count, nodeStart, destOf, walk);
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,270 @@
+// 추가됨: 다대다 소요시간 행렬 서비스
+//        - 도착지 스냅/역인덱스(MatrixTargets)는 요청당 한 번만 만들고, 출발지마다 일대다 탐색 1회로 한 행을 채운다.
+//        - 출발지별 탐색은 크기가 제한된 ForkJoinPool(path.matrix.parallelism)에서 병렬로 실행한다.
+// 수정됨: 등시선(isochrone) 추가
+//        - 시간 예산에서 멈추는 일대전체 탐색 1회로 도달 정류장을 구하고, 선택 시 남은 시간만큼 걸어서 닿는 격자 칸을 만든다.
+// 수정됨: 행렬/등시선 응답에 실제로 쓴 환승 횟수(effectiveTransfers)를 함께 돌려준다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.service.path.IPathAnalysisService;
+
+@Service
+public class PathAnalysisServiceImpl implements IPathAnalysisService {
+
+    @Autowired
+    private TransitGraphHolder transitGraphHolder;
+
+    // 출발/도착 각각 스냅할 최대 정류장 수(경로 엔진과 같은 설정)
+    @Value("${path.snap.max-candidates:40}")
+    private int snapMaxCandidates;
+
+    // 승차 횟수 상한(경로 엔진과 같은 설정)
+    @Value("${path.search.max-rides-cap:8}")
+    private int maxRidesCap;
+
+    // 행렬 계산 병렬도(0 이하: CPU 코어 수)
+    @Value("${path.matrix.parallelism:0}")
+    private int parallelism;
+
+    // 요청 1건의 최대 칸 수(출발지 수 x 도착지 수)
+    @Value("${path.matrix.max-cells:2500}")
+    private int maxCells;
+
+    // 등시선 시간 예산 상한(분)
+    @Value("${path.isochrone.max-minutes:120}")
+    private double isochroneMaxMinutes;
+
+    // 등시선 격자 한 변 최솟값(m)
+    private static final double MIN_CELL_M = 50.0;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        int p = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(Math.max(1, p));
+    }
+
+    @Override
+    public Map<String, Object> matrix(List<double[]> origins, List<double[]> destinations, double snapRadiusM, int maxTransfers) {
+        long t0 = System.currentTimeMillis();
+        TransitGraphSnapshot snapshot = transitGraphHolder.current();
+
+        Map<String, Object> out = new HashMap<>();
+        out.put("origins", (origins == null) ? 0 : origins.size());
+        out.put("destinations", (destinations == null) ? 0 : destinations.size());
+        out.put("requestedTransfers", maxTransfers);
+        out.put("effectiveTransfers", PathServiceImpl.effectiveTransfers(maxTransfers, maxRidesCap));
+        out.put("graphVersion", snapshot.getVersion());
+
+        if (origins == null || destinations == null || origins.isEmpty() || destinations.isEmpty()) {
+            out.put("reason", "INVALID_POINTS");
+            return out;
+        }
+        if ((long) origins.size() * destinations.size() > maxCells) {
+            out.put("reason", "TOO_MANY_CELLS");
+            out.put("maxCells", maxCells);
+            return out;
+        }
+
+        int maxRides = PathServiceImpl.clampMaxRides(maxTransfers, maxRidesCap);
+        MatrixTargets targets = MatrixTargets.build(snapshot, destinations, snapRadiusM, snapMaxCandidates);
+
+        int rows = origins.size();
+        int cols = destinations.size();
+        double[][] minutes = new double[rows][cols];
+        int[][] rides = new int[rows][cols];
+        int[] expanded = new int[rows];
+
+        // 출발지별 탐색(스레드마다 작업 배열을 따로 쓰므로 서로 간섭하지 않는다)
+        try {
+            pool.submit(() -> IntStream.range(0, rows).parallel().forEach(i -> {
+                double[] o = origins.get(i);
+                StopGridIndex.Hits start = SnapEdges.collect(snapshot, o[0], o[1], snapRadiusM, snapMaxCandidates);
+                double[] startMin = new double[start.count];
+                for (int k = 0; k < start.count; k++) {
+                    startMin[k] = PathGeo.metersToWalkMinutes(start.meters[k]);
+                }
+                expanded[i] = TransitSearchEngine.searchOneToMany(snapshot,
+                    Arrays.copyOf(start.nodes, start.count), startMin, targets,
+                    maxRides, PathResultBuilder.TRANSFER_PENALTY_MIN, minutes[i], rides[i]);
+            })).get();
+        } catch (Exception e) {
+            System.out.println("[PATH][MATRIX][ERROR] msg=" + e.getMessage());
+            out.put("reason", "ERROR");
+            return out;
+        }
+
+        List<List<Double>> minutesOut = new ArrayList<>(rows);
+        List<List<Integer>> ridesOut = new ArrayList<>(rows);
+        long expandedTotal = 0;
+        for (int i = 0; i < rows; i++) {
+            List<Double> mRow = new ArrayList<>(cols);
+            List<Integer> rRow = new ArrayList<>(cols);
+            for (int j = 0; j < cols; j++) {
+                boolean reachable = minutes[i][j] != Double.POSITIVE_INFINITY;
+                mRow.add(reachable ? minutes[i][j] : null);
+                rRow.add(reachable ? rides[i][j] : null);
+            }
+            minutesOut.add(mRow);
+            ridesOut.add(rRow);
+            expandedTotal += expanded[i];
+        }
+
+        out.put("minutes", minutesOut);
+        out.put("rides", ridesOut);
+        out.put("expandedStates", expandedTotal);
+        out.put("elapsedMs", System.currentTimeMillis() - t0);
+        return out;
+    }
+
+    @Override
+    public Map<String, Object> isochrone(double lat, double lng, double minutes, double snapRadiusM, int maxTransfers, double cellM) {
+        long t0 = System.currentTimeMillis();
+        TransitGraphSnapshot snapshot = transitGraphHolder.current();
+
+        Map<String, Object> out = new HashMap<>();
+        out.put("minutes", minutes);
+        out.put("requestedTransfers", maxTransfers);
+        out.put("effectiveTransfers", PathServiceImpl.effectiveTransfers(maxTransfers, maxRidesCap));
+        out.put("graphVersion", snapshot.getVersion());
+
+        if (!(minutes > 0) || minutes > isochroneMaxMinutes) {
+            out.put("reason", "INVALID_BUDGET");
+            out.put("maxMinutes", isochroneMaxMinutes);
+            return out;
+        }
+
+        int maxRides = PathServiceImpl.clampMaxRides(maxTransfers, maxRidesCap);
+        StopGridIndex.Hits start = SnapEdges.collect(snapshot, lat, lng, snapRadiusM, snapMaxCandidates);
+        double[] startMin = new double[start.count];
+        for (int k = 0; k < start.count; k++) {
+            startMin[k] = PathGeo.metersToWalkMinutes(start.meters[k]);
+        }
+
+        CellSet cells = (cellM > 0) ? new CellSet(lat, lng, Math.max(MIN_CELL_M, cellM)) : null;
+        if (cells != null) {
+            // 출발지에서 바로 걸어서 닿는 범위
+            cells.cover(lat, lng, walkMeters(minutes, snapRadiusM));
+        }
+
+        List<Map<String, Object>> stops = new ArrayList<>();
+        int expanded = TransitSearchEngine.searchWithinBudget(snapshot,
+            Arrays.copyOf(start.nodes, start.count), startMin,
+            maxRides, PathResultBuilder.TRANSFER_PENALTY_MIN, minutes,
+            (node, t, rides) -> {
+                Map<String, Object> stop = new HashMap<>();
+                stop.put("nodeId", snapshot.nodeIds[node]);
+                stop.put("name", snapshot.nodeNames[node]);
+                stop.put("lat", snapshot.nodeLat[node]);
+                stop.put("lng", snapshot.nodeLng[node]);
+                stop.put("minutes", t);
+                stop.put("rides", rides);
+                stops.add(stop);
+
+                if (cells != null) {
+                    cells.cover(snapshot.nodeLat[node], snapshot.nodeLng[node], walkMeters(minutes - t, snapRadiusM));
+                }
+            });
+
+        out.put("stops", stops);
+        if (cells != null) {
+            Map<String, Object> grid = new HashMap<>();
+            grid.put("cellM", cells.cellM);
+            grid.put("cells", cells.toBoxes());
+            out.put("grid", grid);
+        }
+        out.put("expandedStates", expanded);
+        out.put("elapsedMs", System.currentTimeMillis() - t0);
+        return out;
+    }
+
+    // 남은 시간(분) 동안 걸을 수 있는 거리(m), 스냅 반경을 넘지 않는다.
+    private static double walkMeters(double remainingMinutes, double snapRadiusM) {
+        return Math.min(snapRadiusM, Math.max(0.0, remainingMinutes) * 60.0 * PathGeo.WALK_SPEED_MPS);
+    }
+
+    /**
+     * 등시선 격자 (출발지 기준 등간격 위경도 칸)
+     *
+     * - 칸 중심이 원(중심, 반경) 안에 들면 도달 칸으로 표시한다.
+     * - 표시된 칸만 (행, 열) long 키로 보관한다.
+     */
+    private static final class CellSet {
+        private static final double METERS_PER_DEG_LAT = 111320.0;
+
+        final double cellM;
+        final double lat0;
+        final double lng0;
+        final double dLat;
+        final double dLng;
+        final HashSet<Long> keys = new HashSet<>();
+
+        CellSet(double lat0, double lng0, double cellM) {
+            this.cellM = cellM;
+            this.lat0 = lat0;
+            this.lng0 = lng0;
+            this.dLat = cellM / METERS_PER_DEG_LAT;
+            this.dLng = cellM / (METERS_PER_DEG_LAT * Math.cos(Math.toRadians(lat0)));
+        }
+
+        void cover(double lat, double lng, double radiusM) {
+            if (radiusM <= 0) return;
+            int rLo = (int) Math.floor((lat - radiusM / METERS_PER_DEG_LAT - lat0) / dLat);
+            int rHi = (int) Math.floor((lat + radiusM / METERS_PER_DEG_LAT - lat0) / dLat);
+            double lngSpan = radiusM / (METERS_PER_DEG_LAT * Math.cos(Math.toRadians(lat)));
+            int cLo = (int) Math.floor((lng - lngSpan - lng0) / dLng);
+            int cHi = (int) Math.floor((lng + lngSpan - lng0) / dLng);
+
+            for (int r = rLo; r <= rHi; r++) {
+                double cLat = lat0 + (r + 0.5) * dLat;
+                for (int c = cLo; c <= cHi; c++) {
+                    double cLng = lng0 + (c + 0.5) * dLng;
+                    if (PathGeo.haversineMeters(lat, lng, cLat, cLng) <= radiusM) {
+                        keys.add(((long) r << 32) | (c & 0xffffffffL));
+                    }
+                }
+            }
+        }
+
+        // [south, west, north, east] 목록
+        List<double[]> toBoxes() {
+            List<double[]> boxes = new ArrayList<>(keys.size());
+            for (long k : keys) {
+                int r = (int) (k >> 32);
+                int c = (int) k;
+                double south = lat0 + r * dLat;
+                double west = lng0 + c * dLng;
+                boxes.add(new double[] { south, west, south + dLat, west + dLng });
+            }
+            return boxes;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            if (pool != null) pool.shutdownNow();
+        } catch (Exception ignore) {
+        }
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,25 @@
+// 추가됨: 탐색 엔진 공통 결과(승차 횟수별 후보 경로) - 응답 조립은 PathResultBuilder가 담당
+
+package com.example.demo.service.path.impl;
+
+/**
+ * 승차 횟수별 후보 경로 1개
+ *
+ * - rides        : 승차 횟수(환승 수 = rides - 1)
+ * - totalMinutes : 환승 페널티를 포함한 총 소요시간(분)
+ * - edgeCodes    : START -> END 순서의 간선 코드(CSR 간선 번호 또는 SnapEdges 코드)
+ */
+final class PathCandidate {
+
+    final int rides;
+    final double totalMinutes;
+    final int[] edgeCodes;
+
+    PathCandidate(int rides, double totalMinutes, int[] edgeCodes) {
+        this.rides = rides;
+        this.totalMinutes = totalMinutes;
+        this.edgeCodes = edgeCodes;
+    }
+}
+
+// 추가됨 끝
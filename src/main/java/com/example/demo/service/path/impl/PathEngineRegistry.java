@@ -0,0 +1,348 @@
+// 추가됨: 경로 엔진 레지스트리 + 섀도 실행
+//        - 등록된 IPathService 구현(dijkstra / raptor / ch ...)을 이름으로 찾고, 기본 엔진(path.engine.default)을 정한다.
+//        - 실제 계산이 일어난 solve 요청의 일부(path.shadow.sample-rate)를 섀도 엔진으로 비동기 재계산해
+//          totalMinutes / 후보별 환승 횟수 / 지연시간을 기본 엔진과 비교하고 불일치를 기록한다.
+// 수정됨: 응답 형식(format)을 그대로 넘긴다(섀도도 같은 형식으로 계산, 비교 항목은 형식과 무관).
+// 수정됨: 출발 시간대(departHour)를 넘긴다. 시간대 지정 요청은 엔진마다 반영 여부가 달라 섀도 비교에서 뺀다.
+// 수정됨: 최단 경로 1개만 내는 엔진 결과(bestOnly=true, 예: ch)는 CANDIDATES를 비교하지 않는다(totalMinutes만 비교).
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.service.path.IPathService;
+
+/**
+ * 경로 엔진 레지스트리
+ *
+ * 섀도 실행
+ * - 기본 엔진이 실제로 계산한 요청(캐시 HIT 제외)만 섀도 엔진으로 보낸다.
+ *   기본 엔진이 계산한 것과 같은 좌표를 쓰므로 두 결과를 그대로 비교할 수 있다.
+ * - 섀도 계산은 전용 스레드 + 크기 제한 큐에서 돌고, 큐가 차면 버린다(dropped). 응답 지연에는 영향이 없다.
+ * - 그래프 버전이 다르거나 실시간 지연 반영 여부가 다르면(한쪽 엔진만 지원) 비교하지 않는다(skipped).
+ * - 불일치 종류: REACHABILITY(한쪽만 경로 없음) / TOTAL_MINUTES / CANDIDATES(환승 횟수별 후보 시간)
+ *   한쪽 결과가 bestOnly(후보 1개만 내는 엔진, 예: ch)이면 후보 수가 원래 다르므로 CANDIDATES는 보지 않는다.
+ */
+@Component
+public class PathEngineRegistry {
+
+    // 지연시간 통계용 최근 표본 수(엔진별)
+    private static final int LATENCY_WINDOW = 1024;
+
+    @Autowired
+    private List<IPathService> pathServices;
+
+    @Autowired // 이름을 못 찾을 때 쓰는 기본 구현(@Primary)
+    private IPathService primaryService;
+
+    // engine 파라미터가 없을 때 사용할 엔진 이름
+    @Value("${path.engine.default:dijkstra}")
+    private String defaultEngine;
+
+    // 섀도 엔진 이름. 비우면 섀도 실행 안 함
+    @Value("${path.shadow.engine:}")
+    private String shadowEngine;
+
+    // 실제 계산된 요청 중 섀도로 보낼 비율(0.0 ~ 1.0)
+    @Value("${path.shadow.sample-rate:0.0}")
+    private double sampleRate;
+
+    // 섀도 대기 큐 크기(가득 차면 버림)
+    @Value("${path.shadow.queue-capacity:64}")
+    private int queueCapacity;
+
+    // totalMinutes 차이 허용치(분)
+    @Value("${path.shadow.tolerance-min:0.01}")
+    private double toleranceMin;
+
+    // 보관할 최근 불일치 사례 수
+    @Value("${path.shadow.max-divergences:50}")
+    private int maxDivergences;
+
+    private final Map<String, IPathService> engines = new LinkedHashMap<>();
+
+    private ThreadPoolExecutor shadowExecutor;
+
+    private final AtomicLong mirrored = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong compared = new AtomicLong();
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong diverged = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    // 종류별 불일치 수
+    private final Map<String, Long> divergenceKinds = new TreeMap<>();
+
+    // 최근 불일치 사례 (divergenceKinds와 함께 이 객체로 동기화)
+    private final ArrayDeque<Map<String, Object>> recentDivergences = new ArrayDeque<>();
+
+    // 엔진 이름 -> 최근 계산 지연시간(ns)
+    private final Map<String, LatencyWindow> latencies = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (IPathService s : pathServices) {
+            engines.put(s.getEngineName().toLowerCase(), s);
+            latencies.put(s.getEngineName().toLowerCase(), new LatencyWindow());
+        }
+
+        shadowExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            r -> {
+                Thread t = new Thread(r, "path-shadow");
+                t.setDaemon(true);
+                return t;
+            },
+            (r, ex) -> dropped.incrementAndGet());
+
+        System.out.println("[PATH][ENGINE] registered=" + engines.keySet() + " default=" + defaultEngine
+            + " shadow=" + (isShadowOn() ? shadowEngine + " rate=" + sampleRate : "off"));
+    }
+
+    /**
+     * 엔진 이름으로 구현 선택 (비어 있으면 path.engine.default, 모르는 이름이면 기본 구현)
+     */
+    public IPathService select(String engine) {
+        String name = (engine == null || engine.isBlank()) ? defaultEngine : engine.trim();
+        IPathService s = engines.get(name.toLowerCase());
+        return (s != null) ? s : primaryService;
+    }
+
+    /**
+     * 등록된 엔진 이름 목록
+     */
+    public List<String> engineNames() {
+        return new ArrayList<>(engines.keySet());
+    }
+
+    /**
+     * engine.solve를 실행하고(지연시간 기록) 표본 추출에 걸리면 섀도 엔진으로 같은 요청을 비동기 재계산한다.
+     */
+    public Map<String, Object> solve(IPathService engine, double fromLat, double fromLng, double toLat, double toLng,
+                                     double snapRadiusM, int maxTransfers, String format) {
+        return solve(engine, fromLat, fromLng, toLat, toLng, snapRadiusM, maxTransfers, format, null);
+    }
+
+    /**
+     * 출발 시간대(departHour, null이면 지정 없음)를 넘겨 solve. 시간대 지정 요청은 섀도 재계산하지 않는다.
+     */
+    public Map<String, Object> solve(IPathService engine, double fromLat, double fromLng, double toLat, double toLng,
+                                     double snapRadiusM, int maxTransfers, String format, Integer departHour) {
+        long t0 = System.nanoTime();
+        Map<String, Object> result = engine.solve(fromLat, fromLng, toLat, toLng, snapRadiusM, maxTransfers, format, departHour);
+        recordLatency(engine.getEngineName(), System.nanoTime() - t0);
+
+        if (departHour == null && isShadowOn() && !engine.getEngineName().equalsIgnoreCase(shadowEngine.trim())
+            && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            IPathService shadow = engines.get(shadowEngine.trim().toLowerCase());
+            mirrored.incrementAndGet();
+            shadowExecutor.execute(() -> runShadow(shadow, result, fromLat, fromLng, toLat, toLng, snapRadiusM, maxTransfers, format));
+        }
+        return result;
+    }
+
+    /**
+     * 엔진/섀도 통계
+     *
+     * - engines : 엔진별 최근 지연시간(count / meanMs / p50Ms / p95Ms / maxMs)
+     * - shadow  : mirrored / dropped / compared / matched / diverged / skipped / errors / kinds / recent
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new HashMap<>();
+        out.put("registered", engineNames());
+        out.put("default", defaultEngine);
+
+        Map<String, Object> lat = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyWindow> en : latencies.entrySet()) {
+            lat.put(en.getKey(), en.getValue().toMap());
+        }
+        out.put("engines", lat);
+
+        Map<String, Object> shadow = new HashMap<>();
+        shadow.put("engine", isShadowOn() ? shadowEngine.trim() : null);
+        shadow.put("sampleRate", sampleRate);
+        shadow.put("mirrored", mirrored.get());
+        shadow.put("dropped", dropped.get());
+        shadow.put("queued", shadowExecutor.getQueue().size());
+        shadow.put("compared", compared.get());
+        shadow.put("matched", matched.get());
+        shadow.put("diverged", diverged.get());
+        shadow.put("skipped", skipped.get());
+        shadow.put("errors", errors.get());
+        synchronized (recentDivergences) {
+            shadow.put("kinds", new TreeMap<>(divergenceKinds));
+            shadow.put("recent", new ArrayList<>(recentDivergences));
+        }
+        out.put("shadow", shadow);
+        return out;
+    }
+
+    private boolean isShadowOn() {
+        return shadowEngine != null && !shadowEngine.isBlank() && sampleRate > 0
+            && engines.containsKey(shadowEngine.trim().toLowerCase());
+    }
+
+    private void runShadow(IPathService shadow, Map<String, Object> primary, double fromLat, double fromLng,
+                           double toLat, double toLng, double snapRadiusM, int maxTransfers, String format) {
+        Map<String, Object> result;
+        long t0 = System.nanoTime();
+        try {
+            result = shadow.solve(fromLat, fromLng, toLat, toLng, snapRadiusM, maxTransfers, format);
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            System.out.println("[PATH][SHADOW][ERROR] engine=" + shadow.getEngineName() + " msg=" + e.getMessage());
+            return;
+        }
+        recordLatency(shadow.getEngineName(), System.nanoTime() - t0);
+
+        if (!sameValue(primary.get("graphVersion"), result.get("graphVersion"))
+            || Boolean.TRUE.equals(primary.get("liveDelay")) != Boolean.TRUE.equals(result.get("liveDelay"))) {
+            skipped.incrementAndGet();
+            return;
+        }
+        compared.incrementAndGet();
+
+        String kind = compare(primary, result);
+        if (kind == null) {
+            matched.incrementAndGet();
+            return;
+        }
+        diverged.incrementAndGet();
+
+        Map<String, Object> d = new HashMap<>();
+        d.put("kind", kind);
+        d.put("primary", primary.get("engine"));
+        d.put("shadow", result.get("engine"));
+        d.put("from", new double[] { fromLat, fromLng });
+        d.put("to", new double[] { toLat, toLng });
+        d.put("snapRadiusM", snapRadiusM);
+        d.put("maxTransfers", maxTransfers);
+        d.put("graphVersion", primary.get("graphVersion"));
+        d.put("primaryMinutes", primary.get("totalMinutes"));
+        d.put("shadowMinutes", result.get("totalMinutes"));
+        d.put("primaryCandidates", candidateMinutes(primary));
+        d.put("shadowCandidates", candidateMinutes(result));
+        d.put("at", System.currentTimeMillis());
+
+        synchronized (recentDivergences) {
+            divergenceKinds.merge(kind, 1L, Long::sum);
+            recentDivergences.addFirst(d);
+            while (recentDivergences.size() > Math.max(1, maxDivergences)) {
+                recentDivergences.removeLast();
+            }
+        }
+        System.out.println("[PATH][SHADOW] diverged kind=" + kind + " primary=" + primary.get("engine") + "("
+            + primary.get("totalMinutes") + ") shadow=" + result.get("engine") + "(" + result.get("totalMinutes") + ")");
+    }
+
+    // 일치하면 null, 아니면 불일치 종류
+    private String compare(Map<String, Object> primary, Map<String, Object> shadow) {
+        boolean pFound = primary.get("reason") == null;
+        boolean sFound = shadow.get("reason") == null;
+        if (pFound != sFound) return "REACHABILITY";
+        if (!pFound) return null;
+
+        if (!close(primary.get("totalMinutes"), shadow.get("totalMinutes"))) return "TOTAL_MINUTES";
+        if (Boolean.TRUE.equals(primary.get("bestOnly")) || Boolean.TRUE.equals(shadow.get("bestOnly"))) return null;
+
+        // 같은 시간의 후보가 여럿이면 최상위 usedTransfers는 엔진마다 다를 수 있으므로 환승 횟수별 후보 시간으로 비교한다.
+        Map<Integer, Double> p = candidateMinutes(primary);
+        Map<Integer, Double> s = candidateMinutes(shadow);
+        if (!p.keySet().equals(s.keySet())) return "CANDIDATES";
+        for (Map.Entry<Integer, Double> en : p.entrySet()) {
+            if (!close(en.getValue(), s.get(en.getKey()))) return "CANDIDATES";
+        }
+        return null;
+    }
+
+    // usedTransfers -> totalMinutes (같은 환승 횟수 후보가 여럿이면 최솟값)
+    private static Map<Integer, Double> candidateMinutes(Map<String, Object> result) {
+        Map<Integer, Double> out = new TreeMap<>();
+        if (!(result.get("candidates") instanceof List<?> list)) return out;
+        for (Object item : list) {
+            if (!(item instanceof Map<?, ?> c)) continue;
+            if (!(c.get("usedTransfers") instanceof Number ut) || !(c.get("totalMinutes") instanceof Number tm)) continue;
+            out.merge(ut.intValue(), tm.doubleValue(), Math::min);
+        }
+        return out;
+    }
+
+    private boolean close(Object a, Object b) {
+        if (!(a instanceof Number x) || !(b instanceof Number y)) return a == b;
+        return Math.abs(x.doubleValue() - y.doubleValue()) <= toleranceMin;
+    }
+
+    private static boolean sameValue(Object a, Object b) {
+        return (a == null) ? b == null : a.equals(b);
+    }
+
+    private void recordLatency(String engineName, long nanos) {
+        LatencyWindow w = latencies.get(engineName.toLowerCase());
+        if (w != null) w.add(nanos);
+    }
+
+    /**
+     * 최근 LATENCY_WINDOW개 지연시간 원형 버퍼 (누적 건수/최댓값은 전체 기준)
+     */
+    private static final class LatencyWindow {
+        private final long[] samples = new long[LATENCY_WINDOW];
+        private int size = 0;
+        private int next = 0;
+        private long count = 0;
+        private long max = 0;
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            if (size < samples.length) size++;
+            count++;
+            if (nanos > max) max = nanos;
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> out = new HashMap<>();
+            out.put("count", count);
+            if (size == 0) return out;
+
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long x : sorted) sum += x;
+            out.put("meanMs", sum / (double) size / 1e6);
+            out.put("p50Ms", sorted[(int) Math.min(size - 1, Math.floor(size * 0.50))] / 1e6);
+            out.put("p95Ms", sorted[(int) Math.min(size - 1, Math.floor(size * 0.95))] / 1e6);
+            out.put("maxMs", max / 1e6);
+            return out;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            if (shadowExecutor != null) shadowExecutor.shutdownNow();
+        } catch (Exception ignore) {
+        }
+    }
+}
+
+// 추가됨 끝
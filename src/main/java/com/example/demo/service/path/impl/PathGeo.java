@@ -0,0 +1,46 @@
+// 추가됨: 경로 엔진 공통 거리/시간 계산 유틸 (PathServiceImpl에서 분리)
+// 수정됨: 지구 반지름(EARTH_RADIUS_M)을 상수로 빼서 정류장 격자 인덱스가 같은 값으로 격자 크기를 잡게 한다.
+
+package com.example.demo.service.path.impl;
+
+/**
+ * 거리(m) / 이동시간(분) 계산 유틸
+ *
+ * - 도보 속도: 1.3m/s (성인 평균)
+ * - 트램 속도: 35km/h (표정속도)
+ */
+final class PathGeo {
+
+    static final double WALK_SPEED_MPS = 1.3;
+    static final double TRAM_SPEED_KMPH = 35.0;
+
+    // haversine 지구 반지름(m). 위도 1도 = EARTH_RADIUS_M x π / 180 ≈ 111195m
+    static final double EARTH_RADIUS_M = 6371000.0;
+
+    private PathGeo() {
+    }
+
+    static double metersToWalkMinutes(double meters) {
+        if (meters <= 0) return 0.0;
+        double sec = meters / WALK_SPEED_MPS;
+        return sec / 60.0;
+    }
+
+    static double metersToTramMinutes(double meters) {
+        if (meters <= 0) return 0.0;
+        return meters / (TRAM_SPEED_KMPH * 1000.0 / 60.0);
+    }
+
+    static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        final double R = EARTH_RADIUS_M; // 지구 반지름 (m)
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return R * c;
+    }
+}
+
+// 추가됨 끝
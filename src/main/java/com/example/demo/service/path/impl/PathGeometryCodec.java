@@ -0,0 +1,72 @@
+// 추가됨: 경로 좌표 압축 인코딩 유틸 (Google encoded polyline / 마이크로도 델타 정수 배열)
+//        - 압축 응답(format=polyline|delta)에서 구간 좌표를 [lng, lat] double 목록 대신 문자열/정수 배열 하나로 내려준다.
+
+package com.example.demo.service.path.impl;
+
+/**
+ * 좌표 인코딩
+ *
+ * - 입력 좌표는 마이크로도(E6) 정수(위도, 경도 순)다. 스냅샷 노드 좌표는 생성 시 미리 변환해 둔다.
+ * - polyline : Google encoded polyline (정밀도 1e-5도, 위도/경도 순)
+ * - delta    : [lat0, lng0, dLat1, dLng1, ...] (E6, 첫 점은 절대값, 이후는 직전 점과의 차이)
+ */
+final class PathGeometryCodec {
+
+    private PathGeometryCodec() {
+    }
+
+    static int toE6(double degrees) {
+        return (int) Math.round(degrees * 1e6);
+    }
+
+    /**
+     * Google encoded polyline (정밀도 5자리)
+     */
+    static String encodePolyline(int[] latE6, int[] lngE6, int count) {
+        StringBuilder sb = new StringBuilder(count * 8);
+        int prevLat = 0;
+        int prevLng = 0;
+        for (int i = 0; i < count; i++) {
+            int lat = e6ToE5(latE6[i]);
+            int lng = e6ToE5(lngE6[i]);
+            encodeSigned(sb, lat - prevLat);
+            encodeSigned(sb, lng - prevLng);
+            prevLat = lat;
+            prevLng = lng;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 마이크로도 델타 배열 (길이 = count x 2)
+     */
+    static int[] encodeDelta(int[] latE6, int[] lngE6, int count) {
+        int[] out = new int[count * 2];
+        int prevLat = 0;
+        int prevLng = 0;
+        for (int i = 0; i < count; i++) {
+            out[i * 2] = latE6[i] - prevLat;
+            out[i * 2 + 1] = lngE6[i] - prevLng;
+            prevLat = latE6[i];
+            prevLng = lngE6[i];
+        }
+        return out;
+    }
+
+    // E6 → E5 반올림 (음수도 0에서 먼 쪽으로)
+    private static int e6ToE5(int e6) {
+        return (e6 >= 0) ? (e6 + 5) / 10 : -((-e6 + 5) / 10);
+    }
+
+    private static void encodeSigned(StringBuilder sb, int value) {
+        int v = value << 1;
+        if (value < 0) v = ~v;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
+
+// 추가됨 끝
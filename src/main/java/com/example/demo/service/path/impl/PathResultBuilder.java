@@ -0,0 +1,478 @@
+// 추가됨: 탐색 결과(간선 코드) → /api/path/solve 응답(Map) 조립을 PathServiceImpl에서 분리
+//        - 다익스트라(PathServiceImpl)와 RAPTOR(RaptorPathServiceImpl)가 같은 candidates 응답 구조를 쓴다.
+//        - BUS 정류장명/노선번호(TAGO) 조회 캐시도 함께 옮겼다.
+// 수정됨: 정류장명/노선번호를 요청 중 TAGO 호출 대신 스냅샷의 이름 사전(bus_stop_name, bus_route_name)에서 조회
+//        - 응답 조립 중 외부 호출이 없으므로 처음 보는 노선도 지연/쿼터 소모가 없다.
+// 수정됨: 압축 응답 형식(polyline / delta) 추가
+//        - 간선 코드에서 바로 노드 번호 순서를 만들고, 스냅샷에 미리 계산된 마이크로도 좌표를 그 순서대로 인코딩한다.
+//        - Edge/StopPoint 객체와 구간별 [lng, lat] 목록, nodeIds/nodeNames 병렬 목록을 만들지 않는다.
+// 수정됨: 요청 환승 횟수(requestedTransfers)와 함께 실제 탐색에 쓴 환승 횟수(effectiveTransfers, max-rides-cap - 1 이하)를 돌려준다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.service.path.IPathService;
+import com.example.demo.service.path.impl.TransitGraphSnapshot.Edge;
+import com.example.demo.service.path.impl.TransitGraphSnapshot.StopPoint;
+
+/**
+ * 경로 응답 조립기
+ *
+ * - 입력: 엔진이 찾은 승차 횟수별 후보(PathCandidate, 간선 코드 배열)
+ * - 출력: totalMinutes / segments / usedTransfers / requestedTransfers / effectiveTransfers / candidates / graphVersion / engine 을 담은 Map
+ * - 압축 형식(polyline / delta)의 구조는 IPathService.solve(..., format) 설명 참고
+ */
+@Component
+public class PathResultBuilder {
+
+    // 환승/재승차 패널티: 1회당 고정 페널티(분)
+    static final double TRANSFER_PENALTY_MIN = 4.0;
+
+    // START/END 가상 노드 ID
+    static final String START_ID = "__START__";
+    static final String END_ID = "__END__";
+
+    // 엔진 공통 승차 횟수 상한(effectiveTransfers 계산용, 엔진들과 같은 설정)
+    @Value("${path.search.max-rides-cap:8}")
+    private int maxRidesCap;
+
+    /**
+     * 요청 format 값을 정규화한다. (polyline / delta 가 아니면 json)
+     */
+    static String normalizeFormat(String format) {
+        if (format == null) return IPathService.FORMAT_JSON;
+        String f = format.trim().toLowerCase();
+        if (IPathService.FORMAT_POLYLINE.equals(f) || IPathService.FORMAT_DELTA.equals(f)) return f;
+        return IPathService.FORMAT_JSON;
+    }
+
+    /**
+     * 응답 형식에 맞춰 응답을 만든다.
+     */
+    Map<String, Object> build(
+        TransitGraphSnapshot snapshot, SnapEdges snap,
+        double fromLat, double fromLng, double toLat, double toLng,
+        int maxTransfers, List<PathCandidate> results, String engineName, String format
+    ) {
+        String f = normalizeFormat(format);
+        if (IPathService.FORMAT_JSON.equals(f)) {
+            return build(snapshot, snap, fromLat, fromLng, toLat, toLng, maxTransfers, results, engineName);
+        }
+        return buildCompact(snapshot, snap, fromLat, fromLng, toLat, toLng, maxTransfers, results, engineName, f);
+    }
+
+    /**
+     * 후보 목록으로 응답을 만든다. (후보는 시간순 정렬, 최상위 필드는 가장 빠른 후보)
+     */
+    Map<String, Object> build(
+        TransitGraphSnapshot snapshot, SnapEdges snap,
+        double fromLat, double fromLng, double toLat, double toLng,
+        int maxTransfers, List<PathCandidate> results, String engineName
+    ) {
+        // START/END 가상 노드 좌표 (요청별)
+        Map<String, StopPoint> queryPoints = new HashMap<>();
+        queryPoints.put(START_ID, new StopPoint(START_ID, fromLat, fromLng));
+        queryPoints.put(END_ID, new StopPoint(END_ID, toLat, toLng));
+
+        // ---------------------------------------------------------
+        // (1) 결과가 하나도 없으면 빈 결과 반환
+        // ---------------------------------------------------------
+        if (results.isEmpty()) {
+            Map<String, Object> out = new HashMap<>();
+            out.put("totalMinutes", 0);
+            out.put("segments", Collections.emptyList());
+            out.put("reason", "NO_PATH");
+            out.put("requestedTransfers", maxTransfers);
+            out.put("effectiveTransfers", PathServiceImpl.effectiveTransfers(maxTransfers, maxRidesCap));
+            out.put("candidates", Collections.emptyList()); // 빈 후보 리스트
+            out.put("graphVersion", snapshot.getVersion());
+            out.put("engine", engineName);
+            return out;
+        }
+
+        // ---------------------------------------------------------
+        // (2) 각 결과별 경로 복원 및 후보 리스트 생성
+        // ---------------------------------------------------------
+        List<Map<String, Object>> candidates = new ArrayList<>();
+
+        for (PathCandidate res : results) {
+            List<Edge> edges = toEdges(snapshot, snap, res.edgeCodes);
+            List<Map<String, Object>> segments = buildSegments(edges, snapshot, queryPoints);
+
+            Map<String, Object> cand = new HashMap<>();
+            cand.put("totalMinutes", res.totalMinutes);
+            cand.put("segments", segments);
+
+            int usedTransfers = (res.rides <= 0 ? 0 : Math.max(0, res.rides - 1));
+            cand.put("usedTransfers", usedTransfers);
+            cand.put("transferPenaltyMin", TRANSFER_PENALTY_MIN);
+            cand.put("transferPenaltyTotalMinutes", usedTransfers * TRANSFER_PENALTY_MIN);
+
+            candidates.add(cand);
+        }
+
+        // 후보들을 시간순(오름차순)으로 정렬 (가장 빠른게 0번 인덱스)
+        candidates.sort(Comparator.comparingDouble(m -> (double) m.get("totalMinutes")));
+
+        // 기본 응답 구조(하위 호환 및 편리성):
+        // 최상위 필드에는 "Best Candidate(=시간 최소)"의 정보를 채운다.
+        Map<String, Object> best = candidates.get(0);
+        
+        Map<String, Object> out = new HashMap<>();
+        out.putAll(best); // totalMinutes, segments, usedTransfers 등 복사
+
+        out.put("requestedTransfers", maxTransfers);
+        out.put("effectiveTransfers", PathServiceImpl.effectiveTransfers(maxTransfers, maxRidesCap));
+        out.put("candidates", candidates); // 전체 후보 리스트 포함
+        out.put("graphVersion", snapshot.getVersion()); // 계산에 사용한 그래프 스냅샷 버전
+        out.put("engine", engineName); // 계산에 사용한 탐색 엔진
+
+        return out;
+    }
+
+    // =========================
+    // 압축 응답 (polyline / delta)
+    // =========================
+    private Map<String, Object> buildCompact(
+        TransitGraphSnapshot snapshot, SnapEdges snap,
+        double fromLat, double fromLng, double toLat, double toLng,
+        int maxTransfers, List<PathCandidate> results, String engineName, String format
+    ) {
+        Map<String, Object> out = new HashMap<>();
+        out.put("requestedTransfers", maxTransfers);
+        out.put("effectiveTransfers", PathServiceImpl.effectiveTransfers(maxTransfers, maxRidesCap));
+        out.put("graphVersion", snapshot.getVersion());
+        out.put("engine", engineName);
+        out.put("format", format);
+
+        if (results.isEmpty()) {
+            out.put("totalMinutes", 0);
+            out.put("reason", "NO_PATH");
+            out.put("stops", Collections.emptyList());
+            out.put("candidates", Collections.emptyList());
+            return out;
+        }
+
+        CompactStops stops = new CompactStops(snapshot);
+        int[] queryLatE6 = { PathGeometryCodec.toE6(fromLat), PathGeometryCodec.toE6(toLat) };
+        int[] queryLngE6 = { PathGeometryCodec.toE6(fromLng), PathGeometryCodec.toE6(toLng) };
+
+        List<PathCandidate> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(c -> c.totalMinutes));
+
+        List<Map<String, Object>> candidates = new ArrayList<>(sorted.size());
+        for (PathCandidate res : sorted) {
+            Map<String, Object> cand = new HashMap<>();
+            cand.put("totalMinutes", res.totalMinutes);
+            cand.put("segments", buildCompactSegments(snapshot, snap, res.edgeCodes, stops, queryLatE6, queryLngE6, format));
+
+            int usedTransfers = (res.rides <= 0 ? 0 : Math.max(0, res.rides - 1));
+            cand.put("usedTransfers", usedTransfers);
+            cand.put("transferPenaltyMin", TRANSFER_PENALTY_MIN);
+            cand.put("transferPenaltyTotalMinutes", usedTransfers * TRANSFER_PENALTY_MIN);
+            candidates.add(cand);
+        }
+
+        Map<String, Object> best = candidates.get(0);
+        out.put("totalMinutes", best.get("totalMinutes"));
+        out.put("usedTransfers", best.get("usedTransfers"));
+        out.put("transferPenaltyMin", TRANSFER_PENALTY_MIN);
+        out.put("transferPenaltyTotalMinutes", best.get("transferPenaltyTotalMinutes"));
+        out.put("candidates", candidates);
+        out.put("stops", stops.list);
+        return out;
+    }
+
+    // 노드 번호(출발 지점 = QUERY_START, 도착 지점 = QUERY_END)
+    private static final int QUERY_START = -1;
+    private static final int QUERY_END = -2;
+
+    // 구간 분리 규칙은 buildSegments와 같다(모드가 바뀌거나, BUS에서 노선/방향이 바뀌면 새 구간).
+    private List<Map<String, Object>> buildCompactSegments(
+        TransitGraphSnapshot g, SnapEdges snap, int[] edgeCodes, CompactStops stops,
+        int[] queryLatE6, int[] queryLngE6, String format
+    ) {
+        if (edgeCodes == null || edgeCodes.length == 0) return Collections.emptyList();
+
+        List<Map<String, Object>> segments = new ArrayList<>();
+        int[] nodes = new int[edgeCodes.length * 2]; // 간선마다 최대 2개(구간 첫 노드 + 도착 노드)
+        int nodeCount = 0;
+        Map<String, Object> curSeg = null;
+        byte curMode = -1;
+        int curRoute = -2;
+        int curDir = -2;
+        double minutes = 0.0;
+
+        for (int code : edgeCodes) {
+            byte mode;
+            int route;
+            int dir;
+            int from;
+            int to;
+            double edgeMinutes;
+            String routeId;
+
+            if (code >= 0) {
+                mode = g.edgeMode[code];
+                route = g.edgeRoute[code];
+                dir = (mode == TransitGraphSnapshot.MODE_BUS) ? g.edgeDir[code] : -1;
+                from = g.edgeSource[code];
+                to = g.edgeTarget[code];
+                edgeMinutes = g.edgeMinutes[code];
+                routeId = (route >= 0) ? g.routeIds[route] : TransitGraphSnapshot.WALK_TRANSFER_ROUTE;
+            } else {
+                int si = SnapEdges.startIndexOf(code);
+                mode = TransitGraphSnapshot.MODE_WALK;
+                route = -1;
+                dir = -1;
+                if (si >= 0) {
+                    from = QUERY_START;
+                    to = snap.startNodes[si];
+                    edgeMinutes = snap.startMinutes[si];
+                    routeId = "Start";
+                } else {
+                    int ei = SnapEdges.endIndexOfCode(code);
+                    from = snap.endNodes[ei];
+                    to = QUERY_END;
+                    edgeMinutes = snap.endMinutes[ei];
+                    routeId = "End";
+                }
+            }
+
+            boolean newSegment = (curSeg == null) || mode != curMode
+                || (mode == TransitGraphSnapshot.MODE_BUS && (route != curRoute || dir != curDir));
+
+            if (newSegment) {
+                if (curSeg != null) finishCompactSegment(g, curSeg, minutes, nodes, nodeCount, stops, queryLatE6, queryLngE6, format);
+
+                curMode = mode;
+                curRoute = route;
+                curDir = dir;
+                minutes = 0.0;
+                nodeCount = 0;
+
+                curSeg = new HashMap<>();
+                curSeg.put("mode", TransitGraphSnapshot.modeName(mode));
+                curSeg.put("routeId", routeId);
+                if (mode == TransitGraphSnapshot.MODE_BUS) {
+                    curSeg.put("updowncd", dir);
+                    curSeg.put("routeNo", getBusRouteNoByRouteId(g, routeId));
+                }
+                segments.add(curSeg);
+                nodes[nodeCount++] = from;
+            } else if (nodes[nodeCount - 1] != from) {
+                nodes[nodeCount++] = from; // 연속되지 않는 간선(기존 형식과 같이 그대로 잇는다)
+            }
+
+            minutes += edgeMinutes;
+            nodes[nodeCount++] = to;
+        }
+        finishCompactSegment(g, curSeg, minutes, nodes, nodeCount, stops, queryLatE6, queryLngE6, format);
+        return segments;
+    }
+
+    private void finishCompactSegment(
+        TransitGraphSnapshot g, Map<String, Object> seg, double minutes, int[] nodes, int nodeCount,
+        CompactStops stops, int[] queryLatE6, int[] queryLngE6, String format
+    ) {
+        int[] stopIdx = new int[nodeCount];
+        int[] latE6 = new int[nodeCount];
+        int[] lngE6 = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            int v = nodes[i];
+            stopIdx[i] = stops.indexOf(v);
+            if (v >= 0) {
+                latE6[i] = g.nodeLatE6[v];
+                lngE6[i] = g.nodeLngE6[v];
+            } else {
+                int q = (v == QUERY_START) ? 0 : 1;
+                latE6[i] = queryLatE6[q];
+                lngE6[i] = queryLngE6[q];
+            }
+        }
+
+        seg.put("minutes", minutes);
+        seg.put("stops", stopIdx);
+        if (IPathService.FORMAT_POLYLINE.equals(format)) {
+            seg.put("polyline", PathGeometryCodec.encodePolyline(latE6, lngE6, nodeCount));
+        } else {
+            seg.put("path", PathGeometryCodec.encodeDelta(latE6, lngE6, nodeCount));
+        }
+    }
+
+    /**
+     * 응답 공통 정류장 사전 ([nodeId, name] 목록, 노드 번호 → 사전 번호)
+     */
+    private static final class CompactStops {
+        final TransitGraphSnapshot g;
+        final List<String[]> list = new ArrayList<>();
+        final Map<Integer, Integer> index = new HashMap<>();
+
+        CompactStops(TransitGraphSnapshot g) {
+            this.g = g;
+        }
+
+        int indexOf(int v) {
+            Integer i = index.get(v);
+            if (i != null) return i;
+            int next = list.size();
+            if (v == QUERY_START) list.add(new String[] { START_ID, null });
+            else if (v == QUERY_END) list.add(new String[] { END_ID, null });
+            else list.add(new String[] { g.nodeIds[v], g.nodeNames[v] });
+            index.put(v, next);
+            return next;
+        }
+    }
+
+    // =========================
+    // 간선 코드 배열 → Edge 목록
+    // =========================
+    List<Edge> toEdges(TransitGraphSnapshot g, SnapEdges snap, int[] edgeCodes) {
+        if (edgeCodes == null) return Collections.emptyList();
+        List<Edge> edges = new ArrayList<>(edgeCodes.length);
+        for (int code : edgeCodes) {
+            edges.add(toEdge(g, snap, code));
+        }
+        return edges;
+    }
+
+    // CSR 간선 번호 / 스냅 간선 코드를 결과 조립용 Edge 객체로 변환
+    Edge toEdge(TransitGraphSnapshot g, SnapEdges snap, int code) {
+        if (code >= 0) {
+            return g.toEdge(code);
+        }
+        int si = SnapEdges.startIndexOf(code);
+        if (si >= 0) {
+            String to = g.nodeIds[snap.startNodes[si]];
+            return new Edge("WALK", "Start", START_ID, to, snap.startMinutes[si], -1);
+        }
+        int ei = SnapEdges.endIndexOfCode(code);
+        String from = g.nodeIds[snap.endNodes[ei]];
+        return new Edge("WALK", "End", from, END_ID, snap.endMinutes[ei], -1);
+    }
+
+    // =========================
+    // 프론트엔드 응답용 Segment 빌드
+    // =========================
+    private List<Map<String, Object>> buildSegments(List<Edge> edges, TransitGraphSnapshot snapshot, Map<String, StopPoint> queryPoints) {
+        if (edges == null || edges.isEmpty()) return Collections.emptyList();
+
+        List<Map<String, Object>> segments = new ArrayList<>();
+        Map<String, Object> curSeg = null;
+        String curMode = null;
+        String curRouteId = null;
+        Integer curUpdowncd = null;
+
+        for (Edge e : edges) {
+            boolean newSegment = (curSeg == null) 
+                || !Objects.equals(curMode, e.mode)
+                || ("BUS".equals(e.mode) && (!Objects.equals(curRouteId, e.routeId) || !Objects.equals(curUpdowncd, e.updowncd)));
+
+            if (newSegment) {
+                if (curSeg != null) segments.add(curSeg);
+
+                curMode = e.mode;
+                curRouteId = e.routeId;
+                curUpdowncd = ("BUS".equals(e.mode) ? Integer.valueOf(e.updowncd) : null);
+
+                curSeg = new HashMap<>();
+                curSeg.put("mode", e.mode);
+                curSeg.put("routeId", e.routeId);
+                if ("BUS".equals(e.mode)) {
+                    curSeg.put("updowncd", e.updowncd);
+                    curSeg.put("routeNo", getBusRouteNoByRouteId(snapshot, e.routeId)); // 노선번호 추가
+                }
+                curSeg.put("minutes", 0.0);
+                curSeg.put("points", new ArrayList<double[]>());
+                curSeg.put("nodeIds", new ArrayList<String>());
+                curSeg.put("nodeNames", new ArrayList<String>());
+}
+
+            double oldMin = (double) curSeg.get("minutes");
+            curSeg.put("minutes", oldMin + e.minutes);
+
+            @SuppressWarnings("unchecked")
+List<double[]> points = (List<double[]>) curSeg.get("points");
+
+@SuppressWarnings("unchecked")
+List<String> nodeIds = (List<String>) curSeg.get("nodeIds");
+
+@SuppressWarnings("unchecked")
+List<String> nodeNames = (List<String>) curSeg.get("nodeNames");
+
+StopPoint from = lookupPoint(snapshot, queryPoints, e.fromId);
+StopPoint to = lookupPoint(snapshot, queryPoints, e.toId);
+
+if (from != null) {
+    points.add(new double[]{from.lng, from.lat});
+    nodeIds.add(e.fromId);
+    if ("TRAM".equals(e.mode)) {
+        nodeNames.add(getTramNameByNodeId(snapshot, e.fromId));
+    } else if ("BUS".equals(e.mode)) {
+        nodeNames.add(getBusStopNameByNodeId(snapshot, e.fromId));
+    } else {
+        nodeNames.add(null);
+    }
+}
+
+if (to != null) {
+    points.add(new double[]{to.lng, to.lat});
+    nodeIds.add(e.toId);
+    if ("TRAM".equals(e.mode)) {
+        nodeNames.add(getTramNameByNodeId(snapshot, e.toId));
+    } else if ("BUS".equals(e.mode)) {
+        nodeNames.add(getBusStopNameByNodeId(snapshot, e.toId));
+    } else {
+        nodeNames.add(null);
+    }
+}}
+
+        if (curSeg != null) segments.add(curSeg);
+
+        return segments;
+    }
+
+    // START/END(요청별) 좌표를 먼저 보고, 없으면 스냅샷 정류장 좌표를 본다.
+    private StopPoint lookupPoint(TransitGraphSnapshot snapshot, Map<String, StopPoint> queryPoints, String nodeId) {
+        StopPoint p = queryPoints.get(nodeId);
+        return (p != null) ? p : snapshot.stopPoint(nodeId);
+    }
+
+// =========================
+// 유틸: TRAM 노드ID("TRAM_244") → 정거장 이름
+// =========================
+private String getTramNameByNodeId(TransitGraphSnapshot snapshot, String nodeId) {
+    if (nodeId == null) return null;
+    if (!nodeId.startsWith(TramNetwork.NODE_PREFIX)) return null;
+    return snapshot.stopName(nodeId);
+}
+
+// =========================
+// 유틸: BUS 노드ID("DJB800....") → 정류장 이름 (스냅샷 사전, 없으면 null)
+// =========================
+private String getBusStopNameByNodeId(TransitGraphSnapshot snapshot, String nodeId) {
+    if (nodeId == null || nodeId.isBlank()) return null;
+    return snapshot.stopName(nodeId);
+}
+
+// =========================
+// 유틸: routeId -> routeNo 조회 (스냅샷 사전, 없으면 routeId 그대로)
+// =========================
+private String getBusRouteNoByRouteId(TransitGraphSnapshot snapshot, String routeId) {
+    if (routeId == null || routeId.isBlank()) return null;
+    String routeNo = snapshot.routeNo(routeId);
+    return (routeNo != null) ? routeNo : routeId;
+}
+}
+
+// 추가됨 끝
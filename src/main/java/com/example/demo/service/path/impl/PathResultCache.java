@@ -0,0 +1,220 @@
+// 추가됨: 경로 결과 캐시 (IPathService.solve 앞단)
+//        - 키 = 엔진 + 격자로 양자화한 출발/도착 좌표 + snapRadiusM + maxTransfers + 그래프 스냅샷 버전
+//        - 크기 제한 LRU, 같은 키의 동시 요청은 계산 1회로 합친다(single-flight).
+//        - 스냅샷이 교체되면(segment_weight 변경) 캐시를 비운다.
+// 수정됨: 키에 실시간 지연 오버레이 감쇠 주기 번호(generation)를 넣어 지연 반영 결과가 한 주기 이상 묵지 않게 한다.
+// 수정됨: 실제 계산(캐시 꺼짐/MISS)은 PathEngineRegistry.solve를 거쳐 지연시간 기록 + 섀도 엔진 비교 대상이 된다.
+// 수정됨: 키에 응답 형식(json / polyline / delta)을 넣는다.
+// 수정됨: 키에 출발 시간대(departHour)를 넣는다. 시간대 지정 요청은 지연 감쇠 주기 대신 구간 통계 갱신 주기 번호를 쓴다.
+// 수정됨: MISS 계산은 격자 중심이 아니라 요청한 실제 좌표로 한다(양자화는 키에만 쓴다).
+
+package com.example.demo.service.path.impl;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.service.path.IPathService;
+
+/**
+ * 경로 결과 캐시
+ *
+ * - 키는 path.cache.quantize-m 격자로 양자화한 출발/도착 좌표로 만들고, 계산(MISS)은 요청한 실제 좌표로 한다.
+ *   그래서 첫 요청(과 캐시를 끈 경우)의 도보 구간/좌표는 정확하다.
+ * - 대신 같은 칸의 다음 요청(HIT / JOINED)은 처음 계산한 요청의 결과를 그대로 받는다.
+ *   도보 구간 끝점/도보 시간은 칸 크기(대각선 약 1.4 x quantize-m)만큼 어긋날 수 있고,
+ *   스냅 반경 경계의 정류장 선택도 처음 요청 기준이다. 이 오차를 줄이려면 quantize-m을 줄인다.
+ * - 결과의 graphVersion이 키의 버전과 다르면(계산 중 스냅샷 교체, CH 준비 전 등) 저장하지 않는다.
+ * - 응답에는 cache(HIT / MISS / JOINED)를 붙인다. 저장된 Map은 공유하므로 매번 얕은 복사본을 돌려준다.
+ */
+@Component
+public class PathResultCache {
+
+    private static final double METERS_PER_DEG_LAT = 111320.0;
+
+    @Autowired
+    private TransitGraphHolder transitGraphHolder;
+
+    @Autowired
+    private LiveDelayOverlay liveDelayOverlay;
+
+    @Autowired
+    private PathEngineRegistry pathEngineRegistry;
+
+    @Autowired
+    private SegmentStatsEngine segmentStatsEngine;
+
+    // false면 캐시 없이 바로 계산
+    @Value("${path.cache.enabled:true}")
+    private boolean enabled;
+
+    // 최대 보관 결과 수
+    @Value("${path.cache.max-entries:2000}")
+    private int maxEntries;
+
+    // 좌표 양자화 격자 한 변(m)
+    @Value("${path.cache.quantize-m:25}")
+    private double quantizeM;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong joins = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // 접근 순서 LRU (lru 객체로 동기화)
+    private Map<String, Map<String, Object>> lru;
+
+    // 계산 중인 키 -> 결과
+    private final ConcurrentHashMap<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        final int cap = Math.max(1, maxEntries);
+        lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, Object>> eldest) {
+                if (size() > cap) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        // 스냅샷이 바뀌면 이전 버전 결과는 다시 쓰이지 않으므로 바로 비운다.
+        transitGraphHolder.addSwapListener(s -> {
+            synchronized (lru) {
+                if (!lru.isEmpty()) invalidations.incrementAndGet();
+                lru.clear();
+            }
+        });
+    }
+
+    /**
+     * 캐시를 거쳐 engine.solve를 호출한다.
+     *
+     * @param format 응답 형식(json / polyline / delta), 모르는 값은 json
+     */
+    public Map<String, Object> solve(IPathService engine, double fromLat, double fromLng, double toLat, double toLng,
+                                     double snapRadiusM, int maxTransfers, String format) {
+        return solve(engine, fromLat, fromLng, toLat, toLng, snapRadiusM, maxTransfers, format, null);
+    }
+
+    /**
+     * 출발 시간대(departHour, 0~23, null이면 지정 없음)를 넘겨 캐시를 거친 solve
+     */
+    public Map<String, Object> solve(IPathService engine, double fromLat, double fromLng, double toLat, double toLng,
+                                     double snapRadiusM, int maxTransfers, String format, Integer departHour) {
+        String fmt = PathResultBuilder.normalizeFormat(format);
+        if (!enabled) {
+            return pathEngineRegistry.solve(engine, fromLat, fromLng, toLat, toLng, snapRadiusM, maxTransfers, fmt, departHour);
+        }
+
+        double step = Math.max(1.0, quantizeM) / METERS_PER_DEG_LAT;
+        long fLatQ = Math.round(fromLat / step);
+        long fLngQ = Math.round(fromLng / lngStep(step, fLatQ));
+        long tLatQ = Math.round(toLat / step);
+        long tLngQ = Math.round(toLng / lngStep(step, tLatQ));
+        long version = transitGraphHolder.current().getVersion();
+
+        String key = engine.getEngineName() + "|" + fLatQ + "," + fLngQ + "|" + tLatQ + "," + tLngQ
+            + "|" + Math.round(snapRadiusM) + "|" + maxTransfers + "|" + fmt + "|" + version
+            + ((departHour == null) ? "|" + liveDelayOverlay.getGeneration() : "|h" + departHour + "|" + segmentStatsEngine.getGeneration());
+
+        Map<String, Object> cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return tag(cached, "HIT");
+        }
+
+        CompletableFuture<Map<String, Object>> mine = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            joins.incrementAndGet();
+            try {
+                return tag(running.join(), "JOINED");
+            } catch (CompletionException e) {
+                throw (e.getCause() instanceof RuntimeException re) ? re : e;
+            }
+        }
+
+        try {
+            // 앞선 계산이 방금 끝났을 수 있으므로 한 번 더 확인
+            cached = lookup(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                mine.complete(cached);
+                return tag(cached, "HIT");
+            }
+
+            misses.incrementAndGet();
+            Map<String, Object> result = pathEngineRegistry.solve(engine, fromLat, fromLng, toLat, toLng,
+                snapRadiusM, maxTransfers, fmt, departHour);
+
+            Object resultVersion = result.get("graphVersion");
+            if (resultVersion instanceof Number n && n.longValue() == version) {
+                synchronized (lru) {
+                    lru.put(key, result);
+                }
+            }
+            mine.complete(result);
+            return tag(result, "MISS");
+
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 캐시 통계 (hits / misses / joins / evictions / invalidations / size / maxEntries)
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new HashMap<>();
+        out.put("enabled", enabled);
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        out.put("joins", joins.get());
+        out.put("evictions", evictions.get());
+        out.put("invalidations", invalidations.get());
+        out.put("inFlight", inFlight.size());
+        synchronized (lru) {
+            out.put("size", lru.size());
+        }
+        out.put("maxEntries", maxEntries);
+        out.put("quantizeM", quantizeM);
+        return out;
+    }
+
+    private Map<String, Object> lookup(String key) {
+        synchronized (lru) {
+            return lru.get(key);
+        }
+    }
+
+    // 경도 격자 간격(도) - 양자화한 위도 기준이라 같은 칸이면 항상 같다.
+    private static double lngStep(double latStep, long latQ) {
+        return latStep / Math.cos(Math.toRadians(latQ * latStep));
+    }
+
+    private static Map<String, Object> tag(Map<String, Object> result, String cache) {
+        Map<String, Object> out = new HashMap<>(result);
+        out.put("cache", cache);
+        return out;
+    }
+}
+
+// 추가됨 끝
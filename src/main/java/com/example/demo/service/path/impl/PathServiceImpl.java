@@ -1,609 +1,213 @@
-// 수정됨: BUS 구간(nodeIds)에 대한 정류장명(nodeNames)이 null로 내려오는 문제 해결
-//        - /api/path/solve 응답의 segments[].nodeNames를 서버에서 채워서 반환하도록 개선
-//        - BUS 구간의 nodeId -> 정류장명은 TAGO '노선 경유 정류장 목록(route-stops)'을 routeId 단위로 1회 조회 후 메모리 캐시
-//        - 캐시 미스/오류 시에는 기존처럼 null을 유지(프론트에서 빈 문자열 등으로 처리 가능)
+// 수정됨: 응답 조립(segments/candidates, 정류장명 조회)을 PathResultBuilder로 분리하고 엔진 이름(dijkstra)을 노출
+//        - RAPTOR 엔진(RaptorPathServiceImpl)과 함께 등록되므로 기본 주입 대상은 이 구현(@Primary)으로 둔다.
+//        - 탐색 결과는 엔진 공통 형식(PathCandidate: 승차 횟수/총 시간/간선 코드)으로 돌려준다.
+//        - 목표 지향(A*) 탐색 옵션(path.search.goal-directed)과 조기 종료, 요청별 탐색 지표(searchStats)를 추가
+//        - 체인 압축 그래프(path.search.chain-compression) 위에서 탐색하는 옵션 추가(결과는 압축 전과 같다)
+//        - 실시간 지연 오버레이(LiveDelayOverlay)의 간선별 지연을 탐색 시점에 읽어 더한다(후보별 liveDelayMinutes)
+//        - 응답 형식(format = json | polyline | delta)을 응답 조립기에 넘긴다.
+//        - 출발 시간대(departHour)를 주면 실시간 지연 대신 구간 통계 엔진(SegmentStatsEngine)의 시간대 평균 보정값으로 탐색한다
+//          (평균보다 빠른 간선이 있으면 그 요청만 목표 지향 하한을 끈다)
+//        - 승차 횟수 상한 계산을 clampMaxRides(maxTransfers, maxRidesCap) 하나로 모으고(legacy 다익스트라 포함) int 넘침을 막는다
 
 package com.example.demo.service.path.impl;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.PriorityQueue;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
-import com.example.demo.dao.SegmentWeightDAO;
 import com.example.demo.service.path.IPathService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+@Primary
 @Service
 public class PathServiceImpl implements IPathService {
 
-    // =========================
-    // 정책 상수
-    // =========================
-
-    // 도보 속도: 1.3m/s (성인 평균)
-    private static final double WALK_SPEED_MPS = 1.3;
-    // 트램 속도: 35km/h (표정속도)
-    private static final double TRAM_SPEED_KMPH = 35.0;
+    // 엔진 이름(요청 파라미터 engine / path.engine.default 값)
+    static final String ENGINE_NAME = "dijkstra";
 
     // 환승/재승차 패널티: 1회당 고정 페널티(분)
-    private static final double TRANSFER_PENALTY_MIN = 4.0;
-
-    // START/END 가상 노드 ID
-    private static final String START_ID = "__START__";
-    private static final String END_ID = "__END__";
+    private static final double TRANSFER_PENALTY_MIN = PathResultBuilder.TRANSFER_PENALTY_MIN;
 
+    // BUS/TRAM/환승 그래프 스냅샷(서버 기동 시 1회 빌드, updated_at 변경 시 백그라운드 교체)
     @Autowired
-    private SegmentWeightDAO segmentWeightDAO;
-
-    // =========================
-    // BUS 정류장명 캐시(서버에서 nodeNames 채우기)
-    // =========================
-
-    // TAGO 공공데이터 서비스키 (기존 BusApiController와 동일한 값 사용)
-    private static final String TAGO_SERVICE_KEY =
-            "ff623cef3aa0e011104003d8973105076b9f4ce098a93e4b6de36a9f2560529c";
-
-    // 대전 도시코드
-    private static final String TAGO_CITY_CODE = "25";
-
-    // routeId -> (nodeId -> nodeName) 캐시
-    private static final Map<String, Map<String, String>> BUS_ROUTE_STOPNAME_CACHE = new ConcurrentHashMap<>();
-    
-    // routeId -> routeNo 캐시 (예: DJB30300052 -> "105")
-    private static final Map<String, String> BUS_ROUTE_NUMBER_CACHE = new ConcurrentHashMap<>();
-
-    private final RestTemplate busNameRestTemplate = new RestTemplate();
-    private final ObjectMapper busNameObjectMapper = new ObjectMapper();
-
-    // ===============================================================
-    // [Step 1] 트램 정거장 데이터 (내부 클래스 및 초기화)
-    // ===============================================================
-    private static class TramStation {
-        int id;
-        String name;
-        double lat, lng;
-
-        public TramStation(int id, String name, double lat, double lng) {
-            this.id = id;
-            this.name = name;
-            this.lat = lat;
-            this.lng = lng;
-        }
-    }
-
-    private List<TramStation> tramStations;
-
-    // 트램 데이터 초기화 (JS 데이터 TRAM_ROUTE_FULL_HD의 station 타입 매핑)
-    private void initTramData() {
-        if (tramStations != null) return;
-        tramStations = new ArrayList<>();
-
-        // 1구간
-        tramStations.add(new TramStation(244, "연축(차량기지)", 36.39229, 127.42084));
-        tramStations.add(new TramStation(243, "회덕", 36.37892, 127.42668));
-        tramStations.add(new TramStation(242, "읍내", 36.37191, 127.42863));
-        
-        // 2구간
-        tramStations.add(new TramStation(241, "법동", 36.36633, 127.43022));
-        tramStations.add(new TramStation(212, "중리네거리", 36.35895, 127.42584)); // 순환 분기점
-        
-        // 3구간
-        tramStations.add(new TramStation(213, "용전", 36.35873, 127.41787));
-        tramStations.add(new TramStation(214, "한남대", 36.35815, 127.41002));
-        tramStations.add(new TramStation(215, "오정농수산물", 36.35762, 127.40089));
-        
-        // 4구간
-        tramStations.add(new TramStation(216, "수정타운", 36.35765, 127.39524));
-        tramStations.add(new TramStation(217, "창업진흥원", 36.3577, 127.3875));
-        tramStations.add(new TramStation(218, "정부청사역", 36.35876, 127.37947));
-        
-        // 5구간
-        tramStations.add(new TramStation(219, "청사북문", 36.365, 127.3795));
-        tramStations.add(new TramStation(220, "예술의전당", 36.37, 127.3795));
-        tramStations.add(new TramStation(221, "엑스포과학공원", 36.37406, 127.37817));
-        
-        // 6구간
-        tramStations.add(new TramStation(222, "KAIST", 36.37059, 127.37214));
-        tramStations.add(new TramStation(223, "유성구청", 36.36641, 127.36592));
-        
-        // 7구간
-        tramStations.add(new TramStation(224, "충남대", 36.36204, 127.34531));
-        tramStations.add(new TramStation(225, "유성온천역", 36.35981, 127.3437));
-        tramStations.add(new TramStation(226, "상대", 36.35065, 127.34027));
-        tramStations.add(new TramStation(227, "원신흥", 36.34511, 127.34023));
-        
-        // 8구간
-        tramStations.add(new TramStation(228, "목원대입구", 36.339, 127.3365));
-        tramStations.add(new TramStation(229, "도안고", 36.33212, 127.33282));
-        tramStations.add(new TramStation(230, "목원대", 36.326, 127.3328));
-        tramStations.add(new TramStation(231, "용소", 36.31927, 127.33309));
-        tramStations.add(new TramStation(232, "가수원네거리", 36.30294, 127.33479));
-        
-        // 9구간
-        tramStations.add(new TramStation(245, "진잠", 36.29932, 127.32423));
-        tramStations.add(new TramStation(233, "롯데시네마", 36.30151, 127.33547));
-        tramStations.add(new TramStation(234, "대전가원학교", 36.30357, 127.34618));
-        tramStations.add(new TramStation(235, "가수원교회", 36.30551, 127.35484));
-        
-        // 10구간
-        tramStations.add(new TramStation(236, "가수원교", 36.30739, 127.36376));
-        tramStations.add(new TramStation(237, "도마네거리", 36.31268, 127.37919));
-        
-        // 11구간
-        tramStations.add(new TramStation(238, "유등교", 36.31507, 127.38455));
-        
-        // 12구간
-        tramStations.add(new TramStation(239, "유천", 36.31618, 127.38879));
-        tramStations.add(new TramStation(240, "오류", 36.31886, 127.39934));
-        tramStations.add(new TramStation(201, "서대전역", 36.32109, 127.40789));
-        tramStations.add(new TramStation(202, "서대전네거리", 36.32237, 127.41233));
-        tramStations.add(new TramStation(203, "대사", 36.31822, 127.41782));
-        tramStations.add(new TramStation(204, "부사", 36.3178, 127.42145));
-        tramStations.add(new TramStation(205, "인동", 36.32067, 127.43509));
-        
-        // 13구간
-        tramStations.add(new TramStation(206, "대전역", 36.33093, 127.43276));
-        tramStations.add(new TramStation(207, "중앙동 행정 복지 센터", 36.33354, 127.43925));
-        tramStations.add(new TramStation(208, "신흥", 36.32985, 127.44323));
-        tramStations.add(new TramStation(209, "우송대(자양)", 36.34068, 127.44887));
-        
-        // 14구간
-        tramStations.add(new TramStation(210, "동부네거리", 36.35111, 127.44206));
-        tramStations.add(new TramStation(211, "동부네거리", 36.35823, 127.43355)); 
-        // 211은 순환선 구조상 212(중리네거리)와 다시 연결되어야 함
-    }
-
-    /**
-     * 최단경로(최단시간) 계산 서비스 구현
-     * * 1. DB에서 버스 구간(segment_weight) 전체 로드
-     * * 2. 트램 구간 추가 및 버스-트램 환승 연결 [추가됨]
-     * * 3. 출발/도착지 주변 정류장을 도보(WALK)로 연결 (Snap)
-     * * 4. 다익스트라 알고리즘으로 최단 시간 경로 탐색
-     */
-    @Override
-    public Map<String, Object> solve(double fromLat, double fromLng, double toLat, double toLng, double snapRadiusM, int maxTransfers) {
-
-        // 0. 트램 데이터 로드
-        initTramData();
-
-        // ---------------------------------------------------------
-        // (1) DB에서 BUS 구간 전부 로드
-        // ---------------------------------------------------------
-        List<Map<String, Object>> busSegments = segmentWeightDAO.findAllBusSegments();
-
-        // ---------------------------------------------------------
-        // (2) 정류장 노드 좌표 맵 + 인접리스트(그래프) 구성
-        // ---------------------------------------------------------
-        Map<String, StopPoint> stopPointMap = new HashMap<>(); // stopId -> 좌표 객체
-        Map<String, List<Edge>> graph = new HashMap<>();       // nodeId -> outgoing edges
-
-        // (2-1) BUS 구간을 그래프로 변환
-        for (Map<String, Object> r : busSegments) {
-            if (r == null) continue;
-
-            String fromId = asString(r.get("from_id"));
-            String toId = asString(r.get("to_id"));
-            String routeId = asString(r.get("route_id"));
-
-            int updowncd = asInt(r.get("updowncd"), -1);
-
-            if (fromId == null || toId == null) continue;
+    private TransitGraphHolder transitGraphHolder;
 
-            double fromLatStop = asDouble(r.get("from_lat"));
-            double fromLngStop = asDouble(r.get("from_lng"));
-            double toLatStop = asDouble(r.get("to_lat"));
-            double toLngStop = asDouble(r.get("to_lng"));
-
-            double travelSecAvg = asDouble(r.get("travel_sec_avg"));
-
-            // 시간(분) 변환. 0초거나 오류값이면 최소 0.1분으로 보정
-            double minutes = Math.max(0.1, travelSecAvg / 60.0);
+    // 후보 경로 → 응답(Map) 조립
+    @Autowired
+    private PathResultBuilder pathResultBuilder;
 
-            // 정류장 좌표 등록 (중복 시 기존 값 유지)
-            stopPointMap.putIfAbsent(fromId, new StopPoint(fromId, fromLatStop, fromLngStop));
-            stopPointMap.putIfAbsent(toId, new StopPoint(toId, toLatStop, toLngStop));
+    // 간선별 실시간 지연(분) - 스냅샷은 그대로 두고 탐색 시점에 더한다
+    @Autowired
+    private LiveDelayOverlay liveDelayOverlay;
 
-            // 그래프 간선 추가 (BUS는 실제 운행처럼 유향: from_id -> to_id만 허용)
-            addEdge(graph, fromId, new Edge("BUS", routeId, fromId, toId, minutes, updowncd));
-        }
+    // 구간별 시간대 평균(출발 시간대 지정 시 간선 보정값)
+    @Autowired
+    private SegmentStatsEngine segmentStatsEngine;
 
-        // ---------------------------------------------------------
-        // (2-2) [추가] 트램 그래프 구성 (인접 정거장 연결 + 순환 연결)
-        // ---------------------------------------------------------
-        for (int i = 0; i < tramStations.size(); i++) {
-            TramStation curr = tramStations.get(i);
-            String currId = "TRAM_" + curr.id;
+    // 출발/도착 각각 스냅할 최대 정류장 수(가까운 순). 0 이하면 제한 없음
+    @Value("${path.snap.max-candidates:40}")
+    private int snapMaxCandidates;
 
-            // 트램 정거장 좌표 등록
-            stopPointMap.put(currId, new StopPoint(currId, curr.lat, curr.lng));
+    // 탐색 방식: primitive(기본형 엔진, 기본값) / legacy(문자열 상태 키 다익스트라)
+    @Value("${path.search.mode:primitive}")
+    private String searchMode;
 
-            // 1. 다음 정거장과 연결 (i -> i+1)
-            if (i < tramStations.size() - 1) {
-                TramStation next = tramStations.get(i + 1);
-                String nextId = "TRAM_" + next.id;
+    // 기본형 엔진의 승차 횟수 상한(작업 배열 크기 = 슬롯 수 x (상한+1))
+    @Value("${path.search.max-rides-cap:8}")
+    private int maxRidesCap;
 
-                double distM = haversineMeters(curr.lat, curr.lng, next.lat, next.lng);
-                double min = distM / (TRAM_SPEED_KMPH * 1000.0 / 60.0);
+    // 기본형 엔진 목표 지향(A*) 탐색 여부: 직선거리 / 그래프 최대 속도를 도착지까지의 하한으로 사용
+    @Value("${path.search.goal-directed:true}")
+    private boolean goalDirected;
 
-                addEdge(graph, currId, new Edge("TRAM", "2호선", currId, nextId, min, -1));
-                addEdge(graph, nextId, new Edge("TRAM", "2호선", nextId, currId, min, -1));
-            }
-            
-            // 2. 순환 연결: 마지막 '211 동부네거리' -> '212 중리네거리' 연결
-            if (curr.id == 211) {
-                // 리스트에서 212번 정거장을 찾음
-                TramStation jungri = tramStations.stream()
-                        .filter(s -> s.id == 212)
-                        .findFirst()
-                        .orElse(null);
-                
-                if (jungri != null) {
-                    String nextId = "TRAM_" + jungri.id;
-                    double distM = haversineMeters(curr.lat, curr.lng, jungri.lat, jungri.lng);
-                    double min = distM / (TRAM_SPEED_KMPH * 1000.0 / 60.0);
-
-                    // 양방향 연결 (순환선)
-                    addEdge(graph, currId, new Edge("TRAM", "2호선", currId, nextId, min, -1));
-                    addEdge(graph, nextId, new Edge("TRAM", "2호선", nextId, currId, min, -1));
-                }
-            }
-        }
+    // 기본형 엔진을 체인 압축 그래프(환승/분기 없는 중간 정류장을 건너뛰는 축약 간선) 위에서 실행할지 여부
+    @Value("${path.search.chain-compression:true}")
+    private boolean chainCompression;
 
-        // ---------------------------------------------------------
-        // (2-3) [추가] 환승 연결 (버스 ↔ 트램 500m 이내)
-        // ---------------------------------------------------------
-        List<StopPoint> busStops = new ArrayList<>();
-        for (StopPoint sp : stopPointMap.values()) {
-            if (!sp.id.startsWith("TRAM_")) {
-                busStops.add(sp);
-            }
-        }
+    // 스냅샷별 체인 압축 그래프(스냅샷이 바뀌면 다시 만든다)
+    private volatile ChainGraph chainGraph;
 
-        for (TramStation ts : tramStations) {
-            String tramNodeId = "TRAM_" + ts.id;
-
-            for (StopPoint bs : busStops) {
-                double dist = haversineMeters(ts.lat, ts.lng, bs.lat, bs.lng);
+    @Override
+    public String getEngineName() {
+        return ENGINE_NAME;
+    }
 
-                // 500m 이내면 환승 가능 (도보)
-                if (dist <= 500.0) {
-                    double walkMin = metersToWalkMinutes(dist);
+    /**
+     * 최단경로(최단시간) 계산 서비스 구현
+     * * 1. 그래프 스냅샷 조회 (BUS 구간 + 트램 구간 + 버스-트램 환승 연결, DB 조회 없음)
+     * * 2. 출발/도착지 주변 정류장을 도보(WALK)로 연결 (Snap) - 요청별 오버레이 간선
+     * * 3. 다익스트라 알고리즘으로 최단 시간 경로 탐색
+     */
+    @Override
+    public Map<String, Object> solve(double fromLat, double fromLng, double toLat, double toLng, double snapRadiusM, int maxTransfers,
+                                     String format) {
+        return solve(fromLat, fromLng, toLat, toLng, snapRadiusM, maxTransfers, format, null);
+    }
 
-                    // 버스 -> 트램
-                    addEdge(graph, bs.id, new Edge("WALK", "Transfer", bs.id, tramNodeId, walkMin, -1));
-                    // 트램 -> 버스
-                    addEdge(graph, tramNodeId, new Edge("WALK", "Transfer", tramNodeId, bs.id, walkMin, -1));
-                }
-            }
-        }
+    /**
+     * 출발 시간대(departHour, 0~23)를 지정한 탐색
+     * - 그 시간대 샘플이 충분한 BUS 간선은 시간대 평균 소요시간을 쓰고, 나머지는 스냅샷 평균을 쓴다.
+     * - 미래/과거 시간대일 수 있으므로 실시간 지연은 더하지 않는다.
+     */
+    @Override
+    public Map<String, Object> solve(double fromLat, double fromLng, double toLat, double toLng, double snapRadiusM, int maxTransfers,
+                                     String format, Integer departHour) {
 
         // ---------------------------------------------------------
-        // (3) START/END 가상 노드 좌표 등록
+        // (1) 현재 그래프 스냅샷 (요청 처리 중에는 같은 스냅샷만 사용)
         // ---------------------------------------------------------
-        stopPointMap.put(START_ID, new StopPoint(START_ID, fromLat, fromLng));
-        stopPointMap.put(END_ID, new StopPoint(END_ID, toLat, toLng));
+        TransitGraphSnapshot snapshot = transitGraphHolder.current();
 
         // ---------------------------------------------------------
-        // (4) 출발/도착 도보 스냅 (Snap)
+        // (2) 출발/도착 도보 스냅 (Snap) - 스냅샷은 건드리지 않고 요청별 배열로 보관
         // ---------------------------------------------------------
-        for (StopPoint sp : stopPointMap.values()) {
-            if (sp == null) continue;
-            
-            // 자기 자신(START/END)은 건너뜀
-            if (Objects.equals(sp.id, START_ID) || Objects.equals(sp.id, END_ID)) {
-                continue;
-            }
+        SnapEdges snap = SnapEdges.build(snapshot, fromLat, fromLng, toLat, toLng, snapRadiusM, snapMaxCandidates);
 
-            // [출발지 -> 정류장] 거리 계산
-            double dStart = haversineMeters(fromLat, fromLng, sp.lat, sp.lng);
-            if (dStart <= snapRadiusM) {
-                double walkMin = metersToWalkMinutes(dStart);
-                addEdge(graph, START_ID, new Edge("WALK", "Start", START_ID, sp.id, walkMin, -1));
-            }
-
-            // [정류장 -> 도착지] 거리 계산
-            double dEnd = haversineMeters(sp.lat, sp.lng, toLat, toLng);
-            if (dEnd <= snapRadiusM) {
-                double walkMin = metersToWalkMinutes(dEnd);
-                addEdge(graph, sp.id, new Edge("WALK", "End", sp.id, END_ID, walkMin, -1));
-            }
-        }
-
-        // ---------------------------------------------------------
-        // (5) 다익스트라로 최단시간 탐색
         // ---------------------------------------------------------
+        // (3) 다익스트라로 모든 승차 횟수별 최적 경로 탐색
         // ---------------------------------------------------------
-        // (5) 다익스트라로 모든 승차 횟수별 최적 경로 탐색
-        // ---------------------------------------------------------
-        List<DijkstraResult> results = dijkstraAllCandidates(graph, START_ID, END_ID, maxTransfers);
+        SearchStats stats = new SearchStats();
+        SegmentStatsEngine.HourWeights hourWeights = (departHour == null) ? null : segmentStatsEngine.hourWeightsFor(snapshot, departHour);
+        float[] delay = (departHour != null)
+            ? (hourWeights == null ? null : hourWeights.offset) // 시간대 보정값(분, 음수 가능)
+            : liveDelayOverlay.delaysFor(snapshot); // 지연 없으면 null
+        boolean goal = goalDirected && (hourWeights == null || !hourWeights.faster);
+        List<PathCandidate> results = "legacy".equalsIgnoreCase(searchMode)
+            ? dijkstraAllCandidates(snapshot, snap, maxTransfers, stats, delay)
+            : searchPrimitive(snapshot, snap, maxTransfers, stats, delay, goal);
 
         // ---------------------------------------------------------
-        // (6) 결과가 하나도 없으면 빈 결과 반환
+        // (4) 후보별 경로 복원 및 응답 조립 (candidates 구조는 엔진 공통)
         // ---------------------------------------------------------
-        if (results.isEmpty()) {
-            Map<String, Object> out = new HashMap<>();
-            out.put("totalMinutes", 0);
-            out.put("segments", Collections.emptyList());
-            out.put("reason", "NO_PATH");
-            out.put("requestedTransfers", maxTransfers);
-            out.put("candidates", Collections.emptyList()); // 빈 후보 리스트
-            return out;
+        Map<String, Object> out = pathResultBuilder.build(snapshot, snap, fromLat, fromLng, toLat, toLng, maxTransfers, results, getEngineName(), format);
+        out.put("searchStats", stats.toMap());
+        if (departHour != null) {
+            out.put("liveDelay", false);
+            out.put("departHour", departHour);
+            out.put("hourWeightedEdges", (hourWeights == null) ? 0 : hourWeights.edges);
+        } else {
+            putLiveDelay(out, results, delay);
         }
-
-        // ---------------------------------------------------------
-        // (7) 각 결과별 경로 복원 및 후보 리스트 생성
-        // ---------------------------------------------------------
-        List<Map<String, Object>> candidates = new ArrayList<>();
-
-        for (DijkstraResult res : results) {
-            List<Edge> edges = reconstructEdges(res, START_ID, END_ID);
-            List<Map<String, Object>> segments = buildSegments(edges, stopPointMap);
-
-            Map<String, Object> cand = new HashMap<>();
-            cand.put("totalMinutes", res.totalMinutes);
-            cand.put("segments", segments);
-
-            int usedTransfers = (res.usedRides <= 0 ? 0 : Math.max(0, res.usedRides - 1));
-            cand.put("usedTransfers", usedTransfers);
-            cand.put("transferPenaltyMin", TRANSFER_PENALTY_MIN);
-            cand.put("transferPenaltyTotalMinutes", usedTransfers * TRANSFER_PENALTY_MIN);
-
-            candidates.add(cand);
-        }
-
-        // 후보들을 시간순(오름차순)으로 정렬 (가장 빠른게 0번 인덱스)
-        candidates.sort(Comparator.comparingDouble(m -> (double) m.get("totalMinutes")));
-
-        // 기본 응답 구조(하위 호환 및 편리성):
-        // 최상위 필드에는 "Best Candidate(=시간 최소)"의 정보를 채운다.
-        Map<String, Object> best = candidates.get(0);
-        
-        Map<String, Object> out = new HashMap<>();
-        out.putAll(best); // totalMinutes, segments, usedTransfers 등 복사
-
-        out.put("requestedTransfers", maxTransfers);
-        out.put("candidates", candidates); // 전체 후보 리스트 포함
-
         return out;
     }
 
-    // =========================
-    // 유틸: 그래프 간선 추가
-    // =========================
-    private void addEdge(Map<String, List<Edge>> graph, String fromId, Edge edge) {
-        graph.computeIfAbsent(fromId, k -> new ArrayList<>()).add(edge);
-    }
-
-    // =========================
-    // 유틸: 형변환
-    // =========================
-    private String asString(Object o) {
-        return (o == null) ? null : String.valueOf(o);
-    }
-
-    private double asDouble(Object o) {
-        if (o == null) return 0.0;
-        if (o instanceof Number) return ((Number) o).doubleValue();
-        try {
-            return Double.parseDouble(String.valueOf(o));
-        } catch (Exception e) {
-            return 0.0;
+    // 후보별 실시간 지연 합계(분). segments의 minutes는 평균 기준이고 totalMinutes에는 지연이 포함된다.
+    @SuppressWarnings("unchecked")
+    private void putLiveDelay(Map<String, Object> out, List<PathCandidate> results, float[] delay) {
+        out.put("liveDelay", delay != null);
+        if (delay == null) return;
+
+        Map<Integer, Double> byTransfers = new HashMap<>();
+        for (PathCandidate c : results) {
+            double sum = 0.0;
+            for (int code : c.edgeCodes) {
+                if (code >= 0) sum += delay[code];
+            }
+            byTransfers.put(Math.max(0, c.rides - 1), sum);
         }
-    }
-
-
-    private int asInt(Object o, int def) {
-        if (o == null) return def;
-        if (o instanceof Number) return ((Number) o).intValue();
-        try {
-            return Integer.parseInt(String.valueOf(o));
-        } catch (Exception e) {
-            return def;
+        Object candidates = out.get("candidates");
+        if (candidates instanceof List<?> list) {
+            for (Object o : list) {
+                Map<String, Object> cand = (Map<String, Object>) o;
+                cand.put("liveDelayMinutes", byTransfers.get(cand.get("usedTransfers")));
+            }
         }
+        out.put("liveDelayMinutes", byTransfers.get(out.get("usedTransfers")));
     }
 
-    // =========================
-    // 유틸: 도보 시간 및 거리 계산
-    // =========================
-    private double metersToWalkMinutes(double meters) {
-        if (meters <= 0) return 0.0;
-        double sec = meters / WALK_SPEED_MPS;
-        return sec / 60.0;
-    }
-
-    private double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
-        final double R = 6371000.0; // 지구 반지름 (m)
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
-    }
-
-    
-
-// =========================
-// 유틸: TRAM 노드ID("TRAM_244") → 정거장 이름
-// =========================
-private String getTramNameByNodeId(String nodeId) {
-    if (nodeId == null) return null;
-    if (!nodeId.startsWith("TRAM_")) return null;
-    initTramData();
-    for (TramStation ts : tramStations) {
-        String id = "TRAM_" + ts.id;
-        if (id.equals(nodeId)) return ts.name;
+    /**
+     * 허용 환승 횟수(maxTransfers)를 "승차 횟수 상한(MAX_RIDES)"으로 변환한다.
+     *
+     * 규칙:
+     * - 환승 0회 → 승차 1회 (직행만)
+     * - 환승 N회 → 승차 N+1회
+     * - 음수 입력 방지
+     * - 상태 폭발 방지를 위해 상한 캡(maxRidesCap, 1 미만은 1) 적용. Integer.MAX_VALUE 를 넣어도 넘치지 않는다.
+     */
+    static int clampMaxRides(int maxTransfers, int maxRidesCap) {
+        int safeTransfers = Math.max(0, maxTransfers); // 음수 방지
+        int cap = Math.max(1, maxRidesCap);
+        // 캡을 먼저 비교해 +1이 넘치지 않게 한다
+        return (safeTransfers >= cap) ? cap : safeTransfers + 1;
     }
-    return null;
-}
 
-// =========================
-// 유틸: BUS 노드ID("DJB800....") → 정류장 이름
-// =========================
-private String getBusStopNameByNodeId(String routeId, String nodeId) {
-    if (routeId == null || routeId.isBlank()) return null;
-    if (nodeId == null || nodeId.isBlank()) return null;
-
-    try {
-        Map<String, String> map = BUS_ROUTE_STOPNAME_CACHE.get(routeId);
-        if (map == null) {
-            map = fetchAndCacheRouteStopNameMap(routeId);
-        }
-        if (map == null) return null;
-        return map.get(nodeId);
-    } catch (Exception ignore) {
-        return null;
-    }
-}
-
-private Map<String, String> fetchAndCacheRouteStopNameMap(String routeId) {
-    // 이미 누가 채웠을 수 있으므로, double-check 방식으로 최소 호출
-    Map<String, String> cached = BUS_ROUTE_STOPNAME_CACHE.get(routeId);
-    if (cached != null) return cached;
-
-    try {
-        String url = UriComponentsBuilder
-                .fromHttpUrl("http://apis.data.go.kr/1613000/BusRouteInfoInqireService/getRouteAcctoThrghSttnList")
-                .queryParam("serviceKey", TAGO_SERVICE_KEY)
-                .queryParam("_type", "json")
-                .queryParam("cityCode", TAGO_CITY_CODE)
-                .queryParam("routeId", routeId)
-                .queryParam("pageNo", "1")
-                .queryParam("numOfRows", "300")
-                .build(false)
-                .toUriString();
-
-        String body = busNameRestTemplate.getForObject(url, String.class);
-        if (body == null || body.isBlank()) {
-            BUS_ROUTE_STOPNAME_CACHE.put(routeId, Collections.emptyMap());
-            return BUS_ROUTE_STOPNAME_CACHE.get(routeId);
-        }
-
-        JsonNode root = busNameObjectMapper.readTree(body);
-        JsonNode itemsNode = root.path("response").path("body").path("items").path("item");
-
-        Map<String, String> map = new HashMap<>();
-        if (itemsNode.isArray()) {
-            for (JsonNode it : itemsNode) {
-                String nid = safeText(it, "nodeid");
-                String nm = safeText(it, "nodenm");
-                if (nid != null && !nid.isBlank() && nm != null && !nm.isBlank()) {
-                    map.putIfAbsent(nid, nm);
-                }
-            }
-        } else if (itemsNode.isObject()) {
-            String nid = safeText(itemsNode, "nodeid");
-            String nm = safeText(itemsNode, "nodenm");
-            if (nid != null && !nid.isBlank() && nm != null && !nm.isBlank()) {
-                map.putIfAbsent(nid, nm);
-            }
-        }
-
-        BUS_ROUTE_STOPNAME_CACHE.put(routeId, map);
-        return map;
-    } catch (HttpStatusCodeException ex) {
-        // 외부 API 오류(4xx/5xx)는 캐시를 비워둬서 동일 routeId에 대해 계속 폭발하지 않도록 막는다.
-        BUS_ROUTE_STOPNAME_CACHE.put(routeId, Collections.emptyMap());
-        return BUS_ROUTE_STOPNAME_CACHE.get(routeId);
-    } catch (Exception ex) {
-        BUS_ROUTE_STOPNAME_CACHE.put(routeId, Collections.emptyMap());
-        return BUS_ROUTE_STOPNAME_CACHE.get(routeId);
+    /**
+     * 실제로 탐색에 쓰는 환승 횟수 = clampMaxRides - 1 (응답의 effectiveTransfers)
+     */
+    static int effectiveTransfers(int maxTransfers, int maxRidesCap) {
+        return clampMaxRides(maxTransfers, maxRidesCap) - 1;
     }
-}
-
-private String safeText(JsonNode node, String field) {
-    if (node == null || field == null) return null;
-    JsonNode v = node.get(field);
-    if (v == null || v.isNull()) return null;
-    return v.asText(null);
-}
 
-// =========================
-// 유틸: routeId -> routeNo 조회 (추가됨)
-// =========================
-private String getBusRouteNoByRouteId(String routeId) {
-    if (routeId == null || routeId.isBlank()) return null;
-    
-    // 1. 캐시 확인
-    if (BUS_ROUTE_NUMBER_CACHE.containsKey(routeId)) {
-        return BUS_ROUTE_NUMBER_CACHE.get(routeId);
-    }
-    
-    // 2. API 호출
-    try {
-        String url = "http://apis.data.go.kr/1613000/BusRouteInfoInqireService/getRouteInfoIem"
-                + "?serviceKey=" + TAGO_SERVICE_KEY
-                + "&_type=json"
-                + "&cityCode=" + TAGO_CITY_CODE
-                + "&routeId=" + routeId;
-                
-        String body = busNameRestTemplate.getForObject(url, String.class);
-        JsonNode root = busNameObjectMapper.readTree(body);
-        JsonNode item = root.path("response").path("body").path("items").path("item");
-        
-        String routeNo = safeText(item, "routeno");
-        if (routeNo != null) {
-            BUS_ROUTE_NUMBER_CACHE.put(routeId, routeNo);
-            return routeNo;
-        }
-    } catch (Exception e) {
-        // e.printStackTrace();
-    }
-    
-    // 실패 시 routeId 반환 혹은 null
-    BUS_ROUTE_NUMBER_CACHE.put(routeId, routeId); // 실패해도 캐시에 넣어 재시도 방지
-    return routeId;
-}
-/**
- * 허용 환승 횟수(maxTransfers)를 "승차 횟수 상한(MAX_RIDES)"으로 변환한다.
- *
- * 규칙:
- * - 환승 0회 → 승차 1회 (직행만)
- * - 환승 N회 → 승차 N+1회
- * - 음수 입력 방지
- * - 상태 폭발 방지를 위해 상한 캡 적용
- */
-private int clampMaxRides(int maxTransfers) {
-    int safeTransfers = Math.max(0, maxTransfers); // 음수 방지
-    // 요청한 "환승 횟수"를 그대로 "승차 횟수" 상한으로 변환한다.
-    // - 환승 0회 → 승차 1회
-    // - 환승 N회 → 승차 N+1회
-    return safeTransfers + 1;
-}
-// ✅ 여기까지    // =========================
+    // =========================
     // 다익스트라 알고리즘 (수정됨: 모든 환승 횟수별 최적 경로 탐색)
     // =========================
-    private List<DijkstraResult> dijkstraAllCandidates(Map<String, List<Edge>> graph, String startId, String endId, int maxTransfers) {
-        final int MAX_RIDES = clampMaxRides(maxTransfers);
+    private List<PathCandidate> dijkstraAllCandidates(TransitGraphSnapshot g, SnapEdges snap, int maxTransfers, SearchStats stats,
+                                                      float[] delay) {
+        final int MAX_RIDES = clampMaxRides(maxTransfers, maxRidesCap);
+        final long t0 = System.nanoTime();
 
         // stateKey -> dist (전체 상태 공간 최단거리)
         Map<String, Double> dist = new HashMap<>();
         // stateKey -> prevStateKey (경로 복원용)
         Map<String, String> prevState = new HashMap<>();
-        // stateKey -> prevEdge (경로 복원용)
-        Map<String, Edge> prevEdge = new HashMap<>();
+        // stateKey -> prevEdge (경로 복원용, CSR 간선 번호 또는 스냅 간선 코드)
+        Map<String, Integer> prevEdge = new HashMap<>();
 
         PriorityQueue<NodeDist> pq = new PriorityQueue<>(Comparator.comparingDouble(a -> a.dist));
 
-        String startKey = stateKey(startId, "NONE", "", -1, 0);
+        String startKey = stateKey(snap.startNode, MODE_NONE, -1, -1, 0);
         dist.put(startKey, 0.0);
         pq.add(new NodeDist(startKey, 0.0));
 
-        // 각 승차 횟수(rideCount)별로 도착지(endId)에 도달한 최단 거리/상태를 기록
+        // 각 승차 횟수(rideCount)별로 도착지(END)에 도달한 최단 거리/상태를 기록
         // Index 0 사용 안함. rides=1(직행)..MAX_RIDES
         // bestEndDists[r] = 승차 r회로 도착했을 때의 최소 시간
         double[] bestEndDists = new double[MAX_RIDES + 1];
@@ -611,6 +215,7 @@ private int clampMaxRides(int maxTransfers) {
         for (int i = 0; i <= MAX_RIDES; i++) {
             bestEndDists[i] = Double.POSITIVE_INFINITY;
         }
+        int settledBuckets = 0;
 
         while (!pq.isEmpty()) {
             NodeDist cur = pq.poll();
@@ -618,33 +223,54 @@ private int clampMaxRides(int maxTransfers) {
             if (cur.dist > dist.getOrDefault(cur.stateKey, Double.POSITIVE_INFINITY)) {
                 continue;
             }
+            stats.expandedStates++;
 
             State curState = parseStateKey(cur.stateKey);
+            int u = curState.node;
 
             // 도착지 도달 확인
-            if (Objects.equals(curState.nodeId, endId)) {
+            if (u == snap.endNode) {
                 int rides = curState.rideCount;
                 if (rides >= 1 && rides <= MAX_RIDES) {
                     // 해당 승차 횟수에서 더 빠른 길이면 업데이트
                     if (cur.dist < bestEndDists[rides]) {
+                        if (bestEndKeys[rides] == null) settledBuckets++;
                         bestEndDists[rides] = cur.dist;
                         bestEndKeys[rides] = cur.stateKey;
                     }
                 }
-                // 여기서 break하지 않고 계속 탐색 (다른 승차 횟수의 최적해도 찾아야 함)
+                // 모든 승차 횟수의 최적해가 확정되면 종료 (꺼낸 순서 = 시간 순이므로 이후 값은 더 나쁘다)
+                if (settledBuckets == MAX_RIDES) {
+                    stats.earlyStop = !pq.isEmpty();
+                    break;
+                }
+                continue; // END에서 나가는 간선은 없다
             }
 
-            List<Edge> neighbors = graph.getOrDefault(curState.nodeId, Collections.emptyList());
-            for (Edge e : neighbors) {
+            // (A) START → 스냅 정류장 (도보)
+            if (u == snap.startNode) {
+                for (int i = 0; i < snap.startNodes.length; i++) {
+                    String nextKey = stateKey(snap.startNodes[i], TransitGraphSnapshot.MODE_WALK, -1, -1, curState.rideCount);
+                    relax(dist, prevState, prevEdge, pq, cur, nextKey, snap.startMinutes[i], SnapEdges.startEdgeCode(i));
+                }
+                continue;
+            }
+
+            // (B) 스냅샷 CSR 간선 (BUS / TRAM / 환승 도보)
+            for (int e = g.edgeStart[u]; e < g.edgeStart[u + 1]; e++) {
+                byte mode = g.edgeMode[e];
+                int route = g.edgeRoute[e];
+                int dir = g.edgeDir[e];
+
                 // (1) 승차 카운트 / 환승 페널티 계산
                 int nextRides = curState.rideCount;
                 double penalty = 0.0;
 
-                if ("BUS".equals(e.mode) || "TRAM".equals(e.mode)) {
+                if (mode != TransitGraphSnapshot.MODE_WALK) {
                     boolean isSameVehicle =
-                        Objects.equals(curState.mode, e.mode) &&
-                        Objects.equals(curState.routeId, e.routeId) &&
-                        (!"BUS".equals(e.mode) || curState.updowncd == e.updowncd);
+                        curState.mode == mode &&
+                        curState.route == route &&
+                        (mode != TransitGraphSnapshot.MODE_BUS || curState.updowncd == dir);
 
                     if (!isSameVehicle) {
                         // 새로 승차(또는 환승)
@@ -659,218 +285,147 @@ private int clampMaxRides(int maxTransfers) {
                     continue; // 상한 초과
                 }
 
-                // (2) 다음 상태 키 구성
-                String nextMode = e.mode;
-                String nextRoute = (e.routeId == null ? "" : e.routeId);
-                if ("WALK".equals(nextMode)) {
-                    nextMode = "WALK";
-                    nextRoute = "";
-                }
-                int nextUpdown = ("BUS".equals(nextMode) ? e.updowncd : -1);
-                String nextKey = stateKey(e.toId, nextMode, nextRoute, nextUpdown, nextRides);
-
-                // (3) 거리(시간) 갱신
-                double step = Math.max(0.0, e.minutes) + penalty;
-                double newDist = cur.dist + step;
-
-                if (newDist < dist.getOrDefault(nextKey, Double.POSITIVE_INFINITY)) {
-                    dist.put(nextKey, newDist);
-                    prevState.put(nextKey, cur.stateKey);
-                    prevEdge.put(nextKey, e);
-                    pq.add(new NodeDist(nextKey, newDist));
-                }
+                // (2) 다음 상태 키 구성 (도보는 노선/방향 없음)
+                int nextRoute = (mode == TransitGraphSnapshot.MODE_WALK ? -1 : route);
+                int nextUpdown = (mode == TransitGraphSnapshot.MODE_BUS ? dir : -1);
+                String nextKey = stateKey(g.edgeTarget[e], mode, nextRoute, nextUpdown, nextRides);
+
+                // (3) 거리(시간) 갱신 - 실시간 지연이 있으면 평균 소요시간에 더한다
+                double step = Math.max(0.0, g.edgeMinutes[e]) + (delay == null ? 0.0 : delay[e]) + penalty;
+                relax(dist, prevState, prevEdge, pq, cur, nextKey, step, e);
+            }
+
+            // (C) 스냅 정류장 → END (도보)
+            int endIdx = snap.endIndexOf(u);
+            if (endIdx >= 0) {
+                String nextKey = stateKey(snap.endNode, TransitGraphSnapshot.MODE_WALK, -1, -1, curState.rideCount);
+                relax(dist, prevState, prevEdge, pq, cur, nextKey, snap.endMinutes[endIdx], SnapEdges.endEdgeCode(endIdx));
             }
         }
 
+        stats.elapsedNanos = System.nanoTime() - t0;
+
         // 결과 수집
-        List<DijkstraResult> results = new ArrayList<>();
+        List<PathCandidate> results = new ArrayList<>();
         for (int r = 1; r <= MAX_RIDES; r++) {
             if (bestEndKeys[r] != null) {
                 // 승차 r회로 도착하는 경로가 존재함
-                DijkstraResult res = new DijkstraResult();
-                res.totalMinutes = bestEndDists[r];
-                res.endStateKey = bestEndKeys[r];
-                res.prevState = prevState;
-                res.prevEdge = prevEdge;
-                res.usedRides = r;
-                results.add(res);
+                int[] codes = reconstructEdgeCodes(startKey, bestEndKeys[r], prevState, prevEdge);
+                if (codes != null) {
+                    results.add(new PathCandidate(r, bestEndDists[r], codes));
+                }
             }
         }
         return results;
     }
 
     // =========================
-    // 경로 역추적 (End -> Start)
+    // 기본형 엔진 탐색 (결과 형식은 기존 다익스트라와 동일)
     // =========================
-    private List<Edge> reconstructEdges(DijkstraResult result, String startId, String endId) {
-        if (result == null || result.endStateKey == null) {
-            return Collections.emptyList();
+    private List<PathCandidate> searchPrimitive(TransitGraphSnapshot g, SnapEdges snap, int maxTransfers, SearchStats stats,
+                                                float[] delay, boolean goal) {
+        int maxRides = clampMaxRides(maxTransfers, maxRidesCap);
+        if (chainCompression) {
+            return TransitSearchEngine.searchAllRidesChained(chainGraphFor(g), snap, maxRides, TRANSFER_PENALTY_MIN, goal, stats, delay);
         }
+        return TransitSearchEngine.searchAllRides(g, snap, maxRides, TRANSFER_PENALTY_MIN, goal, stats, delay);
+    }
 
-        List<Edge> edges = new ArrayList<>();
-        String curKey = result.endStateKey;
-
-        // startKey는 dijkstra()에서 시작한 상태와 동일해야 함
-        String startKey = stateKey(startId, "NONE", "", -1, 0);
-
-        while (!Objects.equals(curKey, startKey)) {
-            Edge e = result.prevEdge.get(curKey);
-            String prevKey = result.prevState.get(curKey);
-
-            if (e == null || prevKey == null) {
-                // 역추적 불가(연결 끊김) → 빈 경로
-                return Collections.emptyList();
+    private ChainGraph chainGraphFor(TransitGraphSnapshot snapshot) {
+        ChainGraph c = chainGraph;
+        if (c != null && c.snapshot == snapshot) return c;
+
+        synchronized (this) {
+            c = chainGraph;
+            if (c == null || c.snapshot != snapshot) {
+                long t0 = System.currentTimeMillis();
+                c = ChainGraph.build(snapshot);
+                chainGraph = c;
+                System.out.println("[PATH][CHAIN] compressed graph built. version=" + snapshot.getVersion()
+                    + " nodes=" + snapshot.getNodeCount() + " interior=" + c.interiorCount
+                    + " edges=" + snapshot.getEdgeCount() + " chainEdges=" + c.edgeCount
+                    + " ms=" + (System.currentTimeMillis() - t0));
             }
-
-            edges.add(e);
-            curKey = prevKey;
+            return c;
         }
+    }
 
-        Collections.reverse(edges); // Start -> End 순서로 뒤집기
-        return edges;
+    private void relax(
+        Map<String, Double> dist, Map<String, String> prevState, Map<String, Integer> prevEdge,
+        PriorityQueue<NodeDist> pq, NodeDist cur, String nextKey, double step, int edgeCode
+    ) {
+        double newDist = cur.dist + step;
+        if (newDist < dist.getOrDefault(nextKey, Double.POSITIVE_INFINITY)) {
+            dist.put(nextKey, newDist);
+            prevState.put(nextKey, cur.stateKey);
+            prevEdge.put(nextKey, edgeCode);
+            pq.add(new NodeDist(nextKey, newDist));
+        }
     }
 
     // =========================
-    // 프론트엔드 응답용 Segment 빌드
+    // 경로 역추적 (End -> Start) → START -> END 순서의 간선 코드
     // =========================
-    private List<Map<String, Object>> buildSegments(List<Edge> edges, Map<String, StopPoint> stopPointMap) {
-        if (edges == null || edges.isEmpty()) return Collections.emptyList();
-
-        List<Map<String, Object>> segments = new ArrayList<>();
-        Map<String, Object> curSeg = null;
-        String curMode = null;
-        String curRouteId = null;
-        Integer curUpdowncd = null;
-
-        for (Edge e : edges) {
-            boolean newSegment = (curSeg == null) 
-                || !Objects.equals(curMode, e.mode)
-                || ("BUS".equals(e.mode) && (!Objects.equals(curRouteId, e.routeId) || !Objects.equals(curUpdowncd, e.updowncd)));
-
-            if (newSegment) {
-                if (curSeg != null) segments.add(curSeg);
-
-                curMode = e.mode;
-                curRouteId = e.routeId;
-                curUpdowncd = ("BUS".equals(e.mode) ? Integer.valueOf(e.updowncd) : null);
-
-                curSeg = new HashMap<>();
-                curSeg.put("mode", e.mode);
-                curSeg.put("routeId", e.routeId);
-                if ("BUS".equals(e.mode)) {
-                    curSeg.put("updowncd", e.updowncd);
-                    curSeg.put("routeNo", getBusRouteNoByRouteId(e.routeId)); // 노선번호 추가
-                }
-                curSeg.put("minutes", 0.0);
-                curSeg.put("points", new ArrayList<double[]>());
-                curSeg.put("nodeIds", new ArrayList<String>());
-                curSeg.put("nodeNames", new ArrayList<String>());
-}
-
-            double oldMin = (double) curSeg.get("minutes");
-            curSeg.put("minutes", oldMin + e.minutes);
-
-            @SuppressWarnings("unchecked")
-List<double[]> points = (List<double[]>) curSeg.get("points");
-
-@SuppressWarnings("unchecked")
-List<String> nodeIds = (List<String>) curSeg.get("nodeIds");
-
-@SuppressWarnings("unchecked")
-List<String> nodeNames = (List<String>) curSeg.get("nodeNames");
+    private int[] reconstructEdgeCodes(String startKey, String endKey, Map<String, String> prevState, Map<String, Integer> prevEdge) {
+        List<Integer> codes = new ArrayList<>();
+        String curKey = endKey;
 
-StopPoint from = stopPointMap.get(e.fromId);
-StopPoint to = stopPointMap.get(e.toId);
-
-if (from != null) {
-    points.add(new double[]{from.lng, from.lat});
-    nodeIds.add(e.fromId);
-    if ("TRAM".equals(e.mode)) {
-        nodeNames.add(getTramNameByNodeId(e.fromId));
-    } else if ("BUS".equals(e.mode)) {
-        nodeNames.add(getBusStopNameByNodeId(e.routeId, e.fromId));
-    } else {
-        nodeNames.add(null);
-    }
-}
+        while (!Objects.equals(curKey, startKey)) {
+            Integer code = prevEdge.get(curKey);
+            String prevKey = prevState.get(curKey);
 
-if (to != null) {
-    points.add(new double[]{to.lng, to.lat});
-    nodeIds.add(e.toId);
-    if ("TRAM".equals(e.mode)) {
-        nodeNames.add(getTramNameByNodeId(e.toId));
-    } else if ("BUS".equals(e.mode)) {
-        nodeNames.add(getBusStopNameByNodeId(e.routeId, e.toId));
-    } else {
-        nodeNames.add(null);
-    }
-}}
+            if (code == null || prevKey == null) {
+                // 역추적 불가(연결 끊김) → 후보에서 제외
+                return null;
+            }
 
-        if (curSeg != null) segments.add(curSeg);
+            codes.add(code);
+            curKey = prevKey;
+        }
 
-        return segments;
+        int[] out = new int[codes.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = codes.get(out.length - 1 - i); // Start -> End 순서로 뒤집기
+        }
+        return out;
     }
 
     // =========================
     // 내부 클래스 정의
     // =========================
-    private static class StopPoint {
-        String id; double lat, lng;
-        StopPoint(String id, double lat, double lng) { this.id=id; this.lat=lat; this.lng=lng; }
-    }
-
-    private static class Edge {
-        String mode, routeId, fromId, toId;
-        double minutes;
-        int updowncd; // BUS 방향(0:상행, 1:하행), BUS가 아니면 -1
-
-        Edge(String m, String r, String f, String t, double min, int updowncd) {
-            this.mode = m;
-            this.routeId = r;
-            this.fromId = f;
-            this.toId = t;
-            this.minutes = min;
-            this.updowncd = updowncd;
-        }
-    }
+    // 상태의 "현재 탑승 수단" 초기값(START)
+    private static final byte MODE_NONE = -1;
 
     private static class State {
-        String nodeId;
-        String mode;
-        String routeId;
-        int updowncd; // BUS 방향(0/1). BUS가 아니면 -1
+        int node;       // 노드 인덱스 (START/END는 SnapEdges의 가상 인덱스)
+        byte mode;      // MODE_BUS / MODE_TRAM / MODE_WALK / MODE_NONE
+        int route;      // 노선 인덱스, 도보/START는 -1
+        int updowncd;   // BUS 방향(0/1). BUS가 아니면 -1
         int rideCount;
 
-        State(String nodeId, String mode, String routeId, int updowncd, int rideCount) {
-            this.nodeId = nodeId;
+        State(int node, byte mode, int route, int updowncd, int rideCount) {
+            this.node = node;
             this.mode = mode;
-            this.routeId = routeId;
+            this.route = route;
             this.updowncd = updowncd;
             this.rideCount = rideCount;
         }
     }
 
-    private String stateKey(String nodeId, String mode, String routeId, int updowncd, int rideCount) {
-        return String.valueOf(nodeId) + "|" + String.valueOf(mode) + "|" + String.valueOf(routeId) + "|" + updowncd + "|" + rideCount;
+    private String stateKey(int node, byte mode, int route, int updowncd, int rideCount) {
+        return node + "|" + mode + "|" + route + "|" + updowncd + "|" + rideCount;
     }
 
     private State parseStateKey(String key) {
-        // key format: nodeId|mode|routeId|updowncd|rideCount
-        if (key == null) return new State("", "NONE", "", -1, 0);
-
+        // key format: node|mode|route|updowncd|rideCount
         String[] parts = key.split("\\|", -1);
-        String nodeId = (parts.length > 0 ? parts[0] : "");
-        String mode = (parts.length > 1 ? parts[1] : "NONE");
-        String routeId = (parts.length > 2 ? parts[2] : "");
-        int updowncd = -1;
-        if (parts.length > 3) {
-            try { updowncd = Integer.parseInt(parts[3]); } catch (Exception ignore) {}
-        }
-        int rideCount = 0;
-        if (parts.length > 4) {
-            try { rideCount = Integer.parseInt(parts[4]); } catch (Exception ignore) {}
-        }
-        return new State(nodeId, mode, routeId, updowncd, rideCount);
+        return new State(
+            Integer.parseInt(parts[0]),
+            Byte.parseByte(parts[1]),
+            Integer.parseInt(parts[2]),
+            Integer.parseInt(parts[3]),
+            Integer.parseInt(parts[4])
+        );
     }
 
     private static class NodeDist {
@@ -882,18 +437,6 @@ if (to != null) {
             dist = d;
         }
     }
-
-    private static class DijkstraResult {
-        double totalMinutes;
-        String endStateKey;
-        Map<String, String> prevState;
-        Map<String, Edge> prevEdge;
-
-        // 요청/결과 승차 횟수 정보 (환승 수는 rides-1)
-        int requestedRides;
-        int usedRides;
-        boolean exactMatched;
-    }
 }
 
-// 수정됨 끝
\ No newline at end of file
+// 수정됨 끝
@@ -0,0 +1,204 @@
+// 추가됨: 구간 소요시간 분위수 스케치 - 로그 버킷(상대 오차 보장) 히스토그램, 합치기(merge) 가능, 작은 BLOB으로 직렬화
+//        - 도착정보 차이 샘플은 GPS 튐/예측 초기화로 이상값이 섞여 평균 하나로는 왜곡된다. p50/p90과 이상값 판정에 쓴다.
+//        - 같은 설정의 스케치끼리는 버킷 개수를 더하기만 하면 합쳐진다(수집기 인스턴스/날짜별 스케치를 원본 샘플 없이 합친다).
+
+package com.example.demo.service.path.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 분위수 스케치 (DDSketch 방식)
+ *
+ * - 값 v(초)는 버킷 i = ceil(log_γ v), γ = (1 + α) / (1 - α) 에 들어가고, 분위수는 버킷 대표값 2γ^i / (γ + 1)로 돌려준다.
+ *   대표값과 실제 값의 상대 오차는 α(RELATIVE_ACCURACY = 2%) 이하다.
+ * - 버킷은 [minIndex, minIndex + counts.length) 구간의 조밀 배열(int[])로 둔다. 구간 길이는 MAX_BUCKETS 이하이고,
+ *   넘으면 가장 낮은 버킷들을 하나로 접는다(높은 분위수 정확도를 유지, 낮은 쪽 꼬리만 뭉개진다).
+ * - 메모리 상한: 버킷 배열 4 x MAX_BUCKETS(128) = 512바이트 + 객체/배열 머리 약 40바이트.
+ *   수집기가 소요시간을 15~1800초로 자르므로 전 구간이 약 120버킷이고, 한 구간의 실제 분포는 보통 20~50버킷(100~200바이트)이다.
+ * - 직렬화: 형식 버전(1) + 상대 오차(1/10000 단위, 2) + minIndex(4) + 버킷 수(2) + 버킷별 개수(가변 길이 정수).
+ * - 동기화하지 않는다(호출부가 잠근다).
+ */
+public final class QuantileSketch {
+
+    // 상대 오차 α
+    public static final double RELATIVE_ACCURACY = 0.02;
+
+    // 버킷 구간 최대 길이
+    public static final int MAX_BUCKETS = 128;
+
+    private static final double GAMMA = (1.0 + RELATIVE_ACCURACY) / (1.0 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final byte FORMAT_VERSION = 1;
+    private static final short ACCURACY_CODE = (short) Math.round(RELATIVE_ACCURACY * 10000);
+
+    // 1초 미만은 1초로 본다
+    private static final double MIN_VALUE = 1.0;
+
+    private static final int[] EMPTY = new int[0];
+
+    private int minIndex;
+    private int[] counts = EMPTY;
+    private long count;
+
+    /**
+     * 값 1개 추가
+     */
+    public void add(double value) {
+        addIndex(index(value), 1);
+    }
+
+    /**
+     * 다른 스케치를 합친다(버킷별 개수 합).
+     */
+    public void merge(QuantileSketch other) {
+        if (other == null) return;
+        for (int i = 0; i < other.counts.length; i++) {
+            addIndex(other.minIndex + i, other.counts[i]);
+        }
+    }
+
+    /**
+     * 분위수 q(0~1)의 근사값(초). 비어 있으면 NaN
+     */
+    public double quantile(double q) {
+        if (count == 0) return Double.NaN;
+
+        double rank = Math.max(0.0, Math.min(1.0, q)) * (count - 1);
+        long cum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cum += counts[i];
+            if (cum > rank) return value(minIndex + i);
+        }
+        return value(minIndex + counts.length - 1);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * 버킷 배열 길이
+     */
+    public int bucketCount() {
+        return counts.length;
+    }
+
+    /**
+     * 대략적인 메모리 사용량(바이트): 객체 머리 + 필드 + 배열 머리 + 버킷 배열
+     */
+    public int memoryBytes() {
+        return 40 + 4 * counts.length;
+    }
+
+    /**
+     * BLOB 직렬화
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(9 + counts.length * 2);
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeShort(ACCURACY_CODE);
+            out.writeInt(minIndex);
+            out.writeShort(counts.length);
+            for (int c : counts) writeVarInt(out, c);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // 메모리 스트림이라 일어나지 않는다
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * BLOB 역직렬화
+     *
+     * @throws IllegalArgumentException 형식 버전/상대 오차가 다르거나 깨진 값
+     */
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        QuantileSketch s = new QuantileSketch();
+        if (bytes == null || bytes.length == 0) return s;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte();
+            short accuracy = in.readShort();
+            if (version != FORMAT_VERSION || accuracy != ACCURACY_CODE) {
+                throw new IllegalArgumentException("sketch format mismatch version=" + version + " accuracy=" + accuracy);
+            }
+            int lo = in.readInt();
+            int n = in.readUnsignedShort();
+            if (n > MAX_BUCKETS) {
+                throw new IllegalArgumentException("sketch buckets=" + n);
+            }
+            for (int i = 0; i < n; i++) {
+                s.addIndex(lo + i, readVarInt(in));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("sketch truncated", e);
+        }
+        return s;
+    }
+
+    private void addIndex(int idx, long n) {
+        if (n <= 0) return;
+
+        if (counts.length == 0) {
+            minIndex = idx;
+            counts = new int[1];
+        } else if (idx < minIndex || idx >= minIndex + counts.length) {
+            int lo = Math.min(minIndex, idx);
+            int hi = Math.max(minIndex + counts.length - 1, idx);
+            if (hi - lo + 1 > MAX_BUCKETS) lo = hi - MAX_BUCKETS + 1;
+            resize(lo, hi);
+        }
+
+        int i = Math.max(idx, minIndex) - minIndex; // 접힌 아래쪽 값은 가장 낮은 버킷으로
+        counts[i] = (int) Math.min(Integer.MAX_VALUE, (long) counts[i] + n);
+        count += n;
+    }
+
+    // 버킷 구간을 [lo, hi]로 바꾼다. lo 아래 버킷은 lo로 접는다.
+    private void resize(int lo, int hi) {
+        int[] next = new int[hi - lo + 1];
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            int j = Math.max(minIndex + i, lo) - lo;
+            next[j] = (int) Math.min(Integer.MAX_VALUE, (long) next[j] + counts[i]);
+        }
+        minIndex = lo;
+        counts = next;
+    }
+
+    private static int index(double value) {
+        return (int) Math.ceil(Math.log(Math.max(MIN_VALUE, value)) / LOG_GAMMA);
+    }
+
+    private static double value(int index) {
+        return 2.0 * Math.pow(GAMMA, index) / (GAMMA + 1.0);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("varint too long");
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,135 @@
+// 추가됨: RAPTOR 엔진용 패턴(노선+방향)별 간선 목록 / 정류장별 경유 패턴 목록
+//        - 그래프 스냅샷에서 한 번 계산해 두고, 스냅샷이 교체되면 다시 만든다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * RAPTOR 라운드 탐색용 보조 테이블 (불변)
+ *
+ * - patternEdges[patternEdgeStart[p] .. patternEdgeStart[p+1]) : 패턴 p의 간선(CSR 번호)
+ *   시점 정류장(패턴 안에서 들어오는 간선이 없는 정류장)부터 BFS 순서로 나열한다.
+ *   (segment_weight에는 정류장 순번이 없으므로 간선을 이어 붙여 순서를 만든다)
+ * - nodePatterns[nodePatternStart[v] .. nodePatternStart[v+1]) : 정류장 v에서 승차할 수 있는 패턴
+ */
+final class RaptorData {
+
+    final TransitGraphSnapshot snapshot;
+
+    final int[] patternEdgeStart;
+    final int[] patternEdges;
+
+    final int[] nodePatternStart;
+    final int[] nodePatterns;
+
+    private RaptorData(TransitGraphSnapshot snapshot, int[] patternEdgeStart, int[] patternEdges,
+                       int[] nodePatternStart, int[] nodePatterns) {
+        this.snapshot = snapshot;
+        this.patternEdgeStart = patternEdgeStart;
+        this.patternEdges = patternEdges;
+        this.nodePatternStart = nodePatternStart;
+        this.nodePatterns = nodePatterns;
+    }
+
+    static RaptorData build(TransitGraphSnapshot g) {
+        int m = g.edgeCount;
+        int n = g.nodeCount;
+        int pc = g.patternCount;
+
+        // ---------------------------------------------------------
+        // (1) 패턴별 간선 묶기 (계수 정렬)
+        // ---------------------------------------------------------
+        int[] patternEdgeStart = new int[pc + 1];
+        for (int e = 0; e < m; e++) {
+            if (g.edgePattern[e] >= 0) patternEdgeStart[g.edgePattern[e] + 1]++;
+        }
+        for (int p = 0; p < pc; p++) {
+            patternEdgeStart[p + 1] += patternEdgeStart[p];
+        }
+        int[] grouped = new int[patternEdgeStart[pc]];
+        int[] cursor = Arrays.copyOf(patternEdgeStart, pc);
+        for (int e = 0; e < m; e++) {
+            int p = g.edgePattern[e];
+            if (p >= 0) grouped[cursor[p]++] = e;
+        }
+
+        // ---------------------------------------------------------
+        // (2) 패턴 안에서 운행 순서 만들기 (시점 정류장부터 BFS, 순환 노선은 아무 정류장에서 시작)
+        // ---------------------------------------------------------
+        int[] patternEdges = new int[grouped.length];
+        int[] inDegree = new int[n];
+        boolean[] visited = new boolean[n];
+        boolean[] edgeUsed = new boolean[m];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        for (int p = 0; p < pc; p++) {
+            int from = patternEdgeStart[p];
+            int to = patternEdgeStart[p + 1];
+            int out = from;
+
+            for (int i = from; i < to; i++) inDegree[g.edgeTarget[grouped[i]]]++;
+
+            // 시점 정류장 우선, 남은 간선(순환 구간)은 출발 정류장에서 이어서 시작
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = from; i < to; i++) {
+                    int e = grouped[i];
+                    int src = g.edgeSource[e];
+                    if (edgeUsed[e] || visited[src]) continue;
+                    if (pass == 0 && inDegree[src] > 0) continue;
+
+                    visited[src] = true;
+                    queue.add(src);
+                    while (!queue.isEmpty()) {
+                        int u = queue.poll();
+                        for (int j = from; j < to; j++) {
+                            int ej = grouped[j];
+                            if (edgeUsed[ej] || g.edgeSource[ej] != u) continue;
+                            edgeUsed[ej] = true;
+                            patternEdges[out++] = ej;
+                            int v = g.edgeTarget[ej];
+                            if (!visited[v]) {
+                                visited[v] = true;
+                                queue.add(v);
+                            }
+                        }
+                    }
+                }
+            }
+
+            // 되돌리기 (다음 패턴에서 재사용)
+            for (int i = from; i < to; i++) {
+                int e = grouped[i];
+                inDegree[g.edgeTarget[e]] = 0;
+                visited[g.edgeSource[e]] = false;
+                visited[g.edgeTarget[e]] = false;
+            }
+        }
+
+        // ---------------------------------------------------------
+        // (3) 정류장별 승차 가능 패턴 (출발 간선 기준, 중복 제거)
+        // ---------------------------------------------------------
+        int[] nodePatternStart = new int[n + 1];
+        int[] tmp = new int[m];
+        int total = 0;
+        for (int u = 0; u < n; u++) {
+            nodePatternStart[u] = total;
+            int begin = total;
+            for (int e = g.edgeStart[u]; e < g.edgeStart[u + 1]; e++) {
+                int p = g.edgePattern[e];
+                if (p < 0) continue;
+                boolean dup = false;
+                for (int k = begin; k < total; k++) {
+                    if (tmp[k] == p) { dup = true; break; }
+                }
+                if (!dup) tmp[total++] = p;
+            }
+        }
+        nodePatternStart[n] = total;
+
+        return new RaptorData(g, patternEdgeStart, patternEdges, nodePatternStart, Arrays.copyOf(tmp, total));
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,473 @@
+// 추가됨: RAPTOR(라운드 기반) 경로 엔진 - 두 번째 IPathService 구현
+//        - 라운드 k = 승차 k회. 라운드마다 "직전 라운드에서 갱신된 정류장"을 지나는 패턴만 훑는다.
+//        - 결과는 (총 시간 x 승차 횟수) 파레토 집합이며, 응답 구조(candidates)는 다익스트라 엔진과 같다.
+// 수정됨: 응답 형식(format = json | polyline | delta)을 응답 조립기에 넘긴다.
+// 수정됨: 승차 횟수 상한은 PathServiceImpl.clampMaxRides(maxTransfers, maxRidesCap)으로 계산한다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.service.path.IPathService;
+
+/**
+ * RAPTOR 경로 엔진
+ *
+ * - 시간표가 없으므로(구간 평균 소요시간만 있음) "도착 시각" 대신 "출발 후 경과 시간(분)"을 라벨로 쓴다.
+ * - 라운드 0 : START → 스냅 정류장(도보) + 도보 환승
+ * - 라운드 k : 라운드 k-1에서 갱신된 정류장에서 승차 → 같은 패턴을 따라 이동 → 하차 → 도보 환승
+ * - 승차 비용: 첫 승차 0분, 이후 승차마다 환승 페널티(다익스트라 엔진과 같은 목적 함수)
+ * - 라벨은 승차 1회 이상 라운드의 최소값(best)보다 좋아질 때만 기록하고(local pruning),
+ *   도착 최소값보다 나쁜 라벨은 버린다(target pruning).
+ */
+@Service
+public class RaptorPathServiceImpl implements IPathService {
+
+    // 엔진 이름(요청 파라미터 engine / path.engine.default 값)
+    static final String ENGINE_NAME = "raptor";
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    @Autowired
+    private TransitGraphHolder transitGraphHolder;
+
+    @Autowired
+    private PathResultBuilder pathResultBuilder;
+
+    // 출발/도착 각각 스냅할 최대 정류장 수(다익스트라 엔진과 같은 설정)
+    @Value("${path.snap.max-candidates:40}")
+    private int snapMaxCandidates;
+
+    // 라운드(승차 횟수) 상한
+    @Value("${path.search.max-rides-cap:8}")
+    private int maxRidesCap;
+
+    // 스냅샷별 패턴 테이블(스냅샷이 바뀌면 다시 만든다)
+    private volatile RaptorData raptorData;
+
+    // 요청별 작업 배열(스레드마다 1개)
+    private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+
+    @Override
+    public String getEngineName() {
+        return ENGINE_NAME;
+    }
+
+    @Override
+    public Map<String, Object> solve(double fromLat, double fromLng, double toLat, double toLng, double snapRadiusM, int maxTransfers,
+                                     String format) {
+        TransitGraphSnapshot snapshot = transitGraphHolder.current();
+        RaptorData data = dataFor(snapshot);
+
+        SnapEdges snap = SnapEdges.build(snapshot, fromLat, fromLng, toLat, toLng, snapRadiusM, snapMaxCandidates);
+
+        int maxRides = PathServiceImpl.clampMaxRides(maxTransfers, maxRidesCap);
+        List<PathCandidate> results = search(data, snap, maxRides, PathResultBuilder.TRANSFER_PENALTY_MIN);
+
+        return pathResultBuilder.build(snapshot, snap, fromLat, fromLng, toLat, toLng, maxTransfers, results, ENGINE_NAME, format);
+    }
+
+    private RaptorData dataFor(TransitGraphSnapshot snapshot) {
+        RaptorData d = raptorData;
+        if (d != null && d.snapshot == snapshot) return d;
+
+        synchronized (this) {
+            d = raptorData;
+            if (d == null || d.snapshot != snapshot) {
+                long t0 = System.currentTimeMillis();
+                d = RaptorData.build(snapshot);
+                raptorData = d;
+                System.out.println("[PATH][RAPTOR] pattern table built. version=" + snapshot.getVersion()
+                    + " patterns=" + snapshot.patternCount + " ms=" + (System.currentTimeMillis() - t0));
+            }
+            return d;
+        }
+    }
+
+    // =========================
+    // 라운드 탐색
+    // =========================
+    private List<PathCandidate> search(RaptorData data, SnapEdges snap, int maxRides, double transferPenaltyMin) {
+        TransitGraphSnapshot g = data.snapshot;
+        int n = g.nodeCount;
+        int m = g.edgeCount;
+
+        Workspace ws = workspace.get();
+        ws.prepare(n, m, g.patternCount, maxRides);
+
+        List<int[]> found = new ArrayList<>();   // {rides, endSnapIndex}
+        List<Double> foundMinutes = new ArrayList<>();
+        double bestEnd = INF;
+
+        try {
+            // ---------------------------------------------------------
+            // 라운드 0 : START → 스냅 정류장 (도보)
+            // ---------------------------------------------------------
+            int stamp = ws.nextStamp();
+            for (int i = 0; i < snap.startNodes.length; i++) {
+                int v = snap.startNodes[i];
+                if (ws.improve(0, v, snap.startMinutes[i], SnapEdges.startEdgeCode(i))) {
+                    ws.mark(v, stamp);
+                }
+            }
+            relaxFootpaths(g, ws, 0, stamp, bestEnd);
+
+            // ---------------------------------------------------------
+            // 라운드 1..maxRides
+            // ---------------------------------------------------------
+            for (int k = 1; k <= maxRides && ws.markedCount > 0; k++) {
+                double boardCost = (k > 1) ? transferPenaltyMin : 0.0;
+
+                // 직전 라운드 갱신 정류장을 승차 가능 정류장으로 옮기고, 그 정류장을 지나는 패턴 모으기
+                // (이번 라운드 스캔 중에 mark가 다시 찍혀도 승차 가능 여부는 바뀌지 않도록 따로 둔다)
+                int boardStamp = ws.nextStamp();
+                int patternCount = 0;
+                for (int i = 0; i < ws.markedCount; i++) {
+                    int u = ws.marked[i];
+                    ws.boardStamp[u] = boardStamp;
+                    for (int j = data.nodePatternStart[u]; j < data.nodePatternStart[u + 1]; j++) {
+                        int p = data.nodePatterns[j];
+                        if (ws.patternStamp[p] != boardStamp) {
+                            ws.patternStamp[p] = boardStamp;
+                            ws.patternQueue[patternCount++] = p;
+                        }
+                    }
+                }
+
+                stamp = ws.nextStamp();
+                ws.markedCount = 0;
+                for (int i = 0; i < patternCount; i++) {
+                    scanPattern(data, ws, ws.patternQueue[i], k, boardStamp, stamp, boardCost, bestEnd);
+                }
+                relaxFootpaths(g, ws, k, stamp, bestEnd);
+
+                // 도착(END) 확인 - 이번 라운드에서 갱신된 정류장만 본다
+                double roundBest = INF;
+                int roundSnap = -1;
+                for (int j = 0; j < snap.endNodes.length; j++) {
+                    double t = ws.arr[k * n + snap.endNodes[j]];
+                    if (t == INF) continue;
+                    t += snap.endMinutes[j];
+                    if (t < roundBest) {
+                        roundBest = t;
+                        roundSnap = j;
+                    }
+                }
+                if (roundSnap >= 0 && roundBest < bestEnd) {
+                    bestEnd = roundBest;
+                    found.add(new int[] { k, roundSnap });
+                    foundMinutes.add(roundBest);
+                }
+            }
+
+            // 경로 복원 (작업 배열을 돌려주기 전에)
+            List<PathCandidate> results = new ArrayList<>();
+            for (int i = 0; i < found.size(); i++) {
+                int[] f = found.get(i);
+                int[] codes = reconstruct(g, ws, snap, f[0], f[1]);
+                if (codes != null) {
+                    results.add(new PathCandidate(f[0], foundMinutes.get(i), codes));
+                }
+            }
+            return results;
+        } finally {
+            ws.reset();
+        }
+    }
+
+    /**
+     * 패턴 p를 따라 이동한다. (직전 라운드 갱신 정류장에서 승차 → 하차 시 라운드 k 라벨 갱신)
+     *
+     * segment_weight 구간은 정류장 순번 없이 간선 단위로 저장되어 있고, 트램은 양방향/순환이므로
+     * 정방향·역방향 순회를 변화가 없을 때까지 반복한다(일반 노선은 정방향 1회로 끝난다).
+     */
+    private void scanPattern(RaptorData data, Workspace ws, int p, int k, int boardStamp, int stamp, double boardCost, double bestEnd) {
+        TransitGraphSnapshot g = data.snapshot;
+        int n = g.nodeCount;
+        int m = g.edgeCount;
+        int from = data.patternEdgeStart[p];
+        int to = data.patternEdgeStart[p + 1];
+
+        // 승차: 직전 라운드에서 갱신된 정류장만
+        for (int i = from; i < to; i++) {
+            int u = g.edgeSource[data.patternEdges[i]];
+            if (ws.boardStamp[u] != boardStamp) continue;
+            double t = ws.arr[(k - 1) * n + u] + boardCost;
+            if (t < ws.board[u]) {
+                ws.setBoard(u, t);
+            }
+        }
+
+        boolean changed = true;
+        for (int pass = 0; changed && pass <= to - from; pass++) {
+            changed = false;
+            for (int i = from; i < to; i++) {
+                changed |= ride(g, ws, data.patternEdges[i], k, m, bestEnd);
+            }
+            for (int i = to - 1; i >= from; i--) {
+                changed |= ride(g, ws, data.patternEdges[i], k, m, bestEnd);
+            }
+        }
+
+        // 하차: 지금까지의 최소값보다 좋아진 정류장만 라운드 k 라벨로 기록
+        for (int i = 0; i < ws.onboardCount; i++) {
+            int v = ws.onboardTouched[i];
+            if (ws.improve(k, v, ws.onboard[v], ws.onboardEdge[v])) {
+                ws.mark(v, stamp);
+            }
+        }
+        ws.clearOnboard();
+    }
+
+    private boolean ride(TransitGraphSnapshot g, Workspace ws, int e, int k, int m, double bestEnd) {
+        int u = g.edgeSource[e];
+
+        // u에서 "타고 온 채로 계속" vs "u에서 새로 승차" 중 빠른 쪽
+        double tu = ws.onboard[u];
+        int prev = ws.onboardEdge[u];
+        if (ws.board[u] < tu) {
+            tu = ws.board[u];
+            prev = -1;
+        }
+        if (tu == INF) return false;
+
+        double t = tu + Math.max(0.0, g.edgeMinutes[e]);
+        if (t >= bestEnd) return false; // 도착 최소값보다 나쁘면 더 볼 필요 없음
+
+        int v = g.edgeTarget[e];
+        if (t < ws.onboard[v]) {
+            ws.edgePrev[k * m + e] = prev;
+            ws.setOnboard(v, t, e);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 라운드 k에서 갱신된 정류장들로부터 도보 환승 간선을 더 이상 갱신이 없을 때까지 따라간다.
+     */
+    private void relaxFootpaths(TransitGraphSnapshot g, Workspace ws, int k, int stamp, double bestEnd) {
+        int n = g.nodeCount;
+        int head = 0;
+        ws.queueCount = 0;
+        for (int i = 0; i < ws.markedCount; i++) ws.enqueue(ws.marked[i]);
+
+        while (head < ws.queueCount) {
+            int u = ws.queue[head++];
+            double tu = ws.arr[k * n + u];
+            for (int e = g.edgeStart[u]; e < g.edgeStart[u + 1]; e++) {
+                if (g.edgeMode[e] != TransitGraphSnapshot.MODE_WALK) continue;
+                double t = tu + g.edgeMinutes[e];
+                if (t >= bestEnd) continue;
+                int w = g.edgeTarget[e];
+                if (ws.improve(k, w, t, e)) {
+                    ws.mark(w, stamp);
+                    ws.enqueue(w);
+                }
+            }
+        }
+    }
+
+    /**
+     * (라운드 k, 도착 스냅 j)에서 START까지 라벨을 거꾸로 따라가 간선 코드를 만든다.
+     */
+    private int[] reconstruct(TransitGraphSnapshot g, Workspace ws, SnapEdges snap, int k, int endSnap) {
+        int n = g.nodeCount;
+        int m = g.edgeCount;
+
+        int[] rev = new int[32];
+        int len = 0;
+        rev[len++] = SnapEdges.endEdgeCode(endSnap);
+
+        int v = snap.endNodes[endSnap];
+        int round = k;
+        int guard = (k + 1) * (n + m) + 8;
+
+        while (guard-- > 0) {
+            int code = ws.label[round * n + v];
+            if (len + 2 >= rev.length) rev = Arrays.copyOf(rev, rev.length * 2);
+
+            if (code < 0) {
+                rev[len++] = code; // START 도보 간선
+                int[] out = new int[len];
+                for (int i = 0; i < len; i++) out[i] = rev[len - 1 - i];
+                return out;
+            }
+
+            if (g.edgeMode[code] == TransitGraphSnapshot.MODE_WALK) {
+                rev[len++] = code;
+                v = g.edgeSource[code];
+                continue;
+            }
+
+            // 하차 간선부터 같은 패턴 간선을 승차 정류장까지 거슬러 간다
+            int e = code;
+            while (e >= 0 && guard-- > 0) {
+                if (len + 2 >= rev.length) rev = Arrays.copyOf(rev, rev.length * 2);
+                rev[len++] = e;
+                v = g.edgeSource[e];
+                e = ws.edgePrev[round * m + e];
+            }
+            round--;
+            if (round < 0) break;
+        }
+
+        System.out.println("[PATH][RAPTOR][WARN] reconstruct failed. rides=" + k);
+        return null;
+    }
+
+    /**
+     * 스레드별 작업 배열
+     *
+     * - arr/label : 라운드별 정류장 라벨(경과 시간 / 들어온 간선 코드). 기본값 +INF, 쓴 칸은 touched로 되돌린다.
+     * - best      : 라운드 1 이상 최소 라벨
+     * - edgePrev  : 라운드별 "같은 패턴 안에서 이 간선 직전에 탄 간선"(-1: 이 간선 출발 정류장에서 승차)
+     *               같은 라운드·같은 스캔에서 쓴 값만 읽으므로 초기화하지 않는다.
+     * - markStamp/boardStamp/patternStamp : 라운드마다 새 번호를 쓰므로 초기화하지 않는다.
+     */
+    private static final class Workspace {
+        double[] arr = new double[0];
+        int[] label = new int[0];
+        int[] arrTouched = new int[0];
+        int arrTouchedCount = 0;
+
+        double[] best = new double[0];
+
+        int[] edgePrev = new int[0];
+
+        double[] onboard = new double[0];     // 패턴 스캔 중 "타고 도착한" 시간(간선으로만 갱신)
+        int[] onboardEdge = new int[0];
+        int[] onboardTouched = new int[0];
+        int onboardCount = 0;
+
+        double[] board = new double[0];       // 패턴 스캔 중 "이 정류장에서 승차" 시간
+        int[] boardTouched = new int[0];
+        int boardCount = 0;
+
+        int[] markStamp = new int[0];
+        int[] boardStamp = new int[0];
+        int[] marked = new int[0];
+        int markedCount = 0;
+
+        int[] patternStamp = new int[0];
+        int[] patternQueue = new int[0];
+
+        int[] queue = new int[0];
+        int queueCount = 0;
+
+        int stampSeq = 0;
+        int nodes = 0; // 이번 요청 스냅샷의 노드 수(라운드 라벨 인덱스 = k * nodes + v)
+
+        void prepare(int n, int m, int patterns, int maxRides) {
+            int rounds = maxRides + 1;
+            nodes = n;
+            if (arr.length < rounds * n) {
+                arr = new double[rounds * n];
+                Arrays.fill(arr, INF);
+                label = new int[rounds * n];
+                arrTouched = new int[rounds * n];
+            }
+            if (edgePrev.length < rounds * m) {
+                edgePrev = new int[rounds * m];
+            }
+            if (best.length < n) {
+                best = new double[n];
+                Arrays.fill(best, INF);
+                onboard = new double[n];
+                Arrays.fill(onboard, INF);
+                onboardEdge = new int[n];
+                onboardTouched = new int[n];
+                board = new double[n];
+                Arrays.fill(board, INF);
+                boardTouched = new int[n];
+                markStamp = new int[n];
+                boardStamp = new int[n];
+                marked = new int[n];
+            }
+            if (patternStamp.length < patterns) {
+                patternStamp = new int[patterns];
+                patternQueue = new int[patterns];
+            }
+            arrTouchedCount = 0;
+            onboardCount = 0;
+            boardCount = 0;
+            markedCount = 0;
+            queueCount = 0;
+        }
+
+        int nextStamp() {
+            return ++stampSeq;
+        }
+
+        /**
+         * 라운드 k 라벨 갱신 (지금까지의 최소값보다 좋을 때만)
+         *
+         * 라운드 0(승차 없이 도보만)은 후보가 될 수 없으므로 best에 넣지 않는다.
+         * (넣으면 "걸어서 더 빨리 닿는 정류장"을 경유하는 1회 승차 경로가 잘려 나간다)
+         */
+        boolean improve(int k, int v, double t, int code) {
+            int idx = k * nodes + v;
+            if (k == 0) {
+                if (t >= arr[idx]) return false;
+            } else {
+                if (t >= best[v]) return false;
+                best[v] = t;
+            }
+            if (arr[idx] == INF) arrTouched[arrTouchedCount++] = idx;
+            arr[idx] = t;
+            label[idx] = code;
+            return true;
+        }
+
+        void mark(int v, int stamp) {
+            if (markStamp[v] != stamp) {
+                markStamp[v] = stamp;
+                marked[markedCount++] = v;
+            }
+        }
+
+        void setOnboard(int v, double t, int edge) {
+            if (onboard[v] == INF) onboardTouched[onboardCount++] = v;
+            onboard[v] = t;
+            onboardEdge[v] = edge;
+        }
+
+        void setBoard(int v, double t) {
+            if (board[v] == INF) boardTouched[boardCount++] = v;
+            board[v] = t;
+        }
+
+        void clearOnboard() {
+            for (int i = 0; i < onboardCount; i++) onboard[onboardTouched[i]] = INF;
+            onboardCount = 0;
+            for (int i = 0; i < boardCount; i++) board[boardTouched[i]] = INF;
+            boardCount = 0;
+        }
+
+        void enqueue(int v) {
+            if (queueCount == queue.length) queue = Arrays.copyOf(queue, Math.max(16, queueCount * 2));
+            queue[queueCount++] = v;
+        }
+
+        void reset() {
+            for (int i = 0; i < arrTouchedCount; i++) {
+                int idx = arrTouched[i];
+                arr[idx] = INF;
+                best[idx % nodes] = INF;
+            }
+            arrTouchedCount = 0;
+            clearOnboard();
+            markedCount = 0;
+            queueCount = 0;
+        }
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,34 @@
+// 추가됨: 요청별 탐색 지표(확정한 상태 수, 가지치기 수, 조기 종료 여부) - 응답의 searchStats 필드
+
+package com.example.demo.service.path.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 요청 1건의 탐색 지표 (요청 스레드 안에서만 쓰므로 동기화하지 않는다)
+ *
+ * - expandedStates : 힙에서 꺼내 간선을 펼친 상태 수
+ * - prunedStates   : 하한(지금까지 시간 + 도착지까지 최소 시간)이 도착 최선값 이상이라 버린 상태 수
+ * - earlyStop      : 모든 승차 횟수 구간이 확정되어 힙이 남은 채로 끝났는지
+ */
+final class SearchStats {
+
+    boolean goalDirected;
+    int expandedStates;
+    int prunedStates;
+    boolean earlyStop;
+    long elapsedNanos;
+
+    Map<String, Object> toMap() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("goalDirected", goalDirected);
+        m.put("expandedStates", expandedStates);
+        m.put("prunedStates", prunedStates);
+        m.put("earlyStop", earlyStop);
+        m.put("elapsedMs", elapsedNanos / 1_000_000.0);
+        return m;
+    }
+}
+
+// 추가됨 끝
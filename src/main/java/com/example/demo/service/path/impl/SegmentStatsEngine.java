@@ -0,0 +1,641 @@
+// 추가됨: 구간 통계 엔진 - (노선, 방향, 출발, 도착)별 소요시간 통계를 메모리 기본형 배열에 스트리밍으로 누적한다.
+//        - segment_weight는 누적 평균 하나뿐이라 오래된 샘플이 빠지지 않고, 출근 시간과 심야를 구분하지 못한다.
+//        - 구간마다 Welford 평균/분산, 최근값 EWMA, 0~23시 시간대별 평균을 두고 주기적으로 segment_stats에 체크포인트한다.
+//        - 경로 엔진은 출발 시각(departHour)을 주면 그 시간대 평균을 간선 보정값(분)으로 받아 탐색한다.
+// 수정됨: 구간마다 분위수 스케치(QuantileSketch)를 두어 p50/p90을 제공하고, 샘플을 받기 전에 이상값을 걸러낸다.
+//        - 로그 소요시간의 사분위 울타리(p25/p75 ± fence x IQR) 밖이면 이상값: 평균/분산/EWMA/시간대 평균에 넣지 않고 onSample이 false를 돌려준다.
+//        - 스케치는 인스턴스 x 날짜별로 segment_sketch에 저장하고, 기동 시 보관 기간 안의 모든 인스턴스/날짜 행을 합쳐 복원한다.
+
+package com.example.demo.service.path.impl;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dao.SegmentStatsDAO;
+
+/**
+ * 구간 통계 엔진
+ *
+ * - 구간 1개 = 슬롯 번호 1개. 통계는 슬롯 번호 위치의 기본형 배열에 둔다(구간마다 객체를 만들지 않는다).
+ *   count / mean / m2(Welford) / ewma / lastAt, 시간대별은 [슬롯 x 24 + 시] 위치의 hourCount / hourMean.
+ * - 시간대 평균은 샘플 수가 hour-window 를 넘으면 가중치를 1/hour-window 로 고정한다(오래된 샘플이 서서히 빠지는 이동 평균).
+ * - 쓰기(onSample, 복원)는 이 객체로 동기화한다. 체크포인트는 바뀐 슬롯 값만 잠금 안에서 복사하고 DB 쓰기는 잠금 밖에서 한다.
+ * - hourWeightsFor(snapshot, hour): 그 시간대 샘플이 min-hour-samples 이상인 BUS 간선에
+ *   (시간대 평균 - 스냅샷 평균) 분을 두는 배열. 평균보다 빠른 간선(음수)이 있으면 faster = true.
+ *   스냅샷/갱신 주기(refresh-interval-ms)가 바뀔 때만 다시 만들고 같은 주기 안에서는 시간대별로 재사용한다.
+ * - 분위수 스케치: 구간마다 합친 스케치(sketch, 보관 기간 안의 전 인스턴스/날짜 + 이번 실행) 1개와
+ *   이 인스턴스의 오늘치 스케치(daySketch) 1개. 이상값도 스케치에는 넣는다(분포가 실제로 바뀌면 울타리가 따라 움직인다).
+ *   구간당 메모리 상한 = 스케치 2개 x (40 + 4 x 128) 바이트 ≈ 1.1KB, 보통 200~400바이트.
+ */
+@Component
+public class SegmentStatsEngine {
+
+    static final int HOURS = 24;
+
+    @Autowired
+    private SegmentStatsDAO segmentStatsDAO;
+
+    // false면 샘플을 받지 않고 시간대 가중치도 주지 않는다.
+    @Value("${path.segment-stats.enabled:true}")
+    private boolean enabled;
+
+    // 최근값 EWMA 반영 비율
+    @Value("${path.segment-stats.ewma-alpha:0.2}")
+    private double ewmaAlpha;
+
+    // 시간대 평균 이동 창(샘플 수). 이보다 많이 쌓이면 새 샘플 가중치를 1/이 값으로 고정
+    @Value("${path.segment-stats.hour-window:200}")
+    private int hourWindow;
+
+    // 시간대 가중치를 쓰는 최소 샘플 수(미만이면 스냅샷 평균 그대로)
+    @Value("${path.segment-stats.min-hour-samples:5}")
+    private int minHourSamples;
+
+    // 체크포인트 주기(ms)
+    @Value("${path.segment-stats.checkpoint-interval-ms:300000}")
+    private long checkpointIntervalMs;
+
+    // 시간대 가중치 배열 재생성 주기(ms). solve 결과 캐시도 이 주기마다 새 키를 쓴다
+    @Value("${path.segment-stats.refresh-interval-ms:300000}")
+    private long refreshIntervalMs;
+
+    // 최대 구간 수(넘으면 새 구간 샘플은 버린다)
+    @Value("${path.segment-stats.max-segments:200000}")
+    private int maxSegments;
+
+    // 시간대 판단 기준
+    @Value("${path.segment-stats.zone:Asia/Seoul}")
+    private String zone;
+
+    // 이상값 판정 사용 여부
+    @Value("${path.segment-stats.outlier.enabled:true}")
+    private boolean outlierEnabled;
+
+    // 스케치 샘플이 이 수 이상일 때부터 이상값을 판정한다
+    @Value("${path.segment-stats.outlier.min-samples:30}")
+    private int outlierMinSamples;
+
+    // 로그 사분위 범위(IQR) 울타리 배수
+    @Value("${path.segment-stats.outlier.fence:3.0}")
+    private double outlierFence;
+
+    // segment_sketch 보관 기간(일). 기동 시 이 기간 안의 행만 합친다
+    @Value("${path.segment-stats.sketch-retention-days:28}")
+    private int sketchRetentionDays;
+
+    // 스케치 행을 구분하는 수집기 인스턴스 ID. 비우면 호스트 이름
+    @Value("${path.segment-stats.instance-id:}")
+    private String instanceId;
+
+    // 로그 IQR 하한(약 10%). 값이 한 버킷에 몰려 IQR이 0이어도 정상 변동을 이상값으로 보지 않게 한다
+    private static final double MIN_LOG_IQR = 0.1;
+
+    private ZoneId zoneId;
+
+    // 슬롯 (this로 동기화)
+    private final Map<String, Integer> slotByKey = new HashMap<>();
+    private String[] routeIds = new String[0];
+    private int[] dirs = new int[0];
+    private String[] fromIds = new String[0];
+    private String[] toIds = new String[0];
+    private long[] count = new long[0];
+    private double[] mean = new double[0];
+    private double[] m2 = new double[0];
+    private double[] ewma = new double[0];
+    private long[] lastAtMs = new long[0];
+    private int[] hourCount = new int[0];
+    private double[] hourMean = new double[0];
+    private boolean[] dirty = new boolean[0];
+    private QuantileSketch[] sketch = new QuantileSketch[0];
+    private QuantileSketch[] daySketch = new QuantileSketch[0];
+    private long[] sketchDay = new long[0];
+    // 날짜가 바뀌어 아직 저장하지 못한 지난 날짜 스케치 행
+    private final List<SegmentStatsDAO.SketchRow> pendingSketchRows = new ArrayList<>();
+    private int[] dirtyList = new int[16];
+    private int dirtyCount = 0;
+    private int size = 0;
+
+    /**
+     * 탐색용 시간대 보정값 (분, 간선 번호 위치)
+     */
+    static final class HourWeights {
+        final float[] offset;
+        final int edges;        // 보정값이 있는 간선 수
+        final boolean faster;   // 평균보다 빠른(음수) 간선이 있으면 true → 목표 지향(A*) 하한을 쓸 수 없다
+
+        HourWeights(float[] offset, int edges, boolean faster) {
+            this.offset = offset;
+            this.edges = edges;
+            this.faster = faster;
+        }
+    }
+
+    // 스냅샷 1개 + 갱신 주기 1개에 대한 시간대별 보정값(요청이 온 시간대만 만든다)
+    private static final class HourLayer {
+        final TransitGraphSnapshot snapshot;
+        final long generation;
+        final int[] edgeSlot;   // 간선 → 슬롯(-1 = 통계 없음)
+        final HourWeights[] byHour = new HourWeights[HOURS];
+
+        HourLayer(TransitGraphSnapshot snapshot, long generation, int[] edgeSlot) {
+            this.snapshot = snapshot;
+            this.generation = generation;
+            this.edgeSlot = edgeSlot;
+        }
+    }
+
+    private volatile HourLayer hourLayer;
+
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejectedOutliers = new AtomicLong();
+    private final AtomicLong sketchRowsSkipped = new AtomicLong();
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final AtomicLong checkpointRows = new AtomicLong();
+    private final AtomicLong checkpointFailures = new AtomicLong();
+    private volatile long lastCheckpointAt = 0L;
+    private volatile long lastCheckpointMs = 0L;
+    private volatile int restoredRows = 0;
+    private volatile int restoredSketchRows = 0;
+    private volatile long lastPurgeDay = -1L;
+
+    private final ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "path-segment-stats-checkpoint");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        zoneId = ZoneId.of(zone);
+        if (instanceId == null || instanceId.isBlank()) {
+            try {
+                instanceId = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                instanceId = "local";
+            }
+        }
+        if (!enabled) return;
+
+        restore();
+
+        long interval = Math.max(10_000L, checkpointIntervalMs);
+        checkpointer.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (Exception e) {
+                System.out.println("[PATH][STATS][ERROR] checkpoint msg=" + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 구간 소요시간 샘플 반영 (관측 시각 = 지금)
+     *
+     * @param travelSec 관측 소요시간(초)
+     * @return 받아들였으면 true, 이상값이면 false (segment_weight에도 넣지 않는다)
+     */
+    public boolean onSample(String routeId, int updowncd, String fromId, String toId, int travelSec) {
+        return onSample(routeId, updowncd, fromId, toId, travelSec, System.currentTimeMillis());
+    }
+
+    /**
+     * 구간 소요시간 샘플 반영
+     *
+     * @param observedAtMs 관측 시각(시간대/스케치 날짜 판단 기준)
+     * @return 받아들였으면 true, 이상값이면 false. 꺼져 있거나 구간 수 상한으로 판정하지 못하면 true
+     */
+    public boolean onSample(String routeId, int updowncd, String fromId, String toId, int travelSec, long observedAtMs) {
+        if (!enabled || travelSec <= 0) return true;
+
+        Instant at = Instant.ofEpochMilli(observedAtMs);
+        int h = at.atZone(zoneId).getHour();
+        long day = LocalDate.ofInstant(at, zoneId).toEpochDay();
+        synchronized (this) {
+            int s = slotFor(routeId, updowncd, fromId, toId);
+            if (s < 0) {
+                dropped.incrementAndGet();
+                return true;
+            }
+
+            QuantileSketch all = sketchOf(s);
+            boolean outlier = isOutlier(all, travelSec);
+            all.add(travelSec);
+            daySketchOf(s, day).add(travelSec);
+            markDirty(s);
+            if (outlier) {
+                rejectedOutliers.incrementAndGet();
+                return false;
+            }
+
+            long n = ++count[s];
+            double d = travelSec - mean[s];
+            mean[s] += d / n;
+            m2[s] += d * (travelSec - mean[s]);
+            ewma[s] = (n == 1) ? travelSec : ewmaAlpha * travelSec + (1.0 - ewmaAlpha) * ewma[s];
+            lastAtMs[s] = Math.max(lastAtMs[s], observedAtMs);
+
+            int hi = s * HOURS + h;
+            int hn = ++hourCount[hi];
+            hourMean[hi] += (travelSec - hourMean[hi]) / Math.min(hn, Math.max(1, hourWindow));
+
+        }
+        samples.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 구간 1개의 통계 (없으면 null)
+     * - count / mean / stdDev / ewma / lastSampleAt / hourCounts / hourMeans(샘플 없는 시간대는 null)
+     */
+    public synchronized Map<String, Object> segment(String routeId, int updowncd, String fromId, String toId) {
+        Integer s = slotByKey.get(key(routeId, updowncd, fromId, toId));
+        if (s == null) return null;
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("count", count[s]);
+        out.put("mean", mean[s]);
+        out.put("stdDev", (count[s] < 2) ? null : Math.sqrt(m2[s] / (count[s] - 1)));
+        out.put("ewma", ewma[s]);
+        out.put("lastSampleAt", lastAtMs[s]);
+        int[] hc = new int[HOURS];
+        Double[] hm = new Double[HOURS];
+        for (int h = 0; h < HOURS; h++) {
+            hc[h] = hourCount[s * HOURS + h];
+            hm[h] = (hc[h] == 0) ? null : hourMean[s * HOURS + h];
+        }
+        out.put("hourCounts", hc);
+        out.put("hourMeans", hm);
+
+        QuantileSketch q = sketch[s];
+        boolean has = q != null && !q.isEmpty();
+        out.put("sketchCount", has ? q.count() : 0L);
+        out.put("p10", has ? q.quantile(0.10) : null);
+        out.put("p50", has ? q.quantile(0.50) : null);
+        out.put("p90", has ? q.quantile(0.90) : null);
+        out.put("sketchBuckets", has ? q.bucketCount() : 0);
+        return out;
+    }
+
+    /**
+     * 출발 시간대(0~23)의 간선별 보정값. 꺼져 있거나 보정할 간선이 없으면 null
+     */
+    HourWeights hourWeightsFor(TransitGraphSnapshot snapshot, int hour) {
+        if (!enabled || hour < 0 || hour >= HOURS) return null;
+
+        long gen = getGeneration();
+        HourLayer l = hourLayer;
+        if (l == null || l.snapshot != snapshot || l.generation != gen) {
+            l = new HourLayer(snapshot, gen, edgeSlots(snapshot));
+            hourLayer = l;
+        }
+
+        HourWeights w = l.byHour[hour];
+        if (w == null) {
+            w = buildHour(l, hour);
+            l.byHour[hour] = w;
+        }
+        return (w.edges == 0) ? null : w;
+    }
+
+    /**
+     * 시간대 가중치 갱신 주기 번호 (출발 시간대 결과를 캐시할 때 키에 넣는다)
+     */
+    public long getGeneration() {
+        return System.currentTimeMillis() / Math.max(1000L, refreshIntervalMs);
+    }
+
+    /**
+     * 현재 시각의 시간대(0~23)
+     */
+    public int currentHour() {
+        return hourOf(System.currentTimeMillis());
+    }
+
+    /**
+     * 엔진 상태 (segments / samples / dropped / dirty / 체크포인트 / 시간대별 샘플 합계)
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long[] perHour = new long[HOURS];
+        int segs;
+        int d;
+        long sketchBytes = 0;
+        synchronized (this) {
+            segs = size;
+            d = dirtyCount;
+            for (int i = 0; i < size * HOURS; i++) perHour[i % HOURS] += hourCount[i];
+            for (int i = 0; i < size; i++) {
+                if (sketch[i] != null) sketchBytes += sketch[i].memoryBytes();
+                if (daySketch[i] != null) sketchBytes += daySketch[i].memoryBytes();
+            }
+        }
+        out.put("enabled", enabled);
+        out.put("segments", segs);
+        out.put("samples", samples.get());
+        out.put("dropped", dropped.get());
+        out.put("rejectedOutliers", rejectedOutliers.get());
+        out.put("outlierEnabled", outlierEnabled);
+        out.put("outlierFence", outlierFence);
+        out.put("sketchMemoryBytes", sketchBytes);
+        out.put("sketchMaxBytesPerSegment", 2 * (40 + 4 * QuantileSketch.MAX_BUCKETS));
+        out.put("restoredSketchRows", restoredSketchRows);
+        out.put("sketchRowsSkipped", sketchRowsSkipped.get());
+        out.put("instanceId", instanceId);
+        out.put("dirty", d);
+        out.put("restoredRows", restoredRows);
+        out.put("checkpoints", checkpoints.get());
+        out.put("checkpointRows", checkpointRows.get());
+        out.put("checkpointFailures", checkpointFailures.get());
+        out.put("lastCheckpointAt", lastCheckpointAt);
+        out.put("lastCheckpointMs", lastCheckpointMs);
+        out.put("samplesByHour", perHour);
+        out.put("minHourSamples", minHourSamples);
+        out.put("zone", zone);
+        return out;
+    }
+
+    // 바뀐 슬롯만 복사해 segment_stats / segment_sketch(오늘치 + 날짜가 바뀐 지난 날짜분)에 덮어쓴다. 실패하면 다음 주기에 다시 쓴다.
+    private void checkpoint() {
+        List<SegmentStatsDAO.StatRow> rows;
+        List<SegmentStatsDAO.SketchRow> sketchRows;
+        List<SegmentStatsDAO.SketchRow> pending;
+        int[] slots;
+        synchronized (this) {
+            if (dirtyCount == 0 && pendingSketchRows.isEmpty()) return;
+            rows = new ArrayList<>(dirtyCount);
+            sketchRows = new ArrayList<>(dirtyCount + pendingSketchRows.size());
+            slots = Arrays.copyOf(dirtyList, dirtyCount);
+            for (int s : slots) {
+                rows.add(toRow(s));
+                if (daySketch[s] != null && !daySketch[s].isEmpty()) sketchRows.add(toSketchRow(s));
+                dirty[s] = false;
+            }
+            dirtyCount = 0;
+            pending = new ArrayList<>(pendingSketchRows);
+            pendingSketchRows.clear();
+            sketchRows.addAll(pending);
+        }
+
+        long t0 = System.currentTimeMillis();
+        int written = segmentStatsDAO.upsertStats(rows);
+        int sketchWritten = (written < 0) ? -1 : segmentStatsDAO.upsertSketches(sketchRows);
+        lastCheckpointMs = System.currentTimeMillis() - t0;
+        lastCheckpointAt = System.currentTimeMillis();
+        checkpoints.incrementAndGet();
+
+        if (written < 0 || sketchWritten < 0) {
+            checkpointFailures.incrementAndGet();
+            synchronized (this) {
+                for (int s : slots) markDirty(s);
+                pendingSketchRows.addAll(pending);
+            }
+            System.out.println("[PATH][STATS][ERROR] checkpoint failed rows=" + rows.size() + " sketchRows=" + sketchRows.size());
+            return;
+        }
+        checkpointRows.addAndGet(written + sketchWritten);
+
+        // 보관 기간이 지난 스케치는 하루 한 번 지운다
+        long today = LocalDate.now(zoneId).toEpochDay();
+        if (lastPurgeDay != today) {
+            lastPurgeDay = today;
+            int purged = segmentStatsDAO.deleteSketchesBefore(LocalDate.ofEpochDay(today - Math.max(1, sketchRetentionDays)));
+            if (purged > 0) System.out.println("[PATH][STATS] purged sketch rows=" + purged);
+        }
+    }
+
+    // 기동 시 segment_stats 복원
+    private void restore() {
+        int rows = segmentStatsDAO.forEachStat(r -> {
+            synchronized (this) {
+                int s = slotFor(r.routeId, r.updowncd, r.fromId, r.toId);
+                if (s < 0) return;
+                count[s] = r.sampleCount;
+                mean[s] = r.mean;
+                m2[s] = r.m2;
+                ewma[s] = r.ewma;
+                lastAtMs[s] = r.lastSampleAtMs;
+                int[] hc = parseInts(r.hourCounts);
+                double[] hm = parseDoubles(r.hourMeans);
+                for (int h = 0; h < HOURS; h++) {
+                    hourCount[s * HOURS + h] = hc[h];
+                    hourMean[s * HOURS + h] = hm[h];
+                }
+            }
+        });
+        restoredRows = Math.max(0, rows);
+
+        // 보관 기간 안의 모든 인스턴스/날짜 스케치를 합친다. 이 인스턴스의 오늘 행은 이어서 채운다.
+        LocalDate today = LocalDate.now(zoneId);
+        int sketchRows = segmentStatsDAO.forEachSketch(today.minusDays(Math.max(1, sketchRetentionDays)), r -> {
+            QuantileSketch parsed;
+            try {
+                parsed = QuantileSketch.fromBytes(r.sketch);
+            } catch (IllegalArgumentException e) {
+                sketchRowsSkipped.incrementAndGet();
+                return;
+            }
+            synchronized (this) {
+                int s = slotFor(r.routeId, r.updowncd, r.fromId, r.toId);
+                if (s < 0) return;
+                sketchOf(s).merge(parsed);
+                if (instanceId.equals(r.instanceId) && today.equals(r.day)) {
+                    daySketchOf(s, today.toEpochDay()).merge(parsed);
+                }
+            }
+        });
+        restoredSketchRows = Math.max(0, sketchRows);
+        System.out.println("[PATH][STATS] restored segments=" + rows + " sketchRows=" + sketchRows + " instance=" + instanceId);
+    }
+
+    // 로그 소요시간이 사분위 울타리 밖이면 이상값 (스케치 샘플이 적으면 판정하지 않는다)
+    private boolean isOutlier(QuantileSketch all, int travelSec) {
+        if (!outlierEnabled || all.count() < Math.max(4, outlierMinSamples)) return false;
+
+        double lo = Math.log(all.quantile(0.25));
+        double hi = Math.log(all.quantile(0.75));
+        double iqr = Math.max(MIN_LOG_IQR, hi - lo);
+        double x = Math.log(travelSec);
+        return x < lo - outlierFence * iqr || x > hi + outlierFence * iqr;
+    }
+
+    private QuantileSketch sketchOf(int s) {
+        if (sketch[s] == null) sketch[s] = new QuantileSketch();
+        return sketch[s];
+    }
+
+    // 이 인스턴스의 오늘치 스케치. 날짜가 바뀌었으면 지난 날짜분을 저장 대기 목록에 넘기고 새로 시작한다.
+    private QuantileSketch daySketchOf(int s, long day) {
+        QuantileSketch d = daySketch[s];
+        if (d != null && sketchDay[s] == day) return d;
+
+        if (d != null && !d.isEmpty()) pendingSketchRows.add(toSketchRow(s));
+        daySketch[s] = new QuantileSketch();
+        sketchDay[s] = day;
+        return daySketch[s];
+    }
+
+    // 스냅샷 BUS 간선 → 슬롯
+    private synchronized int[] edgeSlots(TransitGraphSnapshot g) {
+        int[] out = new int[g.edgeCount];
+        Arrays.fill(out, -1);
+        if (size == 0) return out;
+        for (int e = 0; e < g.edgeCount; e++) {
+            if (g.edgeMode[e] != TransitGraphSnapshot.MODE_BUS) continue;
+            Integer s = slotByKey.get(key(g.routeIds[g.edgeRoute[e]], g.edgeDir[e], g.nodeIds[g.edgeSource[e]], g.nodeIds[g.edgeTarget[e]]));
+            if (s != null) out[e] = s;
+        }
+        return out;
+    }
+
+    // 시간대 평균(초)과 스냅샷 평균(분)의 차이. 간선 비용이 0 아래로 내려가지 않게 자른다.
+    private synchronized HourWeights buildHour(HourLayer l, int hour) {
+        TransitGraphSnapshot g = l.snapshot;
+        float[] offset = new float[g.edgeCount];
+        int edges = 0;
+        boolean faster = false;
+        for (int e = 0; e < g.edgeCount; e++) {
+            int s = l.edgeSlot[e];
+            if (s < 0) continue;
+            int hi = s * HOURS + hour;
+            if (hourCount[hi] < Math.max(1, minHourSamples)) continue;
+
+            double base = Math.max(0.0, g.edgeMinutes[e]);
+            double diff = Math.max(-base, hourMean[hi] / 60.0 - base);
+            offset[e] = (float) diff;
+            edges++;
+            if (offset[e] < 0f) faster = true;
+        }
+        return new HourWeights(offset, edges, faster);
+    }
+
+    // 구간 슬롯 번호(없으면 만든다). 최대 구간 수를 넘으면 -1
+    private int slotFor(String routeId, int updowncd, String fromId, String toId) {
+        String k = key(routeId, updowncd, fromId, toId);
+        Integer s = slotByKey.get(k);
+        if (s != null) return s;
+        if (size >= maxSegments) return -1;
+
+        if (size == count.length) grow(Math.max(64, size * 2));
+        int slot = size++;
+        slotByKey.put(k, slot);
+        routeIds[slot] = routeId;
+        dirs[slot] = updowncd;
+        fromIds[slot] = fromId;
+        toIds[slot] = toId;
+        return slot;
+    }
+
+    private void grow(int cap) {
+        routeIds = Arrays.copyOf(routeIds, cap);
+        dirs = Arrays.copyOf(dirs, cap);
+        fromIds = Arrays.copyOf(fromIds, cap);
+        toIds = Arrays.copyOf(toIds, cap);
+        count = Arrays.copyOf(count, cap);
+        mean = Arrays.copyOf(mean, cap);
+        m2 = Arrays.copyOf(m2, cap);
+        ewma = Arrays.copyOf(ewma, cap);
+        lastAtMs = Arrays.copyOf(lastAtMs, cap);
+        dirty = Arrays.copyOf(dirty, cap);
+        sketch = Arrays.copyOf(sketch, cap);
+        daySketch = Arrays.copyOf(daySketch, cap);
+        sketchDay = Arrays.copyOf(sketchDay, cap);
+        hourCount = Arrays.copyOf(hourCount, cap * HOURS);
+        hourMean = Arrays.copyOf(hourMean, cap * HOURS);
+    }
+
+    private void markDirty(int s) {
+        if (dirty[s]) return;
+        if (dirtyCount == dirtyList.length) {
+            dirtyList = Arrays.copyOf(dirtyList, dirtyList.length * 2);
+        }
+        dirtyList[dirtyCount++] = s;
+        dirty[s] = true;
+    }
+
+    private SegmentStatsDAO.StatRow toRow(int s) {
+        StringBuilder hc = new StringBuilder();
+        StringBuilder hm = new StringBuilder();
+        for (int h = 0; h < HOURS; h++) {
+            if (h > 0) {
+                hc.append(',');
+                hm.append(',');
+            }
+            hc.append(hourCount[s * HOURS + h]);
+            hm.append(Math.round(hourMean[s * HOURS + h] * 10.0) / 10.0);
+        }
+        return new SegmentStatsDAO.StatRow(routeIds[s], dirs[s], fromIds[s], toIds[s], count[s], mean[s], m2[s], ewma[s],
+            lastAtMs[s], hc.toString(), hm.toString());
+    }
+
+    private SegmentStatsDAO.SketchRow toSketchRow(int s) {
+        return new SegmentStatsDAO.SketchRow(routeIds[s], dirs[s], fromIds[s], toIds[s], instanceId, LocalDate.ofEpochDay(sketchDay[s]),
+            daySketch[s].count(), daySketch[s].toBytes());
+    }
+
+    private int hourOf(long epochMs) {
+        return Instant.ofEpochMilli(epochMs).atZone(zoneId).getHour();
+    }
+
+    // 쉼표 구분 24개 (모자라거나 깨진 값은 0)
+    private static int[] parseInts(String text) {
+        int[] out = new int[HOURS];
+        if (text == null) return out;
+        String[] parts = text.split(",");
+        for (int h = 0; h < HOURS && h < parts.length; h++) {
+            try {
+                out[h] = Integer.parseInt(parts[h].trim());
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return out;
+    }
+
+    private static double[] parseDoubles(String text) {
+        double[] out = new double[HOURS];
+        if (text == null) return out;
+        String[] parts = text.split(",");
+        for (int h = 0; h < HOURS && h < parts.length; h++) {
+            try {
+                out[h] = Double.parseDouble(parts[h].trim());
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return out;
+    }
+
+    private static String key(String routeId, int updowncd, String fromId, String toId) {
+        return routeId + "|" + updowncd + "|" + fromId + "|" + toId;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            checkpointer.shutdownNow();
+            if (enabled) checkpoint();
+        } catch (Exception e) {
+            System.out.println("[PATH][STATS][ERROR] shutdown checkpoint msg=" + e.getMessage());
+        }
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,100 @@
+// 추가됨: 요청별 START/END 도보 스냅 간선을 PathServiceImpl에서 분리
+//        - 기존 다익스트라와 기본형 탐색 엔진(TransitSearchEngine)이 같은 스냅 결과를 사용한다.
+//        - 전체 노드 순회 대신 스냅샷 격자 인덱스(StopGridIndex) 반경 조회를 쓰고, 후보 수 상한(maxCandidates)을 둔다.
+//        - 도착지 좌표(toLat/toLng)를 함께 보관한다(목표 지향 탐색의 하한 계산용).
+//        - 반경 조회(collect)를 패키지 안에서 재사용할 수 있게 열었다(다대다 소요시간 행렬).
+// 수정됨: 후보 수 상한이 있으면 반경 조회 + 전체 정렬 대신 격자 k-최근접(StopGridIndex.nearest)으로 상위 N개만 찾는다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.Arrays;
+
+/**
+ * 요청별 START/END 도보 스냅 간선
+ *
+ * - START/END는 스냅샷 노드 뒤에 붙는 가상 인덱스(n, n+1)를 쓴다.
+ * - endNodes는 오름차순이므로 이진 탐색으로 "이 노드에서 END로 가는 간선"을 찾는다.
+ * - 간선 코드: CSR 간선은 0 이상, START 간선 i는 -2-i, END 간선 j는 Integer.MIN_VALUE + j
+ */
+final class SnapEdges {
+
+    final int startNode;
+    final int endNode;
+    final int[] startNodes;
+    final double[] startMinutes;
+    final int[] endNodes;
+    final double[] endMinutes;
+    final double toLat;
+    final double toLng;
+
+    SnapEdges(int nodeCount, int[] startNodes, double[] startMinutes, int[] endNodes, double[] endMinutes,
+              double toLat, double toLng) {
+        this.startNode = nodeCount;
+        this.endNode = nodeCount + 1;
+        this.startNodes = startNodes;
+        this.startMinutes = startMinutes;
+        this.endNodes = endNodes;
+        this.endMinutes = endMinutes;
+        this.toLat = toLat;
+        this.toLng = toLng;
+    }
+
+    /**
+     * 출발지/도착지 반경(snapRadiusM) 이내의 노드를 도보로 연결한다.
+     *
+     * @param maxCandidates 출발/도착 각각 가까운 순으로 남길 최대 후보 수 (0 이하면 제한 없음)
+     */
+    static SnapEdges build(TransitGraphSnapshot snapshot, double fromLat, double fromLng, double toLat, double toLng,
+                           double snapRadiusM, int maxCandidates) {
+        StopGridIndex.Hits start = collect(snapshot, fromLat, fromLng, snapRadiusM, maxCandidates);
+        StopGridIndex.Hits end = collect(snapshot, toLat, toLng, snapRadiusM, maxCandidates);
+
+        double[] startMin = new double[start.count];
+        for (int i = 0; i < start.count; i++) {
+            startMin[i] = PathGeo.metersToWalkMinutes(start.meters[i]);
+        }
+        double[] endMin = new double[end.count];
+        for (int i = 0; i < end.count; i++) {
+            endMin[i] = PathGeo.metersToWalkMinutes(end.meters[i]);
+        }
+
+        return new SnapEdges(snapshot.nodeCount, Arrays.copyOf(start.nodes, start.count), startMin,
+            Arrays.copyOf(end.nodes, end.count), endMin, toLat, toLng);
+    }
+
+    // (상한이 있으면) 반경 안 k-최근접, 없으면 반경 조회 → 노드 인덱스 순 정렬(endIndexOf 이진 탐색용)
+    static StopGridIndex.Hits collect(TransitGraphSnapshot snapshot, double lat, double lng, double radiusM, int maxCandidates) {
+        StopGridIndex.Hits hits = new StopGridIndex.Hits();
+        if (maxCandidates > 0) {
+            snapshot.stopIndex.nearest(lat, lng, maxCandidates, radiusM, hits);
+        } else {
+            snapshot.stopIndex.radius(lat, lng, radiusM, hits);
+        }
+        hits.sortByNode();
+        return hits;
+    }
+
+    int endIndexOf(int node) {
+        int idx = Arrays.binarySearch(endNodes, node);
+        return (idx >= 0) ? idx : -1;
+    }
+
+    static int startEdgeCode(int i) {
+        return -2 - i;
+    }
+
+    static int endEdgeCode(int j) {
+        return Integer.MIN_VALUE + j;
+    }
+
+    // START 간선 코드면 인덱스, 아니면 -1
+    static int startIndexOf(int code) {
+        return (code <= -2 && code > Integer.MIN_VALUE / 2) ? (-2 - code) : -1;
+    }
+
+    static int endIndexOfCode(int code) {
+        return code - Integer.MIN_VALUE;
+    }
+}
+
+// 추가됨 끝
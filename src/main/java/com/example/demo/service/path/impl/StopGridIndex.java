@@ -0,0 +1,337 @@
+// 추가됨: 정류장 좌표 격자(grid) 공간 인덱스
+//        - 출발/도착 스냅과 버스↔트램 환승 간선 생성에서 "전체 정류장 순회" 대신 주변 격자만 조회한다.
+// 수정됨: 조회 격자 수에 상한을 둔다(요청 반경이 커도 요청 스레드가 멈추지 않게).
+//        - 조회 행/열을 실제 격자 범위(0..maxRow, 0..maxCol)로 자르고, 그래도 격자 수가 비어 있지 않은 격자 수보다 많으면
+//          비어 있지 않은 격자 목록을 한 번 순회한다(기존 전체 순회와 같은 O(N) 상한).
+//        - 위도 1도 길이를 haversine과 같은 지구 반지름(PathGeo.EARTH_RADIUS_M)으로 계산하고,
+//          경도 격자는 가장 극 쪽 위도 기준으로 잡아 범위 안 어디서나 한 변이 cellM 이상이 되게 한다(반경 안 정류장 누락 방지).
+// 수정됨: 결과 정렬(Hits.sortByDistance / sortByNode)을 Integer[] 박싱 정렬에서 병렬 배열 제자리 퀵정렬로 바꾼다.
+//        스냅(SnapEdges.collect)이 후보 상한이 있을 때 k-최근접(nearest)을 쓴다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.Arrays;
+
+/**
+ * 정류장 격자 인덱스 (불변)
+ *
+ * - 위경도를 cellM(m) 크기의 격자로 나누고, 격자 키 오름차순으로 노드 인덱스를 정렬해 둔다.
+ * - cellKeys[c] : 격자 키(행 << 32 | 열), cellStart[c] <= i < cellStart[c+1] 인 cellNodes[i]가 그 격자의 노드
+ * - 반경 조회 : 반경을 덮는 격자만 이진 탐색으로 찾아 실제 거리(haversine)를 계산한다.
+ *   덮는 격자 수가 비어 있지 않은 격자 수보다 많으면 비어 있지 않은 격자를 순회한다(조회 비용 상한 = 격자 수 + 노드 수).
+ * - k-최근접 : 격자를 한 겹씩 넓혀 가며, 남은 격자가 현재 k번째 거리보다 멀어지면 멈춘다.
+ */
+final class StopGridIndex {
+
+    // 기본 격자 크기(m). 스냅 반경/환승 반경(500m)과 비슷한 크기로 둔다.
+    static final double DEFAULT_CELL_M = 250.0;
+
+    // haversine(PathGeo.haversineMeters)과 같은 지구 반지름 기준 위도 1도 길이
+    private static final double METERS_PER_DEG_LAT = PathGeo.EARTH_RADIUS_M * Math.PI / 180.0;
+
+    private final double originLat;
+    private final double originLng;
+    private final double cellM;
+    private final double latStep;
+    private final double lngStep;
+    private final int maxRow;
+    private final int maxCol;
+
+    private final long[] cellKeys;
+    private final int[] cellStart;
+    private final int[] cellNodes;
+
+    private final double[] nodeLat;
+    private final double[] nodeLng;
+
+    private StopGridIndex(double originLat, double originLng, double cellM, double latStep, double lngStep, int maxRow, int maxCol,
+                          long[] cellKeys, int[] cellStart, int[] cellNodes, double[] nodeLat, double[] nodeLng) {
+        this.originLat = originLat;
+        this.originLng = originLng;
+        this.cellM = cellM;
+        this.latStep = latStep;
+        this.lngStep = lngStep;
+        this.maxRow = maxRow;
+        this.maxCol = maxCol;
+        this.cellKeys = cellKeys;
+        this.cellStart = cellStart;
+        this.cellNodes = cellNodes;
+        this.nodeLat = nodeLat;
+        this.nodeLng = nodeLng;
+    }
+
+    /**
+     * 노드 [0, count) 로 인덱스를 만든다. (좌표 배열은 복사하지 않고 참조만 보관)
+     */
+    static StopGridIndex build(double[] lat, double[] lng, int count, double cellM) {
+        if (count <= 0) {
+            return new StopGridIndex(0, 0, cellM, 1, 1, -1, -1, new long[0], new int[] { 0 }, new int[0], lat, lng);
+        }
+
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY, minLng = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minLat = Math.min(minLat, lat[i]);
+            maxLat = Math.max(maxLat, lat[i]);
+            minLng = Math.min(minLng, lng[i]);
+        }
+
+        // 경도 1도의 길이는 위도에 따라 줄어든다. 가장 극 쪽 위도 기준으로 잡아 범위 안에서 격자 한 변이 cellM보다 작아지지 않게 한다.
+        double refLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+        double latStep = cellM / METERS_PER_DEG_LAT;
+        double lngStep = cellM / (METERS_PER_DEG_LAT * Math.max(0.01, Math.cos(Math.toRadians(refLat))));
+
+        // (격자 키, 노드) 쌍을 격자 키 기준으로 정렬
+        long[] keys = new long[count];
+        Integer[] order = new Integer[count];
+        int maxRow = 0;
+        int maxCol = 0;
+        for (int i = 0; i < count; i++) {
+            int r = (int) Math.floor((lat[i] - minLat) / latStep);
+            int c = (int) Math.floor((lng[i] - minLng) / lngStep);
+            maxRow = Math.max(maxRow, r);
+            maxCol = Math.max(maxCol, c);
+            keys[i] = cellKey(r, c);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b]) : Integer.compare(a, b));
+
+        int[] cellNodes = new int[count];
+        long[] cellKeys = new long[count];
+        int[] cellStart = new int[count + 1];
+        int cells = 0;
+        for (int i = 0; i < count; i++) {
+            int node = order[i];
+            cellNodes[i] = node;
+            if (cells == 0 || cellKeys[cells - 1] != keys[node]) {
+                cellKeys[cells] = keys[node];
+                cellStart[cells] = i;
+                cells++;
+            }
+        }
+        cellStart[cells] = count;
+
+        return new StopGridIndex(minLat, minLng, cellM, latStep, lngStep, maxRow, maxCol,
+            Arrays.copyOf(cellKeys, cells), Arrays.copyOf(cellStart, cells + 1), cellNodes, lat, lng);
+    }
+
+    /**
+     * 조회 결과 (노드 인덱스 + 거리(m)). 호출 측에서 재사용할 수 있다.
+     */
+    static final class Hits {
+        // 이 길이 이하 구간은 삽입 정렬
+        private static final int INSERTION_SORT_MAX = 12;
+
+        int count;
+        int[] nodes = new int[16];
+        double[] meters = new double[16];
+
+        void clear() {
+            count = 0;
+        }
+
+        void add(int node, double m) {
+            if (count == nodes.length) {
+                nodes = Arrays.copyOf(nodes, count * 2);
+                meters = Arrays.copyOf(meters, count * 2);
+            }
+            nodes[count] = node;
+            meters[count] = m;
+            count++;
+        }
+
+        /**
+         * 거리 오름차순(같으면 노드 인덱스 오름차순)으로 정렬
+         */
+        void sortByDistance() {
+            sort(true);
+        }
+
+        /**
+         * 노드 인덱스 오름차순으로 정렬
+         */
+        void sortByNode() {
+            sort(false);
+        }
+
+        // 두 병렬 배열을 제자리에서 함께 정렬한다(요청마다 부르는 경로라 박싱/비교자 객체를 만들지 않는다)
+        private void sort(boolean byDistance) {
+            sortRange(0, count - 1, byDistance);
+        }
+
+        // 퀵정렬(가운데 값 pivot). 작은 쪽만 재귀하고 큰 쪽은 반복해 깊이를 log(count)로 묶는다
+        private void sortRange(int lo, int hi, boolean byDistance) {
+            while (hi - lo > INSERTION_SORT_MAX) {
+                int mid = (lo + hi) >>> 1;
+                if (less(mid, lo, byDistance)) swap(mid, lo);
+                if (less(hi, lo, byDistance)) swap(hi, lo);
+                if (less(hi, mid, byDistance)) swap(hi, mid);
+                swap(mid, hi - 1); // pivot을 hi-1에 둔다(lo <= pivot <= hi 가 양쪽 보초)
+                int pivot = hi - 1;
+                int i = lo;
+                int j = hi - 1;
+                while (true) {
+                    while (less(++i, pivot, byDistance)) { }
+                    while (less(pivot, --j, byDistance)) { }
+                    if (i >= j) break;
+                    swap(i, j);
+                }
+                swap(i, pivot);
+                if (i - lo < hi - i) {
+                    sortRange(lo, i - 1, byDistance);
+                    lo = i + 1;
+                } else {
+                    sortRange(i + 1, hi, byDistance);
+                    hi = i - 1;
+                }
+            }
+            insertionSort(lo, hi, byDistance);
+        }
+
+        private void insertionSort(int lo, int hi, boolean byDistance) {
+            for (int i = lo + 1; i <= hi; i++) {
+                for (int j = i; j > lo && less(j, j - 1, byDistance); j--) {
+                    swap(j, j - 1);
+                }
+            }
+        }
+
+        private boolean less(int a, int b, boolean byDistance) {
+            if (byDistance && meters[a] != meters[b]) return meters[a] < meters[b];
+            return nodes[a] < nodes[b];
+        }
+
+        private void swap(int a, int b) {
+            int n = nodes[a];
+            nodes[a] = nodes[b];
+            nodes[b] = n;
+            double m = meters[a];
+            meters[a] = meters[b];
+            meters[b] = m;
+        }
+
+        /**
+         * 앞에서부터 limit개만 남긴다(limit <= 0 이면 그대로)
+         */
+        void truncate(int limit) {
+            if (limit > 0 && count > limit) count = limit;
+        }
+    }
+
+    /**
+     * (lat, lng)에서 radiusM 이내의 노드를 out에 추가한다. (순서는 격자 순)
+     */
+    void radius(double lat, double lng, double radiusM, Hits out) {
+        if (cellKeys.length == 0 || !(radiusM >= 0)) return;
+
+        // 행/열 범위는 double로 계산해 큰 반경에서도 넘치지 않게 하고 실제 격자 범위로 자른다
+        double row = rowOf(lat);
+        double col = colOf(lng);
+        double reachRow = Math.ceil(radiusM / cellM);
+        double reachCol = Math.ceil(radiusM / colWidthM(lat, radiusM)) + 1; // +1: 대원 거리는 위도선 거리보다 짧다
+
+        int rLo = (int) Math.max(0, row - reachRow);
+        int rHi = (int) Math.min(maxRow, row + reachRow);
+        int cLo = (int) Math.max(0, col - reachCol);
+        int cHi = (int) Math.min(maxCol, col + reachCol);
+        if (rLo > rHi || cLo > cHi) return;
+
+        if ((double) (rHi - rLo + 1) * (cHi - cLo + 1) > cellKeys.length) {
+            // 덮는 격자가 비어 있지 않은 격자보다 많으면 비어 있지 않은 격자만 순회
+            for (int idx = 0; idx < cellKeys.length; idx++) {
+                int r = (int) (cellKeys[idx] >> 32);
+                int c = (int) cellKeys[idx];
+                if (r < rLo || r > rHi || c < cLo || c > cHi) continue;
+                scanNodes(idx, lat, lng, radiusM, out);
+            }
+            return;
+        }
+
+        for (int r = rLo; r <= rHi; r++) {
+            for (int c = cLo; c <= cHi; c++) {
+                scanCell(r, c, lat, lng, radiusM, out);
+            }
+        }
+    }
+
+    /**
+     * (lat, lng)에서 가까운 순으로 최대 k개 노드를 out에 담는다. (maxRadiusM 이내만)
+     */
+    void nearest(double lat, double lng, int k, double maxRadiusM, Hits out) {
+        out.clear();
+        if (cellKeys.length == 0 || k <= 0 || !(maxRadiusM >= 0)) return;
+
+        // 한 겹씩 넓히는 격자 수가 비어 있지 않은 격자 수를 넘으면 반경 조회 후 정렬로 대신한다
+        double reach = Math.ceil(maxRadiusM / cellM);
+        double row = rowOf(lat);
+        double col = colOf(lng);
+        boolean inside = row >= 0 && row <= maxRow && col >= 0 && col <= maxCol;
+        if (!inside || (2 * reach + 1) * (2 * reach + 1) > cellKeys.length) {
+            radius(lat, lng, maxRadiusM, out);
+            out.sortByDistance();
+            out.truncate(k);
+            return;
+        }
+        int maxReach = (int) reach;
+        int row0 = (int) row;
+        int col0 = (int) col;
+
+        for (int ring = 0; ring <= maxReach; ring++) {
+            // ring 겹의 격자 테두리만 조회
+            for (int r = row0 - ring; r <= row0 + ring; r++) {
+                boolean edgeRow = (r == row0 - ring || r == row0 + ring);
+                for (int c = col0 - ring; c <= col0 + ring; c += (edgeRow ? 1 : 2 * ring)) {
+                    scanCell(r, c, lat, lng, maxRadiusM, out);
+                    if (ring == 0) break;
+                }
+            }
+
+            // ring 바깥 격자는 최소 ring * cellM 이상 떨어져 있다
+            if (out.count >= k) {
+                out.sortByDistance();
+                out.truncate(k);
+                if (out.meters[k - 1] <= ring * cellM) {
+                    return;
+                }
+            }
+        }
+        out.sortByDistance();
+        out.truncate(k);
+    }
+
+    private void scanCell(int r, int c, double lat, double lng, double radiusM, Hits out) {
+        if (r < 0 || c < 0) return;
+        int idx = Arrays.binarySearch(cellKeys, cellKey(r, c));
+        if (idx < 0) return;
+        scanNodes(idx, lat, lng, radiusM, out);
+    }
+
+    private void scanNodes(int idx, double lat, double lng, double radiusM, Hits out) {
+        for (int i = cellStart[idx]; i < cellStart[idx + 1]; i++) {
+            int node = cellNodes[i];
+            double d = PathGeo.haversineMeters(lat, lng, nodeLat[node], nodeLng[node]);
+            if (d <= radiusM) {
+                out.add(node, d);
+            }
+        }
+    }
+
+    private double rowOf(double lat) {
+        return Math.floor((lat - originLat) / latStep);
+    }
+
+    private double colOf(double lng) {
+        return Math.floor((lng - originLng) / lngStep);
+    }
+
+    // 조회 창 안 가장 극 쪽 위도에서 경도 격자 한 변의 길이(m)
+    private double colWidthM(double lat, double radiusM) {
+        double poleward = Math.min(89.0, Math.abs(lat) + radiusM / METERS_PER_DEG_LAT);
+        return Math.max(1e-3, lngStep * METERS_PER_DEG_LAT * Math.cos(Math.toRadians(poleward)));
+    }
+
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,148 @@
+// 추가됨: 트램(2호선) 정거장 데이터를 PathServiceImpl에서 분리
+//        - 그래프 스냅샷 빌더(TransitGraphBuilder)와 경로 서비스가 같은 정거장 목록을 공유한다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 대전 트램(2호선) 정거장 정적 데이터
+ *
+ * - JS 데이터 TRAM_ROUTE_FULL_HD의 station 타입을 그대로 옮긴 목록이다.
+ * - 리스트 순서가 곧 운행 순서이며, 211(동부네거리) → 212(중리네거리)가 순환 연결된다.
+ */
+final class TramNetwork {
+
+    // 트램 노드ID 접두어 ("TRAM_244" 형태)
+    static final String NODE_PREFIX = "TRAM_";
+
+    // 트램 노선명(그래프 간선 routeId)
+    static final String ROUTE_NAME = "2호선";
+
+    // 순환 연결 정거장 (211 동부네거리 -> 212 중리네거리)
+    static final int LOOP_FROM_ID = 211;
+    static final int LOOP_TO_ID = 212;
+
+    static final class TramStation {
+        final int id;
+        final String name;
+        final double lat, lng;
+
+        TramStation(int id, String name, double lat, double lng) {
+            this.id = id;
+            this.name = name;
+            this.lat = lat;
+            this.lng = lng;
+        }
+
+        String nodeId() {
+            return NODE_PREFIX + id;
+        }
+    }
+
+    private static final List<TramStation> STATIONS;
+
+    static {
+        List<TramStation> list = new ArrayList<>();
+
+        // 1구간
+        list.add(new TramStation(244, "연축(차량기지)", 36.39229, 127.42084));
+        list.add(new TramStation(243, "회덕", 36.37892, 127.42668));
+        list.add(new TramStation(242, "읍내", 36.37191, 127.42863));
+
+        // 2구간
+        list.add(new TramStation(241, "법동", 36.36633, 127.43022));
+        list.add(new TramStation(212, "중리네거리", 36.35895, 127.42584)); // 순환 분기점
+
+        // 3구간
+        list.add(new TramStation(213, "용전", 36.35873, 127.41787));
+        list.add(new TramStation(214, "한남대", 36.35815, 127.41002));
+        list.add(new TramStation(215, "오정농수산물", 36.35762, 127.40089));
+
+        // 4구간
+        list.add(new TramStation(216, "수정타운", 36.35765, 127.39524));
+        list.add(new TramStation(217, "창업진흥원", 36.3577, 127.3875));
+        list.add(new TramStation(218, "정부청사역", 36.35876, 127.37947));
+
+        // 5구간
+        list.add(new TramStation(219, "청사북문", 36.365, 127.3795));
+        list.add(new TramStation(220, "예술의전당", 36.37, 127.3795));
+        list.add(new TramStation(221, "엑스포과학공원", 36.37406, 127.37817));
+
+        // 6구간
+        list.add(new TramStation(222, "KAIST", 36.37059, 127.37214));
+        list.add(new TramStation(223, "유성구청", 36.36641, 127.36592));
+
+        // 7구간
+        list.add(new TramStation(224, "충남대", 36.36204, 127.34531));
+        list.add(new TramStation(225, "유성온천역", 36.35981, 127.3437));
+        list.add(new TramStation(226, "상대", 36.35065, 127.34027));
+        list.add(new TramStation(227, "원신흥", 36.34511, 127.34023));
+
+        // 8구간
+        list.add(new TramStation(228, "목원대입구", 36.339, 127.3365));
+        list.add(new TramStation(229, "도안고", 36.33212, 127.33282));
+        list.add(new TramStation(230, "목원대", 36.326, 127.3328));
+        list.add(new TramStation(231, "용소", 36.31927, 127.33309));
+        list.add(new TramStation(232, "가수원네거리", 36.30294, 127.33479));
+
+        // 9구간
+        list.add(new TramStation(245, "진잠", 36.29932, 127.32423));
+        list.add(new TramStation(233, "롯데시네마", 36.30151, 127.33547));
+        list.add(new TramStation(234, "대전가원학교", 36.30357, 127.34618));
+        list.add(new TramStation(235, "가수원교회", 36.30551, 127.35484));
+
+        // 10구간
+        list.add(new TramStation(236, "가수원교", 36.30739, 127.36376));
+        list.add(new TramStation(237, "도마네거리", 36.31268, 127.37919));
+
+        // 11구간
+        list.add(new TramStation(238, "유등교", 36.31507, 127.38455));
+
+        // 12구간
+        list.add(new TramStation(239, "유천", 36.31618, 127.38879));
+        list.add(new TramStation(240, "오류", 36.31886, 127.39934));
+        list.add(new TramStation(201, "서대전역", 36.32109, 127.40789));
+        list.add(new TramStation(202, "서대전네거리", 36.32237, 127.41233));
+        list.add(new TramStation(203, "대사", 36.31822, 127.41782));
+        list.add(new TramStation(204, "부사", 36.3178, 127.42145));
+        list.add(new TramStation(205, "인동", 36.32067, 127.43509));
+
+        // 13구간
+        list.add(new TramStation(206, "대전역", 36.33093, 127.43276));
+        list.add(new TramStation(207, "중앙동 행정 복지 센터", 36.33354, 127.43925));
+        list.add(new TramStation(208, "신흥", 36.32985, 127.44323));
+        list.add(new TramStation(209, "우송대(자양)", 36.34068, 127.44887));
+
+        // 14구간
+        list.add(new TramStation(210, "동부네거리", 36.35111, 127.44206));
+        list.add(new TramStation(211, "동부네거리", 36.35823, 127.43355));
+        // 211은 순환선 구조상 212(중리네거리)와 다시 연결되어야 함
+
+        STATIONS = Collections.unmodifiableList(list);
+    }
+
+    private TramNetwork() {
+    }
+
+    /**
+     * 운행 순서대로 정렬된 트램 정거장 목록(불변)
+     */
+    static List<TramStation> stations() {
+        return STATIONS;
+    }
+
+    /**
+     * 정거장 번호로 정거장을 찾는다. 없으면 null
+     */
+    static TramStation findById(int id) {
+        for (TramStation ts : STATIONS) {
+            if (ts.id == id) return ts;
+        }
+        return null;
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,267 @@
+// 수정됨: segment_weight ResultSet 값을 Map 없이 기본형 배열에 바로 적재하고 CSR 그래프로 압축하는 빌더로 변경
+//        - 노드ID는 int 인덱스로, 노선ID는 routeIds 테이블 인덱스로 치환한다.
+//        - 버스↔트램 환승 간선은 트램 x 전체 버스 이중 루프 대신 버스 정류장 격자 인덱스 반경 조회로 만든다.
+//        - 정류장명/노선번호 사전(bus_stop_name, bus_route_name)을 함께 적재해 스냅샷에 싣는다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.demo.dao.SegmentWeightDAO;
+import com.example.demo.service.path.impl.TramNetwork.TramStation;
+
+/**
+ * 그래프 스냅샷 빌더
+ *
+ * - BUS 구간: segment_weight(from_id -> to_id, 유향) - onRow()로 한 행씩 적재
+ * - TRAM 구간: 인접 정거장 양방향 + 211↔212 순환 연결
+ * - 환승: 트램 정거장 500m 이내 버스 정류장과 도보 양방향 연결
+ *
+ * 사용 순서: new TransitGraphBuilder() → segmentWeightDAO.forEachBusSegment(builder)
+ *          → (선택) putStopName / putRouteNo 로 이름 사전 적재 → build(...)
+ * (한 번만 사용하고 버리는 객체이며 스레드 안전하지 않다)
+ */
+final class TransitGraphBuilder implements SegmentWeightDAO.BusSegmentRowHandler {
+
+    // 버스↔트램 환승 도보 허용 거리(m)
+    static final double TRANSFER_RADIUS_M = 500.0;
+
+    private final long startedAtMs = System.currentTimeMillis();
+
+    // ---- 노드 (인덱스 = 등록 순서) ----
+    private final Map<String, Integer> nodeIndex = new HashMap<>();
+    private final List<String> nodeIds = new ArrayList<>();
+    private double[] nodeLat = new double[1024];
+    private double[] nodeLng = new double[1024];
+
+    // ---- 노선 테이블 ----
+    private final Map<String, Integer> routeIndex = new HashMap<>();
+    private final List<String> routeIds = new ArrayList<>();
+
+    // ---- 간선 (CSR 변환 전, 추가 순서대로) ----
+    private int edgeCount = 0;
+    private int[] eFrom = new int[4096];
+    private int[] eTo = new int[4096];
+    private double[] eMin = new double[4096];
+    private byte[] eMode = new byte[4096];
+    private int[] eRoute = new int[4096];
+    private byte[] eDir = new byte[4096];
+
+    private int busCount = 0;
+
+    // ---- 이름 사전 (노드ID -> 정류장명, 노선ID -> 노선번호) ----
+    private final Map<String, String> stopNames = new HashMap<>();
+    private final Map<String, String> routeNos = new HashMap<>();
+
+    /**
+     * BUS 구간 1행 적재 (SegmentWeightDAO.forEachBusSegment 콜백)
+     */
+    @Override
+    public void onRow(
+        String routeId, int updowncd, String fromId, String toId,
+        double fromLat, double fromLng, double toLat, double toLng,
+        double travelSecAvg
+    ) {
+        if (fromId == null || toId == null) return;
+
+        // 시간(분) 변환. 0초거나 오류값이면 최소 0.1분으로 보정
+        double minutes = Math.max(0.1, travelSecAvg / 60.0);
+
+        // 정류장 좌표 등록 (중복 시 기존 값 유지)
+        int from = internNode(fromId, fromLat, fromLng);
+        int to = internNode(toId, toLat, toLng);
+
+        // 그래프 간선 추가 (BUS는 실제 운행처럼 유향: from_id -> to_id만 허용)
+        addEdge(from, to, minutes, TransitGraphSnapshot.MODE_BUS, internRoute(routeId), updowncd);
+        busCount++;
+    }
+
+    /**
+     * 정류장명 1건 적재 (TransitNameDAO.forEachStopName 콜백). 그래프에 없는 정류장은 build()에서 버린다.
+     */
+    void putStopName(String nodeId, String name) {
+        if (nodeId == null || name == null || name.isBlank()) return;
+        stopNames.put(nodeId, name);
+    }
+
+    /**
+     * 노선번호 1건 적재 (TransitNameDAO.forEachRouteName 콜백)
+     */
+    void putRouteNo(String routeId, String routeNo) {
+        if (routeId == null || routeNo == null || routeNo.isBlank()) return;
+        routeNos.put(routeId, routeNo);
+    }
+
+    /**
+     * 적재된 BUS 구간에 트램/환승 간선을 더해 CSR 스냅샷을 만든다.
+     */
+    TransitGraphSnapshot build(long version, long sourceUpdatedAt) {
+
+        // ---------------------------------------------------------
+        // (1) 트램 그래프 구성 (인접 정거장 연결 + 순환 연결)
+        // ---------------------------------------------------------
+        List<TramStation> tramStations = TramNetwork.stations();
+        int tramRoute = internRoute(TramNetwork.ROUTE_NAME);
+        int firstTramNode = nodeIds.size(); // 이 인덱스부터는 트램 정거장(버스 정류장과 ID가 겹치지 않음)
+
+        for (TramStation ts : tramStations) {
+            internNode(ts.nodeId(), ts.lat, ts.lng);
+            stopNames.put(ts.nodeId(), ts.name);
+        }
+
+        for (int i = 0; i < tramStations.size(); i++) {
+            TramStation curr = tramStations.get(i);
+
+            // 1. 다음 정거장과 연결 (i -> i+1)
+            if (i < tramStations.size() - 1) {
+                addTramEdges(curr, tramStations.get(i + 1), tramRoute);
+            }
+
+            // 2. 순환 연결: 마지막 '211 동부네거리' -> '212 중리네거리' 연결
+            if (curr.id == TramNetwork.LOOP_FROM_ID) {
+                TramStation jungri = TramNetwork.findById(TramNetwork.LOOP_TO_ID);
+                if (jungri != null) {
+                    addTramEdges(curr, jungri, tramRoute);
+                }
+            }
+        }
+
+        // ---------------------------------------------------------
+        // (2) 환승 연결 (버스 ↔ 트램 500m 이내) - 버스 정류장 [0, firstTramNode) 격자 인덱스로 반경 조회
+        // ---------------------------------------------------------
+        StopGridIndex busIndex = StopGridIndex.build(nodeLat, nodeLng, firstTramNode, StopGridIndex.DEFAULT_CELL_M);
+        StopGridIndex.Hits hits = new StopGridIndex.Hits();
+
+        for (int t = firstTramNode; t < nodeIds.size(); t++) {
+            hits.clear();
+            busIndex.radius(nodeLat[t], nodeLng[t], TRANSFER_RADIUS_M, hits);
+            hits.sortByNode(); // 기존과 같은 간선 순서(버스 정류장 인덱스 순)
+
+            for (int i = 0; i < hits.count; i++) {
+                int b = hits.nodes[i];
+
+                // 500m 이내면 환승 가능 (도보)
+                double walkMin = PathGeo.metersToWalkMinutes(hits.meters[i]);
+                addEdge(b, t, walkMin, TransitGraphSnapshot.MODE_WALK, -1, -1); // 버스 -> 트램
+                addEdge(t, b, walkMin, TransitGraphSnapshot.MODE_WALK, -1, -1); // 트램 -> 버스
+            }
+        }
+
+        // ---------------------------------------------------------
+        // (3) CSR 변환 (출발 노드 기준 계수 정렬, 같은 노드 안에서는 추가 순서 유지)
+        // ---------------------------------------------------------
+        int n = nodeIds.size();
+        int m = edgeCount;
+
+        int[] edgeStart = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            edgeStart[eFrom[i] + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            edgeStart[u + 1] += edgeStart[u];
+        }
+
+        int[] cursor = Arrays.copyOf(edgeStart, n);
+        int[] edgeSource = new int[m];
+        int[] edgeTarget = new int[m];
+        double[] edgeMinutes = new double[m];
+        byte[] edgeMode = new byte[m];
+        int[] edgeRoute = new int[m];
+        byte[] edgeDir = new byte[m];
+
+        for (int i = 0; i < m; i++) {
+            int pos = cursor[eFrom[i]]++;
+            edgeSource[pos] = eFrom[i];
+            edgeTarget[pos] = eTo[i];
+            edgeMinutes[pos] = eMin[i];
+            edgeMode[pos] = eMode[i];
+            edgeRoute[pos] = eRoute[i];
+            edgeDir[pos] = eDir[i];
+        }
+
+        // 노드 인덱스 순 이름 배열 (사전에 없는 정류장은 null)
+        String[] nodeNames = new String[n];
+        for (int i = 0; i < n; i++) {
+            nodeNames[i] = stopNames.get(nodeIds.get(i));
+        }
+
+        // 그래프에 있는 노선의 번호만 남긴다
+        Map<String, String> usedRouteNos = new HashMap<>();
+        for (String r : routeIds) {
+            String no = routeNos.get(r);
+            if (no != null) usedRouteNos.put(r, no);
+        }
+
+        long elapsed = System.currentTimeMillis() - startedAtMs;
+        return new TransitGraphSnapshot(
+            version, sourceUpdatedAt, elapsed, busCount,
+            nodeIds.toArray(new String[0]), Arrays.copyOf(nodeLat, n), Arrays.copyOf(nodeLng, n), nodeIndex,
+            edgeStart, edgeSource, edgeTarget, edgeMinutes, edgeMode, edgeRoute, edgeDir,
+            routeIds.toArray(new String[0]), nodeNames, usedRouteNos
+        );
+    }
+
+    private void addTramEdges(TramStation a, TramStation b, int tramRoute) {
+        double distM = PathGeo.haversineMeters(a.lat, a.lng, b.lat, b.lng);
+        double min = PathGeo.metersToTramMinutes(distM);
+
+        int ai = nodeIndex.get(a.nodeId());
+        int bi = nodeIndex.get(b.nodeId());
+
+        // 트램은 양방향 운행
+        addEdge(ai, bi, min, TransitGraphSnapshot.MODE_TRAM, tramRoute, -1);
+        addEdge(bi, ai, min, TransitGraphSnapshot.MODE_TRAM, tramRoute, -1);
+    }
+
+    private int internNode(String id, double lat, double lng) {
+        Integer idx = nodeIndex.get(id);
+        if (idx != null) return idx.intValue();
+
+        int i = nodeIds.size();
+        if (i == nodeLat.length) {
+            nodeLat = Arrays.copyOf(nodeLat, i * 2);
+            nodeLng = Arrays.copyOf(nodeLng, i * 2);
+        }
+        nodeIds.add(id);
+        nodeLat[i] = lat;
+        nodeLng[i] = lng;
+        nodeIndex.put(id, i);
+        return i;
+    }
+
+    private int internRoute(String routeId) {
+        String key = (routeId == null) ? "" : routeId;
+        Integer idx = routeIndex.get(key);
+        if (idx != null) return idx.intValue();
+
+        int i = routeIds.size();
+        routeIds.add(key);
+        routeIndex.put(key, i);
+        return i;
+    }
+
+    private void addEdge(int from, int to, double minutes, byte mode, int route, int dir) {
+        if (edgeCount == eFrom.length) {
+            int cap = edgeCount * 2;
+            eFrom = Arrays.copyOf(eFrom, cap);
+            eTo = Arrays.copyOf(eTo, cap);
+            eMin = Arrays.copyOf(eMin, cap);
+            eMode = Arrays.copyOf(eMode, cap);
+            eRoute = Arrays.copyOf(eRoute, cap);
+            eDir = Arrays.copyOf(eDir, cap);
+        }
+        eFrom[edgeCount] = from;
+        eTo[edgeCount] = to;
+        eMin[edgeCount] = minutes;
+        eMode[edgeCount] = mode;
+        eRoute[edgeCount] = route;
+        eDir[edgeCount] = (byte) dir;
+        edgeCount++;
+    }
+}
+
+// 수정됨 끝
@@ -0,0 +1,260 @@
+// 추가됨: 경로 그래프 스냅샷 바이너리 파일 (버전 헤더 + 기본형 배열 구간 + 문자열 테이블)
+//        - DB 빌드 직후 파일로 저장하고, 재기동/다른 인스턴스는 FileChannel.map으로 읽어 segment_weight 전체 조회를 건너뛴다.
+//        - 숫자 배열은 매핑 버퍼에서 배열로 한 번에 복사(bulk get)하므로 행 단위 파싱이 없다.
+
+package com.example.demo.service.path.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 그래프 스냅샷 파일 형식 (big-endian)
+ *
+ * 헤더
+ * - MAGIC(int) / FORMAT_VERSION(int) / 전체 길이(long)
+ * - sourceUpdatedAt(long) / busSegmentCount(int) / nodeCount(int) / edgeCount(int) / routeCount(int) / routeNoCount(int)
+ *
+ * 본문 (순서 고정)
+ * - nodeLat[n], nodeLng[n] (double) / edgeStart[n+1], edgeSource[m], edgeTarget[m] (int)
+ * - edgeMinutes[m] (double) / edgeRoute[m] (int) / edgeMode[m], edgeDir[m] (byte)
+ * - 문자열: nodeIds[n], nodeNames[n], routeIds[r], (노선ID, 노선번호) x routeNoCount
+ *   각 문자열은 UTF-8 길이(int, null이면 -1) + 바이트
+ *
+ * 탑승 패턴/슬롯/격자 인덱스는 파일에 넣지 않고 스냅샷 생성자가 다시 계산한다(CSR만으로 결정된다).
+ * 트램/환승 간선은 CSR 간선에 이미 들어 있으므로 TramNetwork를 다시 펼치지 않는다.
+ */
+final class TransitGraphFile {
+
+    static final int MAGIC = 0x54475346; // "TGSF"
+    static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 * 5;
+
+    private TransitGraphFile() {
+    }
+
+    /**
+     * 헤더만 읽은 파일 정보 (전체를 읽기 전 최신 여부 판단용)
+     */
+    static final class Header {
+        final long sourceUpdatedAt;
+        final int nodeCount;
+        final int edgeCount;
+
+        Header(long sourceUpdatedAt, int nodeCount, int edgeCount) {
+            this.sourceUpdatedAt = sourceUpdatedAt;
+            this.nodeCount = nodeCount;
+            this.edgeCount = edgeCount;
+        }
+    }
+
+    /**
+     * 스냅샷을 파일로 저장한다. 같은 디렉터리 임시 파일에 쓴 뒤 원자적으로 교체하므로
+     * 다른 인스턴스가 쓰는 도중의 파일을 읽는 일은 없다.
+     */
+    static void write(TransitGraphSnapshot g, Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+
+        try {
+            int n = g.nodeCount;
+            int m = g.edgeCount;
+            Map<String, String> routeNos = g.routeNoMap();
+            long total;
+
+            try (OutputStream os = Files.newOutputStream(tmp, StandardOpenOption.TRUNCATE_EXISTING);
+                 CountingOutput co = new CountingOutput(new BufferedOutputStream(os, 1 << 16));
+                 DataOutputStream out = new DataOutputStream(co)) {
+
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(0L); // 전체 길이 - 아래에서 채운다
+                out.writeLong(g.getSourceUpdatedAt());
+                out.writeInt(g.getBusSegmentCount());
+                out.writeInt(n);
+                out.writeInt(m);
+                out.writeInt(g.routeIds.length);
+                out.writeInt(routeNos.size());
+
+                for (int i = 0; i < n; i++) out.writeDouble(g.nodeLat[i]);
+                for (int i = 0; i < n; i++) out.writeDouble(g.nodeLng[i]);
+                for (int i = 0; i <= n; i++) out.writeInt(g.edgeStart[i]);
+                for (int e = 0; e < m; e++) out.writeInt(g.edgeSource[e]);
+                for (int e = 0; e < m; e++) out.writeInt(g.edgeTarget[e]);
+                for (int e = 0; e < m; e++) out.writeDouble(g.edgeMinutes[e]);
+                for (int e = 0; e < m; e++) out.writeInt(g.edgeRoute[e]);
+                out.write(g.edgeMode, 0, m);
+                out.write(g.edgeDir, 0, m);
+
+                for (int i = 0; i < n; i++) writeString(out, g.nodeIds[i]);
+                for (int i = 0; i < n; i++) writeString(out, g.nodeNames[i]);
+                for (String r : g.routeIds) writeString(out, r);
+                for (Map.Entry<String, String> en : routeNos.entrySet()) {
+                    writeString(out, en.getKey());
+                    writeString(out, en.getValue());
+                }
+                out.flush();
+                total = co.count;
+            }
+
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ch.write(ByteBuffer.allocate(8).putLong(0, total), 8);
+                ch.force(true);
+            }
+
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 헤더만 읽는다. 파일이 없거나 형식/길이가 맞지 않으면 null
+     */
+    static Header readHeader(Path file) {
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES) return null;
+            ByteBuffer b = ByteBuffer.allocate(HEADER_BYTES);
+            while (b.hasRemaining() && ch.read(b) >= 0) {
+            }
+            b.flip();
+            if (b.getInt() != MAGIC || b.getInt() != FORMAT_VERSION) return null;
+            if (b.getLong() != ch.size()) return null; // 쓰다 만 파일
+            long sourceUpdatedAt = b.getLong();
+            b.getInt(); // busSegmentCount
+            int n = b.getInt();
+            int m = b.getInt();
+            return new Header(sourceUpdatedAt, n, m);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 파일을 매핑해 스냅샷을 만든다.
+     *
+     * @return 형식/길이가 맞지 않으면 null
+     */
+    static TransitGraphSnapshot read(Path file, long version) throws IOException {
+        long t0 = System.currentTimeMillis();
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) return null;
+            MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (b.getInt() != MAGIC || b.getInt() != FORMAT_VERSION) return null;
+            if (b.getLong() != size) return null;
+            long sourceUpdatedAt = b.getLong();
+            int busSegmentCount = b.getInt();
+            int n = b.getInt();
+            int m = b.getInt();
+            int routeCount = b.getInt();
+            int routeNoCount = b.getInt();
+
+            double[] nodeLat = getDoubles(b, n);
+            double[] nodeLng = getDoubles(b, n);
+            int[] edgeStart = getInts(b, n + 1);
+            int[] edgeSource = getInts(b, m);
+            int[] edgeTarget = getInts(b, m);
+            double[] edgeMinutes = getDoubles(b, m);
+            int[] edgeRoute = getInts(b, m);
+            byte[] edgeMode = new byte[m];
+            b.get(edgeMode);
+            byte[] edgeDir = new byte[m];
+            b.get(edgeDir);
+
+            String[] nodeIds = new String[n];
+            Map<String, Integer> nodeIndex = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                nodeIds[i] = readString(b);
+                nodeIndex.put(nodeIds[i], i);
+            }
+            String[] nodeNames = new String[n];
+            for (int i = 0; i < n; i++) nodeNames[i] = readString(b);
+            String[] routeIds = new String[routeCount];
+            for (int i = 0; i < routeCount; i++) routeIds[i] = readString(b);
+            Map<String, String> routeNos = new HashMap<>(routeNoCount * 2);
+            for (int i = 0; i < routeNoCount; i++) {
+                String id = readString(b);
+                routeNos.put(id, readString(b));
+            }
+
+            return new TransitGraphSnapshot(version, sourceUpdatedAt, System.currentTimeMillis() - t0, busSegmentCount,
+                nodeIds, nodeLat, nodeLng, nodeIndex,
+                edgeStart, edgeSource, edgeTarget, edgeMinutes, edgeMode, edgeRoute, edgeDir,
+                routeIds, nodeNames, routeNos);
+        }
+    }
+
+    // 현재 위치에서 count개를 배열로 한 번에 복사하고 위치를 넘긴다.
+    private static int[] getInts(ByteBuffer b, int count) {
+        int[] a = new int[count];
+        b.asIntBuffer().get(a);
+        b.position(b.position() + count * 4);
+        return a;
+    }
+
+    private static double[] getDoubles(ByteBuffer b, int count) {
+        double[] a = new double[count];
+        b.asDoubleBuffer().get(a);
+        b.position(b.position() + count * 8);
+        return a;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer b) {
+        int len = b.getInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 쓴 바이트 수를 세는 스트림(헤더의 전체 길이 기록용)
+    private static final class CountingOutput extends FilterOutputStream {
+        long count;
+
+        CountingOutput(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,217 @@
+// 수정됨: 스냅샷 빌드 시 segment_weight를 Map 목록이 아니라 ResultSet 스트리밍(forEachBusSegment)으로 적재
+//        - 서버 기동 시 1회 빌드하고, 백그라운드 스레드가 segment_weight.updated_at 변화를 감시해 재빌드한다.
+//        - 새 스냅샷은 AtomicReference로 한 번에 교체하므로 /api/path/solve 요청은 DB를 전혀 조회하지 않는다.
+//        - 스냅샷 교체 리스너(addSwapListener): 스냅샷별 전처리(CH 등)를 교체 직후 시작할 수 있게 한다.
+//        - 정류장명/노선번호 사전(TransitNameDAO)을 같은 시점에 읽어 스냅샷에 싣는다(조회 실패 시 이름 없이 진행).
+//        - 바이너리 스냅샷 파일(path.graph.snapshot-file): DB 빌드 후 저장하고, 파일이 DB보다 오래되지 않았으면
+//          segment_weight 전체 조회 대신 파일을 읽는다(재기동/다른 인스턴스). 기동 시 DB 장애면 파일로라도 시작한다.
+
+package com.example.demo.service.path.impl;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dao.SegmentWeightDAO;
+import com.example.demo.dao.TransitNameDAO;
+
+/**
+ * 경로 그래프 스냅샷 홀더
+ *
+ * - current() : 현재 스냅샷(불변)을 반환한다. 요청 스레드는 이 메서드만 호출한다.
+ * - 갱신 주기(path.graph.refresh-interval-ms)마다 MAX(updated_at)만 조회하고,
+ *   값이 앞으로 이동했을 때만 segment_weight 전체를 읽어 새 스냅샷을 만든다.
+ */
+@Component
+public class TransitGraphHolder {
+
+    @Autowired
+    private SegmentWeightDAO segmentWeightDAO;
+
+    @Autowired
+    private TransitNameDAO transitNameDAO;
+
+    // 갱신 확인 주기(ms). 기본 60초
+    @Value("${path.graph.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    // 바이너리 스냅샷 파일 경로. 비어 있으면 사용하지 않는다.
+    @Value("${path.graph.snapshot-file:}")
+    private String snapshotFile;
+
+    private final AtomicReference<TransitGraphSnapshot> current = new AtomicReference<>(TransitGraphSnapshot.empty());
+    private final AtomicLong versionSeq = new AtomicLong(0);
+
+    // 스냅샷 교체 리스너(교체한 스레드에서 바로 호출되므로 오래 걸리는 일은 각자 다른 스레드로 넘긴다)
+    private final List<Consumer<TransitGraphSnapshot>> swapListeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "path-graph-refresher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        // 기동 시 1회 동기 빌드(실패해도 서버 기동은 계속, 이후 주기 갱신에서 재시도)
+        refreshIfChanged(true);
+
+        long interval = Math.max(1000L, refreshIntervalMs);
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refreshIfChanged(false);
+            } catch (Exception e) {
+                System.out.println("[PATH][GRAPH][ERROR] refresh msg=" + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 현재 그래프 스냅샷
+     */
+    public TransitGraphSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * 스냅샷 교체 리스너 등록
+     */
+    public void addSwapListener(Consumer<TransitGraphSnapshot> listener) {
+        swapListeners.add(listener);
+    }
+
+    /**
+     * segment_weight가 갱신되었으면 새 스냅샷을 만들어 교체한다.
+     *
+     * @param force true면 updated_at 비교 없이 재빌드
+     * @return 교체했으면 true
+     */
+    public synchronized boolean refreshIfChanged(boolean force) {
+        TransitGraphSnapshot cur = current.get();
+        Path file = snapshotPath();
+
+        // 전체를 읽기 전에 기준 시각을 먼저 잡는다(읽는 도중 갱신된 행은 다음 주기에 다시 반영된다)
+        long stamp = segmentWeightDAO.findMaxUpdatedAtMillis();
+        if (stamp < 0) {
+            // DB 조회 실패: 기존 스냅샷을 그대로 유지 (아직 빈 그래프면 파일이 있으면 파일로 시작)
+            if (cur.getVersion() == 0 && file != null) {
+                TransitGraphSnapshot loaded = loadFile(file, Long.MIN_VALUE);
+                if (loaded != null) {
+                    swap(loaded, "file(db unavailable)", -1, -1);
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (!force && stamp <= cur.getSourceUpdatedAt()) {
+            return false;
+        }
+
+        // 다른 인스턴스(또는 이전 실행)가 같은 기준 시각 이상으로 저장한 파일이 있으면 DB 전체 조회를 건너뛴다.
+        if (file != null) {
+            TransitGraphSnapshot loaded = loadFile(file, stamp);
+            if (loaded != null) {
+                swap(loaded, "file", -1, -1);
+                return true;
+            }
+        }
+
+        // ResultSet 값을 Map 없이 빌더의 기본형 배열에 바로 적재
+        TransitGraphBuilder builder = new TransitGraphBuilder();
+        int rows = segmentWeightDAO.forEachBusSegment(builder);
+        if (rows < 0) {
+            // SQL 실패: 기존 스냅샷을 그대로 유지
+            return false;
+        }
+
+        // 기존 그래프가 있는데 빈 결과가 오면(일시 장애 등) 교체하지 않는다.
+        if (rows == 0 && cur.getBusSegmentCount() > 0) {
+            System.out.println("[PATH][GRAPH] empty segment list while current graph has data. keep version=" + cur.getVersion());
+            return false;
+        }
+
+        // 이름 사전(없거나 실패해도 그래프는 교체한다 - 이름만 비어 있게 된다)
+        int stopNames = transitNameDAO.forEachStopName(builder::putStopName);
+        int routeNames = transitNameDAO.forEachRouteName(builder::putRouteNo);
+
+        TransitGraphSnapshot next = builder.build(versionSeq.incrementAndGet(), stamp);
+        swap(next, "db", stopNames, routeNames);
+
+        if (file != null) {
+            try {
+                long w0 = System.currentTimeMillis();
+                TransitGraphFile.write(next, file);
+                System.out.println("[PATH][GRAPH] snapshot file written. path=" + file
+                    + " sourceUpdatedAt=" + stamp + " ms=" + (System.currentTimeMillis() - w0));
+            } catch (Exception e) {
+                System.out.println("[PATH][GRAPH][ERROR] snapshot file write msg=" + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void swap(TransitGraphSnapshot next, String source, int stopNames, int routeNames) {
+        current.set(next);
+
+        System.out.println("[PATH][GRAPH] snapshot swapped. version=" + next.getVersion()
+            + " source=" + source
+            + " busSegments=" + next.getBusSegmentCount()
+            + " nodes=" + next.getNodeCount()
+            + " edges=" + next.getEdgeCount()
+            + " sourceUpdatedAt=" + next.getSourceUpdatedAt()
+            + " stopNames=" + stopNames
+            + " routeNames=" + routeNames
+            + " maxMetersPerMinute=" + Math.round(next.getMaxMetersPerMinute())
+            + " buildMs=" + next.getBuildElapsedMs());
+
+        for (Consumer<TransitGraphSnapshot> listener : swapListeners) {
+            try {
+                listener.accept(next);
+            } catch (Exception e) {
+                System.out.println("[PATH][GRAPH][ERROR] swap listener msg=" + e.getMessage());
+            }
+        }
+    }
+
+    private Path snapshotPath() {
+        return (snapshotFile == null || snapshotFile.isBlank()) ? null : Paths.get(snapshotFile.trim());
+    }
+
+    /**
+     * 파일의 기준 시각이 minSourceUpdatedAt 이상이면 읽는다. 없거나 오래됐거나 깨졌으면 null
+     */
+    private TransitGraphSnapshot loadFile(Path file, long minSourceUpdatedAt) {
+        TransitGraphFile.Header header = TransitGraphFile.readHeader(file);
+        if (header == null || header.sourceUpdatedAt < minSourceUpdatedAt) return null;
+        try {
+            return TransitGraphFile.read(file, versionSeq.incrementAndGet());
+        } catch (Exception e) {
+            System.out.println("[PATH][GRAPH][ERROR] snapshot file read msg=" + e.getMessage());
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            refresher.shutdownNow();
+        } catch (Exception ignore) {
+        }
+    }
+}
+
+// 수정됨 끝
@@ -0,0 +1,384 @@
+// 수정됨: 그래프를 HashMap<String, List<Edge>>에서 CSR(compressed sparse row) 기본형 배열 구조로 변경
+//        - 노드는 int 인덱스, 간선은 병렬 배열(target/minutes/mode/route/dir)로 보관해 힙 사용량을 줄이고
+//          다익스트라 내부 루프가 연속 메모리를 순회하도록 한다.
+//        - Edge/StopPoint 객체는 결과(segments) 조립 시에만 필요한 만큼 만든다.
+//        - 출발/도착 스냅용 정류장 격자 인덱스(StopGridIndex)를 생성 시 함께 만든다.
+//        - 기본형 탐색 엔진용 탑승 패턴(노선+방향)과 슬롯(노드 x 도착 패턴) 테이블을 생성 시 함께 계산한다.
+//        - 목표 지향(A*) 탐색 하한용 최대 이동 속도(maxMetersPerMinute)를 생성 시 함께 계산한다.
+//        - 정류장명(nodeNames, 트램+버스)과 노선번호(routeNos) 사전을 함께 보관해 결과 조립 시 외부 API를 호출하지 않는다.
+//        - 바이너리 스냅샷 파일(TransitGraphFile) 저장용으로 노선번호 사전 전체(routeNoMap)를 노출한다.
+//        - 압축 응답(polyline / delta) 좌표용 노드 위경도 마이크로도(E6) 정수 배열을 생성 시 함께 계산한다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 경로 탐색 그래프 스냅샷 (불변)
+ *
+ * - version         : 스냅샷 일련번호(교체될 때마다 1씩 증가)
+ * - sourceUpdatedAt : 스냅샷을 만들 때 기준이 된 segment_weight.updated_at 최댓값(epoch ms)
+ *
+ * 노드(정류장/정거장)
+ * - nodeIds[i], nodeLat[i], nodeLng[i] : 노드 i의 ID/좌표
+ * - nodeNames[i] : 노드 i의 이름(트램 정거장명 / bus_stop_name 사전). 없으면 null
+ * - nodeLatE6[i], nodeLngE6[i] : 노드 i의 좌표(마이크로도 정수, 압축 응답용)
+ * - nodeIndex : 노드ID -> i (요청 입력/결과 변환용, 탐색 루프에서는 사용하지 않음)
+ * - stopIndex : 좌표 격자 인덱스(반경/k-최근접 조회)
+ *
+ * 간선(CSR) - 노드 u의 출발 간선은 edgeStart[u] <= e < edgeStart[u+1]
+ * - edgeTarget[e]  : 도착 노드 인덱스
+ * - edgeMinutes[e] : 소요시간(분)
+ * - edgeMode[e]    : MODE_BUS / MODE_TRAM / MODE_WALK
+ * - edgeRoute[e]   : routeIds 인덱스 (도보 환승은 -1)
+ * - edgeDir[e]     : BUS 방향(0:상행, 1:하행), BUS가 아니면 -1
+ * - routeNos      : 노선ID -> 노선번호(bus_route_name 사전, 예: DJB30300052 -> "105")
+ *
+ * 탑승 패턴/슬롯 - 상태(노드, 노선, 방향)를 int 하나로 표현하기 위한 테이블
+ * - edgePattern[e]    : 간선 e의 탑승 패턴 번호(BUS는 노선+방향, TRAM은 노선). 도보는 -1
+ * - 노드 v의 슬롯은 nodeSlotStart[v] <= s < nodeSlotStart[v+1]
+ *   첫 슬롯은 "도보(하차) 상태", 나머지는 v로 들어오는 탑승 패턴별 상태
+ * - slotNode[s], slotPattern[s] : 슬롯 s의 노드/패턴(도보 슬롯은 -1)
+ * - edgeTargetSlot[e] : 간선 e를 탔을 때 도착하는 슬롯
+ *
+ * 탐색 하한
+ * - maxMetersPerMinute : 모든 간선(및 도보)의 "직선거리 / 소요시간" 최댓값.
+ *   직선거리 / 이 값은 어떤 경로로 가도 넘을 수 없는 최소 소요시간이다.
+ *
+ * ※ 생성 이후에는 절대 수정하지 않는다. START/END 같은 요청별 간선은 호출 측에서 별도로 관리한다.
+ */
+public final class TransitGraphSnapshot {
+
+    static final byte MODE_BUS = 0;
+    static final byte MODE_TRAM = 1;
+    static final byte MODE_WALK = 2;
+
+    // 도보 환승 간선의 routeId 표기(기존 응답 호환)
+    static final String WALK_TRANSFER_ROUTE = "Transfer";
+
+    private final long version;
+    private final long sourceUpdatedAt;
+    private final long builtAtMs;
+    private final long buildElapsedMs;
+    private final int busSegmentCount;
+
+    // ---- 노드 ----
+    final int nodeCount;
+    final String[] nodeIds;
+    final double[] nodeLat;
+    final double[] nodeLng;
+    final String[] nodeNames;
+    final int[] nodeLatE6;
+    final int[] nodeLngE6;
+    private final Map<String, Integer> nodeIndex;
+    final StopGridIndex stopIndex;
+
+    // ---- 간선(CSR) ----
+    final int edgeCount;
+    final int[] edgeStart;
+    final int[] edgeSource;
+    final int[] edgeTarget;
+    final double[] edgeMinutes;
+    final byte[] edgeMode;
+    final int[] edgeRoute;
+    final byte[] edgeDir;
+
+    // ---- 노선 테이블 ----
+    final String[] routeIds;
+
+    // ---- 탑승 패턴 / 슬롯 ----
+    final int patternCount;
+    final int[] edgePattern;
+    final int slotCount;
+    final int[] nodeSlotStart;
+    final int[] slotNode;
+    final int[] slotPattern;
+    final int[] edgeTargetSlot;
+
+    final double maxMetersPerMinute;
+
+    private final Map<String, String> routeNos;
+
+    TransitGraphSnapshot(
+        long version,
+        long sourceUpdatedAt,
+        long buildElapsedMs,
+        int busSegmentCount,
+        String[] nodeIds,
+        double[] nodeLat,
+        double[] nodeLng,
+        Map<String, Integer> nodeIndex,
+        int[] edgeStart,
+        int[] edgeSource,
+        int[] edgeTarget,
+        double[] edgeMinutes,
+        byte[] edgeMode,
+        int[] edgeRoute,
+        byte[] edgeDir,
+        String[] routeIds,
+        String[] nodeNames,
+        Map<String, String> routeNos
+    ) {
+        this.version = version;
+        this.sourceUpdatedAt = sourceUpdatedAt;
+        this.builtAtMs = System.currentTimeMillis();
+        this.buildElapsedMs = buildElapsedMs;
+        this.busSegmentCount = busSegmentCount;
+
+        this.nodeCount = nodeIds.length;
+        this.nodeIds = nodeIds;
+        this.nodeLat = nodeLat;
+        this.nodeLng = nodeLng;
+        this.nodeNames = nodeNames;
+        this.nodeLatE6 = new int[nodeCount];
+        this.nodeLngE6 = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeLatE6[i] = PathGeometryCodec.toE6(nodeLat[i]);
+            nodeLngE6[i] = PathGeometryCodec.toE6(nodeLng[i]);
+        }
+        this.nodeIndex = Collections.unmodifiableMap(nodeIndex);
+        this.stopIndex = StopGridIndex.build(nodeLat, nodeLng, nodeCount, StopGridIndex.DEFAULT_CELL_M);
+
+        this.edgeCount = edgeTarget.length;
+        this.edgeStart = edgeStart;
+        this.edgeSource = edgeSource;
+        this.edgeTarget = edgeTarget;
+        this.edgeMinutes = edgeMinutes;
+        this.edgeMode = edgeMode;
+        this.edgeRoute = edgeRoute;
+        this.edgeDir = edgeDir;
+
+        this.routeIds = routeIds;
+        this.routeNos = Collections.unmodifiableMap(routeNos);
+
+        // ---------------------------------------------------------
+        // 탑승 패턴 번호 부여 (BUS: 노선+방향, TRAM: 노선)
+        // ---------------------------------------------------------
+        int m = edgeCount;
+        int n = nodeCount;
+        Map<Long, Integer> patternIndex = new HashMap<>();
+        this.edgePattern = new int[m];
+        for (int e = 0; e < m; e++) {
+            if (edgeMode[e] == MODE_WALK) {
+                edgePattern[e] = -1;
+                continue;
+            }
+            long key = ((long) edgeRoute[e] << 8) | (edgeDir[e] & 0xFF);
+            Integer p = patternIndex.get(key);
+            if (p == null) {
+                p = patternIndex.size();
+                patternIndex.put(key, p);
+            }
+            edgePattern[e] = p;
+        }
+        this.patternCount = patternIndex.size();
+
+        // ---------------------------------------------------------
+        // 슬롯 테이블: (도착 노드, 패턴) 쌍을 정렬/중복 제거 후 노드별로 나열
+        // ---------------------------------------------------------
+        long[] pairs = new long[m];
+        int pairCount = 0;
+        for (int e = 0; e < m; e++) {
+            if (edgePattern[e] >= 0) {
+                pairs[pairCount++] = ((long) edgeTarget[e] << 32) | edgePattern[e];
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+
+        this.nodeSlotStart = new int[n + 1];
+        int uniq = 0;
+        for (int i = 0; i < pairCount; i++) {
+            if (i > 0 && pairs[i] == pairs[i - 1]) continue;
+            pairs[uniq++] = pairs[i];
+            nodeSlotStart[(int) (pairs[i] >>> 32) + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            nodeSlotStart[v + 1] += nodeSlotStart[v] + 1; // +1: 노드마다 도보 슬롯 1개
+        }
+
+        this.slotCount = nodeSlotStart[n];
+        this.slotNode = new int[slotCount];
+        this.slotPattern = new int[slotCount];
+        int cursor = 0;
+        for (int v = 0; v < n; v++) {
+            int s0 = nodeSlotStart[v];
+            slotNode[s0] = v;
+            slotPattern[s0] = -1;
+            for (int s = s0 + 1; s < nodeSlotStart[v + 1]; s++) {
+                slotNode[s] = v;
+                slotPattern[s] = (int) pairs[cursor++];
+            }
+        }
+
+        this.edgeTargetSlot = new int[m];
+        for (int e = 0; e < m; e++) {
+            int v = edgeTarget[e];
+            int p = edgePattern[e];
+            int slot = nodeSlotStart[v];
+            if (p >= 0) {
+                // 같은 노드의 패턴 슬롯은 패턴 번호 오름차순
+                int lo = nodeSlotStart[v] + 1;
+                int hi = nodeSlotStart[v + 1] - 1;
+                while (lo <= hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (slotPattern[mid] < p) lo = mid + 1;
+                    else if (slotPattern[mid] > p) hi = mid - 1;
+                    else { slot = mid; break; }
+                }
+            }
+            edgeTargetSlot[e] = slot;
+        }
+
+        // ---------------------------------------------------------
+        // 최대 이동 속도(m/분): 소요시간 0인 간선이 있으면 무한대(하한 0 = 목표 지향 효과 없음)
+        // ---------------------------------------------------------
+        double maxSpeed = PathGeo.WALK_SPEED_MPS * 60.0;
+        for (int e = 0; e < m; e++) {
+            double meters = PathGeo.haversineMeters(nodeLat[edgeSource[e]], nodeLng[edgeSource[e]],
+                nodeLat[edgeTarget[e]], nodeLng[edgeTarget[e]]);
+            if (meters <= 0) continue;
+            double speed = (edgeMinutes[e] > 0) ? meters / edgeMinutes[e] : Double.POSITIVE_INFINITY;
+            if (speed > maxSpeed) maxSpeed = speed;
+        }
+        this.maxMetersPerMinute = maxSpeed;
+    }
+
+    /**
+     * DB 조회 전(또는 최초 빌드 실패 시) 사용할 빈 스냅샷
+     */
+    static TransitGraphSnapshot empty() {
+        return new TransitGraphSnapshot(0L, -1L, 0L, 0,
+            new String[0], new double[0], new double[0], new HashMap<>(),
+            new int[] { 0 }, new int[0], new int[0], new double[0], new byte[0], new int[0], new byte[0],
+            new String[0], new String[0], new HashMap<>());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getSourceUpdatedAt() {
+        return sourceUpdatedAt;
+    }
+
+    public long getBuiltAtMs() {
+        return builtAtMs;
+    }
+
+    public long getBuildElapsedMs() {
+        return buildElapsedMs;
+    }
+
+    public int getBusSegmentCount() {
+        return busSegmentCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public double getMaxMetersPerMinute() {
+        return maxMetersPerMinute;
+    }
+
+    /**
+     * 노드ID -> 인덱스. 없으면 -1
+     */
+    int indexOf(String nodeId) {
+        if (nodeId == null) return -1;
+        Integer idx = nodeIndex.get(nodeId);
+        return (idx == null) ? -1 : idx.intValue();
+    }
+
+    /**
+     * 노드ID로 좌표 객체를 만든다(결과 조립용). 없으면 null
+     */
+    StopPoint stopPoint(String nodeId) {
+        int i = indexOf(nodeId);
+        if (i < 0) return null;
+        return new StopPoint(nodeIds[i], nodeLat[i], nodeLng[i]);
+    }
+
+    /**
+     * 노드ID -> 정류장/정거장 이름. 사전에 없으면 null
+     */
+    String stopName(String nodeId) {
+        int i = indexOf(nodeId);
+        return (i < 0) ? null : nodeNames[i];
+    }
+
+    /**
+     * 노선ID -> 노선번호. 사전에 없으면 null
+     */
+    String routeNo(String routeId) {
+        if (routeId == null) return null;
+        return routeNos.get(routeId);
+    }
+
+    /**
+     * 노선ID -> 노선번호 사전 전체(읽기 전용, 스냅샷 파일 저장용)
+     */
+    Map<String, String> routeNoMap() {
+        return routeNos;
+    }
+
+    static String modeName(byte mode) {
+        switch (mode) {
+            case MODE_BUS: return "BUS";
+            case MODE_TRAM: return "TRAM";
+            default: return "WALK";
+        }
+    }
+
+    /**
+     * CSR 간선 e를 결과 조립용 Edge 객체로 변환한다.
+     */
+    Edge toEdge(int e) {
+        byte mode = edgeMode[e];
+        int r = edgeRoute[e];
+        String routeId = (r >= 0) ? routeIds[r] : WALK_TRANSFER_ROUTE;
+        return new Edge(modeName(mode), routeId, nodeIds[edgeSource[e]], nodeIds[edgeTarget[e]], edgeMinutes[e], edgeDir[e]);
+    }
+
+    // =========================
+    // 결과 조립용 뷰 객체
+    // =========================
+    static final class StopPoint {
+        final String id;
+        final double lat, lng;
+
+        StopPoint(String id, double lat, double lng) {
+            this.id = id;
+            this.lat = lat;
+            this.lng = lng;
+        }
+    }
+
+    static final class Edge {
+        final String mode, routeId, fromId, toId;
+        final double minutes;
+        final int updowncd; // BUS 방향(0:상행, 1:하행), BUS가 아니면 -1
+
+        Edge(String m, String r, String f, String t, double min, int updowncd) {
+            this.mode = m;
+            this.routeId = r;
+            this.fromId = f;
+            this.toId = t;
+            this.minutes = min;
+            this.updowncd = updowncd;
+        }
+    }
+}
+
+// 수정됨 끝
@@ -0,0 +1,870 @@
+// 추가됨: 문자열 상태 키/HashMap/PriorityQueue를 쓰지 않는 기본형 다익스트라 엔진
+//        - 상태(노드, 노선, 방향, 승차 횟수)를 int 하나(stateId)로 표현하고
+//          dist/prev는 기본형 배열, 우선순위 큐는 인덱스 이진 힙(decrease-key)으로 처리한다.
+//        - 작업 배열은 스레드별(ThreadLocal)로 재사용하고, 요청마다 건드린 상태만 초기화한다.
+//        - 목표 지향(A*) 하한, 도착 최선값 기준 가지치기, 모든 승차 횟수 확정 시 조기 종료를 지원한다.
+//        - 다대다 소요시간 행렬용 일대다 탐색(searchOneToMany)을 추가한다.
+//        - 등시선(isochrone)용 시간 예산 제한 일대전체 탐색(searchWithinBudget)을 추가한다.
+//        - 체인 압축 그래프(ChainGraph) 위 탐색(searchAllRidesChained)을 추가한다. 결과 간선 코드는 원래 CSR 기준으로 풀어 돌려준다.
+//        - 실시간 지연 오버레이(LiveDelayOverlay)의 간선별 지연(분)을 간선 소요시간에 더할 수 있다(delay, null이면 평균만).
+//        - delay 자리에 출발 시간대 보정값(SegmentStatsEngine, 음수 가능)을 넣을 수 있다. 음수가 있으면 호출부가 goalDirected를 끈다.
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 기본형 상태 공간 다익스트라
+ *
+ * 상태 인코딩
+ * - slot  : 스냅샷 슬롯(노드 x 도착 탑승 패턴). START = slotCount, END = slotCount + 1
+ * - rides : 승차 횟수(0..maxRides)
+ * - stateId = slot * (maxRides + 1) + rides
+ *
+ * 같은 패턴(노선+방향)의 간선을 이어 타면 승차 횟수가 늘지 않고,
+ * 다른 패턴으로 갈아타면 승차 +1 및 (첫 승차가 아니면) 환승 페널티가 붙는다. (기존 다익스트라와 같은 규칙)
+ */
+final class TransitSearchEngine {
+
+    // 요청별 작업 배열(스레드마다 1개, 그래프가 커지면 늘어난다)
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private TransitSearchEngine() {
+    }
+
+    /**
+     * 승차 1..maxRides회 각각의 최단 시간 경로를 구한다.
+     */
+    static List<PathCandidate> searchAllRides(TransitGraphSnapshot g, SnapEdges snap, int maxRides, double transferPenaltyMin) {
+        return searchAllRides(g, snap, maxRides, transferPenaltyMin, false, null);
+    }
+
+    /**
+     * 승차 1..maxRides회 각각의 최단 시간 경로를 구한다.
+     *
+     * - goalDirected : 힙 키를 "지금까지 시간 + 도착지까지 직선거리 / 최대 속도"(A*)로 둔다.
+     *                  하한이 일관적(consistent)이므로 꺼낸 상태의 시간은 다익스트라와 같이 확정값이다.
+     * - 가지치기     : 승차 r회 상태의 하한이 "승차 r회 이상 도착 후보들의 현재 최선값" 중 가장 큰 값 이상이면
+     *                  그 상태에서 이어지는 어떤 경로도 남은 구간을 개선할 수 없으므로 버린다.
+     * - 조기 종료    : 승차 1..maxRides 모든 구간의 END가 꺼내지면(확정) 힙이 남아도 끝낸다.
+     *
+     * @param stats 탐색 지표를 채울 객체(null이면 기록하지 않음)
+     */
+    static List<PathCandidate> searchAllRides(TransitGraphSnapshot g, SnapEdges snap, int maxRides, double transferPenaltyMin,
+                                              boolean goalDirected, SearchStats stats) {
+        return searchAllRides(g, snap, maxRides, transferPenaltyMin, goalDirected, stats, null);
+    }
+
+    /**
+     * @param delay 간선별 실시간 지연(분, 0 이상). null이면 평균 소요시간만 쓴다.
+     *              지연은 0 이상이므로 목표 지향 하한은 그대로 유효하다.
+     *              출발 시간대 보정값은 음수일 수 있다(간선 비용은 0 이상). 그때는 goalDirected = false로 호출한다.
+     */
+    static List<PathCandidate> searchAllRides(TransitGraphSnapshot g, SnapEdges snap, int maxRides, double transferPenaltyMin,
+                                              boolean goalDirected, SearchStats stats, float[] delay) {
+        final long t0 = System.nanoTime();
+        final int stride = maxRides + 1;
+        final int startSlot = g.slotCount;
+        final int endSlot = g.slotCount + 1;
+        final int stateCount = (g.slotCount + 2) * stride;
+
+        Workspace ws = WORKSPACE.get();
+        ws.prepare(stateCount, g.nodeCount);
+
+        final double[] dist = ws.dist;
+        final int[] prevState = ws.prevState;
+        final int[] prevEdge = ws.prevEdge;
+
+        // 하한 계수(분/m). 최대 속도가 무한대(소요시간 0 간선)이면 0 → 다익스트라와 같다.
+        final double minutesPerMeter = goalDirected ? 1.0 / (g.maxMetersPerMinute * (1.0 + 1e-9)) : 0.0;
+        final int hStamp = ws.nextHeuristicStamp();
+
+        // 승차 횟수별 END 확정 시간 / 가지치기 기준(승차 r회 이상 END 현재 최선값 중 최댓값)
+        double[] bestEnd = new double[stride];
+        Arrays.fill(bestEnd, Double.POSITIVE_INFINITY);
+        double[] bound = new double[stride + 1];
+        Arrays.fill(bound, Double.POSITIVE_INFINITY);
+        int settledBuckets = 0;
+        int expanded = 0;
+        int pruned = 0;
+        boolean earlyStop = false;
+
+        int startState = startSlot * stride;
+        ws.offer(startState, 0.0, 0.0, -1, -1);
+
+        try {
+            while (ws.heapSize > 0) {
+                int cur = ws.poll();
+                double d = dist[cur];
+                int slot = cur / stride;
+                int rides = cur - slot * stride;
+
+                // 도착지 도달 (힙에서 꺼낸 순간 해당 승차 횟수의 최단 시간이 확정된다)
+                if (slot == endSlot) {
+                    if (rides >= 1 && bestEnd[rides] == Double.POSITIVE_INFINITY) {
+                        bestEnd[rides] = d;
+                        if (++settledBuckets == maxRides) {
+                            earlyStop = ws.heapSize > 0;
+                            break;
+                        }
+                    }
+                    continue; // END에서 나가는 간선은 없다
+                }
+
+                // (A) START → 스냅 정류장 (도보)
+                if (slot == startSlot) {
+                    expanded++;
+                    for (int i = 0; i < snap.startNodes.length; i++) {
+                        int v = snap.startNodes[i];
+                        ws.offer(g.nodeSlotStart[v] * stride + rides, d + snap.startMinutes[i],
+                            ws.heuristic(g, snap, v, minutesPerMeter, hStamp), cur, SnapEdges.startEdgeCode(i));
+                    }
+                    continue;
+                }
+
+                int u = g.slotNode[slot];
+                double hu = ws.heuristic(g, snap, u, minutesPerMeter, hStamp);
+                if (d + hu >= bound[rides]) {
+                    pruned++;
+                    continue;
+                }
+                expanded++;
+
+                int curPattern = g.slotPattern[slot];
+
+                // (B) 스냅샷 CSR 간선 (BUS / TRAM / 환승 도보)
+                for (int e = g.edgeStart[u], end = g.edgeStart[u + 1]; e < end; e++) {
+                    int pattern = g.edgePattern[e];
+
+                    int nextRides = rides;
+                    double penalty = 0.0;
+                    if (pattern >= 0 && pattern != curPattern) {
+                        // 새로 승차(또는 환승)
+                        nextRides = rides + 1;
+                        if (rides > 0) {
+                            penalty = transferPenaltyMin;
+                        }
+                    }
+                    if (nextRides > maxRides) {
+                        continue; // 상한 초과
+                    }
+
+                    double nd = d + edgeWeight(g.edgeMinutes, delay, e) + penalty;
+                    int v = g.edgeTarget[e];
+                    double hv = ws.heuristic(g, snap, v, minutesPerMeter, hStamp);
+                    if (nd + hv >= bound[nextRides]) {
+                        continue; // 도착해도 남은 구간을 개선할 수 없음
+                    }
+                    ws.offer(g.edgeTargetSlot[e] * stride + nextRides, nd, hv, cur, e);
+                }
+
+                // (C) 스냅 정류장 → END (도보)
+                int endIdx = snap.endIndexOf(u);
+                if (endIdx >= 0 && rides >= 1) {
+                    int endState = endSlot * stride + rides;
+                    double nd = d + snap.endMinutes[endIdx];
+                    if (nd < dist[endState]) {
+                        ws.offer(endState, nd, 0.0, cur, SnapEdges.endEdgeCode(endIdx));
+                        updateBound(bound, dist, endSlot * stride, maxRides);
+                    }
+                }
+            }
+
+            // 결과 수집 (작업 배열을 돌려주기 전에 경로를 복원해 둔다)
+            List<PathCandidate> results = new ArrayList<>();
+            for (int r = 1; r <= maxRides; r++) {
+                if (bestEnd[r] == Double.POSITIVE_INFINITY) continue;
+
+                int endState = endSlot * stride + r;
+                int len = 0;
+                for (int s = endState; s != startState; s = prevState[s]) {
+                    len++;
+                }
+                int[] codes = new int[len];
+                int i = len;
+                for (int s = endState; s != startState; s = prevState[s]) {
+                    codes[--i] = prevEdge[s];
+                }
+                results.add(new PathCandidate(r, bestEnd[r], codes));
+            }
+            return results;
+        } finally {
+            ws.reset();
+            if (stats != null) {
+                stats.goalDirected = goalDirected;
+                stats.expandedStates = expanded;
+                stats.prunedStates = pruned;
+                stats.earlyStop = earlyStop;
+                stats.elapsedNanos = System.nanoTime() - t0;
+            }
+        }
+    }
+
+    /**
+     * searchAllRides와 같은 결과를 체인 압축 그래프 위에서 구한다.
+     *
+     * - 중간 정류장(ChainGraph 참고)은 상태로 꺼내지 않고 축약 간선 하나로 건너뛴다.
+     * - 출발 스냅이 중간 정류장이면 그 자리에서 승차해 체인 끝까지 간 상태를 바로 넣고,
+     *   도착 스냅이 중간 정류장이면 그 정류장을 지나는 축약 간선을 완화할 때 END를 함께 넣는다.
+     * - 소요시간은 원래 간선 순서대로 더하므로 totalMinutes는 압축 전과 같고,
+     *   edgeCodes도 원래 CSR 간선/스냅 코드로 풀어서 돌려준다(결과 조립은 그대로).
+     *
+     * 내부 간선 코드: 축약 간선 0 이상 / START i는 -2-i / END j는 MIN_VALUE+j /
+     * 중간 정류장 END는 -2-S-x (x < S*E: START i에서 바로 도착 항목 e, 그 외: 축약 간선 c의 도착 항목 e)
+     */
+    static List<PathCandidate> searchAllRidesChained(ChainGraph cg, SnapEdges snap, int maxRides, double transferPenaltyMin,
+                                                     boolean goalDirected, SearchStats stats, float[] delay) {
+        final long t0 = System.nanoTime();
+        final TransitGraphSnapshot g = cg.snapshot;
+        final int stride = maxRides + 1;
+        final int startSlot = g.slotCount;
+        final int endSlot = g.slotCount + 1;
+        final int stateCount = (g.slotCount + 2) * stride;
+        final int endBase = endSlot * stride;
+
+        Workspace ws = WORKSPACE.get();
+        ws.prepare(stateCount, g.nodeCount);
+        ws.prepareEdgeMarks(cg.edgeCount);
+
+        final double[] dist = ws.dist;
+        final int[] prevState = ws.prevState;
+        final int[] prevEdge = ws.prevEdge;
+        final double[] minutes = g.edgeMinutes;
+        final int[] expand = cg.expand;
+
+        final double minutesPerMeter = goalDirected ? 1.0 / (g.maxMetersPerMinute * (1.0 + 1e-9)) : 0.0;
+        final int hStamp = ws.nextHeuristicStamp();
+
+        // 중간 정류장에 걸린 도착 스냅 항목 (축약 간선 / 체인 위치 / 도착 인덱스)
+        final int startCount = snap.startNodes.length;
+        int[] entEdge = new int[snap.endNodes.length];
+        int[] entPos = new int[snap.endNodes.length];
+        int[] entEnd = new int[snap.endNodes.length];
+        int entCount = 0;
+        final int markStamp = ws.nextEdgeMarkStamp();
+        for (int j = 0; j < snap.endNodes.length; j++) {
+            int w = snap.endNodes[j];
+            if (!cg.isInterior(w)) continue;
+            entEdge[entCount] = cg.chainEdge[w];
+            entPos[entCount] = cg.chainPos[w];
+            entEnd[entCount] = j;
+            ws.edgeMark[cg.chainEdge[w]] = markStamp;
+            entCount++;
+        }
+        final int entries = Math.max(1, entCount);
+        final int partialBase = startCount * entries; // 이 값 이상은 "축약 간선 c의 도착 항목"
+
+        double[] bestEnd = new double[stride];
+        Arrays.fill(bestEnd, Double.POSITIVE_INFINITY);
+        double[] bound = new double[stride + 1];
+        Arrays.fill(bound, Double.POSITIVE_INFINITY);
+        int settledBuckets = 0;
+        int expanded = 0;
+        int pruned = 0;
+        boolean earlyStop = false;
+
+        int startState = startSlot * stride;
+        ws.offer(startState, 0.0, 0.0, -1, -1);
+
+        try {
+            while (ws.heapSize > 0) {
+                int cur = ws.poll();
+                double d = dist[cur];
+                int slot = cur / stride;
+                int rides = cur - slot * stride;
+
+                if (slot == endSlot) {
+                    if (rides >= 1 && bestEnd[rides] == Double.POSITIVE_INFINITY) {
+                        bestEnd[rides] = d;
+                        if (++settledBuckets == maxRides) {
+                            earlyStop = ws.heapSize > 0;
+                            break;
+                        }
+                    }
+                    continue;
+                }
+
+                // (A) START → 스냅 정류장 (중간 정류장이면 승차해서 체인 끝까지)
+                if (slot == startSlot) {
+                    expanded++;
+                    for (int i = 0; i < startCount; i++) {
+                        int v = snap.startNodes[i];
+                        double sd = d + snap.startMinutes[i];
+                        if (!cg.isInterior(v)) {
+                            ws.offer(g.nodeSlotStart[v] * stride + rides, sd,
+                                ws.heuristic(g, snap, v, minutesPerMeter, hStamp), cur, SnapEdges.startEdgeCode(i));
+                            continue;
+                        }
+
+                        int c = cg.chainEdge[v];
+                        int x0 = cg.expandStart[c];
+                        int from = x0 + cg.chainPos[v] + 1;
+                        int x1 = cg.expandStart[c + 1];
+                        double nd = sd + edgeWeight(minutes, delay, expand[from]);
+                        for (int k = 0; k < entCount; k++) {
+                            if (entEdge[k] != c || x0 + entPos[k] < from) continue;
+                            double t = nd;
+                            for (int x = from + 1; x <= x0 + entPos[k]; x++) {
+                                t += edgeWeight(minutes, delay, expand[x]);
+                            }
+                            offerEnd(ws, bound, endBase, maxRides, 1, t + snap.endMinutes[entEnd[k]], cur,
+                                -2 - startCount - (i * entries + k));
+                        }
+                        for (int x = from + 1; x < x1; x++) {
+                            nd += edgeWeight(minutes, delay, expand[x]);
+                        }
+                        int t = cg.edgeTarget[c];
+                        double ht = ws.heuristic(g, snap, t, minutesPerMeter, hStamp);
+                        if (nd + ht < bound[1]) {
+                            ws.offer(cg.edgeTargetSlot[c] * stride + 1, nd, ht, cur, SnapEdges.startEdgeCode(i));
+                        }
+                    }
+                    continue;
+                }
+
+                int u = g.slotNode[slot];
+                double hu = ws.heuristic(g, snap, u, minutesPerMeter, hStamp);
+                if (d + hu >= bound[rides]) {
+                    pruned++;
+                    continue;
+                }
+                expanded++;
+
+                int curPattern = g.slotPattern[slot];
+
+                // (B) 축약 간선 (원래 간선 순서대로 시간 누적)
+                for (int c = cg.edgeStart[u], end = cg.edgeStart[u + 1]; c < end; c++) {
+                    int pattern = cg.edgePattern[c];
+
+                    int nextRides = rides;
+                    double penalty = 0.0;
+                    if (pattern >= 0 && pattern != curPattern) {
+                        nextRides = rides + 1;
+                        if (rides > 0) {
+                            penalty = transferPenaltyMin;
+                        }
+                    }
+                    if (nextRides > maxRides) {
+                        continue;
+                    }
+
+                    int x0 = cg.expandStart[c];
+                    int x1 = cg.expandStart[c + 1];
+                    double nd = d + edgeWeight(minutes, delay, expand[x0]) + penalty;
+
+                    // 중간 정류장 도착 스냅
+                    if (ws.edgeMark[c] == markStamp) {
+                        for (int k = 0; k < entCount; k++) {
+                            if (entEdge[k] != c) continue;
+                            double t = nd;
+                            for (int x = x0 + 1; x <= x0 + entPos[k]; x++) {
+                                t += edgeWeight(minutes, delay, expand[x]);
+                            }
+                            offerEnd(ws, bound, endBase, maxRides, nextRides, t + snap.endMinutes[entEnd[k]], cur,
+                                -2 - startCount - (partialBase + c * entries + k));
+                        }
+                    }
+
+                    for (int x = x0 + 1; x < x1; x++) {
+                        nd += edgeWeight(minutes, delay, expand[x]);
+                    }
+                    int v = cg.edgeTarget[c];
+                    double hv = ws.heuristic(g, snap, v, minutesPerMeter, hStamp);
+                    if (nd + hv >= bound[nextRides]) {
+                        continue;
+                    }
+                    ws.offer(cg.edgeTargetSlot[c] * stride + nextRides, nd, hv, cur, c);
+                }
+
+                // (C) 스냅 정류장 → END (도보)
+                int endIdx = snap.endIndexOf(u);
+                if (endIdx >= 0 && rides >= 1) {
+                    offerEnd(ws, bound, endBase, maxRides, rides, d + snap.endMinutes[endIdx], cur, SnapEdges.endEdgeCode(endIdx));
+                }
+            }
+
+            // 결과 수집: 내부 코드를 원래 CSR 간선/스냅 코드로 풀어서 돌려준다.
+            List<PathCandidate> results = new ArrayList<>();
+            for (int r = 1; r <= maxRides; r++) {
+                if (bestEnd[r] == Double.POSITIVE_INFINITY) continue;
+
+                int len = 0;
+                for (int s = endBase + r; s != startState; s = prevState[s]) {
+                    len++;
+                }
+                int[] chained = new int[len];
+                int i = len;
+                for (int s = endBase + r; s != startState; s = prevState[s]) {
+                    chained[--i] = prevEdge[s];
+                }
+
+                int n = 0;
+                for (int code : chained) {
+                    n = expandCode(cg, snap, entEdge, entPos, entEnd, entries, code, null, n);
+                }
+                int[] codes = new int[n];
+                n = 0;
+                for (int code : chained) {
+                    n = expandCode(cg, snap, entEdge, entPos, entEnd, entries, code, codes, n);
+                }
+                results.add(new PathCandidate(r, bestEnd[r], codes));
+            }
+            return results;
+        } finally {
+            ws.reset();
+            if (stats != null) {
+                stats.goalDirected = goalDirected;
+                stats.expandedStates = expanded;
+                stats.prunedStates = pruned;
+                stats.earlyStop = earlyStop;
+                stats.elapsedNanos = System.nanoTime() - t0;
+            }
+        }
+    }
+
+    // 간선 소요시간(분) + 실시간 지연 (두 탐색이 같은 식으로 더해야 결과가 같다)
+    private static double edgeWeight(double[] minutes, float[] delay, int e) {
+        double w = Math.max(0.0, minutes[e]);
+        return (delay == null) ? w : w + delay[e];
+    }
+
+    private static int put(int[] out, int n, int code) {
+        if (out != null) out[n] = code;
+        return n + 1;
+    }
+
+    private static void offerEnd(Workspace ws, double[] bound, int endBase, int maxRides, int rides, double nd,
+                                 int fromState, int code) {
+        int endState = endBase + rides;
+        if (nd < ws.dist[endState]) {
+            ws.offer(endState, nd, 0.0, fromState, code);
+            updateBound(bound, ws.dist, endBase, maxRides);
+        }
+    }
+
+    // 압축 탐색의 내부 간선 코드 1개를 원래 코드 열로 풀어 out[n..]에 쓰고 새 길이를 돌려준다(out이 null이면 길이만 센다).
+    private static int expandCode(ChainGraph cg, SnapEdges snap, int[] entEdge, int[] entPos, int[] entEnd, int entries,
+                                  int code, int[] out, int n) {
+        final int[] expand = cg.expand;
+        if (code >= 0) {
+            for (int x = cg.expandStart[code]; x < cg.expandStart[code + 1]; x++) {
+                n = put(out, n, expand[x]);
+            }
+            return n;
+        }
+        if (code < Integer.MIN_VALUE / 2) {
+            n = put(out, n, code); // END j
+            return n;
+        }
+
+        int startCount = snap.startNodes.length;
+        int x = -2 - code;
+        if (x < startCount) {
+            // START i (중간 정류장이면 승차 후 체인 끝까지)
+            n = put(out, n, code);
+            int v = snap.startNodes[x];
+            if (cg.isInterior(v)) {
+                int c = cg.chainEdge[v];
+                for (int k = cg.expandStart[c] + cg.chainPos[v] + 1; k < cg.expandStart[c + 1]; k++) {
+                    n = put(out, n, expand[k]);
+                }
+            }
+            return n;
+        }
+
+        x -= startCount;
+        if (x < startCount * entries) {
+            // START i → 같은 체인 위 중간 정류장 END
+            int i = x / entries;
+            int e = x % entries;
+            int v = snap.startNodes[i];
+            int x0 = cg.expandStart[cg.chainEdge[v]];
+            n = put(out, n, SnapEdges.startEdgeCode(i));
+            for (int k = x0 + cg.chainPos[v] + 1; k <= x0 + entPos[e]; k++) {
+                n = put(out, n, expand[k]);
+            }
+            n = put(out, n, SnapEdges.endEdgeCode(entEnd[e]));
+            return n;
+        }
+
+        // 축약 간선 c를 중간 정류장까지만 타고 END
+        x -= startCount * entries;
+        int c = x / entries;
+        int e = x % entries;
+        int x0 = cg.expandStart[c];
+        for (int k = x0; k <= x0 + entPos[e]; k++) {
+            n = put(out, n, expand[k]);
+        }
+        n = put(out, n, SnapEdges.endEdgeCode(entEnd[e]));
+        return n;
+    }
+
+    /**
+     * 출발지 1곳 → 도착지 여러 곳 최단 시간 (다대다 행렬의 한 행)
+     *
+     * - 상태 공간/승차 규칙은 searchAllRides와 같고, END 대신 각 도착지의 스냅 정류장에서 도보로 끝난다.
+     * - 도착지마다 승차 1회 이상 경로 중 가장 빠른 시간과 그때의 승차 횟수를 기록한다.
+     * - 힙에서 꺼낸 시간이 "모든 도착지의 현재 최선값 중 최댓값" 이상이면 더 줄일 수 없으므로 끝낸다.
+     *
+     * @param outMinutes 도착지별 최단 시간(분), 도달 불가면 +INF (길이 = targets.count)
+     * @param outRides   도착지별 승차 횟수, 도달 불가면 0
+     * @return 확정한 상태 수
+     */
+    static int searchOneToMany(TransitGraphSnapshot g, int[] startNodes, double[] startMinutes, MatrixTargets targets,
+                               int maxRides, double transferPenaltyMin, double[] outMinutes, int[] outRides) {
+        final int stride = maxRides + 1;
+        final int stateCount = g.slotCount * stride;
+
+        Arrays.fill(outMinutes, 0, targets.count, Double.POSITIVE_INFINITY);
+        Arrays.fill(outRides, 0, targets.count, 0);
+        if (targets.count == 0) return 0;
+
+        Workspace ws = WORKSPACE.get();
+        ws.prepare(stateCount, g.nodeCount);
+
+        final double[] dist = ws.dist;
+        double worst = Double.POSITIVE_INFINITY;
+        int expanded = 0;
+
+        try {
+            for (int i = 0; i < startNodes.length; i++) {
+                ws.offer(g.nodeSlotStart[startNodes[i]] * stride, startMinutes[i], 0.0, -1, SnapEdges.startEdgeCode(i));
+            }
+
+            while (ws.heapSize > 0) {
+                int cur = ws.poll();
+                double d = dist[cur];
+                if (d >= worst) break; // 모든 도착지 확정
+                expanded++;
+
+                int slot = cur / stride;
+                int rides = cur - slot * stride;
+                int u = g.slotNode[slot];
+
+                // (A) 이 정류장에서 걸어갈 수 있는 도착지 갱신
+                if (rides >= 1) {
+                    boolean improved = false;
+                    for (int k = targets.nodeStart[u]; k < targets.nodeStart[u + 1]; k++) {
+                        int j = targets.destOf[k];
+                        double t = d + targets.walkMinutes[k];
+                        if (t < outMinutes[j]) {
+                            outMinutes[j] = t;
+                            outRides[j] = rides;
+                            improved = true;
+                        }
+                    }
+                    if (improved) {
+                        worst = 0.0;
+                        for (int j = 0; j < targets.count; j++) {
+                            if (outMinutes[j] > worst) worst = outMinutes[j];
+                        }
+                    }
+                }
+
+                // (B) 스냅샷 CSR 간선 (BUS / TRAM / 환승 도보)
+                int curPattern = g.slotPattern[slot];
+                for (int e = g.edgeStart[u], end = g.edgeStart[u + 1]; e < end; e++) {
+                    int pattern = g.edgePattern[e];
+
+                    int nextRides = rides;
+                    double penalty = 0.0;
+                    if (pattern >= 0 && pattern != curPattern) {
+                        nextRides = rides + 1;
+                        if (rides > 0) {
+                            penalty = transferPenaltyMin;
+                        }
+                    }
+                    if (nextRides > maxRides) {
+                        continue;
+                    }
+
+                    double nd = d + Math.max(0.0, g.edgeMinutes[e]) + penalty;
+                    if (nd >= worst) continue;
+                    ws.offer(g.edgeTargetSlot[e] * stride + nextRides, nd, 0.0, cur, e);
+                }
+            }
+            return expanded;
+        } finally {
+            ws.reset();
+        }
+    }
+
+    /**
+     * 정류장 도달 콜백 (searchWithinBudget)
+     */
+    interface ReachHandler {
+        /**
+         * @param node    정류장 노드 번호
+         * @param minutes 출발지에서의 최단 시간(분)
+         * @param rides   그때의 승차 횟수(0 = 출발지에서 걸어서 도달)
+         */
+        void onReach(int node, double minutes, int rides);
+    }
+
+    /**
+     * 출발지 1곳 → 시간 예산 안에 도달 가능한 모든 정류장 (등시선)
+     *
+     * - 상태 공간/승차 규칙은 searchAllRides와 같고, 도착 스냅 없이 예산(분)을 넘는 순간 끝낸다.
+     * - 힙에서 꺼내는 시간은 단조 증가하므로, 노드를 처음 꺼낼 때의 시간이 그 정류장의 최단 시간이다.
+     *   그때 한 번만 handler를 호출한다(시간 오름차순).
+     * - 노드 표시는 stamp 배열로 하므로 요청마다 노드 수만큼 새로 할당하지 않는다.
+     *
+     * @return 확정한 상태 수
+     */
+    static int searchWithinBudget(TransitGraphSnapshot g, int[] startNodes, double[] startMinutes,
+                                  int maxRides, double transferPenaltyMin, double budgetMinutes, ReachHandler handler) {
+        final int stride = maxRides + 1;
+        final int stateCount = g.slotCount * stride;
+
+        Workspace ws = WORKSPACE.get();
+        ws.prepare(stateCount, g.nodeCount);
+
+        final double[] dist = ws.dist;
+        final int[] mark = ws.nodeMark;
+        final int stamp = ws.nextNodeMarkStamp();
+        int expanded = 0;
+
+        try {
+            for (int i = 0; i < startNodes.length; i++) {
+                if (startMinutes[i] > budgetMinutes) continue;
+                ws.offer(g.nodeSlotStart[startNodes[i]] * stride, startMinutes[i], 0.0, -1, SnapEdges.startEdgeCode(i));
+            }
+
+            while (ws.heapSize > 0) {
+                int cur = ws.poll();
+                double d = dist[cur];
+                if (d > budgetMinutes) break; // 예산 초과
+                expanded++;
+
+                int slot = cur / stride;
+                int rides = cur - slot * stride;
+                int u = g.slotNode[slot];
+
+                if (mark[u] != stamp) {
+                    mark[u] = stamp;
+                    handler.onReach(u, d, rides);
+                }
+
+                int curPattern = g.slotPattern[slot];
+                for (int e = g.edgeStart[u], end = g.edgeStart[u + 1]; e < end; e++) {
+                    int pattern = g.edgePattern[e];
+
+                    int nextRides = rides;
+                    double penalty = 0.0;
+                    if (pattern >= 0 && pattern != curPattern) {
+                        nextRides = rides + 1;
+                        if (rides > 0) {
+                            penalty = transferPenaltyMin;
+                        }
+                    }
+                    if (nextRides > maxRides) {
+                        continue;
+                    }
+
+                    double nd = d + Math.max(0.0, g.edgeMinutes[e]) + penalty;
+                    if (nd > budgetMinutes) continue;
+                    ws.offer(g.edgeTargetSlot[e] * stride + nextRides, nd, 0.0, cur, e);
+                }
+            }
+            return expanded;
+        } finally {
+            ws.reset();
+        }
+    }
+
+    // bound[r] = max(END 승차 r..maxRides 현재 최선값), bound[0]은 승차 1회 이상 기준과 같다.
+    private static void updateBound(double[] bound, double[] dist, int endBase, int maxRides) {
+        double max = dist[endBase + maxRides];
+        bound[maxRides] = max;
+        for (int r = maxRides - 1; r >= 1; r--) {
+            max = Math.max(max, dist[endBase + r]);
+            bound[r] = max;
+        }
+        bound[0] = bound[1];
+    }
+
+    /**
+     * 스레드별 작업 배열 + 인덱스 이진 힙
+     *
+     * - dist는 +INF, heapPos는 -1 상태를 기본값으로 유지한다.
+     * - 값을 바꾼 상태 번호는 touched에 남겨 두었다가 reset()에서 그 칸만 되돌린다.
+     */
+    private static final class Workspace {
+        double[] dist = new double[0];
+        double[] key = new double[0];  // 힙 키 = dist + 하한(목표 지향이 아니면 dist와 같다)
+        int[] prevState = new int[0];
+        int[] prevEdge = new int[0];
+
+        int[] heap = new int[0];     // 힙 배열(상태 번호)
+        int[] heapPos = new int[0];  // 상태 번호 -> 힙 위치 (-1: 힙에 없음)
+        int heapSize = 0;
+
+        int[] touched = new int[0];
+        int touchedCount = 0;
+
+        // 노드별 하한 캐시(요청마다 stamp를 바꿔 무효화)
+        double[] h = new double[0];
+        int[] hStampOf = new int[0];
+        int hStamp = 0;
+
+        // 축약 간선별 표시(searchAllRidesChained, 요청마다 stamp를 바꿔 무효화)
+        int[] edgeMark = new int[0];
+        int edgeMarkStamp = 0;
+
+        // 노드별 도달 표시(searchWithinBudget, 요청마다 stamp를 바꿔 무효화)
+        int[] nodeMark = new int[0];
+        int nodeMarkStamp = 0;
+
+        void prepare(int stateCount, int nodeCount) {
+            if (h.length < nodeCount) {
+                h = new double[nodeCount];
+                hStampOf = new int[nodeCount];
+                hStamp = 0;
+                nodeMark = new int[nodeCount];
+                nodeMarkStamp = 0;
+            }
+            if (dist.length >= stateCount) return;
+
+            int cap = Math.max(stateCount, dist.length + (dist.length >> 1));
+            dist = new double[cap];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            key = new double[cap];
+            prevState = new int[cap];
+            prevEdge = new int[cap];
+            heap = new int[cap];
+            heapPos = new int[cap];
+            Arrays.fill(heapPos, -1);
+            touched = new int[cap];
+        }
+
+        int nextHeuristicStamp() {
+            if (++hStamp == Integer.MAX_VALUE) {
+                Arrays.fill(hStampOf, 0);
+                hStamp = 1;
+            }
+            return hStamp;
+        }
+
+        void prepareEdgeMarks(int edgeCount) {
+            if (edgeMark.length < edgeCount) {
+                edgeMark = new int[edgeCount];
+                edgeMarkStamp = 0;
+            }
+        }
+
+        int nextEdgeMarkStamp() {
+            if (++edgeMarkStamp == Integer.MAX_VALUE) {
+                Arrays.fill(edgeMark, 0);
+                edgeMarkStamp = 1;
+            }
+            return edgeMarkStamp;
+        }
+
+        int nextNodeMarkStamp() {
+            if (++nodeMarkStamp == Integer.MAX_VALUE) {
+                Arrays.fill(nodeMark, 0);
+                nodeMarkStamp = 1;
+            }
+            return nodeMarkStamp;
+        }
+
+        /**
+         * 노드 v에서 도착지까지의 최소 소요시간(분) 하한
+         */
+        double heuristic(TransitGraphSnapshot g, SnapEdges snap, int v, double minutesPerMeter, int stamp) {
+            if (minutesPerMeter == 0.0) return 0.0;
+            if (hStampOf[v] == stamp) return h[v];
+            double lb = PathGeo.haversineMeters(g.nodeLat[v], g.nodeLng[v], snap.toLat, snap.toLng) * minutesPerMeter;
+            h[v] = lb;
+            hStampOf[v] = stamp;
+            return lb;
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                int s = touched[i];
+                dist[s] = Double.POSITIVE_INFINITY;
+                heapPos[s] = -1;
+            }
+            touchedCount = 0;
+            heapSize = 0;
+        }
+
+        /**
+         * 더 짧은 거리면 갱신하고 힙에 넣거나(decrease-key) 위치를 올린다.
+         *
+         * @param h 이 상태에서 도착지까지의 하한(힙 키 = d + h)
+         */
+        void offer(int state, double d, double h, int fromState, int edgeCode) {
+            double old = dist[state];
+            if (d >= old) return;
+
+            if (old == Double.POSITIVE_INFINITY) {
+                touched[touchedCount++] = state;
+            }
+            dist[state] = d;
+            key[state] = d + h;
+            prevState[state] = fromState;
+            prevEdge[state] = edgeCode;
+
+            int pos = heapPos[state];
+            if (pos < 0) {
+                pos = heapSize++;
+                heap[pos] = state;
+                heapPos[state] = pos;
+            }
+            siftUp(pos);
+        }
+
+        int poll() {
+            int top = heap[0];
+            int last = heap[--heapSize];
+            heapPos[top] = -1;
+            if (heapSize > 0) {
+                heap[0] = last;
+                heapPos[last] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private void siftUp(int pos) {
+            int s = heap[pos];
+            double d = key[s];
+            while (pos > 0) {
+                int parent = (pos - 1) >>> 1;
+                int ps = heap[parent];
+                if (key[ps] <= d) break;
+                heap[pos] = ps;
+                heapPos[ps] = pos;
+                pos = parent;
+            }
+            heap[pos] = s;
+            heapPos[s] = pos;
+        }
+
+        private void siftDown(int pos) {
+            int s = heap[pos];
+            double d = key[s];
+            int half = heapSize >>> 1;
+            while (pos < half) {
+                int child = 2 * pos + 1;
+                int right = child + 1;
+                if (right < heapSize && key[heap[right]] < key[heap[child]]) {
+                    child = right;
+                }
+                int cs = heap[child];
+                if (d <= key[cs]) break;
+                heap[pos] = cs;
+                heapPos[cs] = pos;
+                pos = child;
+            }
+            heap[pos] = s;
+            heapPos[s] = pos;
+        }
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,97 @@
+// 추가됨: 인덱스 최소 힙 테스트 - decrease-key(offer), 임의 키 변경(update), clear 후 재사용
+
+package com.example.demo.service.path.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IndexedMinHeapTest {
+
+    @Test
+    void offerLowersKeyButNeverRaisesIt() {
+        IndexedMinHeap h = new IndexedMinHeap(4);
+        h.offer(0, 5.0);
+        h.offer(1, 3.0);
+        h.offer(2, 4.0);
+
+        h.offer(0, 1.0); // decrease-key: 맨 위로 올라간다
+        h.offer(1, 9.0); // 더 큰 키는 무시
+        assertEquals(3, h.size());
+        assertEquals(3.0, h.key(1));
+
+        assertEquals(0, h.poll());
+        assertEquals(1, h.poll());
+        assertEquals(2, h.poll());
+        assertTrue(h.isEmpty());
+        assertFalse(h.contains(0));
+    }
+
+    @Test
+    void updateMovesKeysBothWays() {
+        IndexedMinHeap h = new IndexedMinHeap(3);
+        h.offer(0, 1.0);
+        h.offer(1, 2.0);
+        h.offer(2, 3.0);
+
+        h.update(0, 10.0); // 커져서 아래로
+        h.update(2, 0.5);  // 작아져서 위로
+        assertEquals(2, h.peek());
+        assertEquals(0.5, h.peekKey());
+        assertEquals(2, h.poll());
+        assertEquals(1, h.poll());
+        assertEquals(0, h.poll());
+    }
+
+    @Test
+    void pollsInKeyOrderAfterRandomDecreaseKeys() {
+        int n = 500;
+        Random rnd = new Random(11);
+        IndexedMinHeap h = new IndexedMinHeap(16);
+        h.ensureCapacity(n);
+        double[] expected = new double[n];
+        for (int x = 0; x < n; x++) {
+            expected[x] = 1000.0 * rnd.nextDouble();
+            h.offer(x, expected[x]);
+        }
+        for (int t = 0; t < 2000; t++) {
+            int x = rnd.nextInt(n);
+            double k = 1000.0 * rnd.nextDouble();
+            h.offer(x, k);
+            expected[x] = Math.min(expected[x], k);
+        }
+
+        double last = Double.NEGATIVE_INFINITY;
+        boolean[] seen = new boolean[n];
+        while (!h.isEmpty()) {
+            double k = h.peekKey();
+            int x = h.poll();
+            assertEquals(expected[x], k);
+            assertTrue(k >= last);
+            assertFalse(seen[x]);
+            seen[x] = true;
+            last = k;
+        }
+        for (boolean s : seen) assertTrue(s);
+    }
+
+    @Test
+    void clearAllowsReuse() {
+        IndexedMinHeap h = new IndexedMinHeap(3);
+        h.offer(0, 1.0);
+        h.offer(1, 2.0);
+        h.clear();
+        assertTrue(h.isEmpty());
+        assertFalse(h.contains(1));
+
+        h.offer(1, 7.0); // clear 전 키(2.0)와 비교하지 않고 새로 넣는다
+        assertEquals(7.0, h.peekKey());
+        assertEquals(1, h.poll());
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,142 @@
+// 추가됨: 경로 엔진 동등성 테스트 - 같은 그래프/스냅에서 legacy, primitive(A* 포함), chained, CH, RAPTOR의 최단 시간 비교
+
+package com.example.demo.service.path.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * 고정 시드 그래프에서 임의 출발/도착 쌍마다 엔진 결과를 비교한다.
+ *
+ * - legacy / primitive / chained : 승차 횟수별 최단 시간이 모두 같아야 한다.
+ * - RAPTOR : 라운드 k에서 개선된 후보만 돌려주므로 "승차 k회 이하 최단 시간"과 같아야 한다.
+ * - CH     : 최단 경로 1개만 돌려주므로 전체 최단 시간과 같아야 한다.
+ */
+class PathEngineEquivalenceTest {
+
+    private static final int MAX_RIDES = 8;
+    private static final double PENALTY = PathResultBuilder.TRANSFER_PENALTY_MIN;
+    private static final double EPS = 1e-6;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(2);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void allEnginesAgreeOnBestMinutesPerRideCount() throws Exception {
+        for (long seed = 1; seed <= 3; seed++) {
+            compareOn(TransitGraphFixture.build(seed, 80, 12, null), seed);
+        }
+    }
+
+    @Test
+    void chWithReusedOrderMatchesSearchAfterWeightChange() throws Exception {
+        TransitGraphSnapshot g1 = TransitGraphFixture.build(7, 80, 12, null);
+        TransitGraphSnapshot g2 = TransitGraphFixture.build(7, 80, 12, new double[] { 1.3, 0.7, 1.0, 2.0, 0.5 });
+
+        ContractionHierarchy first = ContractionHierarchy.build(g1, PENALTY, pool, null);
+        ContractionHierarchy reused = ContractionHierarchy.build(g2, PENALTY, pool, first);
+        assertTrue(reused.reusedOrder, "가중치만 바뀐 스냅샷은 이전 축약 순서를 재사용해야 한다");
+
+        Random rnd = new Random(3);
+        for (int t = 0; t < 200; t++) {
+            SnapEdges snap = TransitGraphFixture.randomSnap(g2, rnd);
+            PathCandidate q = reused.query(snap);
+            if (q == null || q.rides == 0) continue;
+            assertEquals(bestOf(TransitSearchEngine.searchAllRides(g2, snap, MAX_RIDES, PENALTY)), q.totalMinutes, EPS, "pair " + t);
+        }
+    }
+
+    private void compareOn(TransitGraphSnapshot g, long seed) throws Exception {
+        PathServiceImpl legacyService = new PathServiceImpl();
+        ReflectionTestUtils.setField(legacyService, "maxRidesCap", MAX_RIDES);
+        RaptorPathServiceImpl raptorService = new RaptorPathServiceImpl();
+        RaptorData raptorData = RaptorData.build(g);
+        ChainGraph chain = ChainGraph.build(g);
+        ContractionHierarchy ch = ContractionHierarchy.build(g, PENALTY, pool, null);
+
+        Random rnd = new Random(seed * 31);
+        int compared = 0;
+        for (int t = 0; t < 150; t++) {
+            SnapEdges snap = TransitGraphFixture.randomSnap(g, rnd);
+            String where = "seed " + seed + " pair " + t;
+
+            List<PathCandidate> legacy = ReflectionTestUtils.invokeMethod(legacyService, "dijkstraAllCandidates",
+                g, snap, MAX_RIDES - 1, new SearchStats(), null);
+            assertNotNull(legacy);
+            TreeMap<Integer, Double> expected = byRides(legacy);
+
+            assertSameByRides(expected, byRides(TransitSearchEngine.searchAllRides(g, snap, MAX_RIDES, PENALTY, false, null)), where, EPS);
+            assertSameByRides(expected, byRides(TransitSearchEngine.searchAllRides(g, snap, MAX_RIDES, PENALTY, true, null)), where, EPS);
+            assertSameByRides(expected, byRides(TransitSearchEngine.searchAllRidesChained(chain, snap, MAX_RIDES, PENALTY, false, null, null)),
+                where, EPS);
+            assertSameByRides(expected, byRides(TransitSearchEngine.searchAllRidesChained(chain, snap, MAX_RIDES, PENALTY, true, null, null)),
+                where, EPS);
+
+            // RAPTOR: 라운드 k 후보 = 승차 k회 이하 최단 시간
+            List<PathCandidate> raptor = ReflectionTestUtils.invokeMethod(raptorService, "search", raptorData, snap, MAX_RIDES, PENALTY);
+            assertNotNull(raptor);
+            double raptorBest = Double.POSITIVE_INFINITY;
+            for (PathCandidate p : raptor) {
+                assertEquals(bestUpTo(expected, p.rides), p.totalMinutes, EPS, where + " raptor rides=" + p.rides);
+                raptorBest = Math.min(raptorBest, p.totalMinutes);
+            }
+            assertEquals(bestOf(legacy), raptorBest, EPS, where + " raptor best");
+
+            // CH: 승차 0회(도보만)는 호출 측이 다른 엔진으로 넘기므로 비교하지 않는다
+            PathCandidate q = ch.query(snap);
+            if (q != null && q.rides > 0) {
+                assertEquals(bestOf(legacy), q.totalMinutes, EPS, where + " ch");
+            }
+
+            if (!expected.isEmpty()) compared++;
+        }
+        assertTrue(compared >= 20, "경로가 있는 쌍이 너무 적다: " + compared);
+    }
+
+    private static void assertSameByRides(TreeMap<Integer, Double> expected, TreeMap<Integer, Double> actual, String where, double eps) {
+        assertEquals(expected.keySet(), actual.keySet(), where + " rides");
+        for (Integer r : expected.keySet()) {
+            assertEquals(expected.get(r).doubleValue(), actual.get(r).doubleValue(), eps, where + " rides=" + r);
+        }
+    }
+
+    private static TreeMap<Integer, Double> byRides(List<PathCandidate> list) {
+        TreeMap<Integer, Double> m = new TreeMap<>();
+        for (PathCandidate p : list) m.put(p.rides, p.totalMinutes);
+        return m;
+    }
+
+    private static double bestUpTo(TreeMap<Integer, Double> byRides, int rides) {
+        double best = Double.POSITIVE_INFINITY;
+        for (double v : byRides.headMap(rides, true).values()) best = Math.min(best, v);
+        return best;
+    }
+
+    private static double bestOf(List<PathCandidate> list) {
+        double best = Double.POSITIVE_INFINITY;
+        for (PathCandidate p : list) best = Math.min(best, p.totalMinutes);
+        return best;
+    }
+}
+
+// 추가됨 끝
@@ -0,0 +1,106 @@
+// 추가됨: 분위수 스케치 테스트 - 상대 오차, merge(버킷 합), BLOB 직렬화 왕복, 형식 검증
+
+package com.example.demo.service.path.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class QuantileSketchTest {
+
+    private static final double[] QS = { 0.0, 0.1, 0.5, 0.9, 0.99, 1.0 };
+
+    @Test
+    void quantilesStayWithinRelativeAccuracy() {
+        Random rnd = new Random(5);
+        double[] values = new double[5000];
+        QuantileSketch s = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 15 + 1785 * rnd.nextDouble();
+            s.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, s.count());
+        for (double q : QS) {
+            double exact = values[(int) Math.floor(q * (values.length - 1))];
+            assertEquals(exact, s.quantile(q), exact * QuantileSketch.RELATIVE_ACCURACY * 1.0001, "q=" + q);
+        }
+    }
+
+    @Test
+    void mergeEqualsSketchOfAllValues() {
+        Random rnd = new Random(9);
+        QuantileSketch a = new QuantileSketch();
+        QuantileSketch b = new QuantileSketch();
+        QuantileSketch all = new QuantileSketch();
+        for (int i = 0; i < 3000; i++) {
+            double v = (i % 2 == 0) ? 30 + 60 * rnd.nextDouble() : 200 + 400 * rnd.nextDouble();
+            (i % 3 == 0 ? a : b).add(v);
+            all.add(v);
+        }
+
+        a.merge(b);
+        a.merge(null);
+        assertEquals(all.count(), a.count());
+        assertArrayEquals(all.toBytes(), a.toBytes());
+        for (double q : QS) {
+            assertEquals(all.quantile(q), a.quantile(q), "q=" + q);
+        }
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        QuantileSketch s = new QuantileSketch();
+        for (int i = 0; i < 1000; i++) s.add(20 + i * 1.7);
+        for (int i = 0; i < 300; i++) s.add(90); // 한 버킷에 큰 개수(가변 길이 정수 여러 바이트)
+
+        QuantileSketch back = QuantileSketch.fromBytes(s.toBytes());
+        assertEquals(s.count(), back.count());
+        assertEquals(s.bucketCount(), back.bucketCount());
+        for (double q : QS) {
+            assertEquals(s.quantile(q), back.quantile(q), "q=" + q);
+        }
+        assertArrayEquals(s.toBytes(), back.toBytes());
+    }
+
+    @Test
+    void emptyAndBrokenBlobs() {
+        QuantileSketch empty = QuantileSketch.fromBytes(new QuantileSketch().toBytes());
+        assertTrue(empty.isEmpty());
+        assertTrue(Double.isNaN(empty.quantile(0.5)));
+        assertTrue(QuantileSketch.fromBytes(null).isEmpty());
+
+        QuantileSketch s = new QuantileSketch();
+        s.add(100);
+        byte[] bytes = s.toBytes();
+
+        byte[] otherVersion = bytes.clone();
+        otherVersion[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.fromBytes(otherVersion));
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.fromBytes(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test
+    void bucketRangeIsBounded() {
+        QuantileSketch s = new QuantileSketch();
+        double max = 0;
+        for (double v = 1; v < 1e9; v *= 1.01) {
+            s.add(v);
+            max = v;
+        }
+        assertTrue(s.bucketCount() <= QuantileSketch.MAX_BUCKETS);
+
+        // 낮은 쪽만 접히므로 최댓값 근처 분위수는 그대로 정확하다
+        double top = s.quantile(1.0);
+        assertTrue(Math.abs(top - max) <= max * QuantileSketch.RELATIVE_ACCURACY * 1.0001, "top=" + top);
+    }
+}
+
+// 추가됨 끝
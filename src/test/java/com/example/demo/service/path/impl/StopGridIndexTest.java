@@ -0,0 +1,142 @@
+// 추가됨: 정류장 격자 인덱스 테스트 - 반경/k-최근접 조회를 전체 순회 결과와 비교, Hits 정렬
+
+package com.example.demo.service.path.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class StopGridIndexTest {
+
+    private static final int N = 600;
+
+    private final double[] lat = new double[N];
+    private final double[] lng = new double[N];
+
+    StopGridIndexTest() {
+        Random rnd = new Random(17);
+        for (int i = 0; i < N; i++) {
+            // 약 5km 사각형 + 같은 좌표 정류장 몇 개(거리 동률)
+            lat[i] = (i % 50 == 0 && i > 0) ? lat[i - 1] : 36.30 + 0.05 * rnd.nextDouble();
+            lng[i] = (i % 50 == 0 && i > 0) ? lng[i - 1] : 127.35 + 0.05 * rnd.nextDouble();
+        }
+    }
+
+    @Test
+    void radiusMatchesBruteForce() {
+        StopGridIndex idx = StopGridIndex.build(lat, lng, N, StopGridIndex.DEFAULT_CELL_M);
+        Random rnd = new Random(23);
+        StopGridIndex.Hits hits = new StopGridIndex.Hits();
+        double[] radii = { 0, 50, 300, 500, 1200, 20000 };
+
+        for (int t = 0; t < 200; t++) {
+            // 범위 밖 조회점도 섞는다
+            double qLat = 36.29 + 0.07 * rnd.nextDouble();
+            double qLng = 127.34 + 0.07 * rnd.nextDouble();
+            double r = radii[t % radii.length];
+
+            hits.clear();
+            idx.radius(qLat, qLng, r, hits);
+            hits.sortByNode();
+
+            int[] expected = bruteForce(qLat, qLng, r);
+            assertArrayEquals(expected, Arrays.copyOf(hits.nodes, hits.count), "t=" + t + " r=" + r);
+            for (int i = 0; i < hits.count; i++) {
+                assertEquals(PathGeo.haversineMeters(qLat, qLng, lat[hits.nodes[i]], lng[hits.nodes[i]]), hits.meters[i], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void nearestMatchesBruteForce() {
+        StopGridIndex idx = StopGridIndex.build(lat, lng, N, StopGridIndex.DEFAULT_CELL_M);
+        Random rnd = new Random(29);
+        StopGridIndex.Hits hits = new StopGridIndex.Hits();
+        int[] ks = { 1, 5, 40 };
+        double[] radii = { 300, 800, 5000 };
+
+        for (int t = 0; t < 200; t++) {
+            double qLat = 36.29 + 0.07 * rnd.nextDouble();
+            double qLng = 127.34 + 0.07 * rnd.nextDouble();
+            int k = ks[t % ks.length];
+            double r = radii[(t / ks.length) % radii.length];
+
+            idx.nearest(qLat, qLng, k, r, hits);
+
+            int[] all = bruteForce(qLat, qLng, r);
+            List<double[]> byDist = new ArrayList<>();
+            for (int v : all) byDist.add(new double[] { PathGeo.haversineMeters(qLat, qLng, lat[v], lng[v]), v });
+            byDist.sort((a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+
+            assertEquals(Math.min(k, byDist.size()), hits.count, "t=" + t);
+            for (int i = 0; i < hits.count; i++) {
+                assertEquals((int) byDist.get(i)[1], hits.nodes[i], "t=" + t + " i=" + i);
+            }
+        }
+    }
+
+    @Test
+    void emptyIndexReturnsNothing() {
+        StopGridIndex idx = StopGridIndex.build(new double[0], new double[0], 0, StopGridIndex.DEFAULT_CELL_M);
+        StopGridIndex.Hits hits = new StopGridIndex.Hits();
+        idx.radius(36.3, 127.3, 1000, hits);
+        idx.nearest(36.3, 127.3, 5, 1000, hits);
+        assertEquals(0, hits.count);
+    }
+
+    @Test
+    void hitsSortKeepsNodeDistancePairs() {
+        Random rnd = new Random(31);
+        StopGridIndex.Hits hits = new StopGridIndex.Hits();
+        int n = 300;
+        for (int i = 0; i < n; i++) {
+            int node = rnd.nextInt(1000);
+            hits.add(node, node * 0.5 + (rnd.nextInt(3) == 0 ? 0 : 1000 - node)); // 거리 동률 포함
+        }
+        double[] pairSum = new double[n];
+        for (int i = 0; i < n; i++) pairSum[i] = hits.nodes[i] * 1e6 + hits.meters[i];
+        Arrays.sort(pairSum);
+
+        hits.sortByDistance();
+        for (int i = 1; i < n; i++) {
+            assertTrue(hits.meters[i - 1] < hits.meters[i]
+                || (hits.meters[i - 1] == hits.meters[i] && hits.nodes[i - 1] <= hits.nodes[i]), "i=" + i);
+        }
+        assertSamePairs(pairSum, hits);
+
+        hits.sortByNode();
+        for (int i = 1; i < n; i++) {
+            assertTrue(hits.nodes[i - 1] <= hits.nodes[i], "i=" + i);
+        }
+        assertSamePairs(pairSum, hits);
+
+        hits.truncate(10);
+        assertEquals(10, hits.count);
+        hits.truncate(0);
+        assertEquals(10, hits.count);
+    }
+
+    private void assertSamePairs(double[] expectedSorted, StopGridIndex.Hits hits) {
+        double[] now = new double[hits.count];
+        for (int i = 0; i < hits.count; i++) now[i] = hits.nodes[i] * 1e6 + hits.meters[i];
+        Arrays.sort(now);
+        assertArrayEquals(expectedSorted, now);
+    }
+
+    private int[] bruteForce(double qLat, double qLng, double r) {
+        List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < N; i++) {
+            if (PathGeo.haversineMeters(qLat, qLng, lat[i], lng[i]) <= r) out.add(i);
+        }
+        return out.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
+
+// 추가됨 끝
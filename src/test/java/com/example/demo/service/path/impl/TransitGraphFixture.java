@@ -0,0 +1,140 @@
+// 추가됨: 경로 엔진 테스트용 고정 시드 그래프(정류장/노선/도보 간선) - 스냅샷 생성자를 그대로 사용
+
+package com.example.demo.service.path.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 테스트용 작은 대중교통 그래프 (난수 시드 고정)
+ *
+ * - 정류장 n개를 약 3km 사각형 안에 흩뿌리고, 노선마다 정류장 몇 개를 잇는 BUS 간선(한 방향)을 만든다.
+ * - 마지막 노선은 TRAM으로 둔다. 300m 이내 정류장 쌍은 양방향 도보 환승 간선으로 잇는다.
+ * - minutesScale로 BUS/TRAM 소요시간만 바꾼 같은 구성의 그래프를 만들 수 있다(가중치만 바뀐 스냅샷).
+ */
+final class TransitGraphFixture {
+
+    static final double BASE_LAT = 36.35;
+    static final double BASE_LNG = 127.38;
+    static final double SIZE_DEG = 0.03;
+
+    private TransitGraphFixture() {
+    }
+
+    static TransitGraphSnapshot build(long seed, int stops, int routes, double[] minutesScale) {
+        Random rnd = new Random(seed);
+        double[] lat = new double[stops];
+        double[] lng = new double[stops];
+        String[] ids = new String[stops];
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < stops; i++) {
+            lat[i] = BASE_LAT + rnd.nextDouble() * SIZE_DEG;
+            lng[i] = BASE_LNG + rnd.nextDouble() * SIZE_DEG;
+            ids[i] = "S" + i;
+            index.put(ids[i], i);
+        }
+
+        List<int[]> edges = new ArrayList<>();       // {source, target, mode, route, dir}
+        List<Double> minutes = new ArrayList<>();
+        String[] routeIds = new String[routes];
+        Map<String, String> routeNos = new HashMap<>();
+        int rideEdge = 0;
+        for (int r = 0; r < routes; r++) {
+            routeIds[r] = "R" + r;
+            routeNos.put(routeIds[r], String.valueOf(100 + r));
+            byte mode = (r == routes - 1) ? TransitGraphSnapshot.MODE_TRAM : TransitGraphSnapshot.MODE_BUS;
+            int len = 4 + rnd.nextInt(6);
+            boolean[] used = new boolean[stops];
+            int cur = rnd.nextInt(stops);
+            used[cur] = true;
+            for (int k = 1; k < len; k++) {
+                int next = nearestUnused(lat, lng, cur, used, rnd);
+                if (next < 0) break;
+                used[next] = true;
+                double m = PathGeo.haversineMeters(lat[cur], lng[cur], lat[next], lng[next]);
+                double scale = (minutesScale == null) ? 1.0 : minutesScale[rideEdge % minutesScale.length];
+                rideEdge++;
+                edges.add(new int[] { cur, next, mode, r, (mode == TransitGraphSnapshot.MODE_BUS) ? 0 : -1 });
+                minutes.add(Math.max(0.5, m / 300.0 * (0.8 + 0.7 * rnd.nextDouble())) * scale);
+                cur = next;
+            }
+        }
+        for (int a = 0; a < stops; a++) {
+            for (int b = 0; b < stops; b++) {
+                if (a == b) continue;
+                double m = PathGeo.haversineMeters(lat[a], lng[a], lat[b], lng[b]);
+                if (m <= 300.0) {
+                    edges.add(new int[] { a, b, TransitGraphSnapshot.MODE_WALK, -1, -1 });
+                    minutes.add(PathGeo.metersToWalkMinutes(m));
+                }
+            }
+        }
+
+        // CSR: 출발 노드 순으로 정렬(같은 출발 노드 안에서는 추가 순서 유지)
+        Integer[] order = new Integer[edges.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Integer.compare(edges.get(x)[0], edges.get(y)[0]));
+
+        int m = order.length;
+        int[] edgeStart = new int[stops + 1];
+        int[] src = new int[m];
+        int[] dst = new int[m];
+        double[] min = new double[m];
+        byte[] mode = new byte[m];
+        int[] route = new int[m];
+        byte[] dir = new byte[m];
+        for (int i = 0; i < m; i++) {
+            int[] e = edges.get(order[i]);
+            src[i] = e[0];
+            dst[i] = e[1];
+            mode[i] = (byte) e[2];
+            route[i] = e[3];
+            dir[i] = (byte) e[4];
+            min[i] = minutes.get(order[i]);
+            edgeStart[e[0] + 1]++;
+        }
+        for (int v = 0; v < stops; v++) edgeStart[v + 1] += edgeStart[v];
+
+        return new TransitGraphSnapshot(1L, 0L, 0L, rideEdge, ids, lat, lng, index, edgeStart, src, dst, min, mode, route, dir,
+            routeIds, new String[stops], routeNos);
+    }
+
+    // cur에서 가까운 미사용 정류장 3개 중 하나(노선이 지그재그로 튀지 않게)
+    private static int nearestUnused(double[] lat, double[] lng, int cur, boolean[] used, Random rnd) {
+        int[] best = { -1, -1, -1 };
+        double[] bestM = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+        for (int v = 0; v < lat.length; v++) {
+            if (used[v]) continue;
+            double m = PathGeo.haversineMeters(lat[cur], lng[cur], lat[v], lng[v]);
+            for (int k = 0; k < 3; k++) {
+                if (m < bestM[k]) {
+                    for (int j = 2; j > k; j--) {
+                        bestM[j] = bestM[j - 1];
+                        best[j] = best[j - 1];
+                    }
+                    bestM[k] = m;
+                    best[k] = v;
+                    break;
+                }
+            }
+        }
+        int pick = best[rnd.nextInt(3)];
+        return (pick >= 0) ? pick : best[0];
+    }
+
+    /**
+     * 사각형 안 임의 좌표 쌍의 스냅 (반경 500m, 후보 상한 없음)
+     */
+    static SnapEdges randomSnap(TransitGraphSnapshot g, Random rnd) {
+        return SnapEdges.build(g,
+            BASE_LAT + rnd.nextDouble() * SIZE_DEG, BASE_LNG + rnd.nextDouble() * SIZE_DEG,
+            BASE_LAT + rnd.nextDouble() * SIZE_DEG, BASE_LNG + rnd.nextDouble() * SIZE_DEG,
+            500.0, 0);
+    }
+}
+
+// 추가됨 끝